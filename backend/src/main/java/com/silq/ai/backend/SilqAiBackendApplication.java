@@ -1,7 +1,10 @@
 package com.silq.ai.backend;
 
+import com.silq.ai.backend.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * Main Spring Boot application class for Silq AI Backend
@@ -10,6 +13,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * It provides REST API endpoints for AI-powered writing assistance.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class SilqAiBackendApplication {
 
     public static void main(String[] args) {
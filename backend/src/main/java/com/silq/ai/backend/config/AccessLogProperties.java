@@ -0,0 +1,25 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the structured access log, one event per chat request.
+ *
+ * Bound from the {@code silq.access-log.*} properties in application.properties.
+ *
+ * @param enabled Whether access events are written at all
+ * @param bufferSize Events that can wait for the writer thread; rounded up to a power of two, further events are dropped
+ * @param sampleRate Share of successful requests that are logged, from 0 to 1
+ * @param slowThreshold Requests at least this slow are always logged, like failures
+ */
+@ConfigurationProperties(prefix = "silq.access-log")
+public record AccessLogProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("8192") int bufferSize,
+    @DefaultValue("1.0") double sampleRate,
+    @DefaultValue("5s") Duration slowThreshold
+) {
+}
@@ -0,0 +1,34 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings for admission control in front of the chat service.
+ *
+ * Bound from the {@code silq.admission.*} properties in application.properties.
+ *
+ * @param enabled Whether requests are admitted through the gate at all
+ * @param maxConcurrent Upstream calls in flight at once, across all keys and classes
+ * @param maxQueued Requests allowed to wait for a slot, across all keys and classes
+ * @param maxQueuedPerKey Requests one API key may have waiting in one class
+ * @param interactiveQueueTimeout Longest time an interactive request waits before it is rejected
+ * @param batchQueueTimeout Longest time a batch item waits before it is rejected
+ * @param backgroundQueueTimeout Longest time a background request waits before it is rejected
+ * @param weights Relative share of the capacity by API key when keys compete; unlisted keys have weight 1
+ */
+@ConfigurationProperties(prefix = "silq.admission")
+public record AdmissionProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("256") int maxConcurrent,
+    @DefaultValue("512") int maxQueued,
+    @DefaultValue("16") int maxQueuedPerKey,
+    @DefaultValue("2s") Duration interactiveQueueTimeout,
+    @DefaultValue("30s") Duration batchQueueTimeout,
+    @DefaultValue("60s") Duration backgroundQueueTimeout,
+    Map<String, Integer> weights
+) {
+}
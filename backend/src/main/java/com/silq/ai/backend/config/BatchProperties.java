@@ -0,0 +1,19 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the batch chat endpoint.
+ *
+ * Bound from the {@code silq.batch.*} properties in application.properties.
+ *
+ * @param maxItems Largest number of prompts accepted in one batch
+ * @param maxConcurrencyPerKey Batch items one API key may have in flight at once, across all of its batches
+ */
+@ConfigurationProperties(prefix = "silq.batch")
+public record BatchProperties(
+    @DefaultValue("50") int maxItems,
+    @DefaultValue("4") int maxConcurrencyPerKey
+) {
+}
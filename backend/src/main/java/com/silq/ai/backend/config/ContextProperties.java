@@ -0,0 +1,27 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the content-addressed store of document context.
+ *
+ * Bound from the {@code silq.context.*} properties in application.properties.
+ *
+ * @param enabled Whether requests may reference stored context; when off, only inline text is accepted
+ * @param idleTtl Time after the last use until a chunk is forgotten
+ * @param maxChars Upper bound on the summed size of all stored chunks; eviction is W-TinyLFU
+ * @param maxChunkChars Largest single chunk accepted
+ * @param maxParts Most context parts one request may carry
+ */
+@ConfigurationProperties(prefix = "silq.context")
+public record ContextProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("1h") Duration idleTtl,
+    @DefaultValue("50000000") long maxChars,
+    @DefaultValue("100000") int maxChunkChars,
+    @DefaultValue("64") int maxParts
+) {
+}
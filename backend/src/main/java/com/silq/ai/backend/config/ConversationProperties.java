@@ -0,0 +1,35 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the server-side conversation store used by multi-turn chat.
+ *
+ * Bound from the {@code silq.conversation.*} properties in application.properties.
+ *
+ * @param enabled Whether requests with a conversation id get their history attached
+ * @param idleTtl Time after the last turn until a conversation is forgotten
+ * @param maxChars Upper bound on the summed size of all stored conversations; eviction is W-TinyLFU
+ * @param contextTokens Token budget for one upstream prompt: summary, earlier turns and the new request
+ * @param summaryTokens Share of the budget kept for the digest of turns that no longer fit
+ */
+@ConfigurationProperties(prefix = "silq.conversation")
+public record ConversationProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("30m") Duration idleTtl,
+    @DefaultValue("20000000") long maxChars,
+    @DefaultValue("3000") int contextTokens,
+    @DefaultValue("300") int summaryTokens
+) {
+
+    /**
+     * Gets the tokens earlier turns may occupy in storage, i.e. the context
+     * budget minus the share reserved for the summary.
+     */
+    public int historyTokens() {
+        return Math.max(0, contextTokens - summaryTokens);
+    }
+}
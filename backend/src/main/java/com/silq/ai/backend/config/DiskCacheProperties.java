@@ -0,0 +1,33 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the persistent tier of the response cache, which keeps
+ * responses across restarts in memory-mapped files.
+ *
+ * Bound from the {@code silq.cache.disk.*} properties in application.properties.
+ *
+ * @param enabled Whether responses are also written to disk; needs the in-memory cache
+ * @param directory Directory of the segment files; one process per directory
+ * @param segmentSize Size of one segment file, the unit of allocation, compaction and eviction; 1MB to 1GB
+ * @param maxSize Upper bound on the summed size of all segment files; the oldest segments are dropped first
+ * @param maxEntries Most responses indexed at once; the off-heap index has 16-byte slots and stays under 75% full
+ * @param minLiveRatio Share of a segment that must still be current for it to be kept as is; sparser ones are rewritten
+ * @param compactionInterval Time between compaction passes
+ */
+@ConfigurationProperties(prefix = "silq.cache.disk")
+public record DiskCacheProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("data/response-cache") String directory,
+    @DefaultValue("64MB") DataSize segmentSize,
+    @DefaultValue("1GB") DataSize maxSize,
+    @DefaultValue("500000") int maxEntries,
+    @DefaultValue("0.5") double minLiveRatio,
+    @DefaultValue("1m") Duration compactionInterval
+) {
+}
@@ -0,0 +1,29 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for hedged requests across providers.
+ *
+ * Bound from the {@code silq.hedging.*} properties in application.properties.
+ *
+ * @param enabled Whether requests that carry keys for several providers may be hedged
+ * @param percentile Latency percentile of the primary model after which the hedge is sent
+ * @param minDelay Lower bound on the hedge delay
+ * @param maxDelay Upper bound on the hedge delay
+ * @param initialDelay Delay used until enough latency samples have been observed
+ * @param window Number of recent latencies per provider and model the percentile is computed over
+ */
+@ConfigurationProperties(prefix = "silq.hedging")
+public record HedgingProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("0.95") double percentile,
+    @DefaultValue("250ms") Duration minDelay,
+    @DefaultValue("10s") Duration maxDelay,
+    @DefaultValue("3s") Duration initialDelay,
+    @DefaultValue("256") int window
+) {
+}
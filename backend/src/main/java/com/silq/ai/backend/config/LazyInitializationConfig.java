@@ -0,0 +1,25 @@
+package com.silq.ai.backend.config;
+
+import com.silq.ai.backend.controllers.ChatController;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Decides which beans stay eager when {@code spring.main.lazy-initialization}
+ * is on, as in the fast-startup profile.
+ *
+ * The chat controller is excluded, and with it everything it depends on: the
+ * chat service, caches, provider clients and tokenizer are all built during
+ * startup, so the first chat request on a fresh node does not pay for them.
+ * Beans off that path, such as the internal LLM endpoints and most actuator
+ * endpoints, are created on first use.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter chatPathLazyInitializationExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ChatController.class);
+    }
+}
@@ -0,0 +1,38 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Behaviour of the embedded mock provider that the {@code mock} profile serves.
+ *
+ * Bound from the {@code silq.mock.*} properties, see application-mock.properties.
+ * Latencies follow a log-normal distribution fitted to the given median and
+ * 99th percentile, which is roughly how real completion latencies are shaped.
+ *
+ * @param latencyMedian Median time until the answer (or, when streaming, the first chunk)
+ * @param latencyP99 99th percentile of that time; equal to the median for a fixed latency
+ * @param errorRate Fraction of calls answered with an error status instead of a completion
+ * @param errorStatuses Statuses failed calls are answered with, picked uniformly
+ * @param responseMinWords Shortest completion, in words
+ * @param responseMaxWords Longest completion, in words
+ * @param streamChunkWords Words per streamed chunk
+ * @param streamChunkInterval Delay between streamed chunks
+ * @param seed Seed for all random draws, so runs with the same settings see the same sequence of answers
+ */
+@ConfigurationProperties(prefix = "silq.mock")
+public record MockProviderProperties(
+    @DefaultValue("400ms") Duration latencyMedian,
+    @DefaultValue("1500ms") Duration latencyP99,
+    @DefaultValue("0") double errorRate,
+    @DefaultValue("503") List<Integer> errorStatuses,
+    @DefaultValue("80") int responseMinWords,
+    @DefaultValue("300") int responseMaxWords,
+    @DefaultValue("4") int streamChunkWords,
+    @DefaultValue("15ms") Duration streamChunkInterval,
+    @DefaultValue("42") long seed
+) {
+}
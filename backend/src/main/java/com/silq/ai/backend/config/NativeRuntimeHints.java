@@ -0,0 +1,25 @@
+package com.silq.ai.backend.config;
+
+import com.silq.ai.backend.dto.BatchChatItem;
+import com.silq.ai.backend.dto.ChatResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection and resource hints for a GraalVM native image that Spring AOT
+ * cannot derive from the bean definitions and controller signatures.
+ *
+ * Streamed events are serialized by Jackson from inside {@code SseEmitter},
+ * so their payload types never appear in a handler signature. The tokenizer
+ * loads its BPE ranks from classpath resources of the JTokkit jar.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                ChatResponse.class, BatchChatItem.class);
+        hints.resources().registerPattern("com/knuddels/jtokkit/*.tiktoken");
+    }
+}
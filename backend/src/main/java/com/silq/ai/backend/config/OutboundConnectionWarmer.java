@@ -0,0 +1,53 @@
+package com.silq.ai.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Opens connections to the configured upstream hosts once the application is ready.
+ *
+ * A cheap HEAD request per host pays the TCP and TLS handshake (and HTTP/2
+ * negotiation) up front, so the first user chats reuse a pooled connection.
+ * The status code is irrelevant; failures are logged and otherwise ignored.
+ */
+@Component
+public class OutboundConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundConnectionWarmer.class);
+
+    @Autowired
+    private HttpClient outboundHttpClient;
+
+    @Autowired
+    private OutboundHttpProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        for (String url : properties.prewarmUrls().stream().distinct().toList()) {
+            long startedAt = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(properties.readTimeout())
+                    .build();
+
+            outboundHttpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+                        if (error != null) {
+                            log.warn("Failed to pre-warm connection to {}: {}", url, error.getMessage());
+                        } else {
+                            log.info("Pre-warmed connection to {} using {} in {} ms", url, response.version(), elapsedMs);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.silq.ai.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-host connection pool metrics for the outbound client.
+ *
+ * The JDK client does not expose its pool, so usage is measured at the edge:
+ * {@code silq.http.client.active} counts exchanges currently holding a
+ * connection (or HTTP/2 stream) to a host, and
+ * {@code silq.http.client.exchanges} counts finished exchanges by outcome.
+ * RestTemplate exchanges pass through as an interceptor; exchanges sent
+ * straight through the JDK client are registered with {@link #track}, so both
+ * paths show up alike. Latency per host is covered by Spring's
+ * {@code http.client.requests} for RestTemplate, and by
+ * {@code silq.llm.upstream} for every provider call.
+ */
+public class OutboundHttpMetrics implements ClientHttpRequestInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> activeByHost = new ConcurrentHashMap<>();
+
+    public OutboundHttpMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String host = request.getURI().getHost();
+        AtomicInteger active = activeByHost.computeIfAbsent(host, this::registerActiveGauge);
+        active.incrementAndGet();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            exchangeCounter(host, response.getStatusCode().isError() ? "error" : "success").increment();
+            return new ClosingClientHttpResponse(response, active::decrementAndGet);
+        } catch (IOException | RuntimeException e) {
+            active.decrementAndGet();
+            exchangeCounter(host, "io_error").increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Counts an exchange sent with {@code HttpClient.sendAsync}, which bypasses
+     * the RestTemplate interceptors: it is active until {@code exchange}
+     * completes, and then counted by its status or failure.
+     *
+     * @param uri Target of the exchange
+     * @param exchange The client's future, completed once the whole body has arrived
+     */
+    public void track(URI uri, CompletableFuture<? extends HttpResponse<?>> exchange) {
+        String host = uri.getHost();
+        AtomicInteger active = activeByHost.computeIfAbsent(host, this::registerActiveGauge);
+        active.incrementAndGet();
+        exchange.whenComplete((response, error) -> {
+            active.decrementAndGet();
+            exchangeCounter(host, outcomeOf(response, error)).increment();
+        });
+    }
+
+    private static String outcomeOf(HttpResponse<?> response, Throwable error) {
+        if (error == null) {
+            return response.statusCode() >= 400 ? "error" : "success";
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        // Aborted by the caller, e.g. on its deadline; not a fault of the connection
+        return cause instanceof CancellationException ? "cancelled" : "io_error";
+    }
+
+    private AtomicInteger registerActiveGauge(String host) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("silq.http.client.active", active, AtomicInteger::get)
+                .description("Outbound exchanges currently in flight per upstream host")
+                .tag("host", host)
+                .register(meterRegistry);
+        return active;
+    }
+
+    private Counter exchangeCounter(String host, String outcome) {
+        return Counter.builder("silq.http.client.exchanges")
+                .description("Completed outbound exchanges per upstream host")
+                .tag("host", host)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for the outbound HTTP client used to reach the LLM providers.
+ *
+ * Bound from the {@code silq.http.*} properties in application.properties.
+ *
+ * @param connectTimeout Maximum time to establish a TCP/TLS connection
+ * @param readTimeout Maximum time to wait for the response headers once the request is sent
+ * @param totalTimeout Hard cap on the whole exchange, including reading the body
+ * @param http2 Whether to negotiate HTTP/2 (multiplexed streams) when the upstream supports it
+ * @param poolSize Maximum idle HTTP/1.1 connections kept per client, 0 for unbounded
+ * @param keepAlive How long an idle pooled connection is kept open
+ * @param prewarmUrls Upstream URLs to open connections to once the application is ready
+ */
+@ConfigurationProperties(prefix = "silq.http")
+public record OutboundHttpProperties(
+    @DefaultValue("5s") Duration connectTimeout,
+    @DefaultValue("60s") Duration readTimeout,
+    @DefaultValue("120s") Duration totalTimeout,
+    @DefaultValue("true") boolean http2,
+    @DefaultValue("0") int poolSize,
+    @DefaultValue("60s") Duration keepAlive,
+    @DefaultValue List<String> prewarmUrls
+) {
+}
@@ -0,0 +1,48 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Settings for the per-API-key rate limiter on the chat path.
+ *
+ * Bound from the {@code silq.ratelimit.*} properties in application.properties.
+ *
+ * @param enabled Whether chat requests are rate limited at all
+ * @param slots Number of API keys each provider can track at once; rounded up to a power of two
+ * @param defaults Limits applied to providers without an override
+ * @param providers Per-provider overrides, keyed by canonical provider name
+ */
+@ConfigurationProperties(prefix = "silq.ratelimit")
+public record RateLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("16384") int slots,
+    @DefaultValue Limits defaults,
+    @DefaultValue Map<String, Limits> providers
+) {
+
+    /**
+     * Budget granted to a single API key for one provider. Each budget is also
+     * the largest burst a key can spend at once.
+     *
+     * @param requestsPerMinute Requests a key may send per minute
+     * @param tokensPerMinute Estimated prompt tokens a key may send per minute
+     */
+    public record Limits(
+        @DefaultValue("300") int requestsPerMinute,
+        @DefaultValue("90000") int tokensPerMinute
+    ) {
+    }
+
+    /**
+     * Gets the limits that apply to the given provider.
+     *
+     * @param provider Canonical provider name
+     * @return The provider override if configured, otherwise the defaults
+     */
+    public Limits limitsFor(String provider) {
+        return providers.getOrDefault(provider, defaults);
+    }
+}
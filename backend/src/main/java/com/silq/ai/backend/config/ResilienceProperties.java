@@ -0,0 +1,51 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the per-provider circuit breaker, adaptive concurrency limit and retries.
+ *
+ * Bound from the {@code silq.resilience.*} properties in application.properties.
+ *
+ * @param enabled Whether provider calls go through the breaker and limiter at all
+ * @param window Number of recent calls the failure and slow-call rates are computed over
+ * @param minimumCalls Calls that must be recorded before the breaker may trip
+ * @param failureRateThreshold Fraction of failed calls in the window that opens the breaker
+ * @param slowCallRateThreshold Fraction of slow calls in the window that opens the breaker
+ * @param slowCallDuration Latency above which a call counts as slow
+ * @param openDuration How long the breaker fails fast before letting probe calls through
+ * @param halfOpenCalls Probe calls that must all succeed to close the breaker again
+ * @param initialLimit Concurrency limit per provider at startup
+ * @param minLimit Lower bound on the concurrency limit
+ * @param maxLimit Upper bound on the concurrency limit
+ * @param backoffRatio Factor the limit is multiplied by when the provider shows overload
+ * @param latencyTolerance Multiple of the model's average latency sample above which a call signals overload
+ * @param retryMaxAttempts Attempts per call, including the first; 1 disables retries
+ * @param retryBaseDelay Upper bound of the random backoff before the first retry, doubled for each further one
+ * @param retryMaxDelay Cap on the backoff bound
+ * @param retryMinBudget Time the caller's deadline must still leave after the backoff for a retry to be made
+ */
+@ConfigurationProperties(prefix = "silq.resilience")
+public record ResilienceProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("100") int window,
+    @DefaultValue("20") int minimumCalls,
+    @DefaultValue("0.5") double failureRateThreshold,
+    @DefaultValue("0.8") double slowCallRateThreshold,
+    @DefaultValue("30s") Duration slowCallDuration,
+    @DefaultValue("30s") Duration openDuration,
+    @DefaultValue("3") int halfOpenCalls,
+    @DefaultValue("20") int initialLimit,
+    @DefaultValue("2") int minLimit,
+    @DefaultValue("200") int maxLimit,
+    @DefaultValue("0.9") double backoffRatio,
+    @DefaultValue("2.0") double latencyTolerance,
+    @DefaultValue("3") int retryMaxAttempts,
+    @DefaultValue("200ms") Duration retryBaseDelay,
+    @DefaultValue("2s") Duration retryMaxDelay,
+    @DefaultValue("1s") Duration retryMinBudget
+) {
+}
@@ -0,0 +1,49 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings for the in-memory response cache in front of the LLM providers.
+ *
+ * Bound from the {@code silq.cache.*} properties in application.properties.
+ *
+ * @param enabled Whether responses are cached at all
+ * @param maxChars Upper bound on the summed length of cached responses; eviction is W-TinyLFU
+ * @param ttl Default time an entry stays valid after it is written
+ * @param providerTtl Per-provider TTL overrides, keyed by canonical provider name
+ * @param disabledProviders Providers whose responses are never cached
+ */
+@ConfigurationProperties(prefix = "silq.cache")
+public record ResponseCacheProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("10000000") long maxChars,
+    @DefaultValue("10m") Duration ttl,
+    @DefaultValue Map<String, Duration> providerTtl,
+    @DefaultValue Set<String> disabledProviders
+) {
+
+    /**
+     * Gets the TTL to apply to entries from the given provider.
+     *
+     * @param provider Canonical provider name
+     * @return The provider override if configured, otherwise the default TTL
+     */
+    public Duration ttlFor(String provider) {
+        return providerTtl.getOrDefault(provider, ttl);
+    }
+
+    /**
+     * Checks whether responses from the given provider may be cached.
+     *
+     * @param provider Canonical provider name
+     * @return true if caching is enabled and the provider has not opted out
+     */
+    public boolean isCacheable(String provider) {
+        return enabled && !disabledProviders.contains(provider);
+    }
+}
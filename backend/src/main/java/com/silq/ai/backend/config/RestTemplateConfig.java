@@ -1,22 +1,102 @@
 package com.silq.ai.backend.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
 /**
  * Configuration class for RestTemplate and other HTTP-related beans.
+ *
+ * All provider traffic goes through a single shared JDK {@link HttpClient}, which
+ * keeps per-host keep-alive pools for HTTP/1.1 and multiplexes concurrent requests
+ * over one connection per host when the upstream negotiates HTTP/2.
  */
 @Configuration
 public class RestTemplateConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(RestTemplateConfig.class);
+
+    /**
+     * Provides the shared outbound HTTP client.
+     *
+     * @param properties Outbound client settings
+     * @param environment Used to detect whether virtual threads are enabled
+     * @return HttpClient configured with pooling, protocol and connect timeout
+     */
+    @Bean
+    public HttpClient outboundHttpClient(OutboundHttpProperties properties, Environment environment) {
+        configureConnectionPool(properties);
+
+        HttpClient.Version version = properties.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+        boolean virtualThreads = Threading.VIRTUAL.isActive(environment);
+        log.info("Outbound HTTP client: version={}, connectTimeout={}, readTimeout={}, totalTimeout={}, virtualThreads={}",
+                version, properties.connectTimeout(), properties.readTimeout(), properties.totalTimeout(), virtualThreads);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(properties.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (virtualThreads) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Provides the per-host pool metrics, shared by RestTemplate and the async provider calls.
+     *
+     * @param meterRegistry Registry for the metrics
+     * @return The metrics, usable as a RestTemplate interceptor
+     */
+    @Bean
+    public OutboundHttpMetrics outboundHttpMetrics(MeterRegistry meterRegistry) {
+        return new OutboundHttpMetrics(meterRegistry);
+    }
+
     /**
      * Provides a RestTemplate bean for making HTTP requests to external APIs.
-     * 
+     *
+     * @param builder Boot's builder, which wires in {@code http.client.requests} observations
+     * @param outboundHttpClient The shared pooled client
+     * @param properties Outbound client settings
+     * @param outboundHttpMetrics The per-host pool metrics
      * @return Configured RestTemplate instance
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, HttpClient outboundHttpClient,
+                                     OutboundHttpProperties properties, OutboundHttpMetrics outboundHttpMetrics) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(outboundHttpClient);
+        requestFactory.setReadTimeout(properties.readTimeout());
+
+        return builder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(
+                        outboundHttpMetrics,
+                        new TotalTimeoutInterceptor(properties.totalTimeout()))
+                .build();
+    }
+
+    /**
+     * The JDK client reads its pool limits from system properties when the pool
+     * is first created, so they must be in place before the first client is built.
+     * Explicit -D flags on the command line take precedence.
+     */
+    private void configureConnectionPool(OutboundHttpProperties properties) {
+        if (properties.poolSize() > 0 && System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(properties.poolSize()));
+        }
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(properties.keepAlive().toSeconds()));
+        }
     }
 }
@@ -0,0 +1,58 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for choosing a model per request within the requested provider.
+ *
+ * Bound from the {@code silq.routing.*} properties in application.properties.
+ * Each provider lists its models from fastest to largest, e.g.
+ * {@code silq.routing.providers.openai[0].model=gpt-4o-mini}; a provider without
+ * routes always uses its configured default model.
+ *
+ * @param enabled Whether requests are routed at all
+ * @param latencyWeight Weight of the newest sample in each model's latency average, between 0 and 1
+ * @param errorWeight Weight of the newest outcome in each model's error rate, between 0 and 1
+ * @param errorHalfLife Time after which an idle model's error rate has decayed by half,
+ *                      so a model that was avoided gets traffic again
+ * @param maxErrorRate Error rate above which a model is avoided while another candidate is healthy
+ * @param providers Candidate models per canonical provider name, fastest first
+ */
+@ConfigurationProperties(prefix = "silq.routing")
+public record RoutingProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("0.2") double latencyWeight,
+    @DefaultValue("0.1") double errorWeight,
+    @DefaultValue("60s") Duration errorHalfLife,
+    @DefaultValue("0.3") double maxErrorRate,
+    @DefaultValue Map<String, List<Route>> providers
+) {
+
+    /**
+     * One candidate model of a provider.
+     *
+     * @param model Upstream model identifier
+     * @param maxPromptTokens Largest prompt this model is preferred for; larger prompts
+     *                        move on to the next route, and the last route takes the rest
+     */
+    public record Route(
+        String model,
+        @DefaultValue("2147483647") int maxPromptTokens
+    ) {
+    }
+
+    /**
+     * Gets the routes configured for a provider.
+     *
+     * @param provider Canonical provider name
+     * @return The provider's routes, fastest first; empty if it has none
+     */
+    public List<Route> routesFor(String provider) {
+        return providers.getOrDefault(provider, List.of());
+    }
+}
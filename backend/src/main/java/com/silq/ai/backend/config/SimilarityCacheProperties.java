@@ -0,0 +1,51 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings for answering near-duplicate prompts from the response cache.
+ *
+ * Bound from the {@code silq.cache.similarity.*} properties in application.properties.
+ *
+ * @param enabled Whether near-duplicate prompts are looked up at all; needs the response cache
+ * @param maxEntries Prompts kept in the similarity index; the oldest are dropped first
+ * @param shingleWords Words per shingle when comparing prompts
+ * @param defaultThreshold Estimated similarity a cached prompt needs for actions without their own threshold; above 1 disables them
+ * @param thresholds Similarity needed per action, keyed by the start of the prompt's instruction, case-insensitive
+ */
+@ConfigurationProperties(prefix = "silq.cache.similarity")
+public record SimilarityCacheProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("10000") int maxEntries,
+    @DefaultValue("3") int shingleWords,
+    @DefaultValue("1.0") double defaultThreshold,
+    @DefaultValue Map<String, Double> thresholds
+) {
+
+    /**
+     * Finds the configured action an instruction belongs to.
+     *
+     * @param instruction The first line of the user's prompt
+     * @return The matching key of {@link #thresholds()}, or null if none matches
+     */
+    public String actionOf(String instruction) {
+        String normalized = instruction.trim().toLowerCase(Locale.ROOT);
+        for (String action : thresholds.keySet()) {
+            if (normalized.startsWith(action.toLowerCase(Locale.ROOT))) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the similarity needed for a configured action, or the default for null.
+     */
+    public double thresholdFor(String action) {
+        return action != null ? thresholds.get(action) : defaultThreshold;
+    }
+}
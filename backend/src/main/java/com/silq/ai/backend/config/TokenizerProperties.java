@@ -0,0 +1,60 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Settings for prompt sizing before requests go upstream.
+ *
+ * Bound from the {@code silq.tokenizer.*} properties in application.properties.
+ * Model names contain dots, so per-model entries use the bracket form, e.g.
+ * {@code silq.tokenizer.models.[gpt-3.5-turbo].context-tokens}.
+ *
+ * @param truncate Whether prompts over a model's budget are cut down instead of sent as they are
+ * @param expectedCompletionTokens Completion length assumed when estimating a request's cost
+ * @param defaults Limits and prices for models without an entry
+ * @param models Per-model limits and prices, keyed by upstream model identifier
+ */
+@ConfigurationProperties(prefix = "silq.tokenizer")
+public record TokenizerProperties(
+    @DefaultValue("true") boolean truncate,
+    @DefaultValue("400") int expectedCompletionTokens,
+    @DefaultValue Model defaults,
+    @DefaultValue Map<String, Model> models
+) {
+
+    /**
+     * Context window and pricing of one upstream model.
+     *
+     * @param contextTokens Size of the model's context window
+     * @param maxOutputTokens Part of the window kept free for the completion
+     * @param inputCostPerMillion USD per million prompt tokens
+     * @param outputCostPerMillion USD per million completion tokens
+     */
+    public record Model(
+        @DefaultValue("8192") int contextTokens,
+        @DefaultValue("1024") int maxOutputTokens,
+        @DefaultValue("0") double inputCostPerMillion,
+        @DefaultValue("0") double outputCostPerMillion
+    ) {
+
+        /**
+         * Gets the tokens a prompt may use, i.e. the window minus the completion reserve.
+         */
+        public int promptBudget() {
+            return Math.max(0, contextTokens - maxOutputTokens);
+        }
+    }
+
+    /**
+     * Gets the limits and prices that apply to the given model.
+     *
+     * @param model Upstream model identifier
+     * @return The model entry if configured, otherwise the defaults
+     */
+    public Model modelFor(String model) {
+        return models.getOrDefault(model, defaults);
+    }
+}
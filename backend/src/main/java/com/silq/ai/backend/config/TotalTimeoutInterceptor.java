@@ -0,0 +1,49 @@
+package com.silq.ai.backend.config;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a hard deadline on a complete outbound exchange.
+ *
+ * The JDK client only bounds connect time and time-to-headers; a provider that
+ * trickles (or stalls) the body would otherwise hold the caller indefinitely.
+ * Once the deadline passes the response is closed, which unblocks any pending
+ * read on the body with an IOException.
+ */
+class TotalTimeoutInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbound-http-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long totalTimeoutNanos;
+
+    TotalTimeoutInterceptor(Duration totalTimeout) {
+        this.totalTimeoutNanos = totalTimeout.toNanos();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long startedAt = System.nanoTime();
+        ClientHttpResponse response = execution.execute(request, body);
+        long remaining = totalTimeoutNanos - (System.nanoTime() - startedAt);
+        if (remaining <= 0) {
+            response.close();
+            throw new IOException("Outbound request exceeded total timeout before the body was read");
+        }
+        ScheduledFuture<?> abort = WATCHDOG.schedule(response::close, remaining, TimeUnit.NANOSECONDS);
+        return new ClosingClientHttpResponse(response, () -> abort.cancel(false));
+    }
+}
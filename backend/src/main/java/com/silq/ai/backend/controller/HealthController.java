@@ -1,5 +1,11 @@
 package com.silq.ai.backend.controller;
 
+import com.silq.ai.backend.services.llm.LLMProxyFactory;
+import com.silq.ai.backend.services.llm.ProviderHealth;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -7,6 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,20 +23,45 @@ import java.util.Map;
 @RequestMapping("/api/health")
 public class HealthController {
 
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private LLMProxyFactory llmProxyFactory;
+
     /**
      * Health check endpoint
+     *
+     * Reports UP when the application accepts traffic and every provider can take
+     * more calls, DEGRADED when some provider is tripped or saturated, and DOWN
+     * (with status 503) when no request could currently be served.
      * 
      * @return Status information about the backend service
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> health() {
+        List<ProviderHealth> providers = llmProxyFactory.getProviderHealth();
+        long available = providers.stream().filter(ProviderHealth::isAvailable).count();
+        boolean acceptingTraffic = applicationAvailability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC;
+
+        String status;
+        if (!acceptingTraffic || available == 0) {
+            status = "DOWN";
+        } else if (available < providers.size()) {
+            status = "DEGRADED";
+        } else {
+            status = "UP";
+        }
+
         Map<String, Object> response = new HashMap<>();
-        response.put("status", "UP");
+        response.put("status", status);
         response.put("service", "Silq AI Backend");
         response.put("version", "1.0.0");
         response.put("timestamp", LocalDateTime.now());
-        response.put("message", "Backend is running successfully");
+        response.put("readiness", applicationAvailability.getReadinessState());
+        response.put("providers", providers);
+        response.put("message", "DOWN".equals(status) ? "Backend cannot serve requests" : "Backend is running successfully");
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status("DOWN".equals(status) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK).body(response);
     }
 }
@@ -47,14 +47,13 @@ public class LLMController {
                 return ResponseEntity.badRequest().body(Map.of("error", "API key is required"));
             }
 
-            // Get the appropriate LLM service
+            // Get the appropriate LLM service; unknown providers are still rejected
             LLMService llmService = llmProxyFactory.getService(provider);
             
             // Generate response
-            // TODO: Update this test endpoint to support conversational format.
-            // This is currently disabled as it expects a List<ChatMessage> not a String.
-            String response = "This test endpoint is disabled pending updates for conversational AI.";
-            // String response = llmService.generateResponse(prompt, apiKey);
+            // Disabled: a direct provider call would bypass the rate limiter, admission control,
+            // request deadlines and the access log that guard /api/chat. Use /api/chat instead.
+            String response = "This test endpoint is disabled; use /api/chat.";
 
             // Return success response
             Map<String, Object> result = new HashMap<>();
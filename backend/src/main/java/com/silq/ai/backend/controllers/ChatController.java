@@ -1,13 +1,51 @@
 package com.silq.ai.backend.controllers;
 
+import com.silq.ai.backend.dto.BatchChatItem;
+import com.silq.ai.backend.dto.BatchChatRequest;
+import com.silq.ai.backend.dto.BatchChatResponse;
 import com.silq.ai.backend.dto.ChatRequest;
 import com.silq.ai.backend.dto.ChatResponse;
+import com.silq.ai.backend.dto.ContextPart;
+import com.silq.ai.backend.dto.ContextUploadRequest;
+import com.silq.ai.backend.dto.ContextUploadResponse;
+import com.silq.ai.backend.dto.TextEdit;
 import com.silq.ai.backend.services.ChatService;
+import com.silq.ai.backend.services.accesslog.AccessLog;
+import com.silq.ai.backend.services.admission.AdmissionGate;
+import com.silq.ai.backend.services.admission.AdmissionRejectedException;
+import com.silq.ai.backend.services.admission.Priority;
+import com.silq.ai.backend.services.batch.BatchChatService;
+import com.silq.ai.backend.services.context.ContextStore;
+import com.silq.ai.backend.services.context.MissingContextException;
+import com.silq.ai.backend.services.diff.StreamingWordDiff;
+import com.silq.ai.backend.services.diff.WordDiff;
+import com.silq.ai.backend.services.llm.Deadline;
+import com.silq.ai.backend.services.llm.DeadlineExceededException;
+import com.silq.ai.backend.services.llm.ProviderUnavailableException;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.silq.ai.backend.services.ratelimit.RateLimitExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Public-facing controller for chat functionality.
@@ -17,44 +55,528 @@ import org.springframework.web.bind.annotation.*;
  */
 @RestController
 @RequestMapping("/api/chat")
-@CrossOrigin(origins = "*") // Allow requests from Chrome extension
+@CrossOrigin(origins = "*", exposedHeaders = ChatController.MISSING_CONTEXT_HEADER) // Allow requests from Chrome extension
 public class ChatController {
 
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
 
+    /** Lets clients lower the priority of their own requests, e.g. to {@code background}. */
+    static final String PRIORITY_HEADER = "X-Silq-Priority";
+
+    /** How long the client will wait for the answer, in milliseconds. */
+    static final String TIMEOUT_HEADER = "X-Silq-Timeout-Ms";
+
+    /** Lists the context chunks a rejected request has to send inline. */
+    static final String MISSING_CONTEXT_HEADER = "X-Silq-Missing-Context";
+
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private BatchChatService batchChatService;
+
+    @Autowired
+    private AdmissionGate admissionGate;
+
+    @Autowired
+    private ContextStore contextStore;
+
+    @Autowired
+    private AccessLog accessLog;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor streamExecutor;
+
+    @Value("${silq.chat.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${silq.chat.default-timeout-ms:60000}")
+    private long defaultTimeoutMs;
+
+    @Value("${silq.chat.max-timeout-ms:120000}")
+    private long maxTimeoutMs;
+
     /**
      * Main chat endpoint for processing writing assistance requests.
      * 
      * This endpoint accepts a ChatRequest from the Chrome extension,
      * processes it through the ChatService with prompt engineering,
      * and returns the AI-generated response.
+     *
+     * The response is produced asynchronously: the servlet thread is released
+     * while the provider call is pending and the result is written once the
+     * future completes. The request gets a deadline from {@value #TIMEOUT_HEADER}
+     * (or the server default); once it passes, the upstream call is aborted and
+     * the client gets 504. A request referencing context chunks the backend no
+     * longer holds gets 409 with their hashes in {@value #MISSING_CONTEXT_HEADER}.
+     * A request that sends its {@code original} text gets word-level
+     * {@code edits} against it instead of the {@code content}, unless the edits
+     * would not be smaller.
      * 
      * @param request The chat request containing provider, prompt, and API key
-     * @return ChatResponse containing the AI-generated content
+     * @return Future of the ChatResponse containing the AI-generated content
      */
     @PostMapping
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
+    public CompletableFuture<ResponseEntity<ChatResponse>> chat(
+            @RequestBody ChatRequest request,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        long start = System.nanoTime();
+        if (!request.isValid()) {
+            log.warn("Invalid chat request: required fields are missing");
+            recordRejected(request.apiKey(), request.provider(), "unary", start, invalidRequest());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        log.debug("Received chat request for provider: {}", request.provider());
+
+        // Process the request through the chat service; it is admitted only if it misses the cache
+        Deadline deadline = deadlineFor(timeoutMs);
+        CompletableFuture<String> response;
         try {
-            log.info("Received chat request for provider: {}", request.provider());
+            response = chatService.handleChatRequestAsync(request, deadline,
+                    Priority.requested(priority, Priority.INTERACTIVE));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        return response
+                .thenApply(responseContent -> {
+                    log.debug("Successfully processed chat request for provider: {}", request.provider());
+                    return ResponseEntity.ok(toResponse(request, responseContent));
+                })
+                .exceptionally(this::errorResponse);
+    }
+
+    /**
+     * Streaming chat endpoint that forwards the response token by token.
+     *
+     * Emits one {@code delta} event per upstream chunk (payload shaped like
+     * {@link ChatResponse}), then a single {@code done} event. Failures after the
+     * stream has started are reported as an {@code error} event, since the
+     * status line has already been sent. The stream only opens once the request
+     * is admitted, so a rejection is still answered with a plain 429 or 503.
+     * The upstream stream is aborted when the client disconnects or the
+     * request's deadline passes. A request that sends its {@code original}
+     * text gets {@code delta} events carrying {@code edits} against it instead,
+     * each batch sent once the rewrite has settled far enough past it.
+     *
+     * @param request The chat request containing provider, prompt, and API key
+     * @return Future of the SseEmitter that completes when the upstream stream ends
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<SseEmitter>> streamChat(
+            @RequestBody ChatRequest request,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        long start = System.nanoTime();
+        if (!request.isValid()) {
+            log.warn("Invalid streaming chat request: required fields are missing");
+            recordRejected(request.apiKey(), request.provider(), "stream", start, invalidRequest());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        ResponseEntity<SseEmitter> unresolved = checkContext(request.apiKey(), request.context(),
+                request.provider(), "stream", start);
+        if (unresolved != null) {
+            return CompletableFuture.completedFuture(unresolved);
+        }
 
-            // Process the request through the chat service
-            String responseContent = chatService.handleChatRequest(request);
+        log.debug("Received streaming chat request for provider: {}", request.provider());
+        Deadline deadline = deadlineFor(timeoutMs);
+        CompletableFuture<AdmissionGate.Permit> admission = admissionGate.admit(request.apiKey(),
+                Priority.requested(priority, Priority.INTERACTIVE), AdmissionGate.costOf(request.prompt()));
+        Deadline.Registration abort = deadline.onAbort(() -> admission.completeExceptionally(deadline.abortCause()));
 
-            // Create and return the response
-            ChatResponse response = ChatResponse.of(responseContent);
-            
-            log.info("Successfully processed chat request for provider: {}", request.provider());
-            return ResponseEntity.ok(response);
+        return admission
+                .handle((permit, error) -> {
+                    abort.close();
+                    if (error != null) {
+                        recordRejected(request.apiKey(), request.provider(), "stream", start, error);
+                        return errorResponse(error);
+                    }
+                    SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+                    // A write to a closed connection or a servlet timeout means nobody reads the rest
+                    emitter.onError(failure -> deadline.cancel());
+                    emitter.onTimeout(deadline::cancel);
+                    try {
+                        streamExecutor.execute(() -> stream(request, deadline, emitter, permit));
+                    } catch (RuntimeException e) {
+                        permit.release();
+                        throw e;
+                    }
+                    return ResponseEntity.ok(emitter);
+                });
+    }
+
+    private void stream(ChatRequest request, Deadline deadline, SseEmitter emitter, AdmissionGate.Permit permit) {
+        try {
+            StreamingWordDiff diff = request.original() != null
+                    ? new StreamingWordDiff(request.original(), edits -> sendEvent(emitter, "delta", ChatResponse.ofEdits(edits)))
+                    : null;
+            chatService.streamChatRequest(request, deadline, permit, delta -> {
+                try {
+                    if (diff != null) {
+                        diff.append(delta);
+                    } else {
+                        sendEvent(emitter, "delta", ChatResponse.of(delta));
+                    }
+                } catch (IllegalStateException disconnected) {
+                    // Nobody reads the rest; stop the upstream stream as a cancellation, not a failure
+                    deadline.cancel();
+                    throw deadline.abortCause();
+                }
+            });
+            if (diff != null) {
+                diff.finish();
+            }
+            sendEvent(emitter, "done", ChatResponse.of(""));
+            emitter.complete();
+        } catch (Exception e) {
+            if (e instanceof CancellationException) {
+                log.info("Streaming chat request aborted: {}", e.getMessage());
+            } else {
+                log.error("Error streaming chat request: {}", e.getMessage(), e);
+            }
+            try {
+                emitter.send(SseEmitter.event().name("error").data(ChatResponse.of(e.getMessage())));
+                emitter.complete();
+            } catch (Exception sendFailure) {
+                emitter.completeWithError(e);
+            }
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Batch chat endpoint for applying one action to many prompts at once.
+     *
+     * All prompts share the provider and API key of the request and are
+     * processed in parallel, at most {@code silq.batch.max-concurrency-per-key}
+     * at a time per key, and are admitted behind interactive requests. The
+     * response lists one result per prompt in request order; prompts that fail
+     * carry the status they would have received on their own instead of failing
+     * the whole batch. Prompts still pending when the deadline passes get 504.
+     *
+     * @param request The batch request containing provider, prompts, and API key
+     * @return Future of the BatchChatResponse, completed once every prompt has finished
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<BatchChatResponse>> batchChat(
+            @RequestBody BatchChatRequest request,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        long start = System.nanoTime();
+        ResponseEntity<BatchChatResponse> unresolved = checkContext(request.apiKey(), request.context(),
+                request.provider(), "batch", start);
+        if (unresolved != null) {
+            return CompletableFuture.completedFuture(unresolved);
+        }
+        try {
+            log.debug("Received batch chat request for provider: {}", request.provider());
+
+            Deadline deadline = deadlineFor(timeoutMs);
+            List<CompletableFuture<String>> pending = batchChatService.submit(
+                    request, Priority.requested(priority, Priority.BATCH), deadline);
+            failOnAbort(pending, deadline);
+            List<CompletableFuture<BatchChatItem>> items = toBatchItems(pending);
+            return CompletableFuture.allOf(items.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> {
+                        List<BatchChatItem> results = items.stream().map(CompletableFuture::join).toList();
+                        log.debug("Completed batch chat request with {} prompts for provider: {}",
+                                results.size(), request.provider());
+                        return ResponseEntity.ok(new BatchChatResponse(results));
+                    });
 
         } catch (IllegalArgumentException e) {
-            log.warn("Invalid chat request: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
+            log.warn("Invalid batch chat request: {}", e.getMessage());
+            recordRejected(request.apiKey(), request.provider(), "batch", start, e);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         } catch (Exception e) {
-            log.error("Error processing chat request: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
+            log.error("Error processing batch chat request: {}", e.getMessage(), e);
+            recordRejected(request.apiKey(), request.provider(), "batch", start, e);
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().build());
+        }
+    }
+
+    /**
+     * Streaming batch endpoint that emits each result as soon as it is ready.
+     *
+     * Emits one {@code item} event per prompt, shaped like {@link BatchChatItem},
+     * in completion order; clients place them by {@code index}. A single
+     * {@code done} event follows the last item. Prompts still pending when the
+     * client disconnects or the stream times out are cancelled.
+     *
+     * @param request The batch request containing provider, prompts, and API key
+     * @return SseEmitter that completes when every prompt has finished
+     */
+    @PostMapping(path = "/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBatchChat(
+            @RequestBody BatchChatRequest request,
+            @RequestHeader(value = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        long start = System.nanoTime();
+        ResponseEntity<SseEmitter> unresolved = checkContext(request.apiKey(), request.context(),
+                request.provider(), "batch", start);
+        if (unresolved != null) {
+            return unresolved;
+        }
+        Deadline deadline = deadlineFor(timeoutMs);
+        List<CompletableFuture<String>> pending;
+        try {
+            log.debug("Received streaming batch chat request for provider: {}", request.provider());
+            pending = batchChatService.submit(request, Priority.requested(priority, Priority.BATCH), deadline);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid streaming batch chat request: {}", e.getMessage());
+            recordRejected(request.apiKey(), request.provider(), "batch", start, e);
+            return ResponseEntity.badRequest().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean open = new AtomicBoolean(true);
+        Runnable abandon = () -> {
+            if (open.compareAndSet(true, false)) {
+                deadline.cancel();
+            }
+        };
+        failOnAbort(pending, deadline);
+        emitter.onTimeout(abandon);
+        emitter.onError(error -> abandon.run());
+
+        AtomicInteger remaining = new AtomicInteger(pending.size());
+        for (CompletableFuture<BatchChatItem> item : toBatchItems(pending)) {
+            item.thenAccept(result -> {
+                if (!open.get()) {
+                    return;
+                }
+                try {
+                    sendEvent(emitter, "item", result);
+                    if (remaining.decrementAndGet() == 0) {
+                        sendEvent(emitter, "done", ChatResponse.of(""));
+                        open.set(false);
+                        emitter.complete();
+                    }
+                } catch (IllegalStateException e) {
+                    log.warn("Client disconnected during batch stream, cancelling pending prompts");
+                    abandon.run();
+                    emitter.completeWithError(e);
+                }
+            });
+        }
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Stores document context for later chat requests.
+     *
+     * Each chunk is kept for the API key under the hex SHA-256 of its text, so
+     * requests can reference it by hash instead of sending it again.
+     *
+     * @param request The API key and the chunks to store
+     * @return The hash of each chunk, in upload order
+     */
+    @PostMapping("/context")
+    public ResponseEntity<ContextUploadResponse> uploadContext(@RequestBody ContextUploadRequest request) {
+        if (!request.isValid()) {
+            log.warn("Invalid context upload: required fields are missing");
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            List<String> hashes = contextStore.upload(request.apiKey(), request.chunks());
+            log.info("Stored {} context chunks", hashes.size());
+            return ResponseEntity.ok(new ContextUploadResponse(hashes));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid context upload: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Builds the response for a finished request: edits against the original
+     * text if the client sent one and they are smaller than the content, the
+     * content otherwise.
+     */
+    private static ChatResponse toResponse(ChatRequest request, String content) {
+        if (request.original() == null) {
+            return ChatResponse.of(content);
+        }
+        List<TextEdit> edits = WordDiff.diff(request.original(), content);
+        return WordDiff.encodedSize(edits) < content.length() ? ChatResponse.ofEdits(edits) : ChatResponse.of(content);
+    }
+
+    /**
+     * Rejects a request whose referenced context is not stored, before it is
+     * admitted; once a stream has opened, its status can no longer change.
+     *
+     * Rejections are recorded in the access log.
+     *
+     * @return The error response, or null if the request can go ahead
+     */
+    private <T> ResponseEntity<T> checkContext(String apiKey, List<ContextPart> context, String provider,
+                                               String mode, long startNanos) {
+        if (apiKey == null || context == null) {
+            // Nothing to check, or invalid anyway and rejected by the endpoint
+            return null;
+        }
+        RuntimeException rejection;
+        try {
+            List<String> missing = contextStore.missing(apiKey, context);
+            if (missing.isEmpty()) {
+                return null;
+            }
+            rejection = new MissingContextException(missing);
+        } catch (IllegalArgumentException e) {
+            rejection = e;
+        }
+        recordRejected(apiKey, provider, mode, startNanos, rejection);
+        return errorResponse(rejection);
+    }
+
+    /**
+     * Records a request rejected before the chat service took it on, so every
+     * request leaves one access event; the chat service records the rest.
+     */
+    private void recordRejected(String apiKey, String provider, String mode, long startNanos, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        accessLog.record(apiKey, provider, null, mode, ChatMetrics.outcomeOf(cause), System.nanoTime() - startNanos,
+                0, 0, 0, cause);
+    }
+
+    private static IllegalArgumentException invalidRequest() {
+        return new IllegalArgumentException("Required fields are missing");
+    }
+
+    /**
+     * Gets the deadline for a request: the client's timeout, capped by the
+     * server's maximum, or the server default if the client sent none.
+     */
+    private Deadline deadlineFor(Long timeoutMs) {
+        long millis = timeoutMs != null && timeoutMs > 0 ? Math.min(timeoutMs, maxTimeoutMs) : defaultTimeoutMs;
+        return Deadline.after(Duration.ofMillis(millis));
+    }
+
+    /**
+     * Fails the prompts still pending once the deadline is aborted; those waiting
+     * for a slot are dropped without being started.
+     */
+    private static void failOnAbort(List<CompletableFuture<String>> pending, Deadline deadline) {
+        Deadline.Registration abort = deadline.onAbort(() ->
+                pending.forEach(item -> item.completeExceptionally(deadline.abortCause())));
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> abort.close());
+    }
+
+    /**
+     * Maps each prompt's outcome to a {@link BatchChatItem}; the returned futures never fail.
+     */
+    private List<CompletableFuture<BatchChatItem>> toBatchItems(List<CompletableFuture<String>> pending) {
+        List<CompletableFuture<BatchChatItem>> items = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            int index = i;
+            items.add(pending.get(i).handle((content, error) -> toBatchItem(index, content, error)));
+        }
+        return items;
+    }
+
+    private BatchChatItem toBatchItem(int index, String content, Throwable error) {
+        if (error == null) {
+            return BatchChatItem.success(index, content);
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            return BatchChatItem.failure(index, HttpStatus.BAD_REQUEST.value(), cause.getMessage(), null);
+        }
+        if (cause instanceof MissingContextException unresolved) {
+            return BatchChatItem.failure(index, HttpStatus.CONFLICT.value(), unresolved.getMessage(), null);
+        }
+        if (cause instanceof RateLimitExceededException throttled) {
+            return BatchChatItem.failure(index, HttpStatus.TOO_MANY_REQUESTS.value(), throttled.getMessage(),
+                    retryAfterSeconds(throttled.getRetryAfter()));
+        }
+        if (cause instanceof AdmissionRejectedException rejected) {
+            HttpStatus status = rejected.isKeyOverloaded() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            return BatchChatItem.failure(index, status.value(), rejected.getMessage(),
+                    retryAfterSeconds(rejected.getRetryAfter()));
+        }
+        if (cause instanceof ProviderUnavailableException unavailable) {
+            return BatchChatItem.failure(index, HttpStatus.SERVICE_UNAVAILABLE.value(), unavailable.getMessage(),
+                    retryAfterSeconds(unavailable.getRetryAfter()));
+        }
+        if (cause instanceof DeadlineExceededException) {
+            return BatchChatItem.failure(index, HttpStatus.GATEWAY_TIMEOUT.value(), cause.getMessage(), null);
+        }
+        if (cause instanceof CancellationException) {
+            return BatchChatItem.failure(index, HttpStatus.SERVICE_UNAVAILABLE.value(), "Cancelled", null);
+        }
+        log.error("Error processing batch item {}: {}", index, cause.getMessage(), cause);
+        return BatchChatItem.failure(index, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "Failed to process chat request", null);
+    }
+
+    /**
+     * Maps a failed single request to its response: 400 for invalid requests,
+     * 409 for unknown context, 429 for throttled keys, 503 with
+     * {@code Retry-After} when shed, 504 once the deadline passed, 500 otherwise.
+     */
+    private <T> ResponseEntity<T> errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            log.warn("Invalid chat request: {}", cause.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (cause instanceof MissingContextException unresolved) {
+            // The client sends these chunks inline and retries
+            log.info("Chat request references {} unknown context chunks", unresolved.getMissingHashes().size());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(MISSING_CONTEXT_HEADER, String.join(",", unresolved.getMissingHashes()))
+                    .build();
+        }
+        if (cause instanceof RateLimitExceededException throttled) {
+            log.warn("Throttled chat request: {}", throttled.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(throttled.getRetryAfter())))
+                    .build();
+        }
+        if (cause instanceof AdmissionRejectedException rejected) {
+            // Shed before any work started; a key flooding its own queue is told to slow down
+            log.warn("Rejected chat request: {}", rejected.getMessage());
+            return ResponseEntity.status(rejected.isKeyOverloaded() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(rejected.getRetryAfter())))
+                    .build();
+        }
+        if (cause instanceof ProviderUnavailableException unavailable) {
+            // Shed before reaching the provider; tell the client when to come back
+            log.warn("Rejected chat request: {}", unavailable.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(unavailable.getRetryAfter())))
+                    .build();
+        }
+        if (cause instanceof DeadlineExceededException) {
+            log.warn("Chat request exceeded its deadline");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        }
+        if (cause instanceof CancellationException) {
+            // The client is gone; nobody reads this
+            log.info("Chat request cancelled: {}", cause.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        log.error("Error processing chat request: {}", cause.getMessage(), cause);
+        return ResponseEntity.internalServerError().build();
+    }
+
+    private static long retryAfterSeconds(Duration retryAfter) {
+        // Retry-After is in whole seconds; round up so clients never come back early
+        long millis = retryAfter.toMillis();
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object payload) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(payload, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // The client went away; abort the upstream read by propagating
+            throw new IllegalStateException("Client disconnected during stream", e);
         }
     }
 
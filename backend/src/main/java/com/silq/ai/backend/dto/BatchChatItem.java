@@ -0,0 +1,40 @@
+package com.silq.ai.backend.dto;
+
+/**
+ * Result for one prompt of a batch chat request.
+ *
+ * Exactly one of {@code content} and {@code error} is set. Failed items carry
+ * the HTTP status the prompt would have received on its own and, for throttled
+ * or shed items, how many seconds to wait before retrying.
+ */
+public record BatchChatItem(
+    int index,
+    String content,
+    String error,
+    Integer status,
+    Long retryAfterSeconds
+) {
+    /**
+     * Creates the result for a prompt that was answered.
+     *
+     * @param index Position of the prompt in the request
+     * @param content The AI-generated response content
+     * @return A new BatchChatItem instance
+     */
+    public static BatchChatItem success(int index, String content) {
+        return new BatchChatItem(index, content, null, null, null);
+    }
+
+    /**
+     * Creates the result for a prompt that failed.
+     *
+     * @param index Position of the prompt in the request
+     * @param status HTTP status describing the failure
+     * @param error Human-readable reason
+     * @param retryAfterSeconds Seconds until a retry may succeed, or null
+     * @return A new BatchChatItem instance
+     */
+    public static BatchChatItem failure(int index, int status, String error, Long retryAfterSeconds) {
+        return new BatchChatItem(index, null, error, status, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,42 @@
+package com.silq.ai.backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for batch chat requests from the Chrome extension.
+ *
+ * Carries several prompts that share one provider and API key, e.g. one per
+ * paragraph for an "apply to every paragraph" action. Each prompt is processed
+ * as if it had been sent as its own {@link ChatRequest}, with the shared
+ * {@code context} in front of it.
+ */
+public record BatchChatRequest(
+    List<String> prompts,
+    String provider,
+    String apiKey,
+    Map<String, String> providerKeys,
+    List<ContextPart> context
+) {
+    /**
+     * Validates that the shared fields are present and that there is at least
+     * one prompt. Individual prompts are validated per item.
+     *
+     * @return true if the request is valid, false otherwise
+     */
+    public boolean isValid() {
+        return prompts != null && !prompts.isEmpty() &&
+               provider != null && !provider.trim().isEmpty() &&
+               apiKey != null && !apiKey.trim().isEmpty();
+    }
+
+    /**
+     * Builds the single chat request for one prompt of the batch.
+     *
+     * @param index Position of the prompt in {@link #prompts()}
+     * @return The chat request for that prompt
+     */
+    public ChatRequest itemRequest(int index) {
+        return new ChatRequest(prompts.get(index), provider, apiKey, providerKeys, null, null, context, null);
+    }
+}
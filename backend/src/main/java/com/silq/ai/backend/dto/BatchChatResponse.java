@@ -0,0 +1,13 @@
+package com.silq.ai.backend.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for batch chat responses to the Chrome extension.
+ *
+ * Holds one {@link BatchChatItem} per prompt, in the order of the request.
+ */
+public record BatchChatResponse(
+    List<BatchChatItem> results
+) {
+}
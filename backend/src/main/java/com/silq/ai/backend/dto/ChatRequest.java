@@ -1,15 +1,34 @@
 package com.silq.ai.backend.dto;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Data Transfer Object for chat requests from the Chrome extension.
  *
  * This record provides a clean, immutable structure for incoming chat requests
  * containing the user's prompt, preferred AI provider, and their API key.
+ * Users with keys for more than one provider may add them in {@code providerKeys}
+ * (provider name to API key), which lets the backend hedge slow requests.
+ * Multi-turn clients pass a {@code conversationId} of their choosing and send
+ * only the new message; earlier turns are kept on the server.
+ * An optional {@code latencySloMs} tells the backend how long the client is
+ * willing to wait, which steers model routing towards faster models.
+ * Document text around the selection goes in {@code context}, where chunks
+ * sent before are referenced by hash instead of being sent again.
+ * Rewrite actions may send the text being rewritten as {@code original}; the
+ * response then describes the rewrite as word-level edits to it.
  */
 public record ChatRequest(
     String prompt,
     String provider,
-    String apiKey
+    String apiKey,
+    Map<String, String> providerKeys,
+    String conversationId,
+    Long latencySloMs,
+    List<ContextPart> context,
+    String original
 ) {
     /**
      * Validates that all required fields are present and non-empty.
@@ -22,6 +41,15 @@ public record ChatRequest(
                apiKey != null && !apiKey.trim().isEmpty();
     }
     
+    /**
+     * Gets the client's latency target, if it sent a usable one.
+     *
+     * @return the latency SLO, or null for none
+     */
+    public Duration latencySlo() {
+        return latencySloMs != null && latencySloMs > 0 ? Duration.ofMillis(latencySloMs) : null;
+    }
+
     /**
      * Gets the effective prompt for the AI service.
      * This method can be extended to include prompt engineering logic.
@@ -1,21 +1,36 @@
 package com.silq.ai.backend.dto;
 
+import java.util.List;
+
 /**
  * Data Transfer Object for chat responses to the Chrome extension.
- * 
+ *
  * This record provides a clean, immutable structure for AI-generated responses
- * that will be sent back to the Chrome extension.
+ * that will be sent back to the Chrome extension. Rewrite requests that send
+ * their {@code original} text may get {@code edits} against it instead of the
+ * full {@code content}; exactly one of the two is set.
  */
 public record ChatResponse(
-    String content
+    String content,
+    List<TextEdit> edits
 ) {
     /**
      * Creates a ChatResponse with the provided content.
-     * 
+     *
      * @param content The AI-generated response content
      * @return A new ChatResponse instance
      */
     public static ChatResponse of(String content) {
-        return new ChatResponse(content);
+        return new ChatResponse(content, null);
+    }
+
+    /**
+     * Creates a ChatResponse that describes the response as edits to the original text.
+     *
+     * @param edits The edits, in ascending order
+     * @return A new ChatResponse instance
+     */
+    public static ChatResponse ofEdits(List<TextEdit> edits) {
+        return new ChatResponse(null, edits);
     }
 }
@@ -0,0 +1,54 @@
+package com.silq.ai.backend.dto;
+
+import java.util.List;
+
+/**
+ * One chunk of document context sent along with a chat request.
+ *
+ * Chunks are content-addressed: their id is the lower-case hex SHA-256 of the
+ * chunk's UTF-8 text, which the client can compute itself. A part takes one of
+ * three forms:
+ * <ul>
+ *   <li>{@code text} - the chunk inline; the backend keeps it for later requests</li>
+ *   <li>{@code hash} - a chunk sent before, by reference</li>
+ *   <li>{@code base} and {@code edits} - a chunk sent before, changed by a few edits;
+ *       the result is kept under its own hash</li>
+ * </ul>
+ */
+public record ContextPart(
+    String hash,
+    String text,
+    String base,
+    List<Edit> edits
+) {
+    /**
+     * Replaces {@code delete} characters at {@code offset} of the base chunk with {@code insert}.
+     * Offsets count UTF-16 code units of the base text, as in JavaScript strings.
+     */
+    public record Edit(
+        int offset,
+        int delete,
+        String insert
+    ) {
+    }
+
+    /**
+     * Creates a part that references a stored chunk.
+     *
+     * @param hash Hex SHA-256 of the chunk's text
+     * @return A new ContextPart instance
+     */
+    public static ContextPart reference(String hash) {
+        return new ContextPart(hash, null, null, null);
+    }
+
+    /**
+     * Creates a part that carries its chunk inline.
+     *
+     * @param text The chunk's text
+     * @return A new ContextPart instance
+     */
+    public static ContextPart inline(String text) {
+        return new ContextPart(null, text, null, null);
+    }
+}
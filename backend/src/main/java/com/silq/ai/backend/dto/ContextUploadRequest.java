@@ -0,0 +1,24 @@
+package com.silq.ai.backend.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for uploading document context ahead of chat requests.
+ *
+ * The chunks are kept for the API key, so later requests can reference them
+ * by hash instead of sending the text again.
+ */
+public record ContextUploadRequest(
+    String apiKey,
+    List<String> chunks
+) {
+    /**
+     * Validates that the API key is present and that there is at least one chunk.
+     *
+     * @return true if the request is valid, false otherwise
+     */
+    public boolean isValid() {
+        return apiKey != null && !apiKey.trim().isEmpty() &&
+               chunks != null && !chunks.isEmpty();
+    }
+}
@@ -0,0 +1,11 @@
+package com.silq.ai.backend.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object listing the hashes of uploaded context chunks, in upload order.
+ */
+public record ContextUploadResponse(
+    List<String> hashes
+) {
+}
@@ -0,0 +1,17 @@
+package com.silq.ai.backend.dto;
+
+/**
+ * One change to the original text of a rewrite request: the characters from
+ * {@code start} up to {@code end} are replaced by {@code text}.
+ *
+ * Offsets are UTF-16 indices into the original text, as in JavaScript
+ * strings, and always refer to the original, not to the text after earlier
+ * edits. An insertion has {@code start == end}, a deletion an empty
+ * {@code text}. Edits do not overlap and are sent in ascending order.
+ */
+public record TextEdit(
+    int start,
+    int end,
+    String text
+) {
+}
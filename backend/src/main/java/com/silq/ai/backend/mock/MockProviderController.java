@@ -0,0 +1,313 @@
+package com.silq.ai.backend.mock;
+
+import com.silq.ai.backend.config.MockProviderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Stand-in for the OpenAI and Gemini APIs, served only under the {@code mock} profile.
+ *
+ * Speaks both wire formats closely enough for the real provider services, including
+ * streaming, so the backend can be load tested end to end without network access or
+ * quota. The mock profile points {@code silq.llm.*.base-url} at these endpoints;
+ * another instance started with the profile can serve as a remote mock instead.
+ *
+ * Latency, error rate and answer length are drawn per call from
+ * {@link MockProviderProperties}. Waiting happens on a scheduler rather than on
+ * request threads, so the mock itself adds no thread-per-call cost to the process
+ * under test. Draws come from a seeded generator per call number, which makes the
+ * sequence of answers repeatable between runs.
+ *
+ * Publishes {@code silq.mock.responses}, tagged by provider, mode and status.
+ */
+@RestController
+@RequestMapping("/mock")
+@Profile("mock")
+public class MockProviderController {
+
+    private static final Logger log = LoggerFactory.getLogger(MockProviderController.class);
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.3263;
+    private static final long EMITTER_TIMEOUT_MS = Duration.ofMinutes(10).toMillis();
+    private static final String[] WORDS = {
+            "the", "draft", "reads", "clearly", "and", "keeps", "a", "friendly", "tone", "while",
+            "each", "sentence", "stays", "short", "so", "readers", "follow", "main", "point", "without",
+            "effort", "we", "moved", "key", "details", "up", "front", "removed", "filler", "phrases",
+            "team", "shipped", "new", "onboarding", "flow", "two", "weeks", "ahead", "of", "schedule"
+    };
+
+    private final MockProviderProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong calls = new AtomicLong();
+    private final double latencyMu;
+    private final double latencySigma;
+
+    public MockProviderController(MockProviderProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("mock-provider").daemon().factory());
+
+        double median = Math.max(1, properties.latencyMedian().toMillis());
+        double p99 = Math.max(median, properties.latencyP99().toMillis());
+        this.latencyMu = Math.log(median);
+        this.latencySigma = Math.log(p99 / median) / Z_99;
+        log.warn("Mock LLM provider enabled: median latency {}, p99 {}, error rate {}",
+                properties.latencyMedian(), properties.latencyP99(), properties.errorRate());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * OpenAI chat completions, unary or streamed depending on the body's {@code stream} flag.
+     */
+    @PostMapping("/openai/v1/chat/completions")
+    public CompletableFuture<Object> openAIChatCompletions(@RequestBody Map<String, Object> body) {
+        boolean stream = Boolean.TRUE.equals(body.get("stream"));
+        Call call = newCall(promptChars(body.get("messages")));
+        if (call.errorStatus != 0) {
+            return delayed(call, error("openai", stream, call));
+        }
+        String model = String.valueOf(body.get("model"));
+        if (stream) {
+            return CompletableFuture.completedFuture(stream("openai", call,
+                    chunk -> openAIChunk(model, chunk, null), () -> List.of(openAIChunk(model, "", "stop"), "[DONE]")));
+        }
+        Map<String, Object> response = Map.of(
+                "id", "chatcmpl-mock-" + call.number,
+                "object", "chat.completion",
+                "model", model,
+                "choices", List.of(Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", call.text),
+                        "finish_reason", "stop")),
+                "usage", Map.of(
+                        "prompt_tokens", call.promptTokens,
+                        "completion_tokens", call.completionTokens,
+                        "total_tokens", call.promptTokens + call.completionTokens));
+        return delayed(call, ok("openai", "unary", response));
+    }
+
+    /**
+     * Gemini generateContent for any model.
+     */
+    @PostMapping("/gemini/v1beta/models/{model}:generateContent")
+    public CompletableFuture<Object> geminiGenerateContent(@PathVariable String model,
+                                                           @RequestBody Map<String, Object> body) {
+        Call call = newCall(promptChars(body.get("contents")));
+        if (call.errorStatus != 0) {
+            return delayed(call, error("gemini", false, call));
+        }
+        return delayed(call, ok("gemini", "unary", geminiResponse(call.text, "STOP", call)));
+    }
+
+    /**
+     * Gemini streamGenerateContent for any model, SSE framing as with {@code alt=sse}.
+     */
+    @PostMapping("/gemini/v1beta/models/{model}:streamGenerateContent")
+    public CompletableFuture<Object> geminiStreamGenerateContent(@PathVariable String model,
+                                                                 @RequestBody Map<String, Object> body) {
+        Call call = newCall(promptChars(body.get("contents")));
+        if (call.errorStatus != 0) {
+            return delayed(call, error("gemini", true, call));
+        }
+        return CompletableFuture.completedFuture(stream("gemini", call,
+                chunk -> geminiResponse(chunk, null, null),
+                () -> List.of(geminiResponse("", "STOP", call))));
+    }
+
+    /**
+     * Draws latency, outcome and answer for the next call.
+     */
+    private Call newCall(int promptChars) {
+        long number = calls.incrementAndGet();
+        SplittableRandom random = new SplittableRandom(properties.seed() * 0x9E3779B97F4A7C15L + number);
+        long latencyMs = Math.round(Math.exp(latencyMu + latencySigma * random.nextGaussian()));
+        int errorStatus = 0;
+        if (random.nextDouble() < properties.errorRate() && !properties.errorStatuses().isEmpty()) {
+            errorStatus = properties.errorStatuses().get(random.nextInt(properties.errorStatuses().size()));
+        }
+        int minWords = Math.max(1, properties.responseMinWords());
+        int words = minWords + random.nextInt(Math.max(1, properties.responseMaxWords() - minWords + 1));
+        List<String> chunks = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        StringBuilder chunk = new StringBuilder();
+        int chunkWords = Math.max(1, properties.streamChunkWords());
+        for (int i = 0; i < words; i++) {
+            String word = (i == 0 ? "" : " ") + WORDS[random.nextInt(WORDS.length)];
+            text.append(word);
+            chunk.append(word);
+            if ((i + 1) % chunkWords == 0 || i == words - 1) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+            }
+        }
+        text.append('.');
+        chunks.add(".");
+        // About four characters per token, as with the backend's own estimates
+        return new Call(number, latencyMs, errorStatus, text.toString(), chunks,
+                Math.max(1, promptChars / 4), Math.max(1, text.length() / 4));
+    }
+
+    private CompletableFuture<Object> delayed(Call call, Object response) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        scheduler.schedule(() -> result.complete(response), call.latencyMs, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Sends the first chunk after the call's latency and the rest at the chunk interval.
+     */
+    private SseEmitter stream(String provider, Call call,
+                              Function<String, Object> chunkEvent,
+                              Supplier<List<Object>> closingEvents) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        long interval = Math.max(0, properties.streamChunkInterval().toMillis());
+        scheduleChunk(emitter, provider, call, 0, call.latencyMs, interval, chunkEvent, closingEvents);
+        return emitter;
+    }
+
+    private void scheduleChunk(SseEmitter emitter, String provider, Call call, int index, long delayMs, long interval,
+                               Function<String, Object> chunkEvent,
+                               Supplier<List<Object>> closingEvents) {
+        scheduler.schedule(() -> {
+            try {
+                if (index < call.chunks.size()) {
+                    send(emitter, chunkEvent.apply(call.chunks.get(index)));
+                    scheduleChunk(emitter, provider, call, index + 1, interval, interval, chunkEvent, closingEvents);
+                    return;
+                }
+                for (Object event : closingEvents.get()) {
+                    send(emitter, event);
+                }
+                emitter.complete();
+                count(provider, "stream", HttpStatus.OK.value());
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; stop producing chunks for it
+                log.debug("Mock stream {} abandoned: {}", call.number, e.getMessage());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void send(SseEmitter emitter, Object event) throws IOException {
+        if (event instanceof String text) {
+            emitter.send(SseEmitter.event().data(text, MediaType.TEXT_PLAIN));
+        } else {
+            emitter.send(SseEmitter.event().data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private ResponseEntity<Object> ok(String provider, String mode, Object body) {
+        count(provider, mode, HttpStatus.OK.value());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private ResponseEntity<Object> error(String provider, boolean stream, Call call) {
+        count(provider, stream ? "stream" : "unary", call.errorStatus);
+        HttpStatus status = HttpStatus.valueOf(call.errorStatus);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON);
+        if (status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.body(Map.of("error", Map.of(
+                "code", call.errorStatus,
+                "message", "Mock provider failure for call " + call.number,
+                "status", status.name())));
+    }
+
+    private static Map<String, Object> openAIChunk(String model, String content, String finishReason) {
+        Map<String, Object> choice = new HashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", content.isEmpty() ? Map.of() : Map.of("content", content));
+        choice.put("finish_reason", finishReason);
+        return Map.of("object", "chat.completion.chunk", "model", model, "choices", List.of(choice));
+    }
+
+    private static Map<String, Object> geminiResponse(String text, String finishReason, Call usage) {
+        Map<String, Object> candidate = new HashMap<>();
+        candidate.put("content", Map.of("role", "model", "parts", List.of(Map.of("text", text))));
+        candidate.put("index", 0);
+        if (finishReason != null) {
+            candidate.put("finishReason", finishReason);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("candidates", List.of(candidate));
+        if (usage != null) {
+            response.put("usageMetadata", Map.of(
+                    "promptTokenCount", usage.promptTokens,
+                    "candidatesTokenCount", usage.completionTokens,
+                    "totalTokenCount", usage.promptTokens + usage.completionTokens));
+        }
+        return response;
+    }
+
+    /**
+     * Counts the characters of all text in an OpenAI {@code messages} or Gemini {@code contents} list.
+     */
+    private static int promptChars(Object node) {
+        if (node instanceof String text) {
+            return text.length();
+        }
+        int chars = 0;
+        if (node instanceof Map<?, ?> map) {
+            for (Object value : map.values()) {
+                chars += promptChars(value);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                chars += promptChars(value);
+            }
+        }
+        return chars;
+    }
+
+    private void count(String provider, String mode, int status) {
+        Counter.builder("silq.mock.responses")
+                .description("Answers sent by the mock provider")
+                .tag("provider", provider)
+                .tag("mode", mode)
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Everything drawn for one call.
+     */
+    private record Call(long number, long latencyMs, int errorStatus, String text, List<String> chunks,
+                        int promptTokens, int completionTokens) {
+    }
+}
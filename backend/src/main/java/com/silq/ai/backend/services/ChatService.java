@@ -1,13 +1,43 @@
 package com.silq.ai.backend.services;
 
 import com.silq.ai.backend.dto.ChatRequest;
+import com.silq.ai.backend.services.accesslog.AccessLog;
+import com.silq.ai.backend.services.admission.AdmissionGate;
+import com.silq.ai.backend.services.admission.AdmissionRejectedException;
+import com.silq.ai.backend.services.admission.Priority;
+import com.silq.ai.backend.services.cache.PromptKey;
+import com.silq.ai.backend.services.cache.RequestCoalescer;
+import com.silq.ai.backend.services.cache.ResponseCache;
+import com.silq.ai.backend.services.cache.SimilarityCache;
+import com.silq.ai.backend.services.context.ContextStore;
+import com.silq.ai.backend.services.context.MissingContextException;
+import com.silq.ai.backend.services.conversation.ConversationStore;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.Deadline;
 import com.silq.ai.backend.services.llm.LLMProxyFactory;
 import com.silq.ai.backend.services.llm.LLMService;
+import com.silq.ai.backend.services.llm.ModelRouter;
+import com.silq.ai.backend.services.llm.ProviderUnavailableException;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.silq.ai.backend.services.ratelimit.ApiKeyRateLimiter;
+import com.silq.ai.backend.services.ratelimit.RateLimitExceededException;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import com.silq.ai.backend.services.tokenizer.SizedPrompt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 @Service
 public class ChatService {
 
@@ -16,37 +46,451 @@ public class ChatService {
     @Autowired
     private LLMProxyFactory llmProxyFactory;
 
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private SimilarityCache similarityCache;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ApiKeyRateLimiter rateLimiter;
+
+    @Autowired
+    private ConversationStore conversationStore;
+
+    @Autowired
+    private ContextStore contextStore;
+
+    @Autowired
+    private PromptTokenizer promptTokenizer;
+
+    @Autowired
+    private ModelRouter modelRouter;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private AccessLog accessLog;
+
+    @Autowired
+    private AdmissionGate admissionGate;
+
     public String handleChatRequest(ChatRequest request) {
-        if (!request.isValid()) {
-            throw new IllegalArgumentException("Invalid chat request: required fields are missing");
+        try {
+            // Blocking callers share the async pipeline (cache, single-flight) and simply wait for it
+            return handleChatRequestAsync(request).join();
+
+        } catch (IllegalArgumentException | RateLimitExceededException | MissingContextException e) {
+            log.warn("Rejected chat request: {}", e.getMessage());
+            throw e;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RateLimitExceededException || cause instanceof AdmissionRejectedException) {
+                log.warn("Rejected chat request: {}", cause.getMessage());
+                throw (RuntimeException) cause;
+            }
+            log.error("Error processing chat request: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to process chat request: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Processes a chat request without blocking the calling thread.
+     *
+     * Validation and provider lookup happen synchronously, so invalid requests
+     * still fail fast with an IllegalArgumentException; the upstream call itself
+     * is carried by the returned future. Identical requests are answered from the
+     * response cache, and so are near-duplicates when the similarity cache is
+     * on; identical concurrent requests share one upstream call.
+     * Requests that would go upstream wait for the {@link AdmissionGate} at
+     * interactive priority and are then charged to the API key's rate limit;
+     * cache hits are answered without either.
+     * Requests that name a conversation are sent with its stored context, and the
+     * exchange is added to the conversation once it succeeds. Prompts are sized in
+     * the target model's tokens first and cut to its context window if needed.
+     * With model routing enabled, the model is chosen from the prompt's size, the
+     * client's latency SLO and each model's recent latency and error rate.
+     * Document context referenced by hash is taken from the context store and
+     * put in front of the prompt before prompt engineering. Every request is
+     * recorded in the access log once it finishes, including those rejected
+     * before a provider was chosen.
+     *
+     * @param request the chat request to process
+     * @return a future completed with the generated response content, or failed with
+     *         {@link AdmissionRejectedException} or {@link RateLimitExceededException}
+     *         if the request may not go upstream
+     * @throws MissingContextException if referenced context chunks are not stored
+     */
+    public CompletableFuture<String> handleChatRequestAsync(ChatRequest request) {
+        return handleChatRequestAsync(request, Deadline.none());
+    }
+
+    /**
+     * Processes a chat request without blocking the calling thread, within a deadline.
+     *
+     * Behaves like {@link #handleChatRequestAsync(ChatRequest)}; in addition the
+     * returned future fails as soon as the deadline expires or is cancelled, and
+     * the upstream call is aborted unless other callers still wait for it. A
+     * request whose deadline has already passed is not started at all.
+     *
+     * @param request the chat request to process
+     * @param deadline the time the client still allows, and whether it is still waiting
+     * @return a future completed with the generated response content
+     */
+    public CompletableFuture<String> handleChatRequestAsync(ChatRequest request, Deadline deadline) {
+        return handleChatRequestAsync(request, deadline, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Processes a chat request within a deadline, admitted at the given priority.
+     *
+     * Behaves like {@link #handleChatRequestAsync(ChatRequest, Deadline)}. The
+     * request is looked up in the caches before admission, so a hit is answered
+     * at once and never waits behind upstream calls; only a miss takes an
+     * admission permit, which it holds until the upstream call finishes. The
+     * admitted call starts on the gate's executor.
+     *
+     * @param request the chat request to process
+     * @param deadline the time the client still allows, and whether it is still waiting
+     * @param priority the scheduling class for admission
+     * @return a future completed with the generated response content
+     */
+    public CompletableFuture<String> handleChatRequestAsync(ChatRequest request, Deadline deadline,
+                                                            Priority priority) {
+        long start = System.nanoTime();
+        LLMService llmService;
+        SizedPrompt prompt;
+        try {
+            if (!request.isValid()) {
+                throw new IllegalArgumentException("Invalid chat request: required fields are missing");
+            }
+            log.debug("Processing async chat request for provider: {}", request.provider());
+
+            String engineeredPrompt = chatMetrics.timePromptEngineering(() -> applyPromptEngineering(withContext(request)));
+            List<ChatMessage> context = conversationStore.context(
+                    request.apiKey(), request.conversationId(), ChatMessage.user(engineeredPrompt));
+            llmService = llmProxyFactory.getService(request.provider(), request.providerKeys(),
+                    context, request.latencySlo());
+            prompt = promptTokenizer.fit(llmService, context);
+        } catch (RuntimeException e) {
+            recordRejected(request, "unary", start, e);
+            throw e;
+        }
+        List<ChatMessage> messages = prompt.messages();
+        PromptKey promptKey = PromptKey.of(llmService, request.apiKey(), messages);
+        int promptChars = promptChars(messages);
+        chatMetrics.recordPayload(llmService.getProviderName(), "prompt", promptChars);
+
+        Optional<String> cached = responseCache.get(promptKey);
+        SimilarityCache.Probe similar = null;
+        if (cached.isEmpty()) {
+            similar = similarityCache.probe(llmService, request.apiKey(), request.getEffectivePrompt(), messages);
+            cached = similarityCache.find(similar);
+        }
+        if (cached.isPresent()) {
+            log.debug("Served async chat request from cache for provider: {}", request.provider());
+            conversationStore.append(request.apiKey(), request.conversationId(), request.getEffectivePrompt(), cached.get());
+            recordCompletion(request, llmService, "unary", start, promptChars, 0, cached.get(), null,
+                    similar != null ? "similar_hit" : "cache_hit");
+            return CompletableFuture.completedFuture(cached.get());
         }
+        SimilarityCache.Probe probe = similar;
 
+        CompletableFuture<String> result = admissionGate.submit(request.apiKey(), priority,
+                AdmissionGate.costOf(request.prompt()),
+                permit -> callUpstream(request, deadline, permit, llmService, prompt, promptKey, probe));
+        // Only this caller gives up: it leaves the admission queue, or the shared upstream call if it was admitted
+        Deadline.Registration abort = deadline.onAbort(() -> result.completeExceptionally(deadline.abortCause()));
+
+        return result
+                .whenComplete((response, error) -> {
+                    abort.close();
+                    recordCompletion(request, llmService, "unary", start, promptChars, 0, response, error, null);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof ProviderUnavailableException
+                                || cause instanceof AdmissionRejectedException
+                                || cause instanceof RateLimitExceededException) {
+                            log.warn("Async chat request rejected: {}", cause.getMessage());
+                            return;
+                        }
+                        if (cause instanceof CancellationException) {
+                            log.info("Async chat request aborted: {}", cause.getMessage());
+                            return;
+                        }
+                        log.error("Error processing async chat request: {}", cause.getMessage());
+                    } else {
+                        log.debug("Successfully generated async response for provider: {}", request.provider());
+                        conversationStore.append(request.apiKey(), request.conversationId(),
+                                request.getEffectivePrompt(), response);
+                    }
+                });
+    }
+
+    /**
+     * Sends an admitted cache miss upstream, sharing the call with identical
+     * requests in flight, and caches the answer. While the provider's
+     * concurrency limit is reached, the call waits in the admission queue
+     * under its permit rather than failing. Only the caller that starts the
+     * call is charged to the rate limit; the result fails with a
+     * {@link RateLimitExceededException} if the API key has used up its budget.
+     */
+    private CompletableFuture<String> callUpstream(ChatRequest request, Deadline deadline,
+                                                   AdmissionGate.Permit permit, LLMService llmService,
+                                                   SizedPrompt prompt, PromptKey promptKey,
+                                                   SimilarityCache.Probe probe) {
+        // The deadline may have passed while the request was queued
+        if (deadline.isAborted()) {
+            return CompletableFuture.failedFuture(deadline.abortCause());
+        }
+        List<ChatMessage> messages = prompt.messages();
+        CompletableFuture<String> result = requestCoalescer.execute(promptKey, () -> {
+            // Callers that join this call share its answer without another upstream request
+            rateLimiter.acquire(llmService.getProviderName(), request.apiKey(), prompt.promptTokens());
+            CompletableFuture<String> call = permit.call(
+                    () -> timeUpstream(llmService, () -> llmService.generateResponseAsync(messages, request.apiKey(),
+                            deadline)),
+                    ChatService::isConcurrencyLimited);
+            CompletableFuture<String> stored = call.thenApply(response -> {
+                // A hedged request may have been answered by its secondary provider; cache it as that one's
+                PromptKey answeredKey = promptKey.forService(llmService);
+                if (responseCache.put(answeredKey, response) && answeredKey == promptKey) {
+                    similarityCache.add(probe, promptKey);
+                }
+                return response;
+            });
+            // Cancelling a dependent stage does not reach its source; pass it on so the exchange is aborted
+            stored.whenComplete((response, error) -> {
+                if (stored.isCancelled()) {
+                    call.cancel(true);
+                }
+            });
+            return stored;
+        });
+        // Failing the admission result does not reach this future; give up this caller's share directly
+        Deadline.Registration abort = deadline.onAbort(() -> result.completeExceptionally(deadline.abortCause()));
+        return result.whenComplete((response, error) -> abort.close());
+    }
+
+    /**
+     * Streams the response for a chat request, forwarding each text delta to
+     * {@code onDelta} as soon as the provider emits it.
+     *
+     * The upstream stream is aborted as soon as the deadline expires or is
+     * cancelled, e.g. because the client disconnected; the call then fails with
+     * a {@link CancellationException}. While the provider's concurrency limit
+     * is reached, the request waits in the admission queue under its permit.
+     *
+     * @param request the chat request to process
+     * @param deadline the time the client still allows, and whether it is still waiting
+     * @param permit the request's admission permit; the caller releases it
+     * @param onDelta receives each incremental piece of the response, in order
+     * @return the full response content once the stream has completed
+     */
+    public String streamChatRequest(ChatRequest request, Deadline deadline, AdmissionGate.Permit permit,
+                                    Consumer<String> onDelta) {
+        long start = System.nanoTime();
+        LLMService llmService = null;
+        int promptChars = 0;
+        AtomicLong firstDelta = new AtomicLong();
         try {
-            log.info("Processing chat request for provider: {}", request.provider());
+            if (!request.isValid()) {
+                throw new IllegalArgumentException("Invalid chat request: required fields are missing");
+            }
+            log.debug("Processing streaming chat request for provider: {}", request.provider());
+
+            String engineeredPrompt = chatMetrics.timePromptEngineering(() -> applyPromptEngineering(withContext(request)));
+            List<ChatMessage> context = conversationStore.context(
+                    request.apiKey(), request.conversationId(), ChatMessage.user(engineeredPrompt));
+            llmService = llmProxyFactory.route(llmProxyFactory.getService(request.provider()),
+                    context, request.latencySlo());
+
+            SizedPrompt prompt = promptTokenizer.fit(llmService, context);
+            List<ChatMessage> messages = prompt.messages();
+            PromptKey promptKey = PromptKey.of(llmService, request.apiKey(), messages);
+            promptChars = promptChars(messages);
+            chatMetrics.recordPayload(llmService.getProviderName(), "prompt", promptChars);
 
-            // Apply prompt engineering to enhance the user's request
-            String engineeredPrompt = applyPromptEngineering(request.getEffectivePrompt());
-            log.debug("Applied prompt engineering to user request");
+            // A cache hit is replayed as a single delta
+            Optional<String> cached = responseCache.get(promptKey);
+            SimilarityCache.Probe similar = null;
+            if (cached.isEmpty()) {
+                similar = similarityCache.probe(llmService, request.apiKey(), request.getEffectivePrompt(), messages);
+                cached = similarityCache.find(similar);
+            }
+            if (cached.isPresent()) {
+                log.debug("Served streaming chat request from cache for provider: {}", request.provider());
+                onDelta.accept(cached.get());
+                conversationStore.append(request.apiKey(), request.conversationId(), request.getEffectivePrompt(), cached.get());
+                recordCompletion(request, llmService, "stream", start, promptChars, 0, cached.get(), null,
+                        similar != null ? "similar_hit" : "cache_hit");
+                return cached.get();
+            }
 
-            // Get the appropriate LLM service
-            LLMService llmService = llmProxyFactory.getService(request.provider());
-            log.debug("Retrieved LLM service for provider: {}", request.provider());
+            if (deadline.isAborted()) {
+                throw deadline.abortCause();
+            }
+            rateLimiter.acquire(llmService.getProviderName(), request.apiKey(), prompt.promptTokens());
 
-            // Generate response using the engineered prompt
-            String response = llmService.generateResponse(engineeredPrompt, request.apiKey());
-            log.info("Successfully generated response for provider: {}", request.provider());
+            String response = streamUpstream(llmService, messages, request.apiKey(), deadline, permit,
+                    timeFirstDelta(llmService, start, firstDelta, onDelta));
+            log.debug("Successfully streamed response for provider: {}", request.provider());
 
+            if (responseCache.put(promptKey, response)) {
+                similarityCache.add(similar, promptKey);
+            }
+            conversationStore.append(request.apiKey(), request.conversationId(), request.getEffectivePrompt(), response);
+            recordCompletion(request, llmService, "stream", start, promptChars, firstDelta.get(), response, null, null);
             return response;
 
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid request or provider: {}", e.getMessage());
+        } catch (IllegalArgumentException | RateLimitExceededException | MissingContextException e) {
+            if (llmService != null) {
+                recordCompletion(request, llmService, "stream", start, promptChars, firstDelta.get(), null, e, null);
+            } else {
+                recordRejected(request, "stream", start, e);
+            }
+            log.warn("Rejected streaming chat request: {}", e.getMessage());
+            throw e;
+        } catch (CancellationException e) {
+            if (llmService != null) {
+                recordCompletion(request, llmService, "stream", start, promptChars, firstDelta.get(), null, e, null);
+            } else {
+                recordRejected(request, "stream", start, e);
+            }
+            log.info("Streaming chat request aborted: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
-            log.error("Error processing chat request: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to process chat request: " + e.getMessage(), e);
+            if (llmService != null) {
+                recordCompletion(request, llmService, "stream", start, promptChars, firstDelta.get(), null, e, null);
+            } else {
+                recordRejected(request, "stream", start, e);
+            }
+            log.error("Error processing streaming chat request: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to process streaming chat request: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams from the provider, waiting in the admission queue and starting
+     * over whenever its concurrency limit is reached. That is only reported
+     * before the stream starts, so no delta is ever sent twice.
+     */
+    private String streamUpstream(LLMService llmService, List<ChatMessage> messages, String apiKey,
+                                  Deadline deadline, AdmissionGate.Permit permit, Consumer<String> onDelta) {
+        while (true) {
+            long attemptStart = System.nanoTime();
+            try {
+                String response = llmService.streamResponse(messages, apiKey, deadline, onDelta);
+                modelRouter.record(llmService, System.nanoTime() - attemptStart, null);
+                return response;
+            } catch (RuntimeException e) {
+                modelRouter.record(llmService, System.nanoTime() - attemptStart, e);
+                if (!isConcurrencyLimited(e)) {
+                    throw e;
+                }
+                CompletableFuture<AdmissionGate.Permit> readmitted = permit.requeue();
+                Deadline.Registration abort = deadline.onAbort(() ->
+                        readmitted.completeExceptionally(deadline.abortCause()));
+                try {
+                    readmitted.join();
+                } catch (CompletionException rejected) {
+                    throw e;
+                } finally {
+                    abort.close();
+                }
+            }
         }
     }
 
+    /**
+     * Starts one upstream call and feeds its own duration into the model's
+     * routing averages, leaving out the time spent queued, throttled or
+     * waiting on another caller's identical request.
+     */
+    private CompletableFuture<String> timeUpstream(LLMService llmService, Supplier<CompletableFuture<String>> call) {
+        long attemptStart = System.nanoTime();
+        CompletableFuture<String> result = call.get();
+        result.whenComplete((response, error) ->
+                modelRouter.record(llmService, System.nanoTime() - attemptStart, error));
+        return result;
+    }
+
+    private static boolean isConcurrencyLimited(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return cause instanceof ProviderUnavailableException unavailable && unavailable.isConcurrencyLimited();
+    }
+
+    /**
+     * Records the end-to-end latency, response size and any error of a finished
+     * request, in the metrics and as one access log event.
+     *
+     * @param promptChars Length of the prompt as sent to the model
+     * @param firstDeltaNanos Time until the first streamed delta, or 0 if none was sent
+     * @param outcome Explicit outcome tag, or null to derive it from {@code error}
+     */
+    private void recordCompletion(ChatRequest request, LLMService llmService, String mode, long startNanos,
+                                  int promptChars, long firstDeltaNanos, String response, Throwable error,
+                                  String outcome) {
+        String provider = llmService.getProviderName();
+        long latencyNanos = System.nanoTime() - startNanos;
+        String tag = outcome != null ? outcome : ChatMetrics.outcomeOf(error);
+        chatMetrics.recordRequest(provider, llmService.getModelName(), mode, tag, latencyNanos);
+        accessLog.record(request.apiKey(), provider, llmService.getModelName(), mode, tag, latencyNanos,
+                firstDeltaNanos, promptChars, response != null ? response.length() : 0, error);
+        if (error != null) {
+            chatMetrics.recordError(provider, error);
+        } else if (response != null) {
+            chatMetrics.recordPayload(provider, "response", response.length());
+        }
+    }
+
+    /**
+     * Records a request that failed before a provider was chosen for it, e.g.
+     * because its context is missing, as an access event with no model.
+     */
+    private void recordRejected(ChatRequest request, String mode, long startNanos, Throwable error) {
+        accessLog.record(request.apiKey(), request.provider(), null, mode, ChatMetrics.outcomeOf(error),
+                System.nanoTime() - startNanos, 0, 0, 0, error);
+    }
+
+    private static int promptChars(List<ChatMessage> messages) {
+        int chars = 0;
+        for (ChatMessage message : messages) {
+            chars += message.content().length();
+        }
+        return chars;
+    }
+
+    /**
+     * Wraps a delta consumer so that the arrival of the first delta is recorded
+     * as time-to-first-token, and kept in {@code firstDeltaNanos} for the access log.
+     */
+    private Consumer<String> timeFirstDelta(LLMService llmService, long startNanos, AtomicLong firstDeltaNanos,
+                                            Consumer<String> onDelta) {
+        AtomicBoolean first = new AtomicBoolean(true);
+        return delta -> {
+            if (first.compareAndSet(true, false)) {
+                long elapsed = System.nanoTime() - startNanos;
+                firstDeltaNanos.set(elapsed);
+                chatMetrics.recordTimeToFirstToken(llmService.getProviderName(), llmService.getModelName(), elapsed);
+            }
+            onDelta.accept(delta);
+        };
+    }
+
+    /**
+     * Gets the user's prompt with the request's document context in front.
+     * Conversations record the prompt alone, since the client sends the
+     * context again with every turn.
+     */
+    private String withContext(ChatRequest request) {
+        return contextStore.assemble(request.apiKey(), request.context(), request.getEffectivePrompt());
+    }
+
     /**
      * Applies prompt engineering to enhance the user's request.
      * This method can be extended to include more sophisticated prompt engineering logic.
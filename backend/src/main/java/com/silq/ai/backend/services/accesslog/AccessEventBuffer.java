@@ -0,0 +1,126 @@
+package com.silq.ai.backend.services.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring of preallocated access events, filled by any number of request
+ * threads and drained by a single writer thread.
+ *
+ * A producer claims the next sequence with a CAS, fills the slot in place and
+ * then publishes the sequence in the slot's marker; the writer takes events in
+ * sequence order once their marker shows them published. Neither side takes a
+ * lock, and a producer that finds the ring full gets no slot instead of
+ * waiting. Events are recycled, so recording one allocates nothing.
+ */
+final class AccessEventBuffer {
+
+    /**
+     * One request's fields. Only the producer that claimed the slot writes them,
+     * and only until it publishes; the writer reads them after that.
+     */
+    static final class Event {
+        long timestampMillis;
+        String apiKey;
+        String provider;
+        String model;
+        String mode;
+        String outcome;
+        long latencyNanos;
+        long firstDeltaNanos;
+        int promptChars;
+        int responseChars;
+        Throwable error;
+
+        private void clear() {
+            apiKey = null;
+            provider = null;
+            model = null;
+            mode = null;
+            outcome = null;
+            error = null;
+        }
+    }
+
+    private final Event[] events;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    /**
+     * @param capacity Number of slots; rounded up to a power of two
+     */
+    AccessEventBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.events = new Event[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            events[i] = new Event();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Claims the next slot for a producer, which must {@link #publish} it.
+     *
+     * @return The slot's sequence, or -1 if the ring is full
+     */
+    long claim() {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= events.length) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    Event event(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Hands a filled slot to the writer.
+     */
+    void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Passes each published event to {@code writer} in sequence order and frees
+     * its slot. Stops at the first slot that is claimed but not yet published.
+     * Only one thread may drain.
+     *
+     * @return The number of events drained
+     */
+    int drain(Consumer<Event> writer) {
+        int drained = 0;
+        long next = consumed;
+        while (published.get((int) next & mask) == next) {
+            Event event = events[(int) next & mask];
+            try {
+                writer.accept(event);
+            } finally {
+                event.clear();
+                consumed = ++next;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Events claimed but not yet drained.
+     */
+    long pending() {
+        return claimed.get() - consumed;
+    }
+
+    int capacity() {
+        return events.length;
+    }
+}
@@ -0,0 +1,249 @@
+package com.silq.ai.backend.services.accesslog;
+
+import com.silq.ai.backend.config.AccessLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log with one JSON event per chat request, written to the
+ * {@value #LOGGER_NAME} logger. Requests rejected before reaching a provider
+ * get an event too, with the fields known at that point.
+ *
+ * Request threads only copy the request's fields into a preallocated slot of
+ * an {@link AccessEventBuffer}; formatting and the appender call happen on the
+ * "access-log" writer thread, so the request path neither builds strings nor
+ * waits for the appender. When the writer falls behind and the buffer is full,
+ * events are dropped and counted rather than blocking requests.
+ *
+ * Successful requests are sampled at {@code silq.access-log.sample-rate};
+ * failures and requests slower than {@code silq.access-log.slow-threshold} are
+ * always logged. API keys are never written: an event carries the first 8 hex
+ * digits of the key's SHA-256, enough to tell a client's requests apart.
+ */
+@Component
+public final class AccessLog {
+
+    /** Logger the events are written to; route it to its own appender to keep them apart. */
+    public static final String LOGGER_NAME = "silq.access";
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+    private static final Logger accessLog = LoggerFactory.getLogger(LOGGER_NAME);
+
+    /** How long the writer sleeps once the buffer is empty. */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final AccessEventBuffer buffer;
+    private final Counter written;
+    private final Counter sampledOut;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(512);
+    private final MessageDigest sha256;
+    private String lastApiKey;
+    private String lastFingerprint;
+
+    public AccessLog(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled() && accessLog.isInfoEnabled();
+        this.sampleRate = Math.max(0, Math.min(1, properties.sampleRate()));
+        this.slowThresholdNanos = properties.slowThreshold().toNanos();
+        this.buffer = new AccessEventBuffer(enabled ? properties.bufferSize() : 2);
+        this.written = events(meterRegistry, "written");
+        this.sampledOut = events(meterRegistry, "sampled_out");
+        this.dropped = events(meterRegistry, "dropped");
+        Gauge.builder("silq.access-log.pending", buffer, AccessEventBuffer::pending)
+                .description("Access events waiting for the writer thread")
+                .register(meterRegistry);
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        this.writer = enabled ? Thread.ofPlatform().name("access-log").daemon().start(this::run) : null;
+        log.info("AccessLog initialized: enabled={}, bufferSize={}, sampleRate={}, slowThreshold={}",
+                enabled, buffer.capacity(), sampleRate, properties.slowThreshold());
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("silq.access-log.events")
+                .description("Access events by result: written, sampled out or dropped on a full buffer")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a finished chat request. Does not allocate and never blocks.
+     *
+     * @param apiKey The client's API key; only its fingerprint is written
+     * @param provider Canonical provider name, or the name requested if none was chosen
+     * @param model Upstream model, or null if the request was rejected before a provider was chosen
+     * @param mode "unary", "stream" or "batch"
+     * @param outcome Outcome tag as in {@code silq.chat.requests}
+     * @param latencyNanos Time since the request entered the service
+     * @param firstDeltaNanos Time until the first streamed delta, or 0 if none was sent
+     * @param promptChars Length of the prompt as sent to the model
+     * @param responseChars Length of the response, or 0 if there is none
+     * @param error The failure, or null on success
+     */
+    public void record(String apiKey, String provider, String model, String mode, String outcome,
+                       long latencyNanos, long firstDeltaNanos, int promptChars, int responseChars,
+                       Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        if (error == null && latencyNanos < slowThresholdNanos && sampleRate < 1
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+        long sequence = buffer.claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        AccessEventBuffer.Event event = buffer.event(sequence);
+        event.timestampMillis = System.currentTimeMillis();
+        event.apiKey = apiKey;
+        event.provider = provider;
+        event.model = model;
+        event.mode = mode;
+        event.outcome = outcome;
+        event.latencyNanos = latencyNanos;
+        event.firstDeltaNanos = firstDeltaNanos;
+        event.promptChars = promptChars;
+        event.responseChars = responseChars;
+        event.error = error;
+        buffer.publish(sequence);
+    }
+
+    /**
+     * Writes the remaining events and stops the writer thread.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running) {
+            if (buffer.drain(this::write) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        buffer.drain(this::write);
+    }
+
+    private void write(AccessEventBuffer.Event event) {
+        try {
+            line.setLength(0);
+            line.append("{\"ts\":\"");
+            DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(event.timestampMillis), line);
+            line.append('"');
+            appendString("provider", event.provider);
+            appendString("model", event.model);
+            appendString("mode", event.mode);
+            appendString("outcome", event.outcome);
+            appendMillis("latency_ms", event.latencyNanos);
+            if (event.firstDeltaNanos > 0) {
+                appendMillis("ttft_ms", event.firstDeltaNanos);
+            }
+            line.append(",\"prompt_chars\":").append(event.promptChars);
+            line.append(",\"response_chars\":").append(event.responseChars);
+            if (event.apiKey != null) {
+                appendString("key", fingerprint(event.apiKey));
+            }
+            if (event.error != null) {
+                appendString("error", rootCause(event.error).getClass().getSimpleName());
+            }
+            line.append('}');
+            accessLog.info(line.toString());
+            written.increment();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write access event: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a string field, or JSON null if there is no value, e.g. the
+     * model of a request rejected before a provider was chosen.
+     */
+    private void appendString(String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Appends a duration in milliseconds with microsecond precision.
+     */
+    private void appendMillis(String name, long nanos) {
+        long micros = nanos / 1000;
+        long fraction = micros % 1000;
+        line.append(",\"").append(name).append("\":").append(micros / 1000).append('.');
+        if (fraction < 100) {
+            line.append(fraction < 10 ? "00" : "0");
+        }
+        line.append(fraction);
+    }
+
+    /**
+     * Gets the first 8 hex digits of the key's SHA-256; consecutive events of the
+     * same key reuse the last result.
+     */
+    private String fingerprint(String apiKey) {
+        if (!apiKey.equals(lastApiKey)) {
+            byte[] digest = sha256.digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            lastFingerprint = HexFormat.of().formatHex(digest, 0, 4);
+            lastApiKey = apiKey;
+        }
+        return lastFingerprint;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root;
+    }
+}
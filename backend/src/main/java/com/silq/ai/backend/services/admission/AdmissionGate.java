@@ -0,0 +1,618 @@
+package com.silq.ai.backend.services.admission;
+
+import com.silq.ai.backend.config.AdmissionProperties;
+import com.silq.ai.backend.services.ratelimit.ApiKeyRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the chat requests processed at once and schedules the rest fairly.
+ *
+ * At most {@code silq.admission.max-concurrent} requests hold a permit at a
+ * time, and fewer while a provider is saturated (see below). Others wait in a
+ * bounded queue without holding a thread, and a freed permit goes to the next
+ * waiter in this order:
+ * <ol>
+ *   <li>by {@link Priority}: a waiting interactive request always goes before
+ *       batch and background work;</li>
+ *   <li>within a priority, by start-time fair queuing across API-key hashes:
+ *       each waiter is tagged with the virtual time its key's previous
+ *       requests end at, charged by request cost divided by the key's weight,
+ *       and the smallest tag goes first. A key flooding the queue therefore
+ *       only delays its own requests, while a key sending its first request
+ *       is served next.</li>
+ * </ol>
+ * Requests are rejected up front rather than left to time out:
+ * <ul>
+ *   <li>with 429 when the caller's key already has {@code max-queued-per-key}
+ *       requests waiting at that priority;</li>
+ *   <li>with 503 when the queue is full, or when the expected wait (its place
+ *       in line times the average time a permit is held, spread over the
+ *       permits) exceeds the priority's queue timeout.</li>
+ * </ul>
+ * A waiter still queued when its timeout runs out is rejected with 503, and a
+ * waiter whose future is cancelled leaves the queue. Every rejection carries
+ * an estimate of when capacity frees up, for the {@code Retry-After} header.
+ *
+ * Each provider has its own, usually much lower, adaptive concurrency limit.
+ * A request admitted here that finds its provider's limit reached gives its
+ * permit back and waits again at the head of its lane ({@link Permit#requeue()}),
+ * instead of failing with 503 while the gate still has room. The gate then
+ * admits no more than the requests still in service, and grows back by one
+ * permit for each one released while it is full, so that it follows the
+ * tightest provider rather than {@code max-concurrent}.
+ *
+ * A waiter is admitted on the thread that released the permit before it,
+ * often an HTTP client thread, and a timeout fires on the JDK's shared delay
+ * scheduler. Neither runs callers' work: tasks that had to wait and timeout
+ * rejections are handed to the application task executor.
+ */
+@Component
+public final class AdmissionGate {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionGate.class);
+
+    /** Prompt characters per unit of cost; about a thousand tokens. */
+    private static final int CHARS_PER_COST_UNIT = 4096;
+    /** Virtual time charged per unit of cost at weight 1, so weights divide evenly. */
+    private static final long COST_SCALE = 1 << 16;
+    private static final double SERVICE_TIME_ALPHA = 0.1;
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+    private static final Permit UNCOUNTED = new Permit(null, Priority.INTERACTIVE, 0);
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Executor executor;
+    private final Map<Long, Integer> weights = new HashMap<>();
+    private final Lane[] lanes = new Lane[Priority.values().length];
+    private final Timer[] waitTimers = new Timer[Priority.values().length];
+    private final Timer[] timeoutTimers = new Timer[Priority.values().length];
+
+    // Guarded by this
+    private int limit;
+    private int inService;
+    private int queued;
+    private long sequence;
+    private double serviceNanos = Double.NaN;
+
+    /**
+     * @param executor Runs tasks that had to wait for a permit, and timeout rejections
+     */
+    public AdmissionGate(AdmissionProperties properties, MeterRegistry meterRegistry,
+                         @Qualifier("applicationTaskExecutor") Executor executor) {
+        if (properties.maxConcurrent() < 1) {
+            throw new IllegalArgumentException("silq.admission.max-concurrent must be at least 1");
+        }
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        this.limit = properties.maxConcurrent();
+        if (properties.weights() != null) {
+            properties.weights().forEach((apiKey, weight) ->
+                    weights.put(ApiKeyRateLimiter.hashKey(apiKey), Math.max(1, weight)));
+        }
+
+        Gauge.builder("silq.admission.in-service", this, AdmissionGate::inService)
+                .description("Chat requests holding an admission permit")
+                .register(meterRegistry);
+        Gauge.builder("silq.admission.limit", this, AdmissionGate::limit)
+                .description("Admission permits currently granted at most, lowered while a provider is saturated")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            lanes[priority.ordinal()] = new Lane();
+            Gauge.builder("silq.admission.queued", this, gate -> gate.queued(priority))
+                    .description("Chat requests waiting for an admission permit")
+                    .tag("priority", priority.tag())
+                    .register(meterRegistry);
+            waitTimers[priority.ordinal()] = waitTimer(priority, "admitted");
+            timeoutTimers[priority.ordinal()] = waitTimer(priority, "timeout");
+        }
+    }
+
+    /**
+     * Estimates the cost of a request from its prompt: one unit plus one per
+     * {@value #CHARS_PER_COST_UNIT} characters, so long prompts use up more of
+     * their key's fair share than short ones.
+     *
+     * @param prompt The prompt text; null counts as empty
+     * @return The cost, at least 1
+     */
+    public static int costOf(String prompt) {
+        return prompt == null ? 1 : 1 + prompt.length() / CHARS_PER_COST_UNIT;
+    }
+
+    /**
+     * Runs {@code task} once admitted and holds the permit until its future completes.
+     *
+     * A task admitted at once runs on the calling thread; one that had to wait
+     * runs on the executor. Cancelling or failing the returned future while the
+     * request is still waiting removes it from the queue; once the task has
+     * started it runs to completion.
+     *
+     * @param apiKey The caller's API key, which selects its fair share
+     * @param priority The scheduling class of the request
+     * @param cost The cost of the request, see {@link #costOf(String)}
+     * @param task Starts the work under the given permit, e.g. through
+     *             {@link Permit#call}; may throw, which fails the returned future
+     * @return A future completed with the task's result, or failed with
+     *         {@link AdmissionRejectedException} if the request was not admitted
+     */
+    public <T> CompletableFuture<T> submit(String apiKey, Priority priority, int cost,
+                                           Function<Permit, CompletableFuture<T>> task) {
+        CompletableFuture<Permit> admission = admit(apiKey, priority, cost);
+        Function<Permit, CompletableFuture<T>> start = permit -> {
+            CompletableFuture<T> work;
+            try {
+                work = task.apply(permit);
+            } catch (RuntimeException e) {
+                permit.release();
+                throw e;
+            }
+            return work.whenComplete((value, error) -> permit.release());
+        };
+        // A waiter is admitted by whichever thread released a permit; don't run the task there
+        CompletableFuture<T> result = admission.isDone()
+                ? admission.thenCompose(start)
+                : admission.thenComposeAsync(start, executor);
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                admission.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for a permit without holding a thread.
+     *
+     * The permit must be released exactly once when the work is done; further
+     * releases are ignored. Cancelling or failing the returned future while the
+     * request is still waiting removes it from the queue.
+     *
+     * @param apiKey The caller's API key, which selects its fair share
+     * @param priority The scheduling class of the request
+     * @param cost The cost of the request, see {@link #costOf(String)}
+     * @return A future completed with the permit, or failed with
+     *         {@link AdmissionRejectedException} if the request was not admitted
+     */
+    public CompletableFuture<Permit> admit(String apiKey, Priority priority, int cost) {
+        if (!properties.enabled()) {
+            return CompletableFuture.completedFuture(UNCOUNTED);
+        }
+        long flow = ApiKeyRateLimiter.hashKey(apiKey);
+        Duration timeout = queueTimeout(priority);
+        Waiter waiter = null;
+        AdmissionRejectedException rejection = null;
+        synchronized (this) {
+            if (inService < limit && queued == 0) {
+                inService++;
+                waitTimers[priority.ordinal()].record(0, TimeUnit.NANOSECONDS);
+                Permit permit = new Permit(this, priority, flow);
+                permit.admitted(System.nanoTime());
+                return CompletableFuture.completedFuture(permit);
+            }
+            Lane lane = lanes[priority.ordinal()];
+            Flow state = lane.flows.get(flow);
+            long startTag = state == null ? lane.virtualTime : Math.max(lane.virtualTime, state.lastFinish);
+            if (state != null && state.queued >= properties.maxQueuedPerKey()) {
+                rejection = reject(priority, "key_queue_full", true, estimateWait(state.queued));
+            } else if (queued >= properties.maxQueued()) {
+                rejection = reject(priority, "queue_full", false, estimateWait(queued));
+            } else {
+                Duration expected = estimateWait(position(priority, startTag) + 1);
+                if (expected.compareTo(timeout) > 0) {
+                    rejection = reject(priority, "expected_wait", false, expected);
+                } else {
+                    if (state == null) {
+                        state = new Flow();
+                        lane.flows.put(flow, state);
+                    }
+                    long charge = Math.max(1, cost) * COST_SCALE / weights.getOrDefault(flow, 1);
+                    state.lastFinish = startTag + charge;
+                    state.queued++;
+                    queued++;
+                    waiter = new Waiter(priority, flow, startTag, sequence++, System.nanoTime(), null);
+                    lane.waiting.add(waiter);
+                }
+            }
+        }
+        if (rejection != null) {
+            return CompletableFuture.failedFuture(rejection);
+        }
+        return watch(waiter, timeout);
+    }
+
+    /**
+     * Rejects {@code waiter} once its queue timeout runs out, and takes it out
+     * of the queue if its future is cancelled or failed first.
+     */
+    private CompletableFuture<Permit> watch(Waiter waiter, Duration timeout) {
+        // The shared delay scheduler only hands the timeout over; the rejection's callbacks run on the executor
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS, executor)
+                .execute(() -> expire(waiter));
+        waiter.future.whenComplete((permit, error) -> {
+            if (error != null) {
+                remove(waiter);
+            }
+        });
+        return waiter.future;
+    }
+
+    /**
+     * Puts a permit whose provider is saturated back at the head of its lane,
+     * see {@link Permit#requeue()}.
+     */
+    private CompletableFuture<Permit> requeue(Permit permit) {
+        Waiter waiter;
+        synchronized (this) {
+            if (!permit.holding || inService <= 1) {
+                // Nothing in service here would free the provider's slot and wake it
+                return CompletableFuture.failedFuture(new AdmissionRejectedException("provider saturated", false,
+                        MIN_RETRY_AFTER));
+            }
+            permit.holding = false;
+            inService--;
+            // Admit no more than the provider took; releases raise the limit again
+            limit = Math.max(1, inService);
+            Lane lane = lanes[permit.priority.ordinal()];
+            // Its cost was charged when it was first admitted; it goes ahead of every new waiter
+            lane.flows.computeIfAbsent(permit.flow, flow -> new Flow()).queued++;
+            queued++;
+            waiter = new Waiter(permit.priority, permit.flow, lane.virtualTime, Long.MIN_VALUE + sequence++,
+                    System.nanoTime(), permit);
+            lane.waiting.add(waiter);
+            permit.waiting = waiter;
+        }
+        log.debug("Requeued {} request, admission limit lowered to {}", permit.priority.tag(), limit());
+        return watch(waiter, queueTimeout(permit.priority));
+    }
+
+    /**
+     * Gets the number of requests holding a permit.
+     */
+    public synchronized int inService() {
+        return inService;
+    }
+
+    /**
+     * Gets the number of permits granted at most, at present.
+     */
+    public synchronized int limit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of requests of one priority waiting for a permit.
+     */
+    public synchronized int queued(Priority priority) {
+        return lanes[priority.ordinal()].waiting.size();
+    }
+
+    private void release(Permit permit) {
+        long now = System.nanoTime();
+        List<Waiter> admitted = new ArrayList<>(1);
+        List<Permit> permits = new ArrayList<>(1);
+        Waiter abandoned = null;
+        synchronized (this) {
+            if (!permit.holding) {
+                // Given up while waiting to be readmitted, or after that wait ended
+                if (permit.waiting != null) {
+                    abandoned = permit.waiting;
+                    remove(lanes[permit.priority.ordinal()], abandoned);
+                }
+            } else {
+                permit.holding = false;
+                double held = now - permit.admittedNanos;
+                serviceNanos = Double.isNaN(serviceNanos) ? held : serviceNanos + SERVICE_TIME_ALPHA * (held - serviceNanos);
+                // Probe for more room while full, after a saturated provider lowered the limit
+                if (inService >= limit && limit < properties.maxConcurrent()) {
+                    limit++;
+                }
+                inService--;
+                Waiter next;
+                while (inService < limit && (next = poll()) != null) {
+                    inService++;
+                    Permit nextPermit = next.permit != null ? next.permit : new Permit(this, next.priority, next.flow);
+                    nextPermit.waiting = null;
+                    nextPermit.admitted(now);
+                    admitted.add(next);
+                    permits.add(nextPermit);
+                }
+            }
+        }
+        if (abandoned != null) {
+            abandoned.future.cancel(false);
+        }
+        for (int i = 0; i < admitted.size(); i++) {
+            Waiter waiter = admitted.get(i);
+            Permit next = permits.get(i);
+            waitTimers[waiter.priority.ordinal()].record(now - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            if (!waiter.future.complete(next)) {
+                // Cancelled just before being admitted; hand the permit on
+                next.release();
+            }
+        }
+    }
+
+    /**
+     * Takes the next waiter: highest priority first, smallest start tag within it.
+     */
+    private Waiter poll() {
+        for (Lane lane : lanes) {
+            Waiter waiter = lane.waiting.poll();
+            if (waiter != null) {
+                // A requeued waiter carries the virtual time it was requeued at
+                lane.virtualTime = Math.max(lane.virtualTime, waiter.startTag);
+                dequeued(lane, waiter);
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void expire(Waiter waiter) {
+        AdmissionRejectedException rejection;
+        synchronized (this) {
+            if (!remove(lanes[waiter.priority.ordinal()], waiter)) {
+                return;
+            }
+            rejection = reject(waiter.priority, "queue_timeout", false, estimateWait(queued + 1));
+        }
+        timeoutTimers[waiter.priority.ordinal()].record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+        waiter.future.completeExceptionally(rejection);
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        remove(lanes[waiter.priority.ordinal()], waiter);
+    }
+
+    private boolean remove(Lane lane, Waiter waiter) {
+        if (!lane.waiting.remove(waiter)) {
+            return false;
+        }
+        if (waiter.permit != null) {
+            waiter.permit.waiting = null;
+        }
+        dequeued(lane, waiter);
+        return true;
+    }
+
+    private void dequeued(Lane lane, Waiter waiter) {
+        queued--;
+        Flow state = lane.flows.get(waiter.flow);
+        if (--state.queued == 0) {
+            // A key that is not waiting needs no history: its next request starts at the current virtual time
+            lane.flows.remove(waiter.flow);
+        }
+    }
+
+    /**
+     * Counts the waiters that would be admitted before a new one with {@code startTag}.
+     */
+    private int position(Priority priority, long startTag) {
+        int ahead = 0;
+        for (int i = 0; i < priority.ordinal(); i++) {
+            ahead += lanes[i].waiting.size();
+        }
+        for (Waiter waiter : lanes[priority.ordinal()].waiting) {
+            if (waiter.startTag <= startTag) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+
+    /**
+     * Estimates how long the {@code place}-th waiter in line waits, from the
+     * average time a permit is held. Zero until a permit has been released.
+     */
+    private Duration estimateWait(int place) {
+        if (Double.isNaN(serviceNanos)) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (place * serviceNanos / limit));
+    }
+
+    private AdmissionRejectedException reject(Priority priority, String reason, boolean keyOverloaded,
+                                              Duration retryAfter) {
+        Counter.builder("silq.admission.rejected")
+                .description("Chat requests rejected by admission control")
+                .tag("priority", priority.tag())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Rejected {} request: {}", priority.tag(), reason);
+        return new AdmissionRejectedException(reason.replace('_', ' '), keyOverloaded,
+                retryAfter.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : retryAfter);
+    }
+
+    private Duration queueTimeout(Priority priority) {
+        return switch (priority) {
+            case INTERACTIVE -> properties.interactiveQueueTimeout();
+            case BATCH -> properties.batchQueueTimeout();
+            case BACKGROUND -> properties.backgroundQueueTimeout();
+        };
+    }
+
+    private Timer waitTimer(Priority priority, String outcome) {
+        return Timer.builder("silq.admission.wait")
+                .description("Time chat requests waited for an admission permit")
+                .tag("priority", priority.tag())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * The right to process one request; release it exactly once when done.
+     */
+    public static final class Permit {
+
+        private final AdmissionGate gate;
+        private final Priority priority;
+        private final long flow;
+        private final AtomicBoolean released = new AtomicBoolean();
+        // Guarded by the gate
+        private long admittedNanos;
+        private boolean holding;
+        /** Its place in the queue while it waits to be readmitted. */
+        private Waiter waiting;
+
+        private Permit(AdmissionGate gate, Priority priority, long flow) {
+            this.gate = gate;
+            this.priority = priority;
+            this.flow = flow;
+        }
+
+        private void admitted(long nanos) {
+            admittedNanos = nanos;
+            holding = true;
+        }
+
+        /**
+         * Gives the permit back because the provider has no free slot, and
+         * waits for it again at the head of its lane, ahead of every request
+         * that has not been admitted yet.
+         *
+         * The permit is readmitted once another one is released, as that call
+         * most likely freed a slot at the provider too, and the wait is bounded
+         * by the priority's queue timeout. Cancelling the returned future leaves
+         * the queue; the permit must still be released.
+         *
+         * @return A future completed with this permit once it is readmitted, or
+         *         failed with {@link AdmissionRejectedException} if no other
+         *         request is in service or the queue timeout runs out
+         */
+        public CompletableFuture<Permit> requeue() {
+            if (gate == null) {
+                return CompletableFuture.failedFuture(new AdmissionRejectedException("provider saturated", false,
+                        MIN_RETRY_AFTER));
+            }
+            return gate.requeue(this);
+        }
+
+        /**
+         * Starts an upstream call under this permit; while it fails because its
+         * provider is saturated, the permit is {@linkplain #requeue() requeued}
+         * and the call is started again on the gate's executor once readmitted.
+         *
+         * Cancelling or failing the returned future cancels the call in flight,
+         * or leaves the queue.
+         *
+         * @param call Starts the upstream call
+         * @param saturated Whether a failure means the provider had no free slot
+         * @return A future completed with the call's result, or failed with its
+         *         last error if the permit could not be readmitted
+         */
+        public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call, Predicate<Throwable> saturated) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            attempt(call, saturated, result);
+            return result;
+        }
+
+        private <T> void attempt(Supplier<CompletableFuture<T>> call, Predicate<Throwable> saturated,
+                                 CompletableFuture<T> result) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> current;
+            try {
+                current = call.get();
+            } catch (RuntimeException e) {
+                current = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> inFlight = current;
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    inFlight.cancel(true);
+                }
+            });
+            inFlight.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (result.isDone() || !saturated.test(error)) {
+                    result.completeExceptionally(error);
+                } else {
+                    CompletableFuture<Permit> readmitted = requeue();
+                    result.whenComplete((ignored, cancelled) -> readmitted.cancel(false));
+                    readmitted.whenComplete((permit, rejected) -> {
+                        if (rejected != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            gate.executor.execute(() -> attempt(call, saturated, result));
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Returns the permit and admits the next waiter, if any. Idempotent.
+         */
+        public void release() {
+            if (gate != null && released.compareAndSet(false, true)) {
+                gate.release(this);
+            }
+        }
+    }
+
+    /**
+     * Waiters of one priority and the fair-queuing state of their keys.
+     */
+    private static final class Lane {
+        private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+                Comparator.comparingLong((Waiter waiter) -> waiter.startTag).thenComparingLong(waiter -> waiter.sequence));
+        private final Map<Long, Flow> flows = new HashMap<>();
+        private long virtualTime;
+    }
+
+    /**
+     * A key with requests waiting: how many, and the virtual time its last one ends at.
+     */
+    private static final class Flow {
+        private long lastFinish;
+        private int queued;
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long flow;
+        private final long startTag;
+        private final long sequence;
+        private final long enqueuedNanos;
+        /** The permit waiting to be readmitted, or null for a new request. */
+        private final Permit permit;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(Priority priority, long flow, long startTag, long sequence, long enqueuedNanos,
+                       Permit permit) {
+            this.priority = priority;
+            this.flow = flow;
+            this.startTag = startTag;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+            this.permit = permit;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.silq.ai.backend.services.admission;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is not admitted because the backend is saturated.
+ *
+ * {@link #isKeyOverloaded()} tells a caller that flooded its own share of the
+ * queue (answered with 429) apart from general overload (answered with 503).
+ * This is an expected outcome under load, so no stack trace is captured.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean keyOverloaded;
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String reason, boolean keyOverloaded, Duration retryAfter) {
+        super("Request not admitted: " + reason, null, false, false);
+        this.keyOverloaded = keyOverloaded;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Whether the caller's own key has too many requests waiting.
+     */
+    public boolean isKeyOverloaded() {
+        return keyOverloaded;
+    }
+
+    /**
+     * Gets how long the caller should wait before retrying.
+     *
+     * @return The wait time, never negative
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
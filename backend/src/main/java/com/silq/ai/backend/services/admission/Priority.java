@@ -0,0 +1,47 @@
+package com.silq.ai.backend.services.admission;
+
+/**
+ * Scheduling class of a request waiting for admission, highest first.
+ *
+ * A waiting request of a higher class is always admitted before any of a
+ * lower class. Clients may lower the class of their own requests (for example
+ * to mark prefetching as background work) but never raise it above what the
+ * endpoint grants.
+ */
+public enum Priority {
+
+    /** A user is waiting for the answer. */
+    INTERACTIVE,
+
+    /** Items of a batch request. */
+    BATCH,
+
+    /** Work nobody is actively waiting for. */
+    BACKGROUND;
+
+    /**
+     * Applies a client's requested class to the class an endpoint grants.
+     *
+     * @param requested The requested class name, case-insensitive; null or unknown names are ignored
+     * @param granted The class the endpoint grants at most
+     * @return The lower of the two classes
+     */
+    public static Priority requested(String requested, Priority granted) {
+        if (requested == null || requested.isBlank()) {
+            return granted;
+        }
+        for (Priority priority : values()) {
+            if (priority.name().equalsIgnoreCase(requested.trim())) {
+                return priority.ordinal() > granted.ordinal() ? priority : granted;
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * Gets the lower-case name used in metric tags and headers.
+     */
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
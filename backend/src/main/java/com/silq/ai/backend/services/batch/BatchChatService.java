@@ -0,0 +1,89 @@
+package com.silq.ai.backend.services.batch;
+
+import com.silq.ai.backend.config.BatchProperties;
+import com.silq.ai.backend.dto.BatchChatRequest;
+import com.silq.ai.backend.dto.ChatRequest;
+import com.silq.ai.backend.services.ChatService;
+import com.silq.ai.backend.services.admission.AdmissionGate;
+import com.silq.ai.backend.services.admission.Priority;
+import com.silq.ai.backend.services.llm.Deadline;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fans a batch of prompts out to {@link ChatService} in parallel.
+ *
+ * Every prompt goes through the regular asynchronous chat pipeline (cache,
+ * rate limit, single-flight, resilience), so a batch item behaves exactly like
+ * a single request. At most {@code silq.batch.max-concurrency-per-key} items
+ * per API key are in flight at once, across all of that key's batches; the
+ * rest wait in order without holding a thread. Each item that misses the
+ * cache then passes the {@link AdmissionGate} at the batch's priority, behind
+ * interactive requests.
+ */
+@Service
+public class BatchChatService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchChatService.class);
+
+    private final ChatService chatService;
+    private final BatchProperties properties;
+    private final KeyedFanOutLimiter limiter;
+    private final DistributionSummary batchSize;
+
+    public BatchChatService(ChatService chatService, BatchProperties properties, MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.properties = properties;
+        this.limiter = new KeyedFanOutLimiter(properties.maxConcurrencyPerKey());
+        this.batchSize = DistributionSummary.builder("silq.chat.batch.size")
+                .description("Prompts per batch chat request")
+                .baseUnit("prompts")
+                .register(meterRegistry);
+        Gauge.builder("silq.chat.batch.queued", limiter, KeyedFanOutLimiter::queued)
+                .description("Batch items waiting for a per-key concurrency slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts every prompt of the batch, subject to the per-key concurrency cap.
+     *
+     * Failures of individual prompts, including invalid prompts and rate
+     * limiting, are reported through their own future and never affect the
+     * other items.
+     *
+     * @param request The batch to process
+     * @param priority The admission priority of the batch's items
+     * @param deadline The deadline of the whole batch; items still pending when it is aborted fail
+     * @return One future per prompt, in request order
+     * @throws IllegalArgumentException if the batch is missing fields or too large
+     */
+    public List<CompletableFuture<String>> submit(BatchChatRequest request, Priority priority, Deadline deadline) {
+        if (!request.isValid()) {
+            throw new IllegalArgumentException("Invalid batch request: required fields are missing");
+        }
+        int size = request.prompts().size();
+        if (size > properties.maxItems()) {
+            throw new IllegalArgumentException(
+                    "Batch has " + size + " prompts, at most " + properties.maxItems() + " are allowed");
+        }
+
+        log.debug("Processing batch of {} prompts for provider: {}", size, request.provider());
+        batchSize.record(size);
+
+        List<CompletableFuture<String>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ChatRequest item = request.itemRequest(i);
+            results.add(limiter.submit(request.apiKey(),
+                    () -> chatService.handleChatRequestAsync(item, deadline, priority)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,120 @@
+package com.silq.ai.backend.services.batch;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of asynchronous tasks in flight per key without blocking.
+ *
+ * Each key gets a lane with a count of running tasks and a FIFO of tasks
+ * waiting for a slot. A task that finds a free slot starts on the caller's
+ * thread; otherwise it is queued and started by whichever running task of the
+ * same key completes next. Lanes exist only while they have running tasks, so
+ * idle keys hold no memory. Queued tasks whose result future was cancelled in
+ * the meantime are dropped without being started; cancelling or failing the
+ * result of a started task cancels the future the task returned.
+ */
+final class KeyedFanOutLimiter {
+
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxConcurrency;
+
+    KeyedFanOutLimiter(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Starts {@code task} now if the key has a free slot, otherwise once one frees up.
+     *
+     * @param key The key whose slots the task occupies
+     * @param task Starts the work; may throw, which fails the returned future
+     * @return A future completed with the task's result
+     */
+    CompletableFuture<String> submit(String key, Supplier<CompletableFuture<String>> task) {
+        Pending pending = new Pending(task, new CompletableFuture<>());
+        boolean[] startNow = new boolean[1];
+        lanes.compute(key, (k, lane) -> {
+            Lane current = lane != null ? lane : new Lane();
+            if (current.running < maxConcurrency) {
+                current.running++;
+                startNow[0] = true;
+            } else {
+                current.waiting.add(pending);
+                queued.incrementAndGet();
+            }
+            return current;
+        });
+        if (startNow[0]) {
+            start(key, pending);
+        }
+        return pending.result;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a slot, across all keys.
+     */
+    int queued() {
+        return queued.get();
+    }
+
+    private void start(String key, Pending pending) {
+        CompletableFuture<String> work;
+        try {
+            work = pending.task.get();
+        } catch (RuntimeException e) {
+            work = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> started = work;
+        pending.result.whenComplete((response, error) -> {
+            if (error != null) {
+                started.cancel(false);
+            }
+        });
+        work.whenComplete((response, error) -> {
+            // Hand the slot on before completing, so the next task is not delayed by our callbacks
+            release(key);
+            if (error != null) {
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(response);
+            }
+        });
+    }
+
+    private void release(String key) {
+        Pending[] next = new Pending[1];
+        lanes.computeIfPresent(key, (k, lane) -> {
+            Pending candidate;
+            while ((candidate = lane.waiting.poll()) != null) {
+                queued.decrementAndGet();
+                if (!candidate.result.isDone()) {
+                    // The slot passes straight to the next task; the running count stays the same
+                    next[0] = candidate;
+                    return lane;
+                }
+            }
+            lane.running--;
+            return lane.running == 0 ? null : lane;
+        });
+        if (next[0] != null) {
+            start(key, next[0]);
+        }
+    }
+
+    private static final class Lane {
+        private final Queue<Pending> waiting = new ArrayDeque<>();
+        private int running;
+    }
+
+    private record Pending(Supplier<CompletableFuture<String>> task, CompletableFuture<String> result) {
+    }
+}
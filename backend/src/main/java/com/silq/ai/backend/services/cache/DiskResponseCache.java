@@ -0,0 +1,826 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.config.DiskCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent tier of the response cache, so a restart or deploy starts with
+ * the responses the previous process had cached instead of a cold cache.
+ *
+ * Responses are appended to a log of memory-mapped segment files and found
+ * through a {@link LocationIndex} held off-heap, so neither the data nor its
+ * index adds to the heap. A lookup reads the record straight from the mapping:
+ * no read calls, and nothing is copied but the bytes of the response returned.
+ * Every record carries its expiry time and a CRC, so a record torn by a crash
+ * ends its segment instead of being served, and the fingerprint of the API key
+ * it was answered for, so it is only served to that key.
+ *
+ * On startup existing segments are only mapped; a background thread scans them
+ * into the index while the application already serves traffic, so boot time
+ * does not grow with the cache. Until its record is scanned, a prompt simply
+ * misses. New records always go to a fresh segment, zero-filled in the
+ * background before it is needed. A periodic compaction drops segments whose
+ * records have all expired and rewrites those that are mostly superseded; when
+ * the files outgrow {@code silq.cache.disk.max-size} or the index is full, the
+ * oldest segments are dropped. A dropped segment is unmapped as soon as no
+ * lookup is reading it, so its disk space comes back right away instead of
+ * whenever the garbage collector gets to the buffer; the files then take at
+ * most {@code max-size} plus the one segment being prepared.
+ */
+@Component
+public final class DiskResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskResponseCache.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAGIC = 0x534C5143;
+    // Version 2 added the API key fingerprint; older segments are not scoped to a key and are deleted
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER = 8;
+
+    // Record layout; the length is written last, so a record without it ends the segment
+    private static final int LENGTH = 0;
+    private static final int CHECKSUM = 4;
+    private static final int KEY_HASH = 8;
+    private static final int EXPIRES_AT = 16;
+    private static final int PROMPT_HASH_HIGH = 24;
+    private static final int PROMPT_HASH_LOW = 32;
+    private static final int API_KEY = 40;
+    private static final int PROVIDER_LENGTH = 48;
+    private static final int MODEL_LENGTH = 50;
+    private static final int CONTENT_LENGTH = 52;
+    private static final int RECORD_HEADER = 56;
+
+    private static final long MIN_SEGMENT_SIZE = 1L << 20;
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    private static final int ZERO_FILL = 1 << 20;
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private final DiskCacheProperties properties;
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter droppedExpired;
+    private final Counter droppedForSpace;
+    private final Counter rewritten;
+    private LocationIndex index;
+    private ScheduledExecutorService scheduler;
+    private FileChannel lockChannel;
+    private Segment active;
+    private Segment spare;
+    private int nextSegmentId = 1;
+    private boolean preparing;
+    private volatile boolean loaded;
+
+    public DiskResponseCache(DiskCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.directory = Path.of(properties.directory());
+        this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE,
+                Math.max(MIN_SEGMENT_SIZE, properties.segmentSize().toBytes()));
+        this.hits = Counter.builder("silq.cache.disk.lookups")
+                .description("Lookups in the persistent cache tier after an in-memory miss, by result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("silq.cache.disk.lookups")
+                .description("Lookups in the persistent cache tier after an in-memory miss, by result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.droppedExpired = compactions(meterRegistry, "expired");
+        this.droppedForSpace = compactions(meterRegistry, "space");
+        this.rewritten = compactions(meterRegistry, "sparse");
+        Gauge.builder("silq.cache.disk.entries", this, DiskResponseCache::entries)
+                .description("Responses indexed in the persistent cache tier")
+                .register(meterRegistry);
+        Gauge.builder("silq.cache.disk.bytes", this, DiskResponseCache::fileBytes)
+                .description("Size of the persistent cache tier's segment files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (properties.enabled()) {
+            open();
+        }
+        log.info("DiskResponseCache initialized: enabled={}, directory={}, segmentSize={}, maxSize={}, maxEntries={}",
+                index != null, directory.toAbsolutePath(), segmentSize, properties.maxSize(), properties.maxEntries());
+    }
+
+    private static Counter compactions(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("silq.cache.disk.compactions")
+                .description("Segments of the persistent cache tier dropped or rewritten, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes the directory and maps its segments; the scan into the index is left
+     * to the background thread. Runs without the disk tier if the directory is
+     * unusable or taken by another process.
+     */
+    private void open() {
+        List<Segment> existing = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                log.warn("Persistent response cache disabled: {} is used by another process", directory.toAbsolutePath());
+                lockChannel.close();
+                return;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.sorted().toList()) {
+                    int id = segmentId(file);
+                    Segment segment = id > 0 ? mapExisting(id, file) : null;
+                    if (segment != null) {
+                        existing.add(segment);
+                        segments.put(segment.id, segment);
+                    }
+                    nextSegmentId = Math.max(nextSegmentId, id + 1);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Persistent response cache disabled: cannot open {}", directory.toAbsolutePath(), e);
+            segments.clear();
+            closeQuietly(lockChannel);
+            return;
+        }
+        index = new LocationIndex(properties.maxEntries());
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("disk-response-cache").daemon().factory());
+        scheduler.execute(this::prepareSpare);
+        scheduler.execute(() -> load(existing));
+        long interval = properties.compactionInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Looks up a response written by this process or an earlier one.
+     *
+     * @param key Identity of the provider, model and engineered prompt
+     * @return The response and its expiry, or empty on a miss, after expiry or while the tier is off
+     */
+    public Optional<Stored> get(PromptKey key) {
+        if (index == null) {
+            return Optional.empty();
+        }
+        Segment segment;
+        int position;
+        synchronized (this) {
+            long location = index.get(keyHash(key));
+            segment = location != 0 ? segments.get(segmentId(location)) : null;
+            position = offset(location);
+            if (segment != null) {
+                segment.readers++;
+            }
+        }
+        // Records are immutable once indexed, and a dropped segment stays mapped until its last reader is done
+        Optional<Stored> stored = Optional.empty();
+        if (segment != null) {
+            try {
+                stored = read(segment.buffer, position, key);
+            } finally {
+                release(segment);
+            }
+        }
+        (stored.isPresent() ? hits : misses).increment();
+        return stored;
+    }
+
+    /**
+     * Appends a response. Nothing is written while the tier is off, while no
+     * segment is ready for writing, or for a response larger than a segment.
+     *
+     * @param key Identity of the provider, model and engineered prompt
+     * @param content The response content
+     * @param ttl Time the response stays valid, across restarts
+     * @return true if the response was written
+     */
+    public boolean put(PromptKey key, String content, Duration ttl) {
+        if (index == null) {
+            return false;
+        }
+        byte[] provider = key.provider().getBytes(StandardCharsets.UTF_8);
+        byte[] model = key.model().getBytes(StandardCharsets.UTF_8);
+        byte[] body = content.getBytes(StandardCharsets.UTF_8);
+        if (provider.length > Short.MAX_VALUE || model.length > Short.MAX_VALUE) {
+            return false;
+        }
+        long length = (long) RECORD_HEADER + provider.length + model.length + body.length;
+        if (length > segmentSize - FILE_HEADER) {
+            return false;
+        }
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        synchronized (this) {
+            Segment segment = writable((int) length);
+            if (segment == null) {
+                return false;
+            }
+            ByteBuffer buffer = segment.buffer;
+            int position = segment.used;
+            buffer.putLong(position + EXPIRES_AT, expiresAt)
+                    .putLong(position + PROMPT_HASH_HIGH, key.promptHashHigh())
+                    .putLong(position + PROMPT_HASH_LOW, key.promptHashLow())
+                    .putLong(position + API_KEY, key.apiKeyFingerprint())
+                    .putShort(position + PROVIDER_LENGTH, (short) provider.length)
+                    .putShort(position + MODEL_LENGTH, (short) model.length)
+                    .putInt(position + CONTENT_LENGTH, body.length)
+                    .put(position + RECORD_HEADER, provider)
+                    .put(position + RECORD_HEADER + provider.length, model)
+                    .put(position + RECORD_HEADER + provider.length + model.length, body);
+            return commit(segment, position, (int) length, keyHash(key), expiresAt);
+        }
+    }
+
+    /**
+     * Stops the background thread, flushes the active segment, unmaps the
+     * segments and releases the directory. Later lookups miss and later writes are skipped.
+     */
+    @PreDestroy
+    public void close() {
+        if (index == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            // A segment still being prepared would otherwise be created after the directory is released
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (active != null) {
+                active.buffer.force();
+            }
+            if (spare != null) {
+                delete(spare);
+                retire(spare);
+                spare = null;
+            }
+            active = null;
+            for (Segment segment : segments.values()) {
+                retire(segment);
+            }
+            segments.clear();
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to release {}", directory.toAbsolutePath(), e);
+        }
+    }
+
+    private Optional<Stored> read(ByteBuffer buffer, int position, PromptKey key) {
+        long expiresAt = buffer.getLong(position + EXPIRES_AT);
+        if (expiresAt <= System.currentTimeMillis()
+                || buffer.getLong(position + PROMPT_HASH_HIGH) != key.promptHashHigh()
+                || buffer.getLong(position + PROMPT_HASH_LOW) != key.promptHashLow()
+                || buffer.getLong(position + API_KEY) != key.apiKeyFingerprint()) {
+            return Optional.empty();
+        }
+        int providerLength = buffer.getShort(position + PROVIDER_LENGTH);
+        int modelLength = buffer.getShort(position + MODEL_LENGTH);
+        int start = position + RECORD_HEADER;
+        if (!matches(buffer, start, providerLength, key.provider())
+                || !matches(buffer, start + providerLength, modelLength, key.model())) {
+            return Optional.empty();
+        }
+        byte[] content = new byte[buffer.getInt(position + CONTENT_LENGTH)];
+        buffer.get(start + providerLength + modelLength, content);
+        return Optional.of(new Stored(new String(content, StandardCharsets.UTF_8), expiresAt));
+    }
+
+    private static boolean matches(ByteBuffer buffer, int position, int length, String expected) {
+        byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+        return bytes.length == length && buffer.slice(position, length).equals(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Finishes a record whose body is in place: checksum, then length, then index.
+     */
+    private boolean commit(Segment segment, int position, int length, long keyHash, long expiresAt) {
+        ByteBuffer buffer = segment.buffer;
+        buffer.putLong(position + KEY_HASH, keyHash);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + KEY_HASH, length - KEY_HASH));
+        buffer.putInt(position + CHECKSUM, (int) crc.getValue());
+        buffer.putInt(position + LENGTH, length);
+        segment.used = position + length;
+        segment.maxExpiresAt = Math.max(segment.maxExpiresAt, expiresAt);
+        return link(keyHash, location(segment.id, position), length);
+    }
+
+    /**
+     * Points the index at a record unless it already points at a newer one,
+     * making room by dropping the oldest segment if the index is full.
+     */
+    private boolean link(long keyHash, long location, int length) {
+        long current = index.get(keyHash);
+        if (current > location) {
+            return false;
+        }
+        if (current == 0 && index.isFull()) {
+            dropOldest();
+            if (index.isFull() || !segments.containsKey(segmentId(location))) {
+                return false;
+            }
+        }
+        index.put(keyHash, location);
+        segments.get(segmentId(location)).liveBytes += length;
+        if (current != 0) {
+            Segment previous = segments.get(segmentId(current));
+            if (previous != null) {
+                previous.liveBytes -= previous.buffer.getInt(offset(current) + LENGTH);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the segment to append {@code length} bytes to, switching to the spare
+     * segment when the active one is full.
+     *
+     * @return The segment, or null if no segment with room is ready
+     */
+    private Segment writable(int length) {
+        if (active != null && active.used + length <= segmentSize) {
+            return active;
+        }
+        if (spare == null) {
+            return null;
+        }
+        active = spare;
+        spare = null;
+        segments.put(active.id, active);
+        if (!preparing && !scheduler.isShutdown()) {
+            preparing = true;
+            scheduler.execute(this::prepareSpare);
+        }
+        while (fileBytes() > properties.maxSize().toBytes() && dropOldest()) {
+            // Each pass drops one segment
+        }
+        return active.used + length <= segmentSize ? active : null;
+    }
+
+    /**
+     * Creates the next segment file, zero-filled so writes through the mapping
+     * never fault on a full disk, off the request path.
+     */
+    private void prepareSpare() {
+        int id;
+        synchronized (this) {
+            if (spare != null) {
+                preparing = false;
+                return;
+            }
+            id = nextSegmentId++;
+        }
+        Path file = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer zeros = ByteBuffer.allocateDirect(ZERO_FILL);
+            for (long written = 0; written < segmentSize; ) {
+                zeros.clear().limit((int) Math.min(ZERO_FILL, segmentSize - written));
+                written += channel.write(zeros, written);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            segment = new Segment(id, file, buffer);
+            segment.used = FILE_HEADER;
+        } catch (IOException e) {
+            if (!scheduler.isShutdown()) {
+                log.warn("Failed to create cache segment {}; responses are not persisted until one is ready", file, e);
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Removed on the next startup
+            }
+        }
+        synchronized (this) {
+            spare = segment;
+            preparing = false;
+        }
+    }
+
+    /**
+     * Gets the id in a segment file's name.
+     *
+     * @return The id, or 0 if the file is not a segment
+     */
+    private static int segmentId(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(name, SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length(), 10));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Segment mapExisting(int id, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = size >= FILE_HEADER && size <= MAX_SEGMENT_SIZE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            int magic = buffer != null ? buffer.getInt(0) : 0;
+            int version = buffer != null ? buffer.getInt(4) : 0;
+            if (magic == MAGIC && version == VERSION) {
+                return new Segment(id, file, buffer);
+            }
+            if (buffer != null) {
+                unmap(buffer);
+            }
+            if (magic == 0) {
+                // A segment whose preparation was cut short
+                Files.delete(file);
+            } else if (magic == MAGIC && version < VERSION) {
+                log.info("Deleting cache segment {} of an older format", file);
+                Files.delete(file);
+            } else {
+                log.warn("Ignoring cache segment {} of an unknown format", file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Indexes the records of the segments found at startup, newest first, so the
+     * latest responses are back soonest and an older record of a prompt never
+     * stands in for a newer one. Within a segment the records are found front to
+     * back but linked back to front, for the same reason. Records that fail their
+     * checksum end their segment.
+     */
+    private void load(List<Segment> existing) {
+        long started = System.nanoTime();
+        int records = 0;
+        for (Segment segment : existing.reversed()) {
+            if (acquire(segment)) {
+                try {
+                    records += scan(segment);
+                } finally {
+                    release(segment);
+                }
+            }
+        }
+        loaded = true;
+        log.info("Persistent response cache loaded {} responses from {} segments in {} ms",
+                records, existing.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Indexes the unexpired records of one segment found at startup.
+     *
+     * @return The number of records indexed
+     */
+    private int scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int[] starts = new int[64];
+        int count = 0;
+        int position = FILE_HEADER;
+        for (int end; (end = recordEnd(buffer, position, true)) > 0; position = end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = position;
+        }
+        int records = 0;
+        for (int i = count - 1, end = position; i >= 0; end = starts[i--]) {
+            int start = starts[i];
+            long expiresAt = buffer.getLong(start + EXPIRES_AT);
+            synchronized (this) {
+                if (!segments.containsKey(segment.id)) {
+                    return records;
+                }
+                segment.maxExpiresAt = Math.max(segment.maxExpiresAt, expiresAt);
+                if (expiresAt > System.currentTimeMillis()
+                        && link(buffer.getLong(start + KEY_HASH), location(segment.id, start), end - start)) {
+                    records++;
+                }
+            }
+        }
+        synchronized (this) {
+            segment.used = position;
+        }
+        return records;
+    }
+
+    /**
+     * Drops segments whose records have all expired and rewrites segments that
+     * are mostly superseded into the active one.
+     */
+    private void compact() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            List<Segment> sealed;
+            synchronized (this) {
+                sealed = new ArrayList<>(segments.values());
+                sealed.remove(active);
+            }
+            for (Segment segment : sealed) {
+                boolean expired;
+                boolean sparse;
+                synchronized (this) {
+                    if (!segments.containsKey(segment.id)) {
+                        continue;
+                    }
+                    expired = segment.maxExpiresAt <= System.currentTimeMillis();
+                    sparse = segment.liveBytes < properties.minLiveRatio() * (segment.used - FILE_HEADER);
+                    if (expired) {
+                        drop(segment);
+                    }
+                }
+                if (expired) {
+                    droppedExpired.increment();
+                } else if (sparse) {
+                    rewrite(segment);
+                    rewritten.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Persistent response cache compaction failed", e);
+        }
+    }
+
+    /**
+     * Copies a segment's current, unexpired records to the active segment, one
+     * record per lock hold so requests are not stalled, then drops it.
+     */
+    private void rewrite(Segment segment) {
+        if (!acquire(segment)) {
+            return;
+        }
+        try {
+            copyLive(segment);
+        } finally {
+            release(segment);
+        }
+        synchronized (this) {
+            if (segments.containsKey(segment.id)) {
+                drop(segment);
+            }
+        }
+    }
+
+    private void copyLive(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        prepareSpare();
+        for (int position = FILE_HEADER, end; (end = recordEnd(buffer, position, false)) > 0; position = end) {
+            long keyHash = buffer.getLong(position + KEY_HASH);
+            long expiresAt = buffer.getLong(position + EXPIRES_AT);
+            int length = end - position;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                synchronized (this) {
+                    if (!segments.containsKey(segment.id)) {
+                        return;
+                    }
+                    if (expiresAt <= System.currentTimeMillis()
+                            || index.get(keyHash) != location(segment.id, position)) {
+                        break;
+                    }
+                    Segment target = writable(length);
+                    if (target != null) {
+                        target.buffer.put(target.used + KEY_HASH, buffer, position + KEY_HASH, length - KEY_HASH);
+                        commit(target, target.used, length, keyHash, expiresAt);
+                        break;
+                    }
+                }
+                // This is the thread that prepares segments, so do it here
+                prepareSpare();
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest segment other than the active one.
+     *
+     * @return false if there is none
+     */
+    private boolean dropOldest() {
+        Segment oldest = segments.isEmpty() ? null : segments.firstEntry().getValue();
+        if (oldest == null || oldest == active) {
+            return false;
+        }
+        drop(oldest);
+        droppedForSpace.increment();
+        return true;
+    }
+
+    /**
+     * Unindexes a segment's records, deletes its file and unmaps it, or leaves
+     * that to the last reader still holding its buffer.
+     */
+    private void drop(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        for (int position = FILE_HEADER, end; (end = recordEnd(buffer, position, false)) > 0; position = end) {
+            index.remove(buffer.getLong(position + KEY_HASH), location(segment.id, position));
+        }
+        segments.remove(segment.id);
+        delete(segment);
+        retire(segment);
+    }
+
+    /**
+     * Takes a segment for reading outside the lock, keeping it mapped until
+     * {@link #release}.
+     *
+     * @return false if the segment has been dropped already
+     */
+    private synchronized boolean acquire(Segment segment) {
+        if (!segments.containsKey(segment.id)) {
+            return false;
+        }
+        segment.readers++;
+        return true;
+    }
+
+    private synchronized void release(Segment segment) {
+        if (--segment.readers == 0 && segment.retired) {
+            unmap(segment.buffer);
+        }
+    }
+
+    /**
+     * Marks a segment that is no longer reachable for unmapping, now if nobody
+     * reads it or else when its last reader is done. Called under the lock.
+     */
+    private void retire(Segment segment) {
+        segment.retired = true;
+        if (segment.readers == 0) {
+            unmap(segment.buffer);
+        }
+    }
+
+    /**
+     * Releases a mapping right away; a deleted file's disk space only comes back
+     * once it is no longer mapped. The buffer must not be touched afterwards.
+     * Without access to the cleaner the mapping is left to the garbage collector.
+     */
+    private static void unmap(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            log.warn("Failed to unmap a cache segment; it is released once garbage collected", e);
+        }
+    }
+
+    /**
+     * Looks up {@code Unsafe.invokeCleaner}, the only way to unmap a
+     * {@link MappedByteBuffer} before it is garbage collected.
+     *
+     * @return The method bound to the Unsafe instance, or null if it is not accessible
+     */
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Cache segments cannot be unmapped explicitly; dropped segments free their disk space "
+                    + "once garbage collected", e);
+            return null;
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete cache segment {}", segment.path, e);
+        }
+    }
+
+    /**
+     * Gets the end of the record at {@code position}.
+     *
+     * @param verify Whether to check the record's checksum, for records not written by this process
+     * @return The end offset, or -1 if no complete record starts there
+     */
+    private static int recordEnd(ByteBuffer buffer, int position, boolean verify) {
+        if (position > buffer.limit() - RECORD_HEADER) {
+            return -1;
+        }
+        int length = buffer.getInt(position + LENGTH);
+        if (length < RECORD_HEADER || length > buffer.limit() - position) {
+            return -1;
+        }
+        if (verify) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position + KEY_HASH, length - KEY_HASH));
+            if ((int) crc.getValue() != buffer.getInt(position + CHECKSUM)) {
+                return -1;
+            }
+        }
+        return position + length;
+    }
+
+    private static long keyHash(PromptKey key) {
+        long hash = MinHash.hash(key.promptHashHigh() ^ key.apiKeyFingerprint(), key.provider());
+        return MinHash.mix(MinHash.hash(hash, key.model()) ^ key.promptHashLow());
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private synchronized int entries() {
+        return index != null ? index.size() : 0;
+    }
+
+    private synchronized long fileBytes() {
+        long bytes = spare != null ? spare.buffer.capacity() : 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * A response read from disk.
+     *
+     * @param content The response content
+     * @param expiresAtMillis Epoch milliseconds after which it is no longer served
+     */
+    public record Stored(String content, long expiresAtMillis) {
+    }
+
+    private static final class Segment {
+
+        final int id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int used;
+        long liveBytes;
+        long maxExpiresAt;
+        // Lookups and background scans reading the buffer outside the lock
+        int readers;
+        // Dropped or closed; unmapped once there are no readers
+        boolean retired;
+
+        Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
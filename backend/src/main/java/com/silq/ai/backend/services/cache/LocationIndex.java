@@ -0,0 +1,128 @@
+package com.silq.ai.backend.services.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing hash table from 64-bit key hashes to record locations, held
+ * in a direct buffer so its size does not add to the heap or to GC work.
+ *
+ * Each slot is 16 bytes: the key hash, then the location, where location 0
+ * marks an empty slot. Collisions are resolved by linear probing and removals
+ * shift later entries back, so there are no tombstones and a lookup ends at
+ * the first empty slot. The table has a power-of-two number of slots and is
+ * never filled beyond 75%. Not thread-safe; callers synchronize.
+ */
+final class LocationIndex {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private final ByteBuffer slots;
+    private final int mask;
+    private final int maxEntries;
+    private int size;
+
+    /**
+     * Allocates an empty index.
+     *
+     * @param maxEntries Most entries the index must hold; capped at 3/4 of {@code 2^26}
+     */
+    LocationIndex(int maxEntries) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.min(MAX_SLOTS, maxEntries * 4L / 3)) - 1) << 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        this.mask = capacity - 1;
+        this.maxEntries = Math.min(Math.max(1, maxEntries), capacity / 4 * 3);
+    }
+
+    /**
+     * Gets the location stored for a key hash.
+     *
+     * @return The location, or 0 if the hash is not indexed
+     */
+    long get(long keyHash) {
+        for (int slot = home(keyHash); ; slot = (slot + 1) & mask) {
+            long location = location(slot);
+            if (location == 0 || hash(slot) == keyHash) {
+                return location;
+            }
+        }
+    }
+
+    /**
+     * Stores the location for a key hash, replacing any earlier one. A new hash
+     * is only added while the index is not {@linkplain #isFull() full}.
+     *
+     * @return The location replaced, or 0 if there was none
+     */
+    long put(long keyHash, long location) {
+        for (int slot = home(keyHash); ; slot = (slot + 1) & mask) {
+            long current = location(slot);
+            if (current == 0) {
+                if (size >= maxEntries) {
+                    return 0;
+                }
+                slots.putLong(slot * SLOT_BYTES, keyHash).putLong(slot * SLOT_BYTES + 8, location);
+                size++;
+                return 0;
+            }
+            if (hash(slot) == keyHash) {
+                slots.putLong(slot * SLOT_BYTES + 8, location);
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Removes a key hash, but only while it still maps to {@code location}.
+     *
+     * @return true if the entry was removed
+     */
+    boolean remove(long keyHash, long location) {
+        int slot = home(keyHash);
+        while (hash(slot) != keyHash || location(slot) == 0) {
+            if (location(slot) == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (location(slot) != location) {
+            return false;
+        }
+        // Backward shift: move later entries of the probe run into the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; location(next) != 0; next = (next + 1) & mask) {
+            int home = home(hash(next));
+            boolean movable = gap <= next ? home <= gap || home > next : home <= gap && home > next;
+            if (movable) {
+                slots.putLong(gap * SLOT_BYTES, hash(next)).putLong(gap * SLOT_BYTES + 8, location(next));
+                gap = next;
+            }
+        }
+        slots.putLong(gap * SLOT_BYTES, 0).putLong(gap * SLOT_BYTES + 8, 0);
+        size--;
+        return true;
+    }
+
+    /**
+     * Whether a new key hash would be refused.
+     */
+    boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int home(long keyHash) {
+        return (int) (keyHash ^ (keyHash >>> 32)) & mask;
+    }
+
+    private long hash(int slot) {
+        return slots.getLong(slot * SLOT_BYTES);
+    }
+
+    private long location(int slot) {
+        return slots.getLong(slot * SLOT_BYTES + 8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.silq.ai.backend.services.cache;
+
+import java.util.Arrays;
+
+/**
+ * MinHash signatures of texts over word shingles, for estimating how much two
+ * texts overlap without keeping either of them.
+ *
+ * A text is split into words at whitespace, so differences in spacing and line
+ * breaks do not count. Every run of {@code shingleWords} consecutive words is
+ * one shingle. Each of the {@link #SIZE} signature slots holds the minimum over
+ * all shingles of one hash function; the share of slots two signatures agree on
+ * estimates the Jaccard similarity of their shingle sets, with a standard error
+ * of about 0.04 at this size. The hash functions are derived from two base
+ * hashes per shingle (h1 + i * h2), so a signature costs two mixes plus one
+ * multiply-add per slot and shingle.
+ */
+final class MinHash {
+
+    /** Slots per signature. */
+    static final int SIZE = 128;
+
+    private MinHash() {
+    }
+
+    /**
+     * Computes the signature of a text.
+     *
+     * @param text The text to sign
+     * @param shingleWords Words per shingle; texts with fewer words form a single shingle
+     * @return The signature, {@link #SIZE} slots
+     */
+    static int[] signature(CharSequence text, int shingleWords) {
+        int[] signature = new int[SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        // Hashes of the last shingleWords words, as a ring
+        long[] window = new long[shingleWords];
+        int words = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            long word = 0x9E3779B97F4A7C15L;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                word = (word ^ text.charAt(i++)) * 0x100000001B3L;
+            }
+            window[words % shingleWords] = mix(word);
+            words++;
+            if (words >= shingleWords) {
+                addShingle(signature, window, words, shingleWords);
+            }
+        }
+        if (words > 0 && words < shingleWords) {
+            addShingle(signature, window, words, words);
+        }
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the texts behind two signatures.
+     *
+     * @return The share of slots that agree, between 0 and 1
+     */
+    static double similarity(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return (double) matches / SIZE;
+    }
+
+    /**
+     * Folds the shingle ending at word {@code words - 1} into the signature.
+     */
+    private static void addShingle(int[] signature, long[] window, int words, int shingleWords) {
+        long shingle = 0;
+        for (int w = words - shingleWords; w < words; w++) {
+            // Order matters: "a b c" and "c b a" are different shingles
+            shingle = mix(shingle * 31 + window[w % window.length]);
+        }
+        long h1 = shingle;
+        long h2 = mix(shingle ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        long h = h1;
+        for (int slot = 0; slot < SIZE; slot++) {
+            int value = (int) (h >>> 32);
+            if (value < signature[slot]) {
+                signature[slot] = value;
+            }
+            h += h2;
+        }
+    }
+
+    /**
+     * 64-bit hash of a text's words in order, split at whitespace as for
+     * signatures: texts get the same hash exactly when they differ at most in
+     * spacing and line breaks.
+     */
+    static long wordsHash(CharSequence text) {
+        long h = 0xCBF29CE484222325L;
+        boolean started = false;
+        boolean separate = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                // One separator between words, however they are spaced; none at either end
+                separate = started;
+                continue;
+            }
+            started = true;
+            if (separate) {
+                h = (h ^ ' ') * 0x100000001B3L;
+                separate = false;
+            }
+            h = (h ^ c) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * 64-bit hash of a whole text, chained onto {@code seed} so several texts
+     * can be hashed into one value.
+     */
+    static long hash(long seed, CharSequence text) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h ^ text.length());
+    }
+
+    /**
+     * Finalizer of SplitMix64, a fast 64-bit mix with good avalanche.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,96 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.LLMService;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Identity of an upstream call: provider and model in clear, the caller's API
+ * key as a 64-bit fingerprint, and the messages sent reduced to 128 bits of
+ * their SHA-256 so large prompts are not retained.
+ *
+ * The fingerprint scopes everything keyed by it to one API key: a response
+ * cached or an upstream call in flight for one key is never handed to another,
+ * which could otherwise read answers it did not pay for.
+ *
+ * @param provider Canonical provider name
+ * @param model Upstream model identifier
+ * @param apiKeyFingerprint First 64 bits of the SHA-256 of the caller's API key, see {@link #fingerprint(String)}
+ * @param promptHashHigh High 64 bits of the prompt digest
+ * @param promptHashLow Low 64 bits of the prompt digest
+ */
+public record PromptKey(String provider, String model, long apiKeyFingerprint, long promptHashHigh,
+                        long promptHashLow) {
+
+    /**
+     * Builds the key for sending {@code messages} to {@code service} with
+     * {@code apiKey}. Roles are part of the digest, so the same text in a
+     * different role is a different call.
+     *
+     * @param service The service the messages are sent to
+     * @param apiKey The caller's API key
+     * @param messages The conversation as sent upstream, after prompt engineering
+     * @return The prompt key
+     */
+    public static PromptKey of(LLMService service, String apiKey, List<ChatMessage> messages) {
+        MessageDigest digest = sha256();
+        for (ChatMessage message : messages) {
+            digest.update(message.role().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(message.content().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new PromptKey(service.getProviderName(), service.getModelName(), fingerprint(apiKey),
+                hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * Gets the key for the same messages sent to another service, e.g. the
+     * provider that won a hedged request.
+     *
+     * The key stays scoped to the caller's API key, so the answer is only
+     * served to the caller who asked.
+     *
+     * @param service The service that answered
+     * @return This key if the service has the same provider and model
+     */
+    public PromptKey forService(LLMService service) {
+        if (provider.equals(service.getProviderName()) && model.equals(service.getModelName())) {
+            return this;
+        }
+        return new PromptKey(service.getProviderName(), service.getModelName(), apiKeyFingerprint,
+                promptHashHigh, promptHashLow);
+    }
+
+    /**
+     * Gets the 64-bit fingerprint that stands in for an API key: the first
+     * eight bytes of its SHA-256.
+     *
+     * @param apiKey The API key
+     * @return The fingerprint
+     */
+    public static long fingerprint(String apiKey) {
+        return ByteBuffer.wrap(sha256(apiKey)).getLong();
+    }
+
+    /**
+     * SHA-256 of a string's UTF-8 bytes.
+     */
+    public static byte[] sha256(String value) {
+        return sha256().digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.silq.ai.backend.services.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of identical concurrent upstream calls.
+ *
+ * The first caller for a key becomes the leader and starts the upstream call;
+ * callers arriving while it is pending attach to the same future instead of
+ * issuing their own. Every caller receives its own {@link CompletableFuture#copy()}
+ * of the shared result, so cancelling one waiter never cancels the upstream call
+ * for the others; once every waiter has cancelled or failed its own copy (their
+ * clients went away or their deadlines passed), nobody needs the answer and the upstream call is
+ * cancelled as well, which aborts its HTTP exchange. Failures are delivered to every waiter and are not remembered:
+ * the entry is removed before the shared future completes, so the next request
+ * starts a fresh call.
+ *
+ * Calls are only shared between callers using the same API key, as the
+ * {@link PromptKey} carries its fingerprint, so one caller's invalid key or
+ * exhausted quota is never reported to another.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private final ConcurrentMap<PromptKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Counter leaders;
+    private final Counter followers;
+
+    public RequestCoalescer(@Value("${silq.coalescing.enabled:true}") boolean enabled, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.leaders = Counter.builder("silq.chat.coalescing")
+                .description("Upstream calls started (leader) or joined (follower) by single-flight")
+                .tag("role", "leader")
+                .register(meterRegistry);
+        this.followers = Counter.builder("silq.chat.coalescing")
+                .description("Upstream calls started (leader) or joined (follower) by single-flight")
+                .tag("role", "follower")
+                .register(meterRegistry);
+        Gauge.builder("silq.chat.coalescing.in-flight", inFlight, ConcurrentMap::size)
+                .description("Distinct upstream calls currently shared by single-flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} unless an identical call is already in flight, in which
+     * case the pending result is shared.
+     *
+     * @param key Identity of the provider, model, API key and engineered prompt
+     * @param call Starts the upstream call; invoked only by the leader
+     * @return A future private to this caller, completed with the shared result
+     */
+    public CompletableFuture<String> execute(PromptKey key, Supplier<CompletableFuture<String>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        while (true) {
+            Flight flight = inFlight.get(key);
+            if (flight == null) {
+                Flight created = new Flight();
+                flight = inFlight.putIfAbsent(key, created);
+                if (flight == null) {
+                    leaders.increment();
+                    CompletableFuture<String> result = created.join();
+                    lead(key, created, call);
+                    return result;
+                }
+            }
+
+            CompletableFuture<String> result = flight.join();
+            if (result != null) {
+                followers.increment();
+                log.debug("Joined in-flight upstream call for provider: {}", key.provider());
+                return result;
+            }
+            // Every waiter left and the call is being cancelled; start a fresh one
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private void lead(PromptKey key, Flight flight, Supplier<CompletableFuture<String>> call) {
+        CompletableFuture<String> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.shared.completeExceptionally(e);
+            return;
+        }
+        upstream.whenComplete((response, error) -> {
+            // Unpublish first so late arrivals start a new call rather than reuse a finished one
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.shared.completeExceptionally(error);
+            } else {
+                flight.shared.complete(response);
+            }
+        });
+        flight.started(upstream);
+    }
+
+    /**
+     * One shared upstream call and the number of callers still waiting for it.
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<String> shared = new CompletableFuture<>();
+        private CompletableFuture<String> upstream;
+        private int waiters;
+        private boolean abandoned;
+
+        /**
+         * Adds a waiter, or returns null if the call is already being abandoned.
+         */
+        CompletableFuture<String> join() {
+            synchronized (this) {
+                if (abandoned) {
+                    return null;
+                }
+                waiters++;
+            }
+            CompletableFuture<String> result = shared.copy();
+            result.whenComplete((response, error) -> {
+                // Failed on its own, i.e. cancelled or given up on by its caller
+                if (error != null && !shared.isDone()) {
+                    leave();
+                }
+            });
+            return result;
+        }
+
+        synchronized void started(CompletableFuture<String> call) {
+            upstream = call;
+            if (abandoned) {
+                call.cancel(true);
+            }
+        }
+
+        private synchronized void leave() {
+            if (--waiters == 0 && !shared.isDone()) {
+                abandoned = true;
+                if (upstream != null) {
+                    upstream.cancel(true);
+                }
+            }
+        }
+    }
+}
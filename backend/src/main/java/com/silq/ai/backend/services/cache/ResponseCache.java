@@ -0,0 +1,135 @@
+package com.silq.ai.backend.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.silq.ai.backend.config.ResponseCacheProperties;
+import com.silq.ai.backend.services.llm.LLMService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded in-memory cache of LLM responses, keyed by provider, model, API key and engineered prompt.
+ *
+ * Identical quick actions on identical text resolve here in microseconds without
+ * spending provider tokens. Only the response text is stored, and the key holds a
+ * fingerprint of the caller's API key rather than the key itself, so a response
+ * is only served to the API key it was answered for. Eviction is Caffeine's W-TinyLFU,
+ * bounded by the total number of cached characters, and hit/miss/eviction counts
+ * are published as {@code cache.*} metrics tagged {@code cache=silq.response}.
+ *
+ * Behind it sits the optional {@link DiskResponseCache}: every stored response
+ * is also written there, and a memory miss that hits on disk is promoted back
+ * into memory for the rest of its lifetime.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final ResponseCacheProperties properties;
+    private final Cache<PromptKey, String> cache;
+    private final DiskResponseCache diskCache;
+
+    public ResponseCache(ResponseCacheProperties properties, DiskResponseCache diskCache, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.diskCache = diskCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maxChars())
+                .weigher((PromptKey key, String content) -> content.length())
+                .expireAfter(new ProviderTtlExpiry(properties))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "silq.response");
+
+        log.info("ResponseCache initialized: enabled={}, maxChars={}, ttl={}, disabledProviders={}",
+                properties.enabled(), properties.maxChars(), properties.ttl(), properties.disabledProviders());
+    }
+
+    /**
+     * Looks up a cached response for the given upstream call, in memory first, then on disk.
+     *
+     * @param key Identity of the provider, model and engineered prompt
+     * @return The cached content, or empty on a miss or when caching is off for the provider
+     */
+    public Optional<String> get(PromptKey key) {
+        if (!properties.isCacheable(key.provider())) {
+            return Optional.empty();
+        }
+        String content = cache.getIfPresent(key);
+        if (content != null) {
+            return Optional.of(content);
+        }
+        Optional<DiskResponseCache.Stored> stored = diskCache.get(key);
+        stored.ifPresent(hit -> promote(key, hit));
+        return stored.map(DiskResponseCache.Stored::content);
+    }
+
+    /**
+     * Checks whether responses from the given provider are cached at all.
+     *
+     * @param provider Canonical provider name
+     * @return true if lookups for the provider can hit
+     */
+    public boolean isCacheable(String provider) {
+        return properties.isCacheable(provider);
+    }
+
+    /**
+     * Stores a successful response. Placeholder contents produced when the
+     * provider's body could not be read are never cached.
+     *
+     * @param key Identity of the provider, model and engineered prompt
+     * @param content The response content
+     * @return true if the response was stored
+     */
+    public boolean put(PromptKey key, String content) {
+        if (!properties.isCacheable(key.provider()) || !isCacheableContent(content)) {
+            return false;
+        }
+        cache.put(key, content);
+        diskCache.put(key, content, properties.ttlFor(key.provider()));
+        return true;
+    }
+
+    /**
+     * Puts a response read from disk into memory until the time it expires on disk.
+     */
+    private void promote(PromptKey key, DiskResponseCache.Stored stored) {
+        Duration remaining = Duration.ofMillis(stored.expiresAtMillis() - System.currentTimeMillis());
+        if (remaining.isPositive()) {
+            cache.policy().expireVariably().ifPresent(expiry -> expiry.put(key, stored.content(), remaining));
+        }
+    }
+
+    private boolean isCacheableContent(String content) {
+        return content != null
+                && !content.isEmpty()
+                && !LLMService.NO_CONTENT_RESPONSE.equals(content)
+                && !LLMService.PARSE_ERROR_RESPONSE.equals(content);
+    }
+
+    private record ProviderTtlExpiry(ResponseCacheProperties properties) implements Expiry<PromptKey, String> {
+
+        @Override
+        public long expireAfterCreate(PromptKey key, String content, long currentTime) {
+            return properties.ttlFor(key.provider()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(PromptKey key, String content, long currentTime, long currentDuration) {
+            return properties.ttlFor(key.provider()).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(PromptKey key, String content, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
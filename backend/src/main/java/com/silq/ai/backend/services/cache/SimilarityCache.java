@@ -0,0 +1,280 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.config.SimilarityCacheProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.LLMService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Answers prompts that are nearly identical to one answered before, such as
+ * the same "fix grammar" request on text that differs by a word or by spacing.
+ *
+ * Each cached prompt is indexed by its {@link MinHash} signature, split into
+ * {@value #BANDS} bands of {@value #ROWS} slots (locality-sensitive hashing):
+ * prompts that agree on all slots of any band are candidates, and the best
+ * candidate whose estimated similarity reaches the action's threshold supplies
+ * its cached response. With these bands, a prompt at similarity 0.9 is found
+ * with near certainty and one at 0.5 in about 6% of lookups, before the
+ * threshold check. Only prompts from the same API key, to the same provider
+ * and model, with the same action (the first line of the user's prompt) and
+ * the same earlier messages are compared, so one action's answer never stands
+ * in for another's and one client never receives another's rewrite.
+ *
+ * A threshold of 1.0 is confirmed exactly, by a hash of the prompt's words:
+ * the estimate is often 1.0 for long prompts a word apart, since a changed
+ * word only touches a few shingles and each slot keeps the minimum of many.
+ *
+ * The index holds signatures and keys into the {@link ResponseCache}, never
+ * prompts or responses. It keeps at most {@code silq.cache.similarity.max-entries}
+ * prompts, dropping the oldest, and at most {@value #MAX_BUCKET} per bucket, so
+ * memory is about 1.4 KB per entry and a lookup compares at most
+ * {@value #BANDS} x {@value #MAX_BUCKET} signatures.
+ */
+@Component
+public final class SimilarityCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarityCache.class);
+    private static final int BANDS = 16;
+    private static final int ROWS = MinHash.SIZE / BANDS;
+    private static final int MAX_BUCKET = 8;
+    private static final int MAX_ACTION_CHARS = 200;
+
+    private final SimilarityCacheProperties properties;
+    private final ResponseCache responseCache;
+    private final Entry[] entries;
+    private final Map<Long, Entry> buckets;
+    private final Counter hits;
+    private final Counter misses;
+    private int nextSlot;
+    private int size;
+    private long probes;
+
+    public SimilarityCache(SimilarityCacheProperties properties, ResponseCache responseCache,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.responseCache = responseCache;
+        this.entries = new Entry[properties.enabled() ? properties.maxEntries() : 0];
+        this.buckets = new HashMap<>();
+        this.hits = Counter.builder("silq.cache.similarity.lookups")
+                .description("Near-duplicate lookups after an exact cache miss, by result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("silq.cache.similarity.lookups")
+                .description("Near-duplicate lookups after an exact cache miss, by result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("silq.cache.similarity.entries", this, SimilarityCache::size)
+                .description("Prompts in the similarity index")
+                .register(meterRegistry);
+
+        log.info("SimilarityCache initialized: enabled={}, maxEntries={}, shingleWords={}, defaultThreshold={}, thresholds={}",
+                properties.enabled(), properties.maxEntries(), properties.shingleWords(),
+                properties.defaultThreshold(), properties.thresholds());
+    }
+
+    /**
+     * Describes a prompt for lookup and indexing.
+     *
+     * @param service The service the messages are sent to
+     * @param apiKey The caller's API key; only its own prompts are matched
+     * @param userPrompt The user's prompt as written; its first line names the action
+     * @param messages The conversation as sent upstream, after prompt engineering
+     * @return The probe, or null if near-duplicates are not served for this prompt
+     */
+    public Probe probe(LLMService service, String apiKey, String userPrompt, List<ChatMessage> messages) {
+        if (entries.length == 0 || messages.isEmpty() || !responseCache.isCacheable(service.getProviderName())) {
+            return null;
+        }
+        int lineEnd = userPrompt.indexOf('\n');
+        String instruction = lineEnd < 0 ? userPrompt : userPrompt.substring(0, lineEnd);
+        String configured = properties.actionOf(instruction);
+        double threshold = properties.thresholdFor(configured);
+        if (threshold > 1) {
+            return null;
+        }
+        String action = configured != null ? configured
+                : instruction.substring(0, Math.min(instruction.length(), MAX_ACTION_CHARS)).trim();
+
+        long scope = MinHash.mix(PromptKey.fingerprint(apiKey));
+        scope = MinHash.hash(scope, service.getProviderName());
+        scope = MinHash.hash(scope, service.getModelName());
+        scope = MinHash.hash(scope, action);
+        for (int i = 0; i < messages.size() - 1; i++) {
+            scope = MinHash.hash(scope, messages.get(i).role());
+            scope = MinHash.hash(scope, messages.get(i).content());
+        }
+        String prompt = messages.get(messages.size() - 1).content();
+        return new Probe(scope, MinHash.signature(prompt, properties.shingleWords()), MinHash.wordsHash(prompt),
+                threshold);
+    }
+
+    /**
+     * Looks up the cached response of the most similar indexed prompt.
+     *
+     * @param probe The prompt to match, or null
+     * @return The cached response, or empty if no indexed prompt is similar enough
+     *         or its response has left the response cache
+     */
+    public Optional<String> find(Probe probe) {
+        if (probe == null) {
+            return Optional.empty();
+        }
+        PromptKey match = bestMatch(probe);
+        Optional<String> response = match != null ? responseCache.get(match) : Optional.empty();
+        (response.isPresent() ? hits : misses).increment();
+        return response;
+    }
+
+    /**
+     * Indexes a prompt whose response was just stored in the response cache.
+     *
+     * @param probe The prompt, or null
+     * @param key The key its response is cached under
+     */
+    public void add(Probe probe, PromptKey key) {
+        if (probe == null) {
+            return;
+        }
+        long[] bandKeys = bandKeys(probe);
+        synchronized (this) {
+            Entry evicted = entries[nextSlot];
+            if (evicted != null) {
+                unlink(evicted);
+            } else {
+                size++;
+            }
+            Entry entry = new Entry(probe.scope, probe.signature, probe.wordsHash, bandKeys, key);
+            for (int band = 0; band < BANDS; band++) {
+                Entry head = buckets.put(bandKeys[band], entry);
+                entry.next[band] = head;
+                truncate(entry, band);
+            }
+            entries[nextSlot] = entry;
+            nextSlot = (nextSlot + 1) % entries.length;
+        }
+    }
+
+    private synchronized PromptKey bestMatch(Probe probe) {
+        long[] bandKeys = bandKeys(probe);
+        long probeId = ++probes;
+        Entry best = null;
+        double bestSimilarity = probe.threshold;
+        for (int band = 0; band < BANDS; band++) {
+            for (Entry entry = buckets.get(bandKeys[band]); entry != null; entry = entry.next[band]) {
+                if (entry.lastProbe == probeId || entry.scope != probe.scope) {
+                    continue;
+                }
+                entry.lastProbe = probeId;
+                if (probe.threshold >= 1) {
+                    if (entry.wordsHash == probe.wordsHash) {
+                        return entry.key;
+                    }
+                    continue;
+                }
+                double similarity = MinHash.similarity(probe.signature, entry.signature);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best != null ? best.key : null;
+    }
+
+    /**
+     * Cuts a bucket's chain after {@value #MAX_BUCKET} entries; the entries cut
+     * off stay reachable through their other bands until they are evicted.
+     */
+    private void truncate(Entry head, int band) {
+        Entry entry = head;
+        for (int i = 1; i < MAX_BUCKET && entry.next[band] != null; i++) {
+            entry = entry.next[band];
+        }
+        entry.next[band] = null;
+    }
+
+    private void unlink(Entry evicted) {
+        for (int band = 0; band < BANDS; band++) {
+            long bandKey = evicted.bandKeys[band];
+            Entry head = buckets.get(bandKey);
+            if (head == evicted) {
+                if (evicted.next[band] != null) {
+                    buckets.put(bandKey, evicted.next[band]);
+                } else {
+                    buckets.remove(bandKey);
+                }
+                continue;
+            }
+            for (Entry entry = head; entry != null; entry = entry.next[band]) {
+                if (entry.next[band] == evicted) {
+                    entry.next[band] = evicted.next[band];
+                    break;
+                }
+            }
+        }
+    }
+
+    private static long[] bandKeys(Probe probe) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = MinHash.mix(probe.scope + band);
+            for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+                key = MinHash.mix(key ^ probe.signature[row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private synchronized int size() {
+        return size;
+    }
+
+    /**
+     * A prompt reduced to what the index compares: its scope, its signature and
+     * the hash of its words.
+     */
+    public static final class Probe {
+
+        private final long scope;
+        private final int[] signature;
+        private final long wordsHash;
+        private final double threshold;
+
+        Probe(long scope, int[] signature, long wordsHash, double threshold) {
+            this.scope = scope;
+            this.signature = signature;
+            this.wordsHash = wordsHash;
+            this.threshold = threshold;
+        }
+    }
+
+    private static final class Entry {
+
+        final long scope;
+        final int[] signature;
+        final long wordsHash;
+        final long[] bandKeys;
+        final PromptKey key;
+        final Entry[] next = new Entry[BANDS];
+        long lastProbe;
+
+        Entry(long scope, int[] signature, long wordsHash, long[] bandKeys, PromptKey key) {
+            this.scope = scope;
+            this.signature = signature;
+            this.wordsHash = wordsHash;
+            this.bandKeys = bandKeys;
+            this.key = key;
+        }
+    }
+}
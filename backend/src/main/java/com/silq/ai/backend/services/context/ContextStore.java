@@ -0,0 +1,255 @@
+package com.silq.ai.backend.services.context;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.silq.ai.backend.config.ContextProperties;
+import com.silq.ai.backend.dto.ContextPart;
+import com.silq.ai.backend.services.cache.PromptKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Bounded in-memory store of document context, so clients upload the text
+ * around the user's selection once instead of inlining it in every prompt.
+ *
+ * Chunks are addressed by the hex SHA-256 of their text and scoped to the
+ * caller's API key (kept only as a digest), so a key can neither read nor
+ * probe another key's documents. A request lists its context as parts that
+ * carry a chunk inline, reference a stored chunk by hash, or describe a small
+ * edit of a stored chunk; the store resolves them and puts the reassembled
+ * context in front of the prompt. Inline and edited chunks are kept for later
+ * requests. Chunks expire after {@code silq.context.idle-ttl} without use, and
+ * the store as a whole is bounded by {@code silq.context.max-chars}.
+ */
+@Component
+public class ContextStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextStore.class);
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int HASH_LENGTH = 64;
+    private static final String SEPARATOR = "\n\n";
+
+    private final ContextProperties properties;
+    private final Cache<ChunkKey, String> chunks;
+    private final Counter storedChars;
+    private final Counter sentChars;
+    private final Counter missingChunks;
+
+    public ContextStore(ContextProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.chunks = Caffeine.newBuilder()
+                .maximumWeight(properties.maxChars())
+                .weigher((ChunkKey key, String text) -> text.length())
+                .expireAfterAccess(properties.idleTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, chunks, "silq.context");
+        this.storedChars = Counter.builder("silq.context.chars")
+                .description("Context characters of chat requests, by whether they came from the store or the request")
+                .tag("source", "stored")
+                .register(meterRegistry);
+        this.sentChars = Counter.builder("silq.context.chars")
+                .description("Context characters of chat requests, by whether they came from the store or the request")
+                .tag("source", "sent")
+                .register(meterRegistry);
+        this.missingChunks = Counter.builder("silq.context.missing")
+                .description("Referenced context chunks the store did not hold")
+                .register(meterRegistry);
+
+        log.info("ContextStore initialized: enabled={}, idleTtl={}, maxChars={}, maxChunkChars={}, maxParts={}",
+                properties.enabled(), properties.idleTtl(), properties.maxChars(),
+                properties.maxChunkChars(), properties.maxParts());
+    }
+
+    /**
+     * Stores chunks for later requests of the same key.
+     *
+     * @param apiKey The caller's API key; chunks are private to it
+     * @param texts The chunks' text
+     * @return The hash of each chunk, in order
+     * @throws IllegalArgumentException if a chunk is null or too large
+     */
+    public List<String> upload(String apiKey, List<String> texts) {
+        if (texts.size() > properties.maxParts()) {
+            throw new IllegalArgumentException("At most " + properties.maxParts() + " context chunks per upload");
+        }
+        Owner owner = Owner.of(apiKey);
+        List<String> hashes = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            hashes.add(store(owner, requireChunk(text)));
+        }
+        return hashes;
+    }
+
+    /**
+     * Builds the prompt for a request: its context chunks, in order, followed by the prompt itself.
+     *
+     * @param apiKey The caller's API key
+     * @param parts The request's context, or null for none
+     * @param prompt The user's prompt
+     * @return The prompt with its context in front
+     * @throws IllegalArgumentException if a part is malformed or an edit does not fit its base
+     * @throws MissingContextException if referenced chunks are not in the store
+     */
+    public String assemble(String apiKey, List<ContextPart> parts, String prompt) {
+        if (parts == null || parts.isEmpty()) {
+            return prompt;
+        }
+        if (parts.size() > properties.maxParts()) {
+            throw new IllegalArgumentException("At most " + properties.maxParts() + " context parts per request");
+        }
+        Owner owner = Owner.of(apiKey);
+        List<String> missing = new ArrayList<>();
+        String[] texts = new String[parts.size()];
+        int length = prompt.length();
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = resolve(owner, parts.get(i), missing);
+            length += texts[i] != null ? texts[i].length() + SEPARATOR.length() : 0;
+        }
+        if (!missing.isEmpty()) {
+            missingChunks.increment(missing.size());
+            throw new MissingContextException(missing);
+        }
+        // Sized up front: documents run to tens of thousands of characters
+        StringBuilder assembled = new StringBuilder(length);
+        for (String text : texts) {
+            assembled.append(text).append(SEPARATOR);
+        }
+        return assembled.append(prompt).toString();
+    }
+
+    /**
+     * Lists the stored chunks a request references but the store does not hold,
+     * without resolving or storing anything. Lets callers reject a request
+     * before committing to a response.
+     *
+     * @param apiKey The caller's API key
+     * @param parts The request's context, or null for none
+     * @return The missing hashes, empty if all are present
+     */
+    public List<String> missing(String apiKey, List<ContextPart> parts) {
+        if (parts == null || parts.isEmpty()) {
+            return List.of();
+        }
+        Owner owner = Owner.of(apiKey);
+        List<String> missing = new ArrayList<>();
+        for (ContextPart part : parts) {
+            String hash = part.text() == null ? (part.hash() != null ? part.hash() : part.base()) : null;
+            if (hash != null && lookup(owner, hash) == null) {
+                missing.add(hash);
+            }
+        }
+        missingChunks.increment(missing.size());
+        return missing;
+    }
+
+    private String resolve(Owner owner, ContextPart part, List<String> missing) {
+        int forms = (part.text() != null ? 1 : 0) + (part.hash() != null ? 1 : 0) + (part.base() != null ? 1 : 0);
+        if (forms != 1) {
+            throw new IllegalArgumentException("A context part needs exactly one of text, hash or base");
+        }
+        if (part.text() != null) {
+            String text = requireChunk(part.text());
+            store(owner, text);
+            sentChars.increment(text.length());
+            return text;
+        }
+        String hash = part.hash() != null ? part.hash() : part.base();
+        String stored = lookup(owner, hash);
+        if (stored == null) {
+            missing.add(hash);
+            return null;
+        }
+        storedChars.increment(stored.length());
+        if (part.hash() != null) {
+            return stored;
+        }
+        String edited = requireChunk(applyEdits(stored, part.edits()));
+        store(owner, edited);
+        return edited;
+    }
+
+    private String lookup(Owner owner, String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Context hash must be a hex SHA-256");
+        }
+        return properties.enabled() ? chunks.getIfPresent(new ChunkKey(owner, hash.toLowerCase())) : null;
+    }
+
+    private static boolean isHash(String hash) {
+        if (hash.length() != HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            if (!HexFormat.isHexDigit(hash.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String store(Owner owner, String text) {
+        String hash = HEX.formatHex(PromptKey.sha256(text));
+        if (properties.enabled()) {
+            chunks.asMap().putIfAbsent(new ChunkKey(owner, hash), text);
+        }
+        return hash;
+    }
+
+    /**
+     * Applies edits whose offsets all refer to the unchanged base text.
+     */
+    private String applyEdits(String base, List<ContextPart.Edit> edits) {
+        if (edits == null || edits.isEmpty()) {
+            return base;
+        }
+        List<ContextPart.Edit> ordered = new ArrayList<>(edits);
+        ordered.sort(Comparator.comparingInt(ContextPart.Edit::offset));
+        StringBuilder edited = new StringBuilder(base.length());
+        int copied = 0;
+        for (ContextPart.Edit edit : ordered) {
+            if (edit.offset() < copied || edit.delete() < 0 || edit.offset() + edit.delete() > base.length()) {
+                throw new IllegalArgumentException("Context edits overlap or lie outside their base chunk");
+            }
+            edited.append(base, copied, edit.offset());
+            if (edit.insert() != null) {
+                edited.append(edit.insert());
+                sentChars.increment(edit.insert().length());
+            }
+            copied = edit.offset() + edit.delete();
+        }
+        return edited.append(base, copied, base.length()).toString();
+    }
+
+    private String requireChunk(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Context chunk must not be null");
+        }
+        if (text.length() > properties.maxChunkChars()) {
+            throw new IllegalArgumentException(
+                    "Context chunk is longer than " + properties.maxChunkChars() + " characters");
+        }
+        return text;
+    }
+
+    private record Owner(long hashHigh, long hashLow) {
+
+        static Owner of(String apiKey) {
+            ByteBuffer digest = ByteBuffer.wrap(PromptKey.sha256(apiKey));
+            return new Owner(digest.getLong(), digest.getLong());
+        }
+    }
+
+    private record ChunkKey(Owner owner, String hash) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.silq.ai.backend.services.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a request references context chunks the backend does not hold,
+ * because they were never uploaded or have since been evicted.
+ *
+ * The client recovers by sending those chunks inline, so no stack trace is captured.
+ */
+public class MissingContextException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<String> missingHashes;
+
+    public MissingContextException(List<String> missingHashes) {
+        super("Unknown context chunks: " + String.join(",", missingHashes), null, false, false);
+        this.missingHashes = new ArrayList<>(missingHashes);
+    }
+
+    /**
+     * Gets the hashes of the chunks the client has to send again.
+     */
+    public List<String> getMissingHashes() {
+        return Collections.unmodifiableList(missingHashes);
+    }
+}
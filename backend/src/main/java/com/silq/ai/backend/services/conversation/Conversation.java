@@ -0,0 +1,167 @@
+package com.silq.ai.backend.services.conversation;
+
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.TokenEstimates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of one conversation: the most recent turns that fit the
+ * history budget, plus a digest of the older turns that were compacted away.
+ *
+ * Token totals are carried along as turns are added and compacted, so neither
+ * appending a turn nor assembling the context for the next request re-counts
+ * the whole history. Storage stays bounded by the budgets no matter how long
+ * the conversation runs.
+ *
+ * @param turns Retained turns, oldest first
+ * @param turnTokens Estimated tokens of all retained turns
+ * @param digest One line per compacted turn, oldest first
+ * @param summary The digest rendered as a system message, or null while nothing has been compacted
+ */
+record Conversation(List<Turn> turns, int turnTokens, List<String> digest, ChatMessage summary) {
+
+    static final Conversation EMPTY = new Conversation(List.of(), 0, List.of(), null);
+
+    private static final String SUMMARY_HEADER = "Summary of the earlier conversation:";
+    private static final int EXCERPT_CHARS = 160;
+
+    /**
+     * One exchange: what the user asked and what the model answered.
+     *
+     * @param tokens Estimated tokens of both messages together
+     */
+    record Turn(ChatMessage user, ChatMessage assistant, int tokens) {
+
+        static Turn of(String prompt, String response) {
+            ChatMessage user = ChatMessage.user(prompt);
+            ChatMessage assistant = ChatMessage.assistant(response);
+            return new Turn(user, assistant, TokenEstimates.of(user) + TokenEstimates.of(assistant));
+        }
+    }
+
+    /**
+     * Returns the conversation with {@code turn} added. The oldest turns are
+     * compacted into the digest until the rest fit {@code historyTokens}, and the
+     * oldest digest lines are dropped until the summary fits {@code summaryTokens}.
+     */
+    Conversation append(Turn turn, int historyTokens, int summaryTokens) {
+        int first = 0;
+        int tokens = turnTokens + turn.tokens();
+        List<String> newDigest = null;
+        int all = turns.size() + 1;
+        while (tokens > historyTokens && first < all) {
+            Turn compacted = first < turns.size() ? turns.get(first) : turn;
+            if (newDigest == null) {
+                newDigest = new ArrayList<>(digest);
+            }
+            newDigest.add(digestLine(compacted));
+            tokens -= compacted.tokens();
+            first++;
+        }
+
+        List<Turn> newTurns = new ArrayList<>(all - first);
+        for (int i = first; i < turns.size(); i++) {
+            newTurns.add(turns.get(i));
+        }
+        if (first < all) {
+            newTurns.add(turn);
+        }
+
+        if (newDigest == null) {
+            return new Conversation(List.copyOf(newTurns), tokens, digest, summary);
+        }
+        ChatMessage newSummary = renderSummary(newDigest, summaryTokens);
+        return new Conversation(List.copyOf(newTurns), tokens, List.copyOf(newDigest), newSummary);
+    }
+
+    /**
+     * Assembles the messages for the next request: as many of the most recent
+     * turns as fit {@code contextTokens} next to {@code request}, preceded by the
+     * summary if it still fits too.
+     *
+     * @param request The new user message, always included
+     * @param contextTokens Token budget for the whole prompt
+     * @return The messages to send, oldest first, ending with {@code request}
+     */
+    List<ChatMessage> context(ChatMessage request, int contextTokens) {
+        int remaining = contextTokens - TokenEstimates.of(request);
+        int first = turns.size();
+        while (first > 0 && turns.get(first - 1).tokens() <= remaining) {
+            first--;
+            remaining -= turns.get(first).tokens();
+        }
+        boolean withSummary = summary != null && TokenEstimates.of(summary) <= remaining;
+
+        List<ChatMessage> messages = new ArrayList<>(2 * (turns.size() - first) + 2);
+        if (withSummary) {
+            messages.add(summary);
+        }
+        for (int i = first; i < turns.size(); i++) {
+            messages.add(turns.get(i).user());
+            messages.add(turns.get(i).assistant());
+        }
+        messages.add(request);
+        return messages;
+    }
+
+    /**
+     * Gets the number of characters this conversation keeps in memory.
+     */
+    int chars() {
+        int chars = summary == null ? 0 : summary.content().length();
+        for (Turn turn : turns) {
+            chars += turn.user().content().length() + turn.assistant().content().length();
+        }
+        return chars;
+    }
+
+    /**
+     * Renders the digest, dropping its oldest lines from {@code digest} until
+     * the message fits {@code summaryTokens}.
+     */
+    private static ChatMessage renderSummary(List<String> digest, int summaryTokens) {
+        int tokens = TokenEstimates.of(ChatMessage.system(SUMMARY_HEADER));
+        int first = digest.size();
+        while (first > 0 && tokens + TokenEstimates.of(digest.get(first - 1)) + 1 <= summaryTokens) {
+            first--;
+            tokens += TokenEstimates.of(digest.get(first)) + 1;
+        }
+        digest.subList(0, first).clear();
+        if (digest.isEmpty()) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(SUMMARY_HEADER);
+        for (String line : digest) {
+            text.append('\n').append(line);
+        }
+        return ChatMessage.system(text.toString());
+    }
+
+    private static String digestLine(Turn turn) {
+        return "- User: " + excerpt(turn.user().content()) + " / Assistant: " + excerpt(turn.assistant().content());
+    }
+
+    /**
+     * First sentence of {@code text}, with whitespace collapsed and cut to a few words.
+     */
+    private static String excerpt(String text) {
+        // Only the start can end up in the excerpt; avoid scanning long replies in full
+        String head = text.length() > 4 * EXCERPT_CHARS ? text.substring(0, 4 * EXCERPT_CHARS) : text;
+        String flat = head.strip().replaceAll("\\s+", " ");
+        int end = flat.length();
+        for (int i = 0; i < flat.length() - 1; i++) {
+            char c = flat.charAt(i);
+            if ((c == '.' || c == '?' || c == '!') && flat.charAt(i + 1) == ' ') {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end > EXCERPT_CHARS) {
+            int cut = flat.lastIndexOf(' ', EXCERPT_CHARS);
+            return flat.substring(0, cut > 0 ? cut : EXCERPT_CHARS) + "...";
+        }
+        return flat.substring(0, end);
+    }
+}
@@ -0,0 +1,135 @@
+package com.silq.ai.backend.services.conversation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.silq.ai.backend.config.ConversationProperties;
+import com.silq.ai.backend.services.cache.PromptKey;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.LLMService;
+import com.silq.ai.backend.services.llm.TokenEstimates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Bounded in-memory history for multi-turn chat, so clients send only the new
+ * message instead of the whole transcript.
+ *
+ * Conversations are identified by a client-chosen id scoped to the caller's API
+ * key, so one key can never read another key's history; the key itself is only
+ * kept as a 128-bit digest. Each conversation retains the recent turns that fit
+ * {@code silq.conversation.context-tokens} and compacts older ones into a short
+ * digest, so the prompt sent upstream (and with it latency and cost) stays flat
+ * as the conversation grows. Conversations expire after
+ * {@code silq.conversation.idle-ttl} without a new turn, and the store as a whole
+ * is bounded by {@code silq.conversation.max-chars}.
+ */
+@Component
+public class ConversationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationStore.class);
+    private static final int MAX_CONVERSATION_ID_LENGTH = 128;
+
+    private final ConversationProperties properties;
+    private final Cache<ConversationKey, Conversation> conversations;
+    private final DistributionSummary contextTokens;
+    private final Counter compactedTurns;
+
+    public ConversationStore(ConversationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.conversations = Caffeine.newBuilder()
+                .maximumWeight(properties.maxChars())
+                .weigher((ConversationKey key, Conversation conversation) -> conversation.chars())
+                .expireAfterAccess(properties.idleTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, "silq.conversation");
+        this.contextTokens = DistributionSummary.builder("silq.conversation.context.tokens")
+                .description("Estimated prompt tokens sent for conversation requests")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.compactedTurns = Counter.builder("silq.conversation.compacted.turns")
+                .description("Turns folded into a conversation's summary to stay within the token budget")
+                .register(meterRegistry);
+
+        log.info("ConversationStore initialized: enabled={}, idleTtl={}, maxChars={}, contextTokens={}, summaryTokens={}",
+                properties.enabled(), properties.idleTtl(), properties.maxChars(),
+                properties.contextTokens(), properties.summaryTokens());
+    }
+
+    /**
+     * Builds the messages for a request: the stored context of the conversation
+     * followed by the new user message.
+     *
+     * @param apiKey The caller's API key; conversations are private to it
+     * @param conversationId Client-chosen conversation id, or null for a one-off request
+     * @param request The new user message, after prompt engineering
+     * @return The messages to send upstream, ending with {@code request}
+     * @throws IllegalArgumentException if the conversation id is too long
+     */
+    public List<ChatMessage> context(String apiKey, String conversationId, ChatMessage request) {
+        if (!properties.enabled() || conversationId == null) {
+            return List.of(request);
+        }
+        Conversation conversation = conversations.getIfPresent(key(apiKey, conversationId));
+        if (conversation == null) {
+            return List.of(request);
+        }
+        List<ChatMessage> messages = conversation.context(request, properties.contextTokens());
+        contextTokens.record(TokenEstimates.of(messages));
+        return messages;
+    }
+
+    /**
+     * Adds a completed exchange to the conversation, compacting older turns
+     * that no longer fit the budget. Placeholder responses are not recorded.
+     *
+     * @param apiKey The caller's API key
+     * @param conversationId Client-chosen conversation id, or null for a one-off request
+     * @param prompt The user's prompt as written, without prompt engineering
+     * @param response The model's answer
+     */
+    public void append(String apiKey, String conversationId, String prompt, String response) {
+        if (!properties.enabled() || conversationId == null || !isRecordable(response)) {
+            return;
+        }
+        Conversation.Turn turn = Conversation.Turn.of(prompt, response);
+        int[] compacted = new int[1];
+        conversations.asMap().compute(key(apiKey, conversationId), (key, current) -> {
+            Conversation base = current != null ? current : Conversation.EMPTY;
+            Conversation next = base.append(turn, properties.historyTokens(), properties.summaryTokens());
+            compacted[0] = base.turns().size() + 1 - next.turns().size();
+            return next;
+        });
+        if (compacted[0] > 0) {
+            compactedTurns.increment(compacted[0]);
+            log.debug("Compacted {} turns of conversation {}", compacted[0], conversationId);
+        }
+    }
+
+    private static boolean isRecordable(String response) {
+        return response != null
+                && !response.isEmpty()
+                && !LLMService.NO_CONTENT_RESPONSE.equals(response)
+                && !LLMService.PARSE_ERROR_RESPONSE.equals(response);
+    }
+
+    private static ConversationKey key(String apiKey, String conversationId) {
+        if (conversationId.length() > MAX_CONVERSATION_ID_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Conversation id is longer than " + MAX_CONVERSATION_ID_LENGTH + " characters");
+        }
+        ByteBuffer owner = ByteBuffer.wrap(PromptKey.sha256(apiKey));
+        return new ConversationKey(conversationId, owner.getLong(), owner.getLong());
+    }
+
+    private record ConversationKey(String conversationId, long ownerHashHigh, long ownerHashLow) {
+    }
+}
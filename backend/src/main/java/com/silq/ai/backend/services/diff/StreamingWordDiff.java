@@ -0,0 +1,114 @@
+package com.silq.ai.backend.services.diff;
+
+import com.silq.ai.backend.dto.TextEdit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Word-level edits against an original text, emitted while its rewrite is
+ * still streaming in.
+ *
+ * After each delta, the part of the rewrite not yet covered is aligned with
+ * the start of the original that is not yet covered, as in {@link WordDiff}.
+ * A run of at least {@value #ANCHOR_TOKENS} unchanged tokens anchors the
+ * alignment: the edits in front of the last such run are emitted, and both
+ * texts are settled up to its end. The rest is diffed once the stream has
+ * finished. Applying every emitted edit to the original always gives the full
+ * rewrite; edits may be slightly larger than a diff of the finished text.
+ *
+ * While no anchor is found, the alignment is retried only after the pending
+ * part has grown by a quarter, so a heavily rewritten text costs a small
+ * multiple of one diff. If it grows past {@value #MAX_PENDING_TOKENS} tokens
+ * without an anchor, or differs in more than {@value #MAX_EDIT_TOKENS} tokens,
+ * all remaining edits wait for {@link #finish()}. Not thread-safe; deltas
+ * arrive on one thread.
+ */
+public class StreamingWordDiff {
+
+    /** Unchanged tokens that settle the alignment in front of them, about four words. */
+    static final int ANCHOR_TOKENS = 8;
+
+    /** Rewrite tokens held back without an anchor before the rest is left to the end. */
+    static final int MAX_PENDING_TOKENS = 2048;
+
+    /** Most token insertions plus deletions searched for in the pending part. */
+    static final int MAX_EDIT_TOKENS = 256;
+
+    /** Original tokens considered beyond twice the pending rewrite, for deleted passages. */
+    private static final int WINDOW_SLACK_TOKENS = 64;
+
+    private final Tokens original;
+    private final Consumer<List<TextEdit>> onEdits;
+    private final StringBuilder revised = new StringBuilder();
+    private int settledOriginal;
+    private int settledRevised;
+    private int nextAttempt = ANCHOR_TOKENS;
+    private boolean deferred;
+
+    /**
+     * @param original The text being rewritten
+     * @param onEdits Receives each batch of settled edits, in order
+     */
+    public StreamingWordDiff(String original, Consumer<List<TextEdit>> onEdits) {
+        this.original = Tokens.of(original, 0, original.length());
+        this.onEdits = onEdits;
+    }
+
+    /**
+     * Adds the next piece of the rewrite and emits the edits it settles.
+     */
+    public void append(String delta) {
+        revised.append(delta);
+        if (deferred) {
+            return;
+        }
+        Tokens pending = Tokens.of(revised, settledRevised, revised.length());
+        // The last token may still grow with the next delta
+        int complete = pending.count() - 1;
+        if (complete < nextAttempt) {
+            return;
+        }
+        if (complete > MAX_PENDING_TOKENS) {
+            deferred = true;
+            return;
+        }
+        int window = (int) Math.min(original.count(), settledOriginal + 2L * complete + WINDOW_SLACK_TOKENS);
+        int[] runs = WordDiff.align(original, settledOriginal, window, pending, 0, complete, true, MAX_EDIT_TOKENS);
+        if (runs == null) {
+            deferred = true;
+            return;
+        }
+        int anchor = runs.length / 3 - 1;
+        while (anchor >= 0 && runs[anchor * 3 + 2] < ANCHOR_TOKENS) {
+            anchor--;
+        }
+        if (anchor < 0) {
+            nextAttempt = complete + Math.max(1, complete / 4);
+            return;
+        }
+        List<TextEdit> edits = new ArrayList<>();
+        WordDiff.appendEdits(original, settledOriginal, pending, 0, runs, anchor + 1, edits);
+        settledOriginal = runs[anchor * 3] + runs[anchor * 3 + 2];
+        settledRevised = pending.start(runs[anchor * 3 + 1] + runs[anchor * 3 + 2]);
+        nextAttempt = ANCHOR_TOKENS;
+        if (!edits.isEmpty()) {
+            onEdits.accept(edits);
+        }
+    }
+
+    /**
+     * Emits the edits for the rest of the texts once the rewrite is complete.
+     */
+    public void finish() {
+        Tokens pending = Tokens.of(revised, settledRevised, revised.length());
+        List<TextEdit> edits = new ArrayList<>();
+        WordDiff.diff(original, settledOriginal, original.count(), pending, 0, pending.count(), edits);
+        settledOriginal = original.count();
+        settledRevised = revised.length();
+        if (!edits.isEmpty()) {
+            onEdits.accept(edits);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.silq.ai.backend.services.diff;
+
+import java.util.Arrays;
+
+/**
+ * A range of text split into diff tokens: runs of letters and digits, runs of
+ * whitespace, and single other code points. Tokens are kept as offsets into
+ * the text plus a hash each, so comparing two tokens rarely touches their
+ * characters.
+ */
+final class Tokens {
+
+    private static final int WORD = 0;
+    private static final int SPACE = 1;
+    private static final int OTHER = 2;
+
+    private final CharSequence text;
+    private final int[] starts;
+    private final int[] hashes;
+    private final int count;
+
+    private Tokens(CharSequence text, int[] starts, int[] hashes, int count) {
+        this.text = text;
+        this.starts = starts;
+        this.hashes = hashes;
+        this.count = count;
+    }
+
+    /**
+     * Splits the characters {@code [from, to)} of a text into tokens; offsets stay
+     * relative to the whole text. The text must not change while the tokens are used.
+     */
+    static Tokens of(CharSequence text, int from, int to) {
+        int[] starts = new int[Math.max(16, (to - from) / 3)];
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            if (count + 1 >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[count++] = i;
+            int codePoint = Character.codePointAt(text, i);
+            int kind = kind(codePoint);
+            i += Character.charCount(codePoint);
+            while (kind != OTHER && i < to) {
+                codePoint = Character.codePointAt(text, i);
+                if (kind(codePoint) != kind) {
+                    break;
+                }
+                i += Character.charCount(codePoint);
+            }
+        }
+        starts[count] = i;
+        int[] hashes = new int[count];
+        for (int t = 0; t < count; t++) {
+            int hash = 0;
+            for (int c = starts[t]; c < starts[t + 1]; c++) {
+                hash = 31 * hash + text.charAt(c);
+            }
+            hashes[t] = hash;
+        }
+        return new Tokens(text, starts, hashes, count);
+    }
+
+    private static int kind(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) {
+            return WORD;
+        }
+        return Character.isWhitespace(codePoint) ? SPACE : OTHER;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Gets the text offset where a token starts; {@code start(count())} is the end of the range.
+     */
+    int start(int token) {
+        return starts[token];
+    }
+
+    /**
+     * Gets the text of tokens {@code [from, to)}.
+     */
+    String text(int from, int to) {
+        return text.subSequence(starts[from], starts[to]).toString();
+    }
+
+    static boolean equal(Tokens a, int i, Tokens b, int j) {
+        if (a.hashes[i] != b.hashes[j]) {
+            return false;
+        }
+        int aStart = a.starts[i];
+        int length = a.starts[i + 1] - aStart;
+        int bStart = b.starts[j];
+        if (b.starts[j + 1] - bStart != length) {
+            return false;
+        }
+        for (int c = 0; c < length; c++) {
+            if (a.text.charAt(aStart + c) != b.text.charAt(bStart + c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
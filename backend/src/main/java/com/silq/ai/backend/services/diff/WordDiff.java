@@ -0,0 +1,209 @@
+package com.silq.ai.backend.services.diff;
+
+import com.silq.ai.backend.dto.TextEdit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal word-level diffs between an original text and its rewrite.
+ *
+ * Both texts are split into tokens: runs of letters and digits, runs of
+ * whitespace, and single other characters, so punctuation and spacing changes
+ * stay as small as word changes. The common prefix and suffix are skipped, and
+ * the rest is aligned with Myers' O(ND) algorithm, which finds a shortest edit
+ * script in time proportional to the texts' length times the number of
+ * differing tokens. Each gap between aligned runs becomes one
+ * {@link TextEdit}. If the texts differ in more than {@value #MAX_EDIT_TOKENS}
+ * tokens, the differing middle is replaced as a whole instead.
+ */
+public final class WordDiff {
+
+    /** Most token insertions plus deletions searched for; bounds time and the trace's memory. */
+    static final int MAX_EDIT_TOKENS = 1024;
+
+    /** JSON overhead of one edit besides its text, {@code {"start":…,"end":…,"text":""},} */
+    private static final int EDIT_OVERHEAD_CHARS = 40;
+
+    private static final int NONE = -1;
+
+    private WordDiff() {
+    }
+
+    /**
+     * Computes the edits that turn {@code original} into {@code revised}.
+     *
+     * @return The edits in ascending order; empty if the texts are equal
+     */
+    public static List<TextEdit> diff(String original, String revised) {
+        Tokens a = Tokens.of(original, 0, original.length());
+        Tokens b = Tokens.of(revised, 0, revised.length());
+        List<TextEdit> edits = new ArrayList<>();
+        diff(a, 0, a.count(), b, 0, b.count(), edits);
+        return edits;
+    }
+
+    /**
+     * Estimates the size of the edits once serialized, to compare with the full text.
+     *
+     * @return Approximate JSON length in characters
+     */
+    public static int encodedSize(List<TextEdit> edits) {
+        int size = 0;
+        for (TextEdit edit : edits) {
+            size += EDIT_OVERHEAD_CHARS + edit.text().length();
+        }
+        return size;
+    }
+
+    /**
+     * Appends the edits that turn tokens {@code [aFrom, aTo)} of {@code a} into
+     * tokens {@code [bFrom, bTo)} of {@code b}.
+     */
+    static void diff(Tokens a, int aFrom, int aTo, Tokens b, int bFrom, int bTo, List<TextEdit> edits) {
+        while (aFrom < aTo && bFrom < bTo && Tokens.equal(a, aFrom, b, bFrom)) {
+            aFrom++;
+            bFrom++;
+        }
+        while (aFrom < aTo && bFrom < bTo && Tokens.equal(a, aTo - 1, b, bTo - 1)) {
+            aTo--;
+            bTo--;
+        }
+        if (aFrom == aTo && bFrom == bTo) {
+            return;
+        }
+        int[] runs = align(a, aFrom, aTo, b, bFrom, bTo, false, MAX_EDIT_TOKENS);
+        if (runs == null) {
+            edits.add(edit(a, aFrom, aTo, b, bFrom, bTo));
+            return;
+        }
+        int runCount = runs.length / 3;
+        appendEdits(a, aFrom, b, bFrom, runs, runCount, edits);
+        int aPos = runCount == 0 ? aFrom : runs[runCount * 3 - 3] + runs[runCount * 3 - 1];
+        int bPos = runCount == 0 ? bFrom : runs[runCount * 3 - 2] + runs[runCount * 3 - 1];
+        if (aPos < aTo || bPos < bTo) {
+            edits.add(edit(a, aPos, aTo, b, bPos, bTo));
+        }
+    }
+
+    /**
+     * Appends an edit for each gap in front of the first {@code count} aligned runs.
+     */
+    static void appendEdits(Tokens a, int aFrom, Tokens b, int bFrom, int[] runs, int count, List<TextEdit> edits) {
+        int aPos = aFrom;
+        int bPos = bFrom;
+        for (int i = 0; i < count; i++) {
+            int aStart = runs[i * 3];
+            int bStart = runs[i * 3 + 1];
+            if (aStart > aPos || bStart > bPos) {
+                edits.add(edit(a, aPos, aStart, b, bPos, bStart));
+            }
+            aPos = aStart + runs[i * 3 + 2];
+            bPos = bStart + runs[i * 3 + 2];
+        }
+    }
+
+    static TextEdit edit(Tokens a, int aFrom, int aTo, Tokens b, int bFrom, int bTo) {
+        return new TextEdit(a.start(aFrom), a.start(aTo), b.text(bFrom, bTo));
+    }
+
+    /**
+     * Aligns tokens {@code [aFrom, aTo)} of {@code a} with {@code [bFrom, bTo)}
+     * of {@code b} along a shortest edit script.
+     *
+     * With {@code openEnd}, {@code b} is aligned with some prefix of the
+     * {@code a} range only, as when {@code b} is the start of a rewrite of it.
+     *
+     * @param maxEdits Most token insertions plus deletions to search for
+     * @return The aligned runs as (a index, b index, length) triples in
+     *         ascending order, or null if more than {@code maxEdits} edits are needed
+     */
+    static int[] align(Tokens a, int aFrom, int aTo, Tokens b, int bFrom, int bTo, boolean openEnd, int maxEdits) {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        int max = Math.min(n + m, maxEdits);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        // trace[d] holds v[-d..d] after step d, for the way back
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = d == 0 ? 0 : Math.max(
+                        insertion(k < d ? v[offset + k + 1] : NONE, k, m),
+                        deletion(k > -d ? v[offset + k - 1] : NONE, n));
+                if (x == NONE) {
+                    v[offset + k] = NONE;
+                    continue;
+                }
+                int y = x - k;
+                while (x < n && y < m && Tokens.equal(a, aFrom + x, b, bFrom + y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (y >= m && (openEnd || x >= n)) {
+                    int[] slice = new int[2 * d + 1];
+                    System.arraycopy(v, offset - d, slice, 0, slice.length);
+                    trace.add(slice);
+                    return backtrack(trace, aFrom, bFrom, x, y, d, n, m);
+                }
+            }
+            int[] slice = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, slice, 0, slice.length);
+            trace.add(slice);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the x reached on diagonal {@code k} by inserting a token of b after
+     * the furthest point {@code above} of diagonal {@code k + 1}.
+     *
+     * @return The x, or {@link #NONE} if that point is unreachable or b is used up
+     */
+    private static int insertion(int above, int k, int m) {
+        return above != NONE && above - (k + 1) < m ? above : NONE;
+    }
+
+    /**
+     * Gets the x reached by deleting a token of a after the furthest point
+     * {@code left} of diagonal {@code k - 1}.
+     *
+     * @return The x, or {@link #NONE} if that point is unreachable or a is used up
+     */
+    private static int deletion(int left, int n) {
+        return left != NONE && left < n ? left + 1 : NONE;
+    }
+
+    private static int[] backtrack(List<int[]> trace, int aFrom, int bFrom, int x, int y, int steps, int n, int m) {
+        List<int[]> runs = new ArrayList<>();
+        for (int d = steps; d > 0; d--) {
+            int[] before = trace.get(d - 1);
+            int k = x - y;
+            int down = insertion(k < d ? at(before, d - 1, k + 1) : NONE, k, m);
+            int right = deletion(k > -d ? at(before, d - 1, k - 1) : NONE, n);
+            // The forward pass took the further of the two; on a tie either leads back to the start
+            boolean insertion = down >= right;
+            int startX = insertion ? down : right;
+            int startY = startX - k;
+            if (x > startX) {
+                runs.add(new int[] {aFrom + startX, bFrom + startY, x - startX});
+            }
+            x = insertion ? down : right - 1;
+            y = insertion ? startY - 1 : startY;
+        }
+        if (x > 0) {
+            runs.add(new int[] {aFrom, bFrom, x});
+        }
+        int[] result = new int[runs.size() * 3];
+        for (int i = 0; i < runs.size(); i++) {
+            int[] run = runs.get(runs.size() - 1 - i);
+            System.arraycopy(run, 0, result, i * 3, 3);
+        }
+        return result;
+    }
+
+    private static int at(int[] slice, int d, int k) {
+        return k < -d || k > d ? NONE : slice[k + d];
+    }
+}
@@ -0,0 +1,107 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.OutboundHttpMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking JSON POST on the shared JDK client, used by the async provider paths.
+ *
+ * Error statuses are surfaced as the same {@code HttpClientErrorException} /
+ * {@code HttpServerErrorException} types RestTemplate throws on the blocking path,
+ * so callers can treat both paths alike. Exchanges are counted in the same
+ * per-host metrics as RestTemplate's, which they bypass.
+ */
+final class AsyncJsonExchange {
+
+    private AsyncJsonExchange() {
+    }
+
+    /**
+     * Sends {@code body} as JSON and completes with the raw response body.
+     *
+     * @param client The shared outbound client
+     * @param metrics Per-host metrics the exchange is counted in
+     * @param objectMapper Mapper used to serialize the request body
+     * @param uri Target endpoint
+     * @param headers Extra request headers (e.g. authentication)
+     * @param body Request payload
+     * @param readTimeout Time allowed until the response headers arrive
+     * @param totalTimeout Time allowed for the whole exchange
+     * @param deadline The caller's deadline; the exchange is aborted once it expires or is cancelled
+     * @return Future completed with the response bytes on a 2xx status
+     */
+    static CompletableFuture<byte[]> post(HttpClient client, OutboundHttpMetrics metrics, ObjectMapper objectMapper,
+                                          URI uri, Map<String, String> headers, Object body,
+                                          Duration readTimeout, Duration totalTimeout, Deadline deadline) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+        headers.forEach(request::header);
+
+        CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        metrics.track(uri, exchange);
+        CompletableFuture<byte[]> responseBody = exchange.thenApply(AsyncJsonExchange::requireSuccess)
+                .orTimeout(totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        // The configured timeouts guard against the provider; the deadline reflects the caller
+        Deadline.Registration abort = deadline.onAbort(() -> responseBody.completeExceptionally(deadline.abortCause()));
+        responseBody.whenComplete((response, error) -> abort.close());
+        return abortOnFailure(exchange, responseBody);
+    }
+
+    /**
+     * Links a dependent stage back to the exchange it was derived from.
+     *
+     * Cancelling or timing out a {@code thenApply}/{@code handle} stage does not
+     * reach the stage it came from, so without this a cancelled caller would leave
+     * the HTTP exchange running. The JDK client aborts the exchange when its own
+     * future is cancelled.
+     *
+     * @param exchange The future returned by the HTTP client (or an earlier link)
+     * @param dependent A stage derived from {@code exchange}
+     * @return {@code dependent}, for chaining
+     */
+    static <T> CompletableFuture<T> abortOnFailure(CompletableFuture<?> exchange, CompletableFuture<T> dependent) {
+        dependent.whenComplete((result, error) -> {
+            if (error != null) {
+                exchange.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private static byte[] requireSuccess(HttpResponse<byte[]> response) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is2xxSuccessful()) {
+            return response.body();
+        }
+        String statusText = status.toString();
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, statusText, null, response.body(), StandardCharsets.UTF_8);
+        }
+        throw HttpServerErrorException.create(status, statusText, null, response.body(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,39 @@
+package com.silq.ai.backend.services.llm;
+
+/**
+ * One message of the conversation sent to a provider.
+ *
+ * Roles follow OpenAI's chat format; each provider maps them onto its own
+ * request shape (Gemini, for example, calls the assistant "model" and takes
+ * system messages as a separate instruction).
+ *
+ * @param role One of {@link #SYSTEM}, {@link #USER} or {@link #ASSISTANT}
+ * @param content The message text
+ */
+public record ChatMessage(String role, String content) {
+
+    public static final String SYSTEM = "system";
+    public static final String USER = "user";
+    public static final String ASSISTANT = "assistant";
+
+    /**
+     * Creates a system message, i.e. an instruction that frames the conversation.
+     */
+    public static ChatMessage system(String content) {
+        return new ChatMessage(SYSTEM, content);
+    }
+
+    /**
+     * Creates a message written by the user.
+     */
+    public static ChatMessage user(String content) {
+        return new ChatMessage(USER, content);
+    }
+
+    /**
+     * Creates a message previously generated by the model.
+     */
+    public static ChatMessage assistant(String content) {
+        return new ChatMessage(ASSISTANT, content);
+    }
+}
@@ -0,0 +1,167 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * Count-based circuit breaker for a single provider.
+ *
+ * While CLOSED every call is allowed and its outcome is kept in a ring of the
+ * last {@code window} calls. Once at least {@code minimumCalls} are recorded and
+ * either the failure rate or the slow-call rate crosses its threshold, the
+ * breaker goes OPEN and rejects calls without contacting the provider. After
+ * {@code openDuration} it goes HALF_OPEN and lets {@code halfOpenCalls} probes
+ * through: if all of them succeed quickly it closes, otherwise it opens again.
+ *
+ * The CLOSED fast path is a single volatile read; everything else is
+ * synchronized, which is cheap next to an LLM round trip.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final ResilienceProperties properties;
+    private final BiConsumer<State, State> onTransition;
+    private final byte[] outcomes;
+
+    private volatile State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAtNanos;
+    private int probesAvailable;
+    private int probesSucceeded;
+
+    CircuitBreaker(ResilienceProperties properties, BiConsumer<State, State> onTransition) {
+        this.properties = properties;
+        this.onTransition = onTransition;
+        this.outcomes = new byte[Math.max(1, properties.window())];
+    }
+
+    State state() {
+        return state;
+    }
+
+    /**
+     * Asks for permission to call the provider. Every granted permission must be
+     * followed by exactly one {@link #onResult} or {@link #onIgnored}.
+     *
+     * @return true if the call may proceed
+     */
+    boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < properties.openDuration().toNanos()) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesAvailable == 0) {
+                    return false;
+                }
+                probesAvailable--;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Gets how long until the breaker will let a probe call through.
+     *
+     * @return Remaining open time, zero if the breaker is not open
+     */
+    synchronized Duration remainingOpenTime() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = properties.openDuration().toNanos() - (System.nanoTime() - openedAtNanos);
+        return Duration.ofNanos(Math.max(0, remaining));
+    }
+
+    /**
+     * Records the outcome of a permitted call.
+     *
+     * @param failed Whether the provider failed the call
+     * @param latencyNanos How long the call took
+     */
+    synchronized void onResult(boolean failed, long latencyNanos) {
+        boolean slow = latencyNanos > properties.slowCallDuration().toNanos();
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed || slow) {
+                    open();
+                } else if (++probesSucceeded >= properties.halfOpenCalls()) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                record((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+                if (recorded >= properties.minimumCalls()
+                        && (failures >= properties.failureRateThreshold() * recorded
+                            || slowCalls >= properties.slowCallRateThreshold() * recorded)) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // A call granted before the breaker opened; its outcome no longer matters
+            }
+        }
+    }
+
+    /**
+     * Returns a permission whose call ended without telling anything about the
+     * provider's health, e.g. because it was cancelled or the caller's key was rejected.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probesAvailable++;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (recorded == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        openedAtNanos = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void close() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        transition(State.CLOSED);
+    }
+
+    private void transition(State to) {
+        State from = state;
+        if (to == State.HALF_OPEN) {
+            probesAvailable = Math.max(1, properties.halfOpenCalls());
+            probesSucceeded = 0;
+        }
+        state = to;
+        onTransition.accept(from, to);
+    }
+}
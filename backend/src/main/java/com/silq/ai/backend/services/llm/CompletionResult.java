@@ -0,0 +1,12 @@
+package com.silq.ai.backend.services.llm;
+
+/**
+ * The parts of a provider response the backend uses; everything else in the
+ * body is skipped while parsing.
+ *
+ * @param content Generated text, or null if the response carried none
+ * @param finishReason Why generation stopped as reported by the provider (e.g. "stop", "length", "MAX_TOKENS"), or null
+ * @param usage Token counts, or null if the provider did not report them
+ */
+public record CompletionResult(String content, String finishReason, TokenUsage usage) {
+}
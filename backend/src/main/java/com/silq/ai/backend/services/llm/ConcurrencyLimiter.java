@@ -0,0 +1,116 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit for a single provider, driven by observed latency.
+ *
+ * Calls beyond the current limit are rejected immediately rather than queued.
+ * Each completed call adjusts the limit: a failure that signals overload, or a
+ * latency sample above {@code latencyTolerance} times the running average,
+ * multiplies the limit by {@code backoffRatio}; any other success adds one, but
+ * only while the limit is actually being used so that an idle provider does not
+ * drift to the maximum. The running average adapts slowly, so a provider that
+ * settles at a new, higher latency is eventually accepted as the new normal.
+ *
+ * A call's total duration mostly measures how long its answer is, so it is not
+ * the sample: a stream reports the time to its first delta, and a plain call
+ * its duration per output token (see {@link Signal}). Models of one provider
+ * differ widely in speed, so each model and signal keeps its own average.
+ */
+final class ConcurrencyLimiter {
+
+    private static final double AVERAGE_WEIGHT = 0.05;
+
+    /**
+     * What a latency sample measures; samples are only compared with their own kind.
+     */
+    enum Signal {
+        /** Time from sending a streamed request to its first delta. */
+        FIRST_DELTA,
+        /** Duration of a plain call divided by the tokens of its answer. */
+        PER_TOKEN
+    }
+
+    private final ResilienceProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Running average per model, indexed by signal; guarded by {@code this}. */
+    private final Map<String, double[]> averagesByModel = new HashMap<>();
+
+    private volatile int limit;
+
+    ConcurrencyLimiter(ResilienceProperties properties) {
+        this.properties = properties;
+        this.limit = clamp(properties.initialLimit());
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Claims a slot if the provider is below its limit.
+     *
+     * @return The number of calls in flight including this one, or 0 if rejected
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot and feeds the call's outcome into the limit.
+     *
+     * @param inFlightAtStart Value returned by {@link #tryAcquire()} for this call
+     * @param model The model the call went to
+     * @param signal What {@code sampleNanos} measures
+     * @param sampleNanos The call's latency sample; ignored if {@code overloaded}
+     * @param overloaded Whether the call failed in a way that signals overload
+     */
+    void onComplete(int inFlightAtStart, String model, Signal signal, long sampleNanos, boolean overloaded) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            boolean slow = false;
+            if (!overloaded) {
+                double[] averages = averagesByModel.computeIfAbsent(model, m -> new double[Signal.values().length]);
+                double average = averages[signal.ordinal()];
+                slow = average > 0 && sampleNanos > properties.latencyTolerance() * average;
+                averages[signal.ordinal()] = average == 0
+                        ? sampleNanos
+                        : average + AVERAGE_WEIGHT * (sampleNanos - average);
+            }
+            if (overloaded || slow) {
+                limit = clamp((int) (limit * properties.backoffRatio()));
+            } else if (inFlightAtStart * 2 >= limit) {
+                limit = clamp(limit + 1);
+            }
+        }
+    }
+
+    /**
+     * Frees a slot without adjusting the limit, for calls whose outcome says
+     * nothing about provider load.
+     */
+    void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    private int clamp(int value) {
+        return Math.max(properties.minLimit(), Math.min(properties.maxLimit(), value));
+    }
+}
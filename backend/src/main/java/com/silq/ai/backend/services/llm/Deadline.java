@@ -0,0 +1,235 @@
+package com.silq.ai.backend.services.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time a request may still take, and whether its caller is still waiting.
+ *
+ * A deadline is created once per incoming request and passed down to the
+ * provider call, so every layer works against the same budget: timeouts are
+ * capped by what remains, retries stop when it runs out, and work queued for
+ * a request is dropped once nobody wants the answer. It is aborted either when
+ * its time passes or when {@link #cancel()} is called, e.g. because the client
+ * disconnected; actions registered with {@link #onAbort(Runnable)} then run
+ * once. On cancellation they run on the cancelling thread. On expiry, a timer
+ * thread owned by this class hands them to a new virtual thread, so a slow
+ * action never delays another deadline or any other timer in the JVM.
+ */
+public final class Deadline {
+
+    private static final Logger log = LoggerFactory.getLogger(Deadline.class);
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final Duration UNBOUNDED = Duration.ofNanos(Long.MAX_VALUE);
+
+    /** Fires expiries; only hands them off, so one thread serves every deadline. */
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    /** Runs the actions of expired deadlines. */
+    private static final ExecutorService ABORT_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("silq-deadline-abort-", 0).factory());
+
+    private final long expiresAtNanos;
+    /** Actions still waiting; guarded by {@code this}. */
+    private final Set<Registration> registrations = new LinkedHashSet<>();
+    /** The expiry timer while any action is waiting; guarded by {@code this}. */
+    private ScheduledFuture<?> timer;
+    /** Whether the actions have been run; guarded by {@code this}. */
+    private boolean fired;
+    private volatile boolean cancelled;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Creates a deadline {@code timeout} from now.
+     *
+     * @param timeout The time the request may take; zero or negative is already expired
+     * @return A new deadline
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Creates a deadline that never expires but can still be cancelled.
+     *
+     * @return A new deadline
+     */
+    public static Deadline none() {
+        return new Deadline(NO_DEADLINE);
+    }
+
+    /**
+     * Gets the time left, zero once expired; effectively unbounded for {@link #none()}.
+     */
+    public Duration remaining() {
+        if (expiresAtNanos == NO_DEADLINE) {
+            return UNBOUNDED;
+        }
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Whether the time has run out.
+     */
+    public boolean isExpired() {
+        return expiresAtNanos != NO_DEADLINE && expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Whether the caller gave up on the request.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Whether the request is no longer worth working on: expired or cancelled.
+     */
+    public boolean isAborted() {
+        return cancelled || isExpired();
+    }
+
+    /**
+     * Aborts the request because its caller gave up. Idempotent.
+     */
+    public void cancel() {
+        cancelled = true;
+        abort();
+    }
+
+    /**
+     * Gets the exception that reports why the request was aborted.
+     *
+     * @return A plain {@link CancellationException} if the caller gave up,
+     *         otherwise a {@link DeadlineExceededException}
+     */
+    public CancellationException abortCause() {
+        return cancelled
+                ? new CancellationException("Caller cancelled the request")
+                : new DeadlineExceededException("Request deadline exceeded");
+    }
+
+    /**
+     * Runs {@code action} once the deadline is aborted, or right away if it already is.
+     *
+     * Closing the returned registration before then withdraws the action; once
+     * {@code close} has returned, the action is guaranteed not to be running and
+     * never to run, so it may safely refer to resources the caller reuses.
+     *
+     * @param action What to do on expiry or cancellation, e.g. abort an HTTP exchange
+     * @return A handle to withdraw the action
+     */
+    public Registration onAbort(Runnable action) {
+        Registration registration = new Registration(this, action);
+        synchronized (this) {
+            if (!fired && !isAborted()) {
+                registrations.add(registration);
+                if (timer == null && expiresAtNanos != NO_DEADLINE) {
+                    timer = TIMER.schedule(() -> ABORT_EXECUTOR.execute(this::abort),
+                            expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                return registration;
+            }
+        }
+        abort();
+        registration.fire();
+        return registration;
+    }
+
+    /**
+     * Runs every waiting action, once.
+     */
+    private void abort() {
+        List<Registration> pending;
+        synchronized (this) {
+            if (fired) {
+                return;
+            }
+            fired = true;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            pending = new ArrayList<>(registrations);
+            registrations.clear();
+        }
+        for (Registration registration : pending) {
+            try {
+                registration.fire();
+            } catch (RuntimeException e) {
+                // One failing action must not keep the others from running
+                log.warn("Abort action failed", e);
+            }
+        }
+    }
+
+    /**
+     * Forgets a closed registration; the timer goes with the last one.
+     */
+    private synchronized void withdraw(Registration registration) {
+        if (registrations.remove(registration) && registrations.isEmpty() && timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "silq-deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Requests usually finish long before their deadline; don't keep their timers queued
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * An action waiting for the deadline to be aborted.
+     */
+    public static final class Registration implements AutoCloseable {
+
+        private final Deadline deadline;
+        private Runnable action;
+
+        private Registration(Deadline deadline, Runnable action) {
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        private synchronized void fire() {
+            if (action != null) {
+                Runnable pending = action;
+                action = null;
+                pending.run();
+            }
+        }
+
+        /**
+         * Withdraws the action if it has not run yet; waits for it if it is running.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                action = null;
+            }
+            deadline.withdraw(this);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.silq.ai.backend.services.llm;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown when work for a request is abandoned because its {@link Deadline} passed.
+ *
+ * It is a cancellation rather than a provider failure: the caller's budget ran
+ * out, which says nothing about the provider's health, so breakers and
+ * concurrency limits ignore it just like a client that went away.
+ */
+public class DeadlineExceededException extends CancellationException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
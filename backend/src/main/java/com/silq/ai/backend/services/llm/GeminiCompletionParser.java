@@ -0,0 +1,147 @@
+package com.silq.ai.backend.services.llm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Single-pass decoder for Gemini generateContent responses and stream chunks.
+ *
+ * Keeps only the text of {@code candidates[0].content.parts[*]} (concatenated),
+ * {@code candidates[0].finishReason} and the {@code usageMetadata} counts;
+ * safety ratings, citations, further candidates and anything else are skipped
+ * without being materialized.
+ */
+final class GeminiCompletionParser {
+
+    private final JsonParser parser;
+    private String content;
+    private StringBuilder multiPartContent;
+    private String finishReason;
+    private TokenUsage usage;
+
+    private GeminiCompletionParser(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses a complete response body or a single stream chunk. The parser is closed afterwards.
+     *
+     * @param parser Parser positioned before the root object
+     * @return The extracted content, finish reason and usage
+     * @throws IOException if the body is not a JSON object
+     */
+    static CompletionResult parse(JsonParser parser) throws IOException {
+        try (parser) {
+            return new GeminiCompletionParser(parser).parseRoot();
+        }
+    }
+
+    private CompletionResult parseRoot() throws IOException {
+        JsonTokens.expectObject(parser, parser.nextToken());
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("candidates".equals(field) && value == JsonToken.START_ARRAY) {
+                parseCandidates();
+            } else if ("usageMetadata".equals(field) && value == JsonToken.START_OBJECT) {
+                parseUsage();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        String text = multiPartContent != null ? multiPartContent.toString() : content;
+        return new CompletionResult(text, finishReason, usage);
+    }
+
+    private void parseCandidates() throws IOException {
+        if (!JsonTokens.nextElement(parser)) {
+            return;
+        }
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            parseFirstCandidate();
+        } else {
+            parser.skipChildren();
+        }
+        JsonTokens.skipRestOfArray(parser);
+    }
+
+    private void parseFirstCandidate() throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("content".equals(field) && value == JsonToken.START_OBJECT) {
+                parseContent();
+            } else if ("finishReason".equals(field) && value == JsonToken.VALUE_STRING) {
+                finishReason = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void parseContent() throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("parts".equals(field) && value == JsonToken.START_ARRAY) {
+                while (JsonTokens.nextElement(parser)) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        parsePart();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void parsePart() throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+                appendText(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void appendText(String text) {
+        // The common single-part answer is returned as is, without a builder copy
+        if (content == null) {
+            content = text;
+            return;
+        }
+        if (multiPartContent == null) {
+            multiPartContent = new StringBuilder(content.length() + text.length()).append(content);
+        }
+        multiPartContent.append(text);
+    }
+
+    private void parseUsage() throws IOException {
+        int prompt = 0;
+        int candidates = 0;
+        int total = 0;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "promptTokenCount" -> prompt = parser.getIntValue();
+                case "candidatesTokenCount" -> candidates = parser.getIntValue();
+                case "totalTokenCount" -> total = parser.getIntValue();
+                default -> {
+                    // Other counters are not tracked
+                }
+            }
+        }
+        usage = new TokenUsage(prompt, candidates, total);
+    }
+}
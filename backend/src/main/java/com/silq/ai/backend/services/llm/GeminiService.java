@@ -1,86 +1,253 @@
 package com.silq.ai.backend.services.llm;
 
+import com.silq.ai.backend.config.OutboundHttpMetrics;
+import com.silq.ai.backend.config.OutboundHttpProperties;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service("gemini")
 public class GeminiService implements LLMService {
 
     private static final Logger log = LoggerFactory.getLogger(GeminiService.class);
-    private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent";
+    private static final String DEFAULT_MODEL = "gemini-1.5-flash";
+    private static final String MODELS_PATH = "/v1beta/models/";
+    private static final String GENERATE_CONTENT = ":generateContent";
+    private static final String STREAM_GENERATE_CONTENT = ":streamGenerateContent";
+    private static final String API_KEY_HEADER = "x-goog-api-key";
 
-    @Autowired
-    private RestTemplate restTemplate;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final HttpClient outboundHttpClient;
+    private final OutboundHttpMetrics outboundHttpMetrics;
+    private final OutboundHttpProperties httpProperties;
+    private final ChatMetrics chatMetrics;
+    private final String baseUrl;
+    private final String model;
+
+    public GeminiService(RestTemplate restTemplate, ObjectMapper objectMapper, HttpClient outboundHttpClient,
+                         OutboundHttpMetrics outboundHttpMetrics, OutboundHttpProperties httpProperties,
+                         ChatMetrics chatMetrics,
+                         @Value("${silq.llm.gemini.base-url:https://generativelanguage.googleapis.com}") String baseUrl,
+                         @Value("${silq.llm.gemini.model:" + DEFAULT_MODEL + "}") String model) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.outboundHttpClient = outboundHttpClient;
+        this.outboundHttpMetrics = outboundHttpMetrics;
+        this.httpProperties = httpProperties;
+        this.chatMetrics = chatMetrics;
+        this.baseUrl = baseUrl;
+        this.model = model;
+    }
 
     @Override
-    public String generateResponse(String engineeredPrompt, String userApiKey) {
-        // Build the request URL with the API key
-        String url = UriComponentsBuilder.fromHttpUrl(GEMINI_API_URL)
-                .queryParam("key", userApiKey)
-                .toUriString();
+    public String getProviderName() {
+        return "gemini";
+    }
 
-        // Set headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    @Override
+    public String getModelName() {
+        return model;
+    }
+
+    /**
+     * Gets a copy of this service that sends requests to another Gemini model,
+     * sharing this service's HTTP clients and metrics.
+     */
+    @Override
+    public LLMService withModel(String model) {
+        if (model.equals(this.model)) {
+            return this;
+        }
+        return new GeminiService(restTemplate, objectMapper, outboundHttpClient, outboundHttpMetrics, httpProperties,
+                chatMetrics, baseUrl, model);
+    }
 
-        // Create the request body for Gemini
-        Map<String, Object> part = Collections.singletonMap("text", engineeredPrompt);
-        Map<String, Object> content = Collections.singletonMap("parts", Collections.singletonList(part));
-        Map<String, Object> requestBody = Collections.singletonMap("contents", Collections.singletonList(content));
+    @Override
+    public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+        // Build the request URL; the API key travels in a header so it never shows up in URL-based metrics or logs
+        String url = baseUrl + MODELS_PATH + model + GENERATE_CONTENT;
 
         // Create the HTTP entity
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(buildRequestBody(messages), buildHeaders(userApiKey));
 
+        long start = System.nanoTime();
         try {
             // Make the API call
-            log.info("Sending request to Gemini API");
-            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
-            log.info("Received successful response from Gemini API");
+            log.debug("Sending request to Gemini API");
+            // Decode the body straight off the stream, keeping only what we use
+            CompletionResult result = restTemplate.execute(url, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(entity),
+                    response -> GeminiCompletionParser.parse(objectMapper.getFactory().createParser(response.getBody())));
+            log.debug("Received successful response from Gemini API");
+            chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
 
-            // Extract the content from the response
-            return extractContentFromResponse(response);
+            return contentOf(result);
 
         } catch (Exception e) {
+            chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                    ChatMetrics.outcomeOf(e), System.nanoTime() - start);
             log.error("Error calling Gemini API: {}", e.getMessage());
             throw new RuntimeException("Failed to generate response from Gemini: " + e.getMessage(), e);
         }
     }
 
-    private String extractContentFromResponse(ResponseEntity<Map> response) {
-        try {
-            Map<String, Object> body = response.getBody();
-            if (body != null && body.containsKey("candidates")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> candidates = (List<Map<String, Object>>) body.get("candidates");
-                if (!candidates.isEmpty()) {
-                    Map<String, Object> firstCandidate = candidates.get(0);
-                    if (firstCandidate.containsKey("content")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> content = (Map<String, Object>) firstCandidate.get("content");
-                        if (content.containsKey("parts")) {
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-                            if (!parts.isEmpty()) {
-                                return (String) parts.get(0).get("text");
-                            }
+    @Override
+    public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                           Deadline deadline) {
+        log.debug("Sending async request to Gemini API");
+        long start = System.nanoTime();
+        CompletableFuture<byte[]> exchange = AsyncJsonExchange.post(outboundHttpClient, outboundHttpMetrics, objectMapper,
+                URI.create(baseUrl + MODELS_PATH + model + GENERATE_CONTENT),
+                Map.of(API_KEY_HEADER, userApiKey),
+                buildRequestBody(messages),
+                httpProperties.readTimeout(), httpProperties.totalTimeout(), deadline);
+
+        return AsyncJsonExchange.abortOnFailure(exchange, exchange
+                .thenApply(body -> {
+                    chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
+                    return chatMetrics.timeParse(getProviderName(), getModelName(), body, this::extractContentFromResponse);
+                })
+                .handle((content, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                                ChatMetrics.outcomeOf(cause), System.nanoTime() - start);
+                        if (cause instanceof CancellationException) {
+                            log.debug("Gemini API call cancelled");
+                            throw (CancellationException) cause;
                         }
+                        log.error("Error calling Gemini API: {}", cause.getMessage());
+                        throw new RuntimeException("Failed to generate response from Gemini: " + cause.getMessage(), cause);
+                    }
+                    log.debug("Received successful async response from Gemini API");
+                    return content;
+                }));
+    }
+
+    @Override
+    public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                 Consumer<String> onDelta) {
+        // alt=sse switches streamGenerateContent from a JSON array to SSE framing
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl + MODELS_PATH + model + STREAM_GENERATE_CONTENT)
+                .queryParam("alt", "sse")
+                .toUriString();
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(buildRequestBody(messages), buildHeaders(userApiKey));
+        StringBuilder fullContent = new StringBuilder();
+
+        long start = System.nanoTime();
+        try {
+            log.debug("Sending streaming request to Gemini API");
+            restTemplate.execute(url, HttpMethod.POST, restTemplate.httpEntityCallback(entity), response -> {
+                ServerSentEvents.forEachData(response.getBody(), deadline, data -> {
+                    String delta = extractDeltaFromChunk(data);
+                    if (delta != null && !delta.isEmpty()) {
+                        fullContent.append(delta);
+                        onDelta.accept(delta);
                     }
-                }
+                    return true;
+                });
+                return null;
+            });
+            log.debug("Completed streaming response from Gemini API");
+            chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
+            return fullContent.toString();
+
+        } catch (Exception e) {
+            chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                    ChatMetrics.outcomeOf(e), System.nanoTime() - start);
+            if (e instanceof CancellationException cancelled) {
+                log.debug("Gemini stream aborted: {}", cancelled.getMessage());
+                throw cancelled;
             }
-            log.warn("No content found in Gemini response");
-            return "No response content found.";
+            log.error("Error streaming from Gemini API: {}", e.getMessage());
+            throw new RuntimeException("Failed to stream response from Gemini: " + e.getMessage(), e);
+        }
+    }
+
+    private HttpHeaders buildHeaders(String userApiKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(API_KEY_HEADER, userApiKey);
+        return headers;
+    }
+
+    /**
+     * Maps the conversation onto Gemini's request shape: assistant turns use the
+     * "model" role, and system messages are merged into {@code systemInstruction}
+     * since {@code contents} only accepts user and model turns.
+     */
+    Map<String, Object> buildRequestBody(List<ChatMessage> messages) {
+        List<Map<String, Object>> contents = new ArrayList<>(messages.size());
+        StringBuilder systemInstruction = null;
+        for (ChatMessage message : messages) {
+            if (ChatMessage.SYSTEM.equals(message.role())) {
+                systemInstruction = systemInstruction == null
+                        ? new StringBuilder(message.content())
+                        : systemInstruction.append("\n\n").append(message.content());
+                continue;
+            }
+            String role = ChatMessage.ASSISTANT.equals(message.role()) ? "model" : "user";
+            contents.add(Map.of("role", role, "parts", textParts(message.content())));
+        }
+        if (systemInstruction == null) {
+            return Collections.singletonMap("contents", contents);
+        }
+        return Map.of("contents", contents,
+                "systemInstruction", Collections.singletonMap("parts", textParts(systemInstruction.toString())));
+    }
+
+    private static List<Map<String, Object>> textParts(String text) {
+        return Collections.singletonList(Collections.singletonMap("text", text));
+    }
+
+    /**
+     * Pulls the text delta out of a single streamed chunk.
+     */
+    private String extractDeltaFromChunk(String chunk) {
+        try {
+            return GeminiCompletionParser.parse(objectMapper.getFactory().createParser(chunk)).content();
+        } catch (Exception e) {
+            log.warn("Skipping unparseable Gemini stream chunk: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    String extractContentFromResponse(byte[] body) {
+        try {
+            return contentOf(GeminiCompletionParser.parse(objectMapper.getFactory().createParser(body)));
         } catch (Exception e) {
             log.error("Error parsing Gemini response: {}", e.getMessage());
-            return "Error parsing response.";
+            return PARSE_ERROR_RESPONSE;
+        }
+    }
+
+    private String contentOf(CompletionResult result) {
+        if (result.usage() != null) {
+            chatMetrics.recordUsage(getProviderName(), getModelName(), result.usage());
+        }
+        if (result.content() == null) {
+            log.warn("No content found in Gemini response (finish reason: {})", result.finishReason());
+            return NO_CONTENT_RESPONSE;
         }
+        log.debug("Gemini completion finished: reason={}, usage={}", result.finishReason(), result.usage());
+        return result.content();
     }
 }
@@ -0,0 +1,156 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when to hedge and records how hedging performs.
+ *
+ * The hedge delay for a model is the configured percentile of its recent
+ * successful latencies, clamped to [minDelay, maxDelay]; a request that is still
+ * pending after that long is in the slow tail and worth duplicating. Each of a
+ * provider's models has its own window, since a routed request may go to a
+ * fast or a large one. The following metrics make the trade-off visible per
+ * provider:
+ * {@code silq.hedge.requests} (hedge-eligible requests),
+ * {@code silq.hedge.fired} (secondary actually sent),
+ * {@code silq.hedge.throttled} (secondary not sent, its key's rate limit was spent),
+ * {@code silq.hedge.wins} (which provider answered, tagged primary/secondary) and
+ * {@code silq.hedge.delay} (current delay in milliseconds, also tagged by model).
+ */
+@Component
+public class HedgePolicy {
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public HedgePolicy(HedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Checks whether hedging is switched on.
+     *
+     * @return true if hedged requests are enabled
+     */
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Gets how long to wait for the primary before sending the hedge.
+     *
+     * @param provider Canonical name of the primary provider
+     * @param model The primary's upstream model
+     * @return The current hedge delay
+     */
+    public Duration hedgeDelay(String provider, String model) {
+        return Duration.ofNanos(window(provider, model).delayNanos());
+    }
+
+    /**
+     * Records the latency of a successful call.
+     *
+     * @param provider Canonical provider name
+     * @param model Upstream model that answered
+     * @param latencyNanos Observed latency
+     */
+    public void recordLatency(String provider, String model, long latencyNanos) {
+        window(provider, model).record(latencyNanos);
+    }
+
+    void recordRequest(String primary) {
+        counter("silq.hedge.requests", "Requests eligible for hedging", primary, null).increment();
+    }
+
+    void recordHedgeFired(String primary) {
+        counter("silq.hedge.fired", "Requests for which the hedge was sent", primary, null).increment();
+    }
+
+    void recordHedgeThrottled(String primary) {
+        counter("silq.hedge.throttled", "Hedges not sent because the secondary key was throttled", primary, null)
+                .increment();
+    }
+
+    void recordWin(String provider, String role) {
+        counter("silq.hedge.wins", "Hedged requests answered by each provider", provider, role).increment();
+    }
+
+    private Counter counter(String name, String description, String provider, String role) {
+        Counter.Builder builder = Counter.builder(name).description(description).tag("provider", provider);
+        if (role != null) {
+            builder.tag("role", role);
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private LatencyWindow window(String provider, String model) {
+        return windows.computeIfAbsent(provider + '/' + model, key -> {
+            LatencyWindow window = new LatencyWindow(properties);
+            Gauge.builder("silq.hedge.delay", window, w -> w.delayNanos() / 1_000_000.0)
+                    .description("Current hedge delay in milliseconds")
+                    .tag("provider", provider)
+                    .tag("model", model)
+                    .register(meterRegistry);
+            return window;
+        });
+    }
+
+    /**
+     * Ring buffer of recent latencies with a cached percentile, refreshed every
+     * few samples so the hot path never sorts.
+     */
+    private static final class LatencyWindow {
+
+        private static final int REFRESH_EVERY = 16;
+
+        private final HedgingProperties properties;
+        private final AtomicLongArray samples;
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile long delayNanos;
+
+        LatencyWindow(HedgingProperties properties) {
+            this.properties = properties;
+            this.samples = new AtomicLongArray(properties.window());
+            this.delayNanos = clamp(properties.initialDelay().toNanos());
+        }
+
+        void record(long latencyNanos) {
+            int n = count.getAndIncrement();
+            samples.set(Math.floorMod(n, samples.length()), latencyNanos);
+            if (Math.floorMod(n + 1, REFRESH_EVERY) == 0) {
+                refresh(n + 1 < 0 || n + 1 > samples.length() ? samples.length() : n + 1);
+            }
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        private void refresh(int filled) {
+            long[] snapshot = new long[filled];
+            for (int i = 0; i < filled; i++) {
+                snapshot[i] = samples.get(i);
+            }
+            Arrays.sort(snapshot);
+            int index = (int) Math.min(filled - 1, Math.ceil(properties.percentile() * filled) - 1);
+            delayNanos = clamp(snapshot[Math.max(0, index)]);
+        }
+
+        private long clamp(long nanos) {
+            return Math.max(properties.minDelay().toNanos(), Math.min(properties.maxDelay().toNanos(), nanos));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.services.ratelimit.RateLimitExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Races a primary and a secondary provider for one request.
+ *
+ * The primary is called immediately. If it has not answered within the
+ * {@link HedgePolicy} delay, or fails before that, the same prompt is sent to the
+ * secondary with the caller's key for that provider. The first success wins and
+ * the other call is cancelled, which aborts its HTTP exchange. The request only
+ * fails if both providers fail.
+ *
+ * The secondary's key is charged to its own rate limit just before the hedge
+ * is sent; if that budget is spent, the request stays with the primary. Once a
+ * leg has won, {@link #getProviderName()} and {@link #getModelName()} report
+ * the provider and model that answered, so the response is cached, measured
+ * and routed under the model that produced it.
+ *
+ * Instances are created per request by {@link LLMProxyFactory}, since they carry
+ * the secondary provider's key. Streaming is not hedged and goes to the primary.
+ */
+class HedgedLLMService implements LLMService {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedLLMService.class);
+
+    private final LLMService primary;
+    private final LLMService secondary;
+    private final String secondaryApiKey;
+    private final HedgePolicy hedgePolicy;
+    private final Consumer<List<ChatMessage>> chargeSecondary;
+    private volatile LLMService answeredBy;
+
+    /**
+     * @param chargeSecondary Charges the secondary's key for sending the messages;
+     *                        throws {@link RateLimitExceededException} if its budget is spent
+     */
+    HedgedLLMService(LLMService primary, LLMService secondary, String secondaryApiKey, HedgePolicy hedgePolicy,
+                     Consumer<List<ChatMessage>> chargeSecondary) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.secondaryApiKey = secondaryApiKey;
+        this.hedgePolicy = hedgePolicy;
+        this.chargeSecondary = chargeSecondary;
+        this.answeredBy = primary;
+    }
+
+    /**
+     * Gets the provider that answered; the primary until a leg has won.
+     */
+    @Override
+    public String getProviderName() {
+        return answeredBy.getProviderName();
+    }
+
+    /**
+     * Gets the model that answered; the primary's until a leg has won.
+     */
+    @Override
+    public String getModelName() {
+        return answeredBy.getModelName();
+    }
+
+    @Override
+    public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+        try {
+            return generateResponseAsync(messages, userApiKey).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                           Deadline deadline) {
+        String primaryName = primary.getProviderName();
+        hedgePolicy.recordRequest(primaryName);
+
+        Race race = new Race();
+        synchronized (race) {
+            race.primary = start(primary, messages, userApiKey, deadline, race, "primary");
+        }
+
+        Duration delay = hedgePolicy.hedgeDelay(primaryName, primary.getModelName());
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(() -> race.hedge(messages, deadline, "delay"));
+
+        // Cancelling the caller's future cancels both legs
+        race.result.whenComplete((response, error) -> {
+            if (race.result.isCancelled()) {
+                race.cancelAll();
+            }
+        });
+        return race.result;
+    }
+
+    @Override
+    public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                 Consumer<String> onDelta) {
+        return primary.streamResponse(messages, userApiKey, deadline, onDelta);
+    }
+
+    private CompletableFuture<String> start(LLMService service, List<ChatMessage> messages, String apiKey,
+                                            Deadline deadline, Race race, String role) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<String> call = service.generateResponseAsync(messages, apiKey, deadline);
+        call.whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - startedAt;
+            // A cancelled leg was cut short by the winner or the caller, so its time is not a latency sample
+            if (error == null) {
+                hedgePolicy.recordLatency(service.getProviderName(), service.getModelName(), elapsed);
+                if (race.win(service, response)) {
+                    hedgePolicy.recordWin(service.getProviderName(), role);
+                    race.cancelLoser(call);
+                }
+            } else if (!call.isCancelled()) {
+                race.onFailure(messages, deadline, role, error);
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Shared state of one hedged request. Transitions are rare (at most two legs),
+     * so they are simply serialized on the instance.
+     */
+    private final class Race {
+
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> primary;
+        CompletableFuture<String> secondary;
+        private boolean hedged;
+        private boolean won;
+        private int legs = 1;
+        private int failures;
+        private Throwable firstFailure;
+
+        /**
+         * Completes the request with a leg's answer, unless the other leg was first.
+         */
+        boolean win(LLMService service, String response) {
+            synchronized (this) {
+                if (won || result.isDone()) {
+                    return false;
+                }
+                won = true;
+                // Set before completing, so callbacks on the result see the winner
+                answeredBy = service;
+            }
+            // Completed outside the lock: the caller's callbacks run on this thread
+            return result.complete(response);
+        }
+
+        synchronized void hedge(List<ChatMessage> messages, Deadline deadline, String reason) {
+            if (hedged || result.isDone() || deadline.isAborted()) {
+                return;
+            }
+            String primaryName = HedgedLLMService.this.primary.getProviderName();
+            try {
+                chargeSecondary.accept(messages);
+            } catch (RateLimitExceededException e) {
+                // Not hedged; a primary failure may try again, when the budget may have recovered
+                hedgePolicy.recordHedgeThrottled(primaryName);
+                log.debug("Not hedging {} request: {}", primaryName, e.getMessage());
+                return;
+            }
+            hedged = true;
+            legs++;
+            hedgePolicy.recordHedgeFired(primaryName);
+            log.info("Hedging {} request to {} ({})", primaryName,
+                    HedgedLLMService.this.secondary.getProviderName(), reason);
+            secondary = start(HedgedLLMService.this.secondary, messages, secondaryApiKey, deadline, this, "secondary");
+            if (result.isDone() && !secondary.isDone()) {
+                secondary.cancel(true);
+            }
+        }
+
+        synchronized void onFailure(List<ChatMessage> messages, Deadline deadline, String role, Throwable error) {
+            failures++;
+            if (firstFailure == null) {
+                firstFailure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            }
+            if ("primary".equals(role) && !hedged) {
+                // Don't wait out the delay when the primary has already failed
+                hedge(messages, deadline, "primary failed");
+                if (hedged) {
+                    return;
+                }
+            }
+            if (failures == legs) {
+                result.completeExceptionally(firstFailure);
+            }
+        }
+
+        synchronized void cancelLoser(CompletableFuture<String> winner) {
+            CompletableFuture<String> loser = winner == primary ? secondary : primary;
+            if (loser != null) {
+                loser.cancel(true);
+            }
+        }
+
+        synchronized void cancelAll() {
+            if (primary != null) {
+                primary.cancel(true);
+            }
+            if (secondary != null) {
+                secondary.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.silq.ai.backend.services.llm;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Small helpers for walking provider responses with a streaming {@link JsonParser}.
+ */
+final class JsonTokens {
+
+    private JsonTokens() {
+    }
+
+    /**
+     * Fails unless {@code token} opens an object.
+     */
+    static void expectObject(JsonParser parser, JsonToken token) throws JsonParseException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + token);
+        }
+    }
+
+    /**
+     * Advances to the next array element.
+     *
+     * @return true if the parser now sits on an element, false if the array ended
+     */
+    static boolean nextElement(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "Unexpected end of input inside an array");
+        }
+        return token != JsonToken.END_ARRAY;
+    }
+
+    /**
+     * Skips every remaining element of the array the parser is in, leaving it on END_ARRAY.
+     */
+    static void skipRestOfArray(JsonParser parser) throws IOException {
+        while (nextElement(parser)) {
+            parser.skipChildren();
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package com.silq.ai.backend.services.llm;
 
+import com.silq.ai.backend.config.ResilienceProperties;
+import com.silq.ai.backend.services.ratelimit.ApiKeyRateLimiter;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory class that acts as a 'universal remote' for LLM services.
  * 
  * Provides a scalable way to get the correct LLM service implementation
  * based on the provider name. Uses a Map for efficient provider lookup.
+ *
+ * When {@code silq.resilience.enabled} is set, each provider is registered behind
+ * a {@link ResilientLLMService}, so every caller shares that provider's circuit
+ * breaker and concurrency limit.
+ *
+ * With {@code silq.routing.enabled}, {@link #route} lets the {@link ModelRouter}
+ * pick one of the provider's models per request; the views for other models
+ * are created once and share the provider's resilience guard.
  */
 @Component
 public class LLMProxyFactory {
@@ -20,16 +37,34 @@ public class LLMProxyFactory {
     private static final Logger log = LoggerFactory.getLogger(LLMProxyFactory.class);
 
     private final Map<String, LLMService> serviceMap;
+    private final HedgePolicy hedgePolicy;
+    private final ModelRouter modelRouter;
+    private final ApiKeyRateLimiter rateLimiter;
+    private final PromptTokenizer promptTokenizer;
+    private final Map<String, LLMService> modelViews = new ConcurrentHashMap<>();
 
     @Autowired
-    public LLMProxyFactory(OpenAIService openAIService, GeminiService geminiService) {
-        this.serviceMap = new HashMap<>();
-        
+    public LLMProxyFactory(OpenAIService openAIService, GeminiService geminiService, HedgePolicy hedgePolicy,
+                           ModelRouter modelRouter, ApiKeyRateLimiter rateLimiter, PromptTokenizer promptTokenizer,
+                           ResilienceProperties resilienceProperties, MeterRegistry meterRegistry) {
+        this.serviceMap = new LinkedHashMap<>();
+        this.hedgePolicy = hedgePolicy;
+        this.modelRouter = modelRouter;
+        this.rateLimiter = rateLimiter;
+        this.promptTokenizer = promptTokenizer;
+
+        LLMService openAI = openAIService;
+        LLMService gemini = geminiService;
+        if (resilienceProperties.enabled()) {
+            openAI = new ResilientLLMService(openAIService, resilienceProperties, meterRegistry);
+            gemini = new ResilientLLMService(geminiService, resilienceProperties, meterRegistry);
+        }
+
         // Register available services
-        serviceMap.put("openai", openAIService);
-        serviceMap.put("gpt", openAIService);      // Alternative name for OpenAI
-        serviceMap.put("gemini", geminiService);
-        serviceMap.put("google", geminiService);   // Alternative name for Gemini
+        serviceMap.put("openai", openAI);
+        serviceMap.put("gpt", openAI);      // Alternative name for OpenAI
+        serviceMap.put("gemini", gemini);
+        serviceMap.put("google", gemini);   // Alternative name for Gemini
         
         log.info("LLMProxyFactory initialized with {} providers: {}", 
                 serviceMap.size(), serviceMap.keySet());
@@ -62,6 +97,95 @@ public class LLMProxyFactory {
         return service;
     }
 
+    /**
+     * Gets the LLM service for a request that may carry keys for several providers.
+     *
+     * When hedging is enabled and {@code providerKeys} holds a key for a provider
+     * other than the primary, the returned service races the two: the secondary is
+     * only called if the primary is slow or fails, and only if that key's rate
+     * limit allows it. Otherwise this is the same as {@link #getService(String)}.
+     *
+     * @param provider The primary provider name
+     * @param providerKeys Additional API keys by provider name, may be null
+     * @return The LLMService to use for this request
+     * @throws IllegalArgumentException if the primary provider is not supported
+     */
+    public LLMService getService(String provider, Map<String, String> providerKeys) {
+        return hedge(getService(provider), providerKeys);
+    }
+
+    /**
+     * Gets the LLM service for a request, routed to the model that suits it and
+     * hedged as in {@link #getService(String, Map)}. Only the primary is routed;
+     * a hedge goes to the secondary provider's default model.
+     *
+     * @param provider The primary provider name
+     * @param providerKeys Additional API keys by provider name, may be null
+     * @param messages The conversation that will be sent
+     * @param latencySlo Latency the client asked for, or null for none
+     * @return The LLMService to use for this request
+     * @throws IllegalArgumentException if the primary provider is not supported
+     */
+    public LLMService getService(String provider, Map<String, String> providerKeys,
+                                 List<ChatMessage> messages, Duration latencySlo) {
+        return hedge(route(getService(provider), messages, latencySlo), providerKeys);
+    }
+
+    /**
+     * Gets the view of a provider's service for the model chosen by the
+     * {@link ModelRouter} for this request.
+     *
+     * @param service A service returned by {@link #getService(String)}
+     * @param messages The conversation that will be sent
+     * @param latencySlo Latency the client asked for, or null for none
+     * @return The service for the chosen model; {@code service} itself if that is its own model
+     */
+    public LLMService route(LLMService service, List<ChatMessage> messages, Duration latencySlo) {
+        String model = modelRouter.choose(service, messages, latencySlo);
+        if (model.equals(service.getModelName())) {
+            return service;
+        }
+        return modelViews.computeIfAbsent(service.getProviderName() + '/' + model,
+                key -> service.withModel(model));
+    }
+
+    private LLMService hedge(LLMService primary, Map<String, String> providerKeys) {
+        if (!hedgePolicy.isEnabled() || providerKeys == null || providerKeys.isEmpty()) {
+            return primary;
+        }
+
+        for (Map.Entry<String, String> entry : providerKeys.entrySet()) {
+            if (!isProviderSupported(entry.getKey()) || entry.getValue() == null || entry.getValue().isBlank()) {
+                continue;
+            }
+            LLMService secondary = getService(entry.getKey());
+            if (secondary != primary) {
+                log.debug("Hedging provider {} with {}", primary.getProviderName(), secondary.getProviderName());
+                String secondaryKey = entry.getValue();
+                return new HedgedLLMService(primary, secondary, secondaryKey, hedgePolicy,
+                        messages -> rateLimiter.acquire(secondary.getProviderName(), secondaryKey,
+                                promptTokenizer.counterFor(secondary).count(messages)));
+            }
+        }
+        return primary;
+    }
+
+    /**
+     * Gets the health of every registered provider, one entry per provider
+     * regardless of how many names it is registered under.
+     *
+     * @return Provider health snapshots in registration order
+     */
+    public List<ProviderHealth> getProviderHealth() {
+        List<ProviderHealth> health = new ArrayList<>();
+        for (LLMService service : new LinkedHashSet<>(serviceMap.values())) {
+            health.add(service instanceof ResilientLLMService resilient
+                    ? resilient.health()
+                    : new ProviderHealth(service.getProviderName(), "disabled", -1, -1));
+        }
+        return health;
+    }
+
     /**
      * Gets all available provider names.
      * 
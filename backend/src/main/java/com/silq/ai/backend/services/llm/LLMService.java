@@ -1,5 +1,9 @@
 package com.silq.ai.backend.services.llm;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * Defines the contract for a generic Large Language Model (LLM) service.
  *
@@ -9,11 +13,113 @@ package com.silq.ai.backend.services.llm;
 public interface LLMService {
 
     /**
-     * Generates a response from the LLM based on a user prompt.
+     * Content returned when the provider answered but no text could be found.
+     */
+    String NO_CONTENT_RESPONSE = "No response content found.";
+
+    /**
+     * Content returned when the provider's response body could not be parsed.
+     */
+    String PARSE_ERROR_RESPONSE = "Error parsing response.";
+
+    /**
+     * Gets the canonical name of the provider behind this service.
+     *
+     * @return The provider name, e.g. "openai"
+     */
+    String getProviderName();
+
+    /**
+     * Gets the model this service sends requests to.
      *
-     * @param engineeredPrompt The processed prompt ready for AI consumption.
+     * @return The upstream model identifier
+     */
+    String getModelName();
+
+    /**
+     * Gets a service that sends requests to another model of the same provider.
+     *
+     * Services that can only reach one model return themselves when asked for
+     * that model and reject any other.
+     *
+     * @param model The upstream model identifier
+     * @return A service for {@code model}; this service if it already uses it
+     * @throws IllegalArgumentException if the provider cannot serve {@code model}
+     */
+    default LLMService withModel(String model) {
+        if (model.equals(getModelName())) {
+            return this;
+        }
+        throw new IllegalArgumentException(
+                String.format("Provider '%s' cannot serve model '%s'", getProviderName(), model));
+    }
+
+    /**
+     * Generates a response from the LLM based on a conversation.
+     *
+     * @param messages The conversation to continue, oldest first; the last message is the user's request.
      * @param userApiKey The API key for authenticating with the LLM provider.
      * @return The response content generated by the LLM.
      */
-    String generateResponse(String engineeredPrompt, String userApiKey);
+    String generateResponse(List<ChatMessage> messages, String userApiKey);
+
+    /**
+     * Generates a response without blocking the calling thread.
+     *
+     * The upstream exchange runs on the HTTP client's non-blocking I/O, so no
+     * thread is held while waiting for the provider. The returned future
+     * completes exceptionally if the call fails or exceeds the total timeout.
+     *
+     * @param messages The conversation to continue, oldest first; the last message is the user's request.
+     * @param userApiKey The API key for authenticating with the LLM provider.
+     * @return A future completed with the response content generated by the LLM.
+     */
+    default CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey) {
+        return generateResponseAsync(messages, userApiKey, Deadline.none());
+    }
+
+    /**
+     * Generates a response without blocking the calling thread, within a deadline.
+     *
+     * Timeouts are capped by the time the deadline leaves, and the upstream
+     * exchange is aborted once the deadline expires or is cancelled. Cancelling
+     * the returned future aborts it too.
+     *
+     * @param messages The conversation to continue, oldest first; the last message is the user's request.
+     * @param userApiKey The API key for authenticating with the LLM provider.
+     * @param deadline The time the caller still allows, and whether it is still waiting.
+     * @return A future completed with the response content generated by the LLM.
+     */
+    CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey, Deadline deadline);
+
+    /**
+     * Streams a response from the LLM using the provider's incremental API.
+     *
+     * Each text delta is handed to {@code onDelta} as soon as it is decoded from
+     * the upstream body; nothing is buffered until the completion finishes. The
+     * call blocks until the upstream stream ends.
+     *
+     * @param messages The conversation to continue, oldest first; the last message is the user's request.
+     * @param userApiKey The API key for authenticating with the LLM provider.
+     * @param onDelta Callback invoked with every non-empty text delta, in order.
+     * @return The full response content, i.e. the concatenation of all deltas.
+     */
+    default String streamResponse(List<ChatMessage> messages, String userApiKey, Consumer<String> onDelta) {
+        return streamResponse(messages, userApiKey, Deadline.none(), onDelta);
+    }
+
+    /**
+     * Streams a response within a deadline.
+     *
+     * Once the deadline expires or is cancelled the upstream exchange is
+     * aborted, whether it is still waiting for the first byte or reading the
+     * body, and the call fails.
+     *
+     * @param messages The conversation to continue, oldest first; the last message is the user's request.
+     * @param userApiKey The API key for authenticating with the LLM provider.
+     * @param deadline The time the caller still allows, and whether it is still waiting.
+     * @param onDelta Callback invoked with every non-empty text delta, in order.
+     * @return The full response content, i.e. the concatenation of all deltas.
+     */
+    String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline, Consumer<String> onDelta);
 }
@@ -0,0 +1,35 @@
+package com.silq.ai.backend.services.llm;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports whether any provider can currently take traffic.
+ *
+ * The node is UP while at least one provider has a closed or half-open circuit
+ * and spare concurrency, and OUT_OF_SERVICE when every provider is either
+ * tripped or saturated. Appears as {@code llmProviders} under
+ * {@code /actuator/health} and in the readiness group.
+ */
+@Component
+public class LlmProvidersHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private LLMProxyFactory llmProxyFactory;
+
+    @Override
+    public Health health() {
+        List<ProviderHealth> providers = llmProxyFactory.getProviderHealth();
+        boolean anyAvailable = providers.stream().anyMatch(ProviderHealth::isAvailable);
+
+        Health.Builder builder = anyAvailable ? Health.up() : Health.outOfService();
+        for (ProviderHealth provider : providers) {
+            builder.withDetail(provider.provider(), provider);
+        }
+        return builder.build();
+    }
+}
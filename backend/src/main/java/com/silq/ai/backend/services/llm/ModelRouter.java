@@ -0,0 +1,252 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.RoutingProperties;
+import com.silq.ai.backend.config.TokenizerProperties;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses which of a provider's models serves a request.
+ *
+ * The configured routes are ordered from fastest to largest. A request starts
+ * on the first route whose {@code maxPromptTokens} covers its prompt, so short
+ * edits go to the fast model and long rewrites to the larger one. Routes whose
+ * context window cannot hold the prompt are never chosen. From there:
+ * <ul>
+ *   <li>if the model's recent error rate is above {@code maxErrorRate}, the
+ *       nearest healthy route is used instead, larger ones first;</li>
+ *   <li>if the client sent a latency SLO and the model's average latency
+ *       exceeds it, the healthy route with the lowest average latency is used
+ *       when that one is faster.</li>
+ * </ul>
+ * Latency and error rate are exponentially weighted moving averages fed by
+ * {@link #record} with the duration of each upstream call. A model without
+ * samples has no known latency: it keeps requests routed to it by size, so it
+ * gets tried, but is never picked as the faster route for an SLO. An avoided
+ * model's error rate decays with {@code errorHalfLife} so it is tried again
+ * once the provider recovers.
+ *
+ * Publishes {@code silq.routing.decisions} (tagged by provider, model and
+ * reason: size, errors or slo) and the {@code silq.routing.latency} and
+ * {@code silq.routing.error.rate} averages per provider and model.
+ */
+@Component
+public class ModelRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRouter.class);
+
+    private final RoutingProperties properties;
+    private final TokenizerProperties tokenizerProperties;
+    private final PromptTokenizer promptTokenizer;
+    private final MeterRegistry meterRegistry;
+    private final long errorHalfLifeNanos;
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+
+    public ModelRouter(RoutingProperties properties, TokenizerProperties tokenizerProperties,
+                       PromptTokenizer promptTokenizer, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenizerProperties = tokenizerProperties;
+        this.promptTokenizer = promptTokenizer;
+        this.meterRegistry = meterRegistry;
+        this.errorHalfLifeNanos = Math.max(1, properties.errorHalfLife().toNanos());
+
+        if (properties.enabled()) {
+            properties.providers().forEach((provider, routes) ->
+                    routes.forEach(route -> statsFor(provider, route.model())));
+            log.info("Model routing enabled for providers: {}", properties.providers().keySet());
+        }
+    }
+
+    /**
+     * Chooses the model for one request.
+     *
+     * @param service The provider's service with its default model
+     * @param messages The conversation that will be sent
+     * @param latencySlo Latency the client asked for, or null for none
+     * @return The upstream model identifier to use; the service's own model when
+     *         routing is disabled or the provider has no routes
+     */
+    public String choose(LLMService service, List<ChatMessage> messages, Duration latencySlo) {
+        String provider = service.getProviderName();
+        List<RoutingProperties.Route> routes = properties.routesFor(provider);
+        if (!properties.enabled() || routes.isEmpty()) {
+            return service.getModelName();
+        }
+
+        int promptTokens = promptTokenizer.counterFor(service).count(messages);
+        long now = System.nanoTime();
+        int count = routes.size();
+        boolean[] eligible = new boolean[count];
+        boolean[] healthy = new boolean[count];
+        double[] latencyMs = new double[count];
+        for (int i = 0; i < count; i++) {
+            String model = routes.get(i).model();
+            ModelStats modelStats = statsFor(provider, model);
+            eligible[i] = promptTokens <= tokenizerProperties.modelFor(model).promptBudget();
+            healthy[i] = eligible[i] && modelStats.errorRate(now, errorHalfLifeNanos) <= properties.maxErrorRate();
+            latencyMs[i] = modelStats.latencyMs();
+        }
+
+        int chosen = bySize(routes, promptTokens, eligible);
+        String reason = "size";
+
+        if (!healthy[chosen]) {
+            int alternative = nearestHealthy(chosen, healthy);
+            if (alternative >= 0) {
+                chosen = alternative;
+                reason = "errors";
+            }
+        }
+
+        // Comparisons with an unknown (NaN) latency are false, so unsampled models neither trigger nor win this
+        if (latencySlo != null && latencyMs[chosen] > latencySlo.toMillis()) {
+            int fastest = chosen;
+            for (int i = 0; i < count; i++) {
+                if (healthy[i] && latencyMs[i] < latencyMs[fastest]) {
+                    fastest = i;
+                }
+            }
+            if (fastest != chosen) {
+                chosen = fastest;
+                reason = "slo";
+            }
+        }
+
+        String model = routes.get(chosen).model();
+        Counter.builder("silq.routing.decisions")
+                .description("Requests routed to a model, by the rule that decided")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Routed {} prompt tokens to {}/{} ({})", promptTokens, provider, model, reason);
+        return model;
+    }
+
+    /**
+     * Feeds the outcome of a finished upstream call into its model's averages.
+     * Rejected and cancelled calls say nothing about the model and are left
+     * out; cache hits and time spent queued before the call should not be
+     * recorded either.
+     *
+     * @param service The service that handled the call
+     * @param latencyNanos Time the upstream call took
+     * @param error The failure, or null on success
+     */
+    public void record(LLMService service, long latencyNanos, Throwable error) {
+        if (!properties.enabled()) {
+            return;
+        }
+        String outcome = ChatMetrics.outcomeOf(error);
+        boolean failed = "error".equals(outcome) || "timeout".equals(outcome);
+        if (!failed && error != null) {
+            return;
+        }
+        statsFor(service.getProviderName(), service.getModelName()).record(
+                latencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1), failed,
+                properties.latencyWeight(), properties.errorWeight(), errorHalfLifeNanos);
+    }
+
+    /**
+     * Gets the first route whose size preference covers the prompt, moving on to
+     * larger routes if that one cannot hold it.
+     */
+    private static int bySize(List<RoutingProperties.Route> routes, int promptTokens, boolean[] eligible) {
+        int preferred = routes.size() - 1;
+        for (int i = 0; i < routes.size(); i++) {
+            if (promptTokens <= routes.get(i).maxPromptTokens()) {
+                preferred = i;
+                break;
+            }
+        }
+        for (int i = preferred; i < routes.size(); i++) {
+            if (eligible[i]) {
+                return i;
+            }
+        }
+        // Nothing larger fits either; the prompt will be truncated for the preferred model
+        return preferred;
+    }
+
+    /**
+     * Gets the closest healthy route to {@code from}, searching larger routes
+     * first since they can take any prompt the smaller ones can.
+     */
+    private static int nearestHealthy(int from, boolean[] healthy) {
+        for (int i = from + 1; i < healthy.length; i++) {
+            if (healthy[i]) {
+                return i;
+            }
+        }
+        for (int i = from - 1; i >= 0; i--) {
+            if (healthy[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ModelStats statsFor(String provider, String model) {
+        return stats.computeIfAbsent(provider + '/' + model, key -> {
+            ModelStats modelStats = new ModelStats();
+            Gauge.builder("silq.routing.latency", modelStats, ModelStats::latencyMs)
+                    .description("Moving average of request latency per model")
+                    .tag("provider", provider)
+                    .tag("model", model)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("silq.routing.error.rate", modelStats,
+                            s -> s.errorRate(System.nanoTime(), errorHalfLifeNanos))
+                    .description("Moving average of the request failure rate per model")
+                    .tag("provider", provider)
+                    .tag("model", model)
+                    .register(meterRegistry);
+            return modelStats;
+        });
+    }
+
+    /**
+     * Moving averages of one model's latency and error rate.
+     */
+    private static final class ModelStats {
+
+        private double latencyMs = Double.NaN;
+        private double errorRate;
+        private long updatedNanos = System.nanoTime();
+
+        synchronized void record(double sampleMs, boolean failed, double latencyWeight,
+                                 double errorWeight, long halfLifeNanos) {
+            long now = System.nanoTime();
+            errorRate = errorRate(now, halfLifeNanos) * (1 - errorWeight) + (failed ? errorWeight : 0);
+            updatedNanos = now;
+            // Failures often end early or at a timeout, so only successes shape the latency
+            if (!failed) {
+                latencyMs = Double.isNaN(latencyMs) ? sampleMs : latencyMs + latencyWeight * (sampleMs - latencyMs);
+            }
+        }
+
+        /**
+         * Gets the average latency, or NaN before the first successful sample.
+         */
+        synchronized double latencyMs() {
+            return latencyMs;
+        }
+
+        synchronized double errorRate(long now, long halfLifeNanos) {
+            return errorRate * Math.pow(0.5, (double) Math.max(0, now - updatedNanos) / halfLifeNanos);
+        }
+    }
+}
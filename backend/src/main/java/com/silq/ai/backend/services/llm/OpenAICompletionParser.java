@@ -0,0 +1,116 @@
+package com.silq.ai.backend.services.llm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Single-pass decoder for OpenAI chat completion responses and stream chunks.
+ *
+ * Walks the token stream once and keeps only {@code choices[0].message.content}
+ * (or {@code choices[0].delta.content} for a stream chunk),
+ * {@code choices[0].finish_reason} and the {@code usage} counts; ids, logprobs,
+ * further choices and any fields added to the API later are skipped without
+ * being materialized.
+ */
+final class OpenAICompletionParser {
+
+    private final JsonParser parser;
+    private String content;
+    private String finishReason;
+    private TokenUsage usage;
+
+    private OpenAICompletionParser(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses a complete response body. The parser is closed afterwards.
+     *
+     * @param parser Parser positioned before the root object
+     * @return The extracted content, finish reason and usage
+     * @throws IOException if the body is not a JSON object
+     */
+    static CompletionResult parse(JsonParser parser) throws IOException {
+        try (parser) {
+            return new OpenAICompletionParser(parser).parseRoot();
+        }
+    }
+
+    private CompletionResult parseRoot() throws IOException {
+        JsonTokens.expectObject(parser, parser.nextToken());
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                parseChoices();
+            } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                parseUsage();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new CompletionResult(content, finishReason, usage);
+    }
+
+    private void parseChoices() throws IOException {
+        if (!JsonTokens.nextElement(parser)) {
+            return;
+        }
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            parseFirstChoice();
+        } else {
+            parser.skipChildren();
+        }
+        JsonTokens.skipRestOfArray(parser);
+    }
+
+    private void parseFirstChoice() throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if (("message".equals(field) || "delta".equals(field)) && value == JsonToken.START_OBJECT) {
+                parseMessage();
+            } else if ("finish_reason".equals(field) && value == JsonToken.VALUE_STRING) {
+                finishReason = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void parseMessage() throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if ("content".equals(field) && value == JsonToken.VALUE_STRING) {
+                content = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void parseUsage() throws IOException {
+        int prompt = 0;
+        int completion = 0;
+        int total = 0;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "prompt_tokens" -> prompt = parser.getIntValue();
+                case "completion_tokens" -> completion = parser.getIntValue();
+                case "total_tokens" -> total = parser.getIntValue();
+                default -> {
+                    // Other counters are not tracked
+                }
+            }
+        }
+        usage = new TokenUsage(prompt, completion, total);
+    }
+}
@@ -1,78 +1,230 @@
 package com.silq.ai.backend.services.llm;
 
+import com.silq.ai.backend.config.OutboundHttpMetrics;
+import com.silq.ai.backend.config.OutboundHttpProperties;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service("openai")
 public class OpenAIService implements LLMService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String CHAT_COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String STREAM_DONE = "[DONE]";
     private static final String DEFAULT_MODEL = "gpt-3.5-turbo";
 
-    @Autowired
-    private RestTemplate restTemplate;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final HttpClient outboundHttpClient;
+    private final OutboundHttpMetrics outboundHttpMetrics;
+    private final OutboundHttpProperties httpProperties;
+    private final ChatMetrics chatMetrics;
+    private final String baseUrl;
+    private final String model;
+
+    public OpenAIService(RestTemplate restTemplate, ObjectMapper objectMapper, HttpClient outboundHttpClient,
+                         OutboundHttpMetrics outboundHttpMetrics, OutboundHttpProperties httpProperties,
+                         ChatMetrics chatMetrics,
+                         @Value("${silq.llm.openai.base-url:https://api.openai.com}") String baseUrl,
+                         @Value("${silq.llm.openai.model:" + DEFAULT_MODEL + "}") String model) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.outboundHttpClient = outboundHttpClient;
+        this.outboundHttpMetrics = outboundHttpMetrics;
+        this.httpProperties = httpProperties;
+        this.chatMetrics = chatMetrics;
+        this.baseUrl = baseUrl;
+        this.model = model;
+    }
 
     @Override
-    public String generateResponse(String engineeredPrompt, String userApiKey) {
-        // Set headers
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(userApiKey);
+    public String getProviderName() {
+        return "openai";
+    }
 
-        // Create the request body
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", DEFAULT_MODEL);
-        requestBody.put("messages", List.of(
-            Map.of("role", "user", "content", engineeredPrompt)
-        ));
+    @Override
+    public String getModelName() {
+        return model;
+    }
 
+    /**
+     * Gets a copy of this service that sends requests to another OpenAI model,
+     * sharing this service's HTTP clients and metrics.
+     */
+    @Override
+    public LLMService withModel(String model) {
+        if (model.equals(this.model)) {
+            return this;
+        }
+        return new OpenAIService(restTemplate, objectMapper, outboundHttpClient, outboundHttpMetrics, httpProperties,
+                chatMetrics, baseUrl, model);
+    }
+
+    @Override
+    public String generateResponse(List<ChatMessage> messages, String userApiKey) {
         // Create the HTTP entity
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(
+                buildRequestBody(messages, false), buildHeaders(userApiKey));
 
+        long start = System.nanoTime();
         try {
             // Make the API call
-            log.info("Sending request to OpenAI API");
-            ResponseEntity<Map> response = restTemplate.exchange(OPENAI_API_URL, HttpMethod.POST, entity, Map.class);
-            log.info("Received successful response from OpenAI API");
+            log.debug("Sending request to OpenAI API");
+            // Decode the body straight off the stream, keeping only what we use
+            CompletionResult result = restTemplate.execute(baseUrl + CHAT_COMPLETIONS_PATH, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(entity),
+                    response -> OpenAICompletionParser.parse(objectMapper.getFactory().createParser(response.getBody())));
+            log.debug("Received successful response from OpenAI API");
+            chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
 
-            // Extract the content from the response
-            return extractContentFromResponse(response);
+            return contentOf(result);
 
         } catch (Exception e) {
+            chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                    ChatMetrics.outcomeOf(e), System.nanoTime() - start);
             log.error("Error calling OpenAI API: {}", e.getMessage());
             throw new RuntimeException("Failed to generate response from OpenAI: " + e.getMessage(), e);
         }
     }
 
-    private String extractContentFromResponse(ResponseEntity<Map> response) {
-        try {
-            Map<String, Object> body = response.getBody();
-            if (body != null && body.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    if (firstChoice.containsKey("message")) {
-                        Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-                        if (message.containsKey("content")) {
-                            return (String) message.get("content");
+    @Override
+    public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                           Deadline deadline) {
+        log.debug("Sending async request to OpenAI API");
+        long start = System.nanoTime();
+        CompletableFuture<byte[]> exchange = AsyncJsonExchange.post(outboundHttpClient, outboundHttpMetrics, objectMapper,
+                URI.create(baseUrl + CHAT_COMPLETIONS_PATH),
+                Map.of(HttpHeaders.AUTHORIZATION, "Bearer " + userApiKey),
+                buildRequestBody(messages, false),
+                httpProperties.readTimeout(), httpProperties.totalTimeout(), deadline);
+
+        return AsyncJsonExchange.abortOnFailure(exchange, exchange
+                .thenApply(body -> {
+                    chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
+                    return chatMetrics.timeParse(getProviderName(), getModelName(), body, this::extractContentFromResponse);
+                })
+                .handle((content, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                                ChatMetrics.outcomeOf(cause), System.nanoTime() - start);
+                        if (cause instanceof CancellationException) {
+                            log.debug("OpenAI API call cancelled");
+                            throw (CancellationException) cause;
                         }
+                        log.error("Error calling OpenAI API: {}", cause.getMessage());
+                        throw new RuntimeException("Failed to generate response from OpenAI: " + cause.getMessage(), cause);
                     }
-                }
+                    log.debug("Received successful async response from OpenAI API");
+                    return content;
+                }));
+    }
+
+    @Override
+    public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                 Consumer<String> onDelta) {
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(
+                buildRequestBody(messages, true), buildHeaders(userApiKey));
+        StringBuilder fullContent = new StringBuilder();
+
+        long start = System.nanoTime();
+        try {
+            log.debug("Sending streaming request to OpenAI API");
+            restTemplate.execute(baseUrl + CHAT_COMPLETIONS_PATH, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(entity), response -> {
+                        ServerSentEvents.forEachData(response.getBody(), deadline, data -> {
+                            if (STREAM_DONE.equals(data)) {
+                                return false;
+                            }
+                            String delta = extractDeltaFromChunk(data);
+                            if (delta != null && !delta.isEmpty()) {
+                                fullContent.append(delta);
+                                onDelta.accept(delta);
+                            }
+                            return true;
+                        });
+                        return null;
+                    });
+            log.debug("Completed streaming response from OpenAI API");
+            chatMetrics.recordUpstream(getProviderName(), getModelName(), "success", System.nanoTime() - start);
+            return fullContent.toString();
+
+        } catch (Exception e) {
+            chatMetrics.recordUpstream(getProviderName(), getModelName(),
+                    ChatMetrics.outcomeOf(e), System.nanoTime() - start);
+            if (e instanceof CancellationException cancelled) {
+                log.debug("OpenAI stream aborted: {}", cancelled.getMessage());
+                throw cancelled;
             }
-            log.warn("No content found in OpenAI response");
-            return "No response content found.";
+            log.error("Error streaming from OpenAI API: {}", e.getMessage());
+            throw new RuntimeException("Failed to stream response from OpenAI: " + e.getMessage(), e);
+        }
+    }
+
+    private HttpHeaders buildHeaders(String userApiKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(userApiKey);
+        return headers;
+    }
+
+    Map<String, Object> buildRequestBody(List<ChatMessage> messages, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        // ChatMessage serializes as {"role", "content"}, which is OpenAI's own message shape
+        requestBody.put("messages", messages);
+        if (stream) {
+            requestBody.put("stream", true);
+        }
+        return requestBody;
+    }
+
+    /**
+     * Pulls the text delta out of a single streamed chunk.
+     */
+    private String extractDeltaFromChunk(String chunk) {
+        try {
+            return OpenAICompletionParser.parse(objectMapper.getFactory().createParser(chunk)).content();
+        } catch (Exception e) {
+            log.warn("Skipping unparseable OpenAI stream chunk: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    String extractContentFromResponse(byte[] body) {
+        try {
+            return contentOf(OpenAICompletionParser.parse(objectMapper.getFactory().createParser(body)));
         } catch (Exception e) {
             log.error("Error parsing OpenAI response: {}", e.getMessage());
-            return "Error parsing response.";
+            return PARSE_ERROR_RESPONSE;
+        }
+    }
+
+    private String contentOf(CompletionResult result) {
+        if (result.usage() != null) {
+            chatMetrics.recordUsage(getProviderName(), getModelName(), result.usage());
+        }
+        if (result.content() == null) {
+            log.warn("No content found in OpenAI response (finish reason: {})", result.finishReason());
+            return NO_CONTENT_RESPONSE;
         }
+        log.debug("OpenAI completion finished: reason={}, usage={}", result.finishReason(), result.usage());
+        return result.content();
     }
 }
@@ -0,0 +1,21 @@
+package com.silq.ai.backend.services.llm;
+
+/**
+ * Point-in-time view of whether a provider can take more traffic.
+ *
+ * @param provider Canonical provider name
+ * @param circuit Circuit breaker state: closed, open, half_open, or disabled when no breaker is installed
+ * @param inFlight Calls currently in flight, or -1 if not tracked
+ * @param limit Current concurrency limit, or -1 if unlimited
+ */
+public record ProviderHealth(String provider, String circuit, int inFlight, int limit) {
+
+    /**
+     * Checks whether a new call to this provider would be admitted right now.
+     *
+     * @return true unless the circuit is open or the concurrency limit is saturated
+     */
+    public boolean isAvailable() {
+        return !"open".equals(circuit) && (limit < 0 || inFlight < limit);
+    }
+}
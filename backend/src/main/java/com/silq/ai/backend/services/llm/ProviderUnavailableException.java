@@ -0,0 +1,52 @@
+package com.silq.ai.backend.services.llm;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call is rejected before reaching the provider because its
+ * circuit breaker is open or its concurrency limit is exhausted.
+ *
+ * The rejection is immediate, so callers can answer with 503 and a
+ * Retry-After hint instead of waiting for the provider to time out.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final Duration retryAfter;
+    private final boolean concurrencyLimited;
+
+    public ProviderUnavailableException(String provider, String reason, Duration retryAfter) {
+        this(provider, reason, retryAfter, false);
+    }
+
+    public ProviderUnavailableException(String provider, String reason, Duration retryAfter,
+                                        boolean concurrencyLimited) {
+        super(String.format("Provider '%s' is unavailable: %s", provider, reason));
+        this.provider = provider;
+        this.retryAfter = retryAfter;
+        this.concurrencyLimited = concurrencyLimited;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * Gets how long the caller should wait before trying again.
+     *
+     * @return The suggested back-off, never negative
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Whether the provider is healthy but already has as many calls in flight
+     * as its concurrency limit allows, so a slot frees up as soon as one ends.
+     */
+    public boolean isConcurrencyLimited() {
+        return concurrencyLimited;
+    }
+}
@@ -0,0 +1,418 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Guards a provider with a {@link CircuitBreaker} and a {@link ConcurrencyLimiter}.
+ *
+ * Calls that the breaker or the limiter refuse fail at once with
+ * {@link ProviderUnavailableException}, so a degraded provider costs
+ * microseconds instead of a blocked thread per request. Outcomes are classified
+ * before they are recorded: cancellations and 4xx answers caused by the caller
+ * (bad key, bad request) say nothing about provider health and are ignored;
+ * timeouts and 503 count as overload; anything else is a plain failure. A 429
+ * is ignored too: callers bring their own keys, so it reports that one key's
+ * quota, and counting it would let a single exhausted key open the breaker and
+ * shrink the limit for everyone.
+ *
+ * Calls that fail transiently (429, 5xx, or no connection) are retried
+ * after a randomized exponential backoff ("full jitter", so callers that
+ * failed together do not come back together). Each retry passes the breaker
+ * and the limiter again, so a failing provider is not hammered. A retry only
+ * happens while the caller's {@link Deadline} leaves room for the backoff plus
+ * {@code retry-min-budget}, and a deadline aborted during the backoff ends the
+ * wait at once. Streams are only retried before their first delta, since the
+ * client has already seen what came before.
+ *
+ * Views for other models of the provider ({@link #withModel}) share the
+ * breaker and the limiter, since overload and outages are usually per account
+ * and endpoint rather than per model.
+ *
+ * Publishes {@code silq.llm.circuit.state} (0 closed, 1 open, 2 half-open),
+ * {@code silq.llm.circuit.transitions}, {@code silq.llm.concurrency.limit},
+ * {@code silq.llm.concurrency.in-flight}, {@code silq.llm.rejected} and
+ * {@code silq.llm.retries}, all tagged by provider.
+ */
+class ResilientLLMService implements LLMService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilientLLMService.class);
+    private static final Duration LIMIT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private enum Outcome { SUCCESS, FAILURE, OVERLOAD, IGNORED }
+
+    private final LLMService delegate;
+    private final ResilienceProperties properties;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter limiter;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedByCircuit;
+    private final Counter rejectedByLimit;
+
+    ResilientLLMService(LLMService delegate, ResilienceProperties properties, MeterRegistry meterRegistry) {
+        String provider = delegate.getProviderName();
+        this.delegate = delegate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = new CircuitBreaker(properties, this::onTransition);
+        this.limiter = new ConcurrencyLimiter(properties);
+
+        Gauge.builder("silq.llm.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("silq.llm.concurrency.limit", limiter, ConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("silq.llm.concurrency.in-flight", limiter, ConcurrencyLimiter::inFlight)
+                .description("Provider calls currently in flight")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        this.rejectedByCircuit = rejectedCounter(provider, "circuit_open");
+        this.rejectedByLimit = rejectedCounter(provider, "concurrency_limit");
+    }
+
+    private ResilientLLMService(ResilientLLMService guard, LLMService delegate) {
+        this.delegate = delegate;
+        this.properties = guard.properties;
+        this.meterRegistry = guard.meterRegistry;
+        this.circuitBreaker = guard.circuitBreaker;
+        this.limiter = guard.limiter;
+        this.rejectedByCircuit = guard.rejectedByCircuit;
+        this.rejectedByLimit = guard.rejectedByLimit;
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public LLMService withModel(String model) {
+        LLMService target = delegate.withModel(model);
+        return target == delegate ? this : new ResilientLLMService(this, target);
+    }
+
+    /**
+     * Gets the current breaker state and concurrency usage of this provider.
+     */
+    ProviderHealth health() {
+        return new ProviderHealth(getProviderName(), circuitBreaker.state().name().toLowerCase(),
+                limiter.inFlight(), limiter.limit());
+    }
+
+    @Override
+    public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+        int inFlightAtStart = acquire();
+        long start = System.nanoTime();
+        try {
+            String response = delegate.generateResponse(messages, userApiKey);
+            complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.PER_TOKEN, perToken(start, response),
+                    null);
+            return response;
+        } catch (RuntimeException e) {
+            complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.PER_TOKEN, 0, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                           Deadline deadline) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        attempt(messages, userApiKey, deadline, 1, result);
+        return result;
+    }
+
+    @Override
+    public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                 Consumer<String> onDelta) {
+        // When the first delta arrived; 0 until then. Only attempts without one are retried
+        AtomicLong firstDeltaAt = new AtomicLong();
+        Consumer<String> tracked = delta -> {
+            if (firstDeltaAt.get() == 0) {
+                firstDeltaAt.set(System.nanoTime());
+            }
+            onDelta.accept(delta);
+        };
+        for (int attempt = 1; ; attempt++) {
+            int inFlightAtStart = acquire();
+            long start = System.nanoTime();
+            try {
+                String response = delegate.streamResponse(messages, userApiKey, deadline, tracked);
+                long firstDelta = firstDeltaAt.get();
+                complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.FIRST_DELTA,
+                        (firstDelta != 0 ? firstDelta : System.nanoTime()) - start, null);
+                return response;
+            } catch (RuntimeException e) {
+                complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.FIRST_DELTA, 0, e);
+                Duration backoff = backoff(attempt);
+                if (firstDeltaAt.get() != 0 || !shouldRetry(e, attempt, deadline, backoff)) {
+                    throw e;
+                }
+                if (!awaitBackoff(backoff, deadline)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits out a retry backoff, or until the deadline is aborted.
+     *
+     * @return false if the thread was interrupted while waiting
+     * @throws CancellationException The deadline's abort cause, if it was aborted while waiting
+     */
+    private static boolean awaitBackoff(Duration backoff, Deadline deadline) {
+        CompletableFuture<Void> aborted = new CompletableFuture<>();
+        Deadline.Registration abort = deadline.onAbort(() -> aborted.complete(null));
+        try {
+            aborted.get(backoff.toNanos(), TimeUnit.NANOSECONDS);
+            throw deadline.abortCause();
+        } catch (TimeoutException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            abort.close();
+        }
+    }
+
+    /**
+     * Makes one guarded call and, if it fails transiently, schedules the next.
+     */
+    private void attempt(List<ChatMessage> messages, String userApiKey, Deadline deadline, int attempt,
+                         CompletableFuture<String> result) {
+        if (result.isDone()) {
+            return;
+        }
+        int inFlightAtStart;
+        try {
+            inFlightAtStart = acquire();
+        } catch (ProviderUnavailableException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<String> call;
+        try {
+            call = delegate.generateResponseAsync(messages, userApiKey, deadline);
+        } catch (RuntimeException e) {
+            complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.PER_TOKEN, 0, e);
+            result.completeExceptionally(e);
+            return;
+        }
+        // Cancelling the caller's future aborts the attempt in flight
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        call.whenComplete((response, error) -> {
+            complete(inFlightAtStart, start, ConcurrencyLimiter.Signal.PER_TOKEN,
+                    error == null ? perToken(start, response) : 0, error);
+            if (error == null) {
+                result.complete(response);
+                return;
+            }
+            Duration backoff = backoff(attempt);
+            if (!result.isDone() && shouldRetry(error, attempt, deadline, backoff)) {
+                // Fail at once if the deadline is aborted during the backoff, rather than when it ends
+                Deadline.Registration abort = deadline.onAbort(() ->
+                        result.completeExceptionally(deadline.abortCause()));
+                CompletableFuture.delayedExecutor(backoff.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                    abort.close();
+                    attempt(messages, userApiKey, deadline, attempt + 1, result);
+                });
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Decides whether a failed attempt is retried, and counts the decision.
+     */
+    private boolean shouldRetry(Throwable error, int attempt, Deadline deadline, Duration backoff) {
+        if (!isTransient(error)) {
+            return false;
+        }
+        String decision;
+        if (attempt >= properties.retryMaxAttempts()) {
+            decision = "exhausted";
+        } else if (deadline.isAborted()
+                || deadline.remaining().compareTo(backoff.plus(properties.retryMinBudget())) < 0) {
+            decision = "no_budget";
+        } else {
+            decision = "retried";
+            log.info("Retrying {} call in {} ms after attempt {} failed: {}",
+                    getProviderName(), backoff.toMillis(), attempt, error.getMessage());
+        }
+        Counter.builder("silq.llm.retries")
+                .description("Transient provider failures, by whether they were retried")
+                .tag("provider", getProviderName())
+                .tag("decision", decision)
+                .register(meterRegistry)
+                .increment();
+        return "retried".equals(decision);
+    }
+
+    /**
+     * Full jitter: uniform between zero and the exponential bound for this attempt.
+     */
+    private Duration backoff(int attempt) {
+        long bound = properties.retryBaseDelay().toNanos() << Math.min(attempt - 1, 20);
+        bound = Math.min(bound, properties.retryMaxDelay().toNanos());
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    /**
+     * Whether a failure is worth retrying: throttling, server errors and failed
+     * connects. Timeouts are not, since the provider may still be working on the
+     * request and a second attempt would pay for it twice.
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof ProviderUnavailableException) {
+                return false;
+            }
+            if (cause instanceof HttpStatusCodeException statusError) {
+                int status = statusError.getStatusCode().value();
+                return status == HttpStatus.TOO_MANY_REQUESTS.value() || statusError.getStatusCode().is5xxServerError();
+            }
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int acquire() {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedByCircuit.increment();
+            throw new ProviderUnavailableException(getProviderName(), "circuit open",
+                    circuitBreaker.remainingOpenTime());
+        }
+        int inFlightAtStart = limiter.tryAcquire();
+        if (inFlightAtStart == 0) {
+            circuitBreaker.onIgnored();
+            rejectedByLimit.increment();
+            throw new ProviderUnavailableException(getProviderName(), "concurrency limit reached",
+                    LIMIT_RETRY_AFTER, true);
+        }
+        return inFlightAtStart;
+    }
+
+    /**
+     * Records a finished attempt with the breaker and the limiter.
+     *
+     * @param sampleNanos The limiter's latency sample of kind {@code signal}; unused on failure
+     */
+    private void complete(int inFlightAtStart, long startNanos, ConcurrencyLimiter.Signal signal, long sampleNanos,
+                          Throwable error) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        switch (classify(error)) {
+            case SUCCESS -> {
+                circuitBreaker.onResult(false, latencyNanos);
+                limiter.onComplete(inFlightAtStart, getModelName(), signal, sampleNanos, false);
+            }
+            case OVERLOAD -> {
+                circuitBreaker.onResult(true, latencyNanos);
+                limiter.onComplete(inFlightAtStart, getModelName(), signal, sampleNanos, true);
+            }
+            case FAILURE -> {
+                circuitBreaker.onResult(true, latencyNanos);
+                limiter.onIgnored();
+            }
+            case IGNORED -> {
+                circuitBreaker.onIgnored();
+                limiter.onIgnored();
+            }
+        }
+    }
+
+    /**
+     * Gets the duration of a plain call per token of its answer, so that a long
+     * answer does not read as a slow provider.
+     */
+    private static long perToken(long startNanos, String response) {
+        return (System.nanoTime() - startNanos) / Math.max(1, TokenEstimates.of(response));
+    }
+
+    private static Outcome classify(Throwable error) {
+        if (error == null) {
+            return Outcome.SUCCESS;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return Outcome.IGNORED;
+            }
+            if (cause instanceof HttpStatusCodeException statusError) {
+                if (statusError.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                    return Outcome.OVERLOAD;
+                }
+                // 429 included: the caller's own quota, not the provider's health
+                return statusError.getStatusCode().is4xxClientError() ? Outcome.IGNORED : Outcome.FAILURE;
+            }
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException
+                    || cause instanceof ResourceAccessException) {
+                return Outcome.OVERLOAD;
+            }
+        }
+        return Outcome.FAILURE;
+    }
+
+    private void onTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit for provider {} opened ({} -> {})", getProviderName(), from, to);
+        } else {
+            log.info("Circuit for provider {} moved {} -> {}", getProviderName(), from, to);
+        }
+        Counter.builder("silq.llm.circuit.transitions")
+                .description("Circuit breaker state changes")
+                .tag("provider", getProviderName())
+                .tag("from", from.name().toLowerCase())
+                .tag("to", to.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Counter rejectedCounter(String provider, String reason) {
+        return Counter.builder("silq.llm.rejected")
+                .description("Provider calls rejected without contacting the provider")
+                .tag("provider", provider)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,74 @@
+package com.silq.ai.backend.services.llm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Minimal reader for upstream {@code text/event-stream} bodies.
+ *
+ * Both OpenAI ({@code stream: true}) and Gemini ({@code alt=sse}) frame their
+ * incremental responses as SSE events carrying one JSON document per
+ * {@code data:} line, so this is all the protocol the providers need.
+ */
+final class ServerSentEvents {
+
+    private static final String DATA_PREFIX = "data:";
+
+    private ServerSentEvents() {
+    }
+
+    /**
+     * Reads the stream line by line and hands each {@code data:} payload to the
+     * consumer as soon as the line is complete, until the deadline is aborted.
+     *
+     * The body is closed from whichever thread aborts the deadline, which wakes
+     * up a read blocked on the JDK client's body stream. Interrupting the reading
+     * thread would do the same, but an interrupt that lands while a class is being
+     * loaded from the boot jar breaks that class for good.
+     *
+     * @param body The upstream response body
+     * @param deadline The caller's deadline
+     * @param onData Receives the payload of each data line; returning false stops reading
+     * @throws IOException if reading from the upstream body fails
+     * @throws java.util.concurrent.CancellationException if the deadline was aborted
+     */
+    static void forEachData(InputStream body, Deadline deadline, Predicate<String> onData) throws IOException {
+        Deadline.Registration abort = deadline.onAbort(() -> closeQuietly(body));
+        try {
+            readEvents(body, onData);
+        } catch (IOException e) {
+            if (deadline.isAborted()) {
+                throw deadline.abortCause();
+            }
+            throw e;
+        } finally {
+            abort.close();
+        }
+    }
+
+    private static void readEvents(InputStream body, Predicate<String> onData) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith(DATA_PREFIX)) {
+                continue;
+            }
+            String data = line.substring(DATA_PREFIX.length()).trim();
+            if (!data.isEmpty() && !onData.test(data)) {
+                return;
+            }
+        }
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+            // Only closed to abort the read
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.silq.ai.backend.services.llm;
+
+import java.util.List;
+
+/**
+ * Rough token counts for budgeting a request before it is sent.
+ *
+ * Text is counted at about four characters per token, which is close to what
+ * the providers' tokenizers produce for English prose, and each message adds a
+ * few tokens for its role and framing. Cheap enough to run on every request.
+ */
+public final class TokenEstimates {
+
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private TokenEstimates() {
+    }
+
+    /**
+     * Estimates the tokens in a piece of text.
+     */
+    public static int of(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Estimates the tokens a message takes up in a request, including framing.
+     */
+    public static int of(ChatMessage message) {
+        return MESSAGE_OVERHEAD_TOKENS + of(message.content());
+    }
+
+    /**
+     * Estimates the prompt tokens of a whole request.
+     */
+    public static int of(List<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += of(message);
+        }
+        return tokens;
+    }
+}
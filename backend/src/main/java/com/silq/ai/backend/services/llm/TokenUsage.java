@@ -0,0 +1,11 @@
+package com.silq.ai.backend.services.llm;
+
+/**
+ * Token counts reported by a provider for one completion.
+ *
+ * @param promptTokens Tokens in the prompt
+ * @param completionTokens Tokens in the generated answer
+ * @param totalTokens Prompt plus completion, as reported by the provider
+ */
+public record TokenUsage(int promptTokens, int completionTokens, int totalTokens) {
+}
@@ -0,0 +1,249 @@
+package com.silq.ai.backend.services.metrics;
+
+import com.silq.ai.backend.services.admission.AdmissionRejectedException;
+import com.silq.ai.backend.services.context.MissingContextException;
+import com.silq.ai.backend.services.llm.DeadlineExceededException;
+import com.silq.ai.backend.services.llm.ProviderUnavailableException;
+import com.silq.ai.backend.services.llm.TokenUsage;
+import com.silq.ai.backend.services.ratelimit.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Meters for each stage of the chat pipeline.
+ *
+ * End-to-end and upstream latencies are published as percentile histograms, so
+ * the Prometheus endpoint can aggregate them across nodes:
+ * <ul>
+ *   <li>{@code silq.chat.requests} – whole request, by provider, model, mode and outcome</li>
+ *   <li>{@code silq.chat.time-to-first-token} – first streamed delta, by provider and model</li>
+ *   <li>{@code silq.chat.prompt-engineering} – time spent building the engineered prompt</li>
+ *   <li>{@code silq.llm.upstream} – provider round trip, by provider, model and outcome</li>
+ *   <li>{@code silq.llm.parse} – decoding the provider's response body</li>
+ *   <li>{@code silq.chat.payload.size} – prompt and response length in characters</li>
+ *   <li>{@code silq.llm.response.size} – provider response body in bytes</li>
+ *   <li>{@code silq.llm.tokens} – prompt and completion tokens reported by the provider</li>
+ *   <li>{@code silq.chat.errors} – failures by provider and exception type</li>
+ * </ul>
+ */
+@Component
+public class ChatMetrics {
+
+    private static final Duration MIN_REQUEST_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_REQUEST_LATENCY = Duration.ofMinutes(2);
+
+    private final MeterRegistry meterRegistry;
+    private final Timer promptEngineering;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.promptEngineering = Timer.builder("silq.chat.prompt-engineering")
+                .description("Time spent applying prompt engineering")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the prompt-engineering step and records how long it took.
+     *
+     * @param step The prompt-engineering call
+     * @return The engineered prompt
+     */
+    public String timePromptEngineering(Supplier<String> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            promptEngineering.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records a finished chat request.
+     *
+     * @param provider Canonical provider name
+     * @param model Upstream model
+     * @param mode "unary" or "stream"
+     * @param outcome Result category, see {@link #outcomeOf(Throwable)}; "cache_hit" for cached answers,
+     *                "similar_hit" for answers cached for a near-duplicate prompt
+     * @param latencyNanos Time since the request entered the service
+     */
+    public void recordRequest(String provider, String model, String mode, String outcome, long latencyNanos) {
+        Timer.builder("silq.chat.requests")
+                .description("End-to-end chat request latency")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_REQUEST_LATENCY)
+                .maximumExpectedValue(MAX_REQUEST_LATENCY)
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the delay until the first streamed delta reached the client.
+     */
+    public void recordTimeToFirstToken(String provider, String model, long latencyNanos) {
+        Timer.builder("silq.chat.time-to-first-token")
+                .description("Time until the first streamed delta")
+                .tag("provider", provider)
+                .tag("model", model)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_REQUEST_LATENCY)
+                .maximumExpectedValue(MAX_REQUEST_LATENCY)
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records one provider round trip.
+     *
+     * @param outcome Result category, see {@link #outcomeOf(Throwable)}
+     */
+    public void recordUpstream(String provider, String model, String outcome, long latencyNanos) {
+        Timer.builder("silq.llm.upstream")
+                .description("Provider round-trip time")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_REQUEST_LATENCY)
+                .maximumExpectedValue(MAX_REQUEST_LATENCY)
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Parses a provider response body, recording the parse time and the body size.
+     *
+     * @param body The raw response body
+     * @param parser Extracts the content from the body
+     * @return The parsed content
+     */
+    public String timeParse(String provider, String model, byte[] body, Function<byte[], String> parser) {
+        DistributionSummary.builder("silq.llm.response.size")
+                .description("Provider response body size")
+                .baseUnit("bytes")
+                .tag("provider", provider)
+                .register(meterRegistry)
+                .record(body.length);
+
+        long start = System.nanoTime();
+        try {
+            return parser.apply(body);
+        } finally {
+            Timer.builder("silq.llm.parse")
+                    .description("Time spent parsing provider responses")
+                    .tag("provider", provider)
+                    .tag("model", model)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the size of a prompt or response.
+     *
+     * @param direction "prompt" or "response"
+     * @param chars Length in characters
+     */
+    public void recordPayload(String provider, String direction, int chars) {
+        DistributionSummary.builder("silq.chat.payload.size")
+                .description("Chat prompt and response length")
+                .baseUnit("chars")
+                .tag("provider", provider)
+                .tag("direction", direction)
+                .register(meterRegistry)
+                .record(chars);
+    }
+
+    /**
+     * Records the token counts a provider reported for one completion.
+     */
+    public void recordUsage(String provider, String model, TokenUsage usage) {
+        tokens(provider, model, "prompt").record(usage.promptTokens());
+        tokens(provider, model, "completion").record(usage.completionTokens());
+    }
+
+    private DistributionSummary tokens(String provider, String model, String type) {
+        return DistributionSummary.builder("silq.llm.tokens")
+                .description("Tokens reported by the provider per completion")
+                .baseUnit("tokens")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a failure under the type of its innermost cause.
+     */
+    public void recordError(String provider, Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        Counter.builder("silq.chat.errors")
+                .description("Chat failures by exception type")
+                .tag("provider", provider)
+                .tag("type", root.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Maps a failure to the bounded set of outcome tag values.
+     *
+     * @param error The failure, or null for success
+     * @return One of success, invalid, missing_context, throttled, rejected, not_admitted,
+     *         deadline_exceeded, cancelled, timeout or error
+     */
+    public static String outcomeOf(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        // Requests are rejected as invalid synchronously; a failed upstream call may well wrap an IllegalArgumentException
+        if (error instanceof MissingContextException) {
+            return "missing_context";
+        }
+        if (error instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitExceededException) {
+                return "throttled";
+            }
+            if (cause instanceof ProviderUnavailableException) {
+                return "rejected";
+            }
+            if (cause instanceof AdmissionRejectedException) {
+                return "not_admitted";
+            }
+            if (cause instanceof DeadlineExceededException) {
+                return "deadline_exceeded";
+            }
+            if (cause instanceof CancellationException) {
+                return "cancelled";
+            }
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                return "timeout";
+            }
+        }
+        return "error";
+    }
+}
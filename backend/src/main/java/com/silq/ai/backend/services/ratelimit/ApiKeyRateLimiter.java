@@ -0,0 +1,217 @@
+package com.silq.ai.backend.services.ratelimit;
+
+import com.silq.ai.backend.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process rate limiter keyed by a hash of the caller's API key.
+ *
+ * Every key gets two token buckets per provider: requests per minute and
+ * estimated prompt tokens per minute. Each bucket is a GCRA cell, i.e. a single
+ * "theoretical arrival time" that is advanced by compare-and-set, so admission is
+ * lock-free and a throttled caller learns exactly how long to wait. The cells live
+ * in one preallocated {@link AtomicLongArray} per provider, addressed by open
+ * addressing on the key hash; the hot path allocates nothing and only ever
+ * touches the calling key's slot.
+ *
+ * Keys are tracked by a 64-bit hash and never stored. A slot whose buckets are
+ * full again is idle and may be taken over by another key, so the table only has
+ * to hold the keys active within the last minute. If every slot near a key's
+ * home is busy, the key shares its home slot, which is stricter, never looser.
+ *
+ * Decisions are counted as {@code silq.ratelimit.decisions}, tagged by provider
+ * and outcome.
+ */
+@Component
+public class ApiKeyRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyRateLimiter.class);
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderBuckets> buckets = new ConcurrentHashMap<>();
+
+    public ApiKeyRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        log.info("ApiKeyRateLimiter initialized: enabled={}, slots={}, defaults={}, providers={}",
+                properties.enabled(), properties.slots(), properties.defaults(), properties.providers());
+    }
+
+    /**
+     * Charges one request and its estimated prompt tokens to the key's budget.
+     *
+     * @param provider Canonical provider name
+     * @param apiKey The caller's API key for that provider
+     * @param promptTokens Estimated tokens of the prompt that will be sent
+     * @throws RateLimitExceededException if either budget is exhausted; nothing is charged in that case
+     */
+    public void acquire(String provider, String apiKey, int promptTokens) {
+        if (!properties.enabled()) {
+            return;
+        }
+        ProviderBuckets providerBuckets = buckets.get(provider);
+        if (providerBuckets == null) {
+            providerBuckets = buckets.computeIfAbsent(provider, this::createBuckets);
+        }
+
+        long wait = providerBuckets.tryAcquire(hashKey(apiKey), promptTokens, System.nanoTime());
+        if (wait > 0) {
+            providerBuckets.throttledRequests.increment();
+            throw new RateLimitExceededException(provider,
+                    providerBuckets.limits.requestsPerMinute() + " requests", Duration.ofNanos(wait));
+        }
+        if (wait < 0) {
+            providerBuckets.throttledTokens.increment();
+            throw new RateLimitExceededException(provider,
+                    providerBuckets.limits.tokensPerMinute() + " tokens", Duration.ofNanos(-wait));
+        }
+        providerBuckets.allowed.increment();
+    }
+
+    /**
+     * 64-bit FNV-1a over the key's characters with a final avalanche, computed
+     * without allocating. Zero marks an empty slot, so it is never returned.
+     */
+    public static long hashKey(String apiKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < apiKey.length(); i++) {
+            hash = (hash ^ apiKey.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private ProviderBuckets createBuckets(String provider) {
+        return new ProviderBuckets(properties.limitsFor(provider), properties.slots(), provider, meterRegistry);
+    }
+
+    /**
+     * The bucket table for one provider. Slot {@code i} occupies three longs:
+     * the key hash, the request cell and the token cell. Cells hold arrival times
+     * relative to {@code origin}, so zero always means "full bucket".
+     */
+    static final class ProviderBuckets {
+
+        private static final int STRIDE = 3;
+        private static final int KEY = 0;
+        private static final int REQUESTS = 1;
+        private static final int TOKENS = 2;
+        private static final int MAX_PROBES = 8;
+
+        final RateLimitProperties.Limits limits;
+        private final AtomicLongArray table;
+        private final int mask;
+        private final long origin = System.nanoTime() - 1;
+        private final long requestInterval;
+        private final long tokenInterval;
+        private final Counter allowed;
+        private final Counter throttledRequests;
+        private final Counter throttledTokens;
+
+        ProviderBuckets(RateLimitProperties.Limits limits, int slots, String provider, MeterRegistry meterRegistry) {
+            int capacity = Integer.highestOneBit(Math.max(MAX_PROBES, slots - 1)) << 1;
+            this.limits = limits;
+            this.table = new AtomicLongArray(capacity * STRIDE);
+            this.mask = capacity - 1;
+            this.requestInterval = MINUTE_NANOS / Math.max(1, limits.requestsPerMinute());
+            this.tokenInterval = MINUTE_NANOS / Math.max(1, limits.tokensPerMinute());
+            this.allowed = decisions(meterRegistry, provider, "allowed");
+            this.throttledRequests = decisions(meterRegistry, provider, "throttled_requests");
+            this.throttledTokens = decisions(meterRegistry, provider, "throttled_tokens");
+        }
+
+        /**
+         * Tries to charge one request and {@code tokens} tokens to a key.
+         *
+         * @return 0 if admitted; otherwise the nanoseconds until admission,
+         *         positive if the request budget is exhausted, negative if the token budget is
+         */
+        long tryAcquire(long keyHash, int tokens, long nanoTime) {
+            long now = nanoTime - origin;
+            int base = slotOf(keyHash, now) * STRIDE;
+
+            long wait = charge(base + REQUESTS, requestInterval, limits.requestsPerMinute(), 1, now);
+            if (wait > 0) {
+                return wait;
+            }
+            int cost = Math.min(tokens, limits.tokensPerMinute());
+            wait = charge(base + TOKENS, tokenInterval, limits.tokensPerMinute(), cost, now);
+            if (wait > 0) {
+                // Give back the request so a token-throttled call costs nothing
+                table.addAndGet(base + REQUESTS, -requestInterval);
+                return -wait;
+            }
+            return 0;
+        }
+
+        /**
+         * GCRA step: the cell moves forward by {@code cost} intervals and the call is
+         * admitted if it stays within one burst of now.
+         */
+        private long charge(int cell, long interval, int burst, int cost, long now) {
+            long limit = interval * burst;
+            while (true) {
+                long arrival = table.get(cell);
+                long next = Math.max(arrival, now) + interval * cost;
+                long excess = next - now - limit;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (table.compareAndSet(cell, arrival, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private int slotOf(long keyHash, long now) {
+            int home = (int) keyHash & mask;
+            int idle = -1;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (home + probe) & mask;
+                int base = slot * STRIDE;
+                long owner = table.get(base + KEY);
+                if (owner == keyHash) {
+                    return slot;
+                }
+                if (owner == 0) {
+                    if (table.compareAndSet(base + KEY, 0, keyHash) || table.get(base + KEY) == keyHash) {
+                        return slot;
+                    }
+                } else if (idle < 0 && table.get(base + REQUESTS) <= now && table.get(base + TOKENS) <= now) {
+                    idle = slot;
+                }
+            }
+            if (idle >= 0) {
+                int base = idle * STRIDE;
+                long owner = table.get(base + KEY);
+                if (owner == keyHash || table.compareAndSet(base + KEY, owner, keyHash)) {
+                    return idle;
+                }
+            }
+            return home;
+        }
+
+        private static Counter decisions(MeterRegistry meterRegistry, String provider, String outcome) {
+            return Counter.builder("silq.ratelimit.decisions")
+                    .description("Rate limit decisions for chat requests")
+                    .tag("provider", provider)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
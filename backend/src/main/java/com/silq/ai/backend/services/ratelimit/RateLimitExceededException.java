@@ -0,0 +1,29 @@
+package com.silq.ai.backend.services.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an API key has used up its request or token budget for a provider.
+ *
+ * This is an expected outcome for runaway clients, so no stack trace is captured.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String provider, String budget, Duration retryAfter) {
+        super(String.format("Rate limit exceeded for provider '%s': %s per minute", provider, budget), null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets how long the caller has to wait until the request would be admitted.
+     *
+     * @return The wait time, never negative
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
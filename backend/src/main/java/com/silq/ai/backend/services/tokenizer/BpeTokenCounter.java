@@ -0,0 +1,53 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+
+/**
+ * Exact counts for OpenAI models, using the model's own byte-pair encoding
+ * (cl100k_base for the GPT-3.5 and GPT-4 families).
+ *
+ * Per-message framing follows OpenAI's published accounting for chat models:
+ * three tokens per message, plus three that prime the assistant's reply.
+ */
+final class BpeTokenCounter implements TokenCounter {
+
+    private static final int TOKENS_PER_MESSAGE = 3;
+    private static final int TOKENS_PER_REQUEST = 3;
+
+    private final Encoding encoding;
+
+    BpeTokenCounter(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public int count(String text) {
+        // Ordinary encoding: text like "<|endoftext|>" in user input is counted as plain text
+        return encoding.countTokensOrdinary(text);
+    }
+
+    @Override
+    public int fittingPrefix(String text, int maxTokens) {
+        if (maxTokens <= 0) {
+            return 0;
+        }
+        EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+        return result.isTruncated() ? result.getLastProcessedCharacterIndex() + 1 : text.length();
+    }
+
+    @Override
+    public int tokensPerMessage() {
+        return TOKENS_PER_MESSAGE;
+    }
+
+    @Override
+    public int tokensPerRequest() {
+        return TOKENS_PER_REQUEST;
+    }
+
+    @Override
+    public String toString() {
+        return encoding.getName();
+    }
+}
@@ -0,0 +1,195 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.silq.ai.backend.config.TokenizerProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.LLMService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sizes prompts in tokens before they go upstream.
+ *
+ * OpenAI models are counted exactly with their BPE encoding; Gemini models get
+ * a close single-pass estimate (see {@link GeminiTokenEstimator}). A prompt
+ * that would not fit the model's context window next to the completion reserve
+ * has its last message, i.e. the user's request and any document in it, cut at
+ * the last paragraph boundary that fits, so it is not sent only to be rejected.
+ * Each request also gets a cost estimate from the configured prices.
+ *
+ * Counts and estimates are published as {@code silq.chat.prompt.tokens},
+ * {@code silq.chat.cost.estimated} and {@code silq.chat.prompt.truncated}.
+ */
+@Component
+public class PromptTokenizer {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptTokenizer.class);
+
+    /**
+     * Appended to a truncated message so the model knows the text does not end there.
+     */
+    static final String TRUNCATION_MARKER = "\n\n[... truncated to fit the model's context window]";
+
+    private final TokenizerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final EncodingRegistry encodings = Encodings.newLazyEncodingRegistry();
+    private final Encoding defaultEncoding;
+    private final TokenCounter geminiEstimator = new GeminiTokenEstimator();
+    private final ConcurrentMap<String, TokenCounter> counters = new ConcurrentHashMap<>();
+
+    public PromptTokenizer(TokenizerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        // Load the vocabulary now rather than on the first request
+        this.defaultEncoding = encodings.getEncoding(EncodingType.CL100K_BASE);
+        log.info("PromptTokenizer initialized: truncate={}, expectedCompletionTokens={}, models={}",
+                properties.truncate(), properties.expectedCompletionTokens(), properties.models().keySet());
+    }
+
+    /**
+     * Gets the counter matching the tokenizer of the service's provider and model.
+     * Counters are kept per provider and model, since two providers may serve
+     * models of the same name with different tokenizers.
+     */
+    public TokenCounter counterFor(LLMService service) {
+        String provider = service.getProviderName();
+        String model = service.getModelName();
+        return counters.computeIfAbsent(provider + '/' + model, key -> createCounter(provider, model));
+    }
+
+    /**
+     * Counts the request's prompt tokens and, if they exceed the model's prompt
+     * budget, truncates the last message to fit.
+     *
+     * @param service The service the messages will be sent to
+     * @param messages The messages as assembled, ending with the user's request
+     * @return The messages to send, with their token count and estimated cost
+     */
+    public SizedPrompt fit(LLMService service, List<ChatMessage> messages) {
+        TokenCounter counter = counterFor(service);
+        TokenizerProperties.Model model = properties.modelFor(service.getModelName());
+        int tokens = counter.count(messages);
+        boolean truncated = false;
+
+        if (tokens > model.promptBudget() && properties.truncate()) {
+            ChatMessage last = messages.get(messages.size() - 1);
+            int lastTokens = counter.tokensPerMessage() + counter.count(last.content());
+            int available = model.promptBudget() - (tokens - lastTokens) - counter.tokensPerMessage();
+            if (available > 0) {
+                List<ChatMessage> fitted = new ArrayList<>(messages.subList(0, messages.size() - 1));
+                fitted.add(new ChatMessage(last.role(), truncate(counter, last.content(), available)));
+                log.warn("Truncated prompt for model {} from {} tokens to a budget of {}",
+                        service.getModelName(), tokens, model.promptBudget());
+                messages = fitted;
+                tokens = counter.count(fitted);
+                truncated = true;
+                Counter.builder("silq.chat.prompt.truncated")
+                        .description("Prompts cut down to fit the model's context window")
+                        .tag("provider", service.getProviderName())
+                        .register(meterRegistry)
+                        .increment();
+            } else {
+                log.warn("Prompt for model {} exceeds its budget of {} tokens before the request itself",
+                        service.getModelName(), model.promptBudget());
+            }
+        }
+
+        double cost = (tokens * model.inputCostPerMillion()
+                + properties.expectedCompletionTokens() * model.outputCostPerMillion()) / 1_000_000;
+        record(service, tokens, cost);
+        return new SizedPrompt(messages, tokens, cost, truncated);
+    }
+
+    /**
+     * Cuts {@code text} to at most {@code maxTokens} tokens, marker included.
+     * The cut goes at the last paragraph break that fits, or else the last
+     * sentence end or space, as long as that keeps at least half of what
+     * would fit; otherwise at the exact token limit.
+     *
+     * @param counter Tokenizer of the target model
+     * @param text The text to shorten
+     * @param maxTokens Budget for the result
+     * @return {@code text} if it fits with room for the marker, otherwise its truncated form
+     *         ending in {@link #TRUNCATION_MARKER}
+     */
+    static String truncate(TokenCounter counter, String text, int maxTokens) {
+        // One pass up to the budget; text within a marker's length of the limit is cut as well
+        int limit = counter.fittingPrefix(text, Math.max(0, maxTokens - counter.count(TRUNCATION_MARKER)));
+        if (limit == text.length()) {
+            return text;
+        }
+
+        int minimum = limit / 2;
+        int cut = text.lastIndexOf("\n\n", limit);
+        if (cut < minimum) {
+            cut = lastSentenceEnd(text, limit);
+        }
+        if (cut < minimum) {
+            cut = lastSpace(text, limit);
+        }
+        if (cut < minimum) {
+            cut = limit;
+        }
+        return text.substring(0, cut).stripTrailing() + TRUNCATION_MARKER;
+    }
+
+    private static int lastSentenceEnd(String text, int limit) {
+        for (int i = Math.min(limit, text.length()) - 1; i > 0; i--) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                char previous = text.charAt(i - 1);
+                if (previous == '.' || previous == '?' || previous == '!') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int lastSpace(String text, int limit) {
+        for (int i = Math.min(limit, text.length()) - 1; i > 0; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private TokenCounter createCounter(String provider, String model) {
+        if ("gemini".equals(provider)) {
+            return geminiEstimator;
+        }
+        Encoding encoding = encodings.getEncodingForModel(model).orElse(defaultEncoding);
+        log.info("Counting tokens for model {} with encoding {}", model, encoding.getName());
+        return new BpeTokenCounter(encoding);
+    }
+
+    private void record(LLMService service, int tokens, double cost) {
+        DistributionSummary.builder("silq.chat.prompt.tokens")
+                .description("Prompt tokens per request, counted before sending")
+                .baseUnit("tokens")
+                .tag("provider", service.getProviderName())
+                .tag("model", service.getModelName())
+                .register(meterRegistry)
+                .record(tokens);
+        DistributionSummary.builder("silq.chat.cost.estimated")
+                .description("Estimated cost per request: prompt plus a typical completion")
+                .baseUnit("usd")
+                .tag("provider", service.getProviderName())
+                .tag("model", service.getModelName())
+                .register(meterRegistry)
+                .record(cost);
+    }
+}
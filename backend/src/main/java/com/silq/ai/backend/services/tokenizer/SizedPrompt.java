@@ -0,0 +1,16 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.silq.ai.backend.services.llm.ChatMessage;
+
+import java.util.List;
+
+/**
+ * A request's messages after sizing against the target model.
+ *
+ * @param messages The messages to send, possibly with the last one truncated
+ * @param promptTokens Prompt tokens of {@code messages}, as counted for the target provider
+ * @param estimatedCostUsd Prompt cost plus the cost of a typical completion, in USD
+ * @param truncated Whether the last message was cut to fit the model's context window
+ */
+public record SizedPrompt(List<ChatMessage> messages, int promptTokens, double estimatedCostUsd, boolean truncated) {
+}
@@ -0,0 +1,46 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.silq.ai.backend.services.llm.ChatMessage;
+
+import java.util.List;
+
+/**
+ * Counts tokens the way one provider's tokenizer does, exactly or approximately.
+ */
+public interface TokenCounter {
+
+    /**
+     * Counts the tokens of a piece of text.
+     */
+    int count(String text);
+
+    /**
+     * Finds how much of {@code text} fits into a token budget.
+     *
+     * @param text The text to measure
+     * @param maxTokens The budget
+     * @return Length of the longest prefix, in chars, that takes at most {@code maxTokens} tokens
+     */
+    int fittingPrefix(String text, int maxTokens);
+
+    /**
+     * Tokens the provider adds around each message for its role and framing.
+     */
+    int tokensPerMessage();
+
+    /**
+     * Tokens the provider adds once per request, e.g. to prime the reply.
+     */
+    int tokensPerRequest();
+
+    /**
+     * Counts the prompt tokens of a whole request.
+     */
+    default int count(List<ChatMessage> messages) {
+        int tokens = tokensPerRequest();
+        for (ChatMessage message : messages) {
+            tokens += tokensPerMessage() + count(message.content());
+        }
+        return tokens;
+    }
+}
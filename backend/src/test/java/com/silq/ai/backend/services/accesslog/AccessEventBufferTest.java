@@ -0,0 +1,106 @@
+package com.silq.ai.backend.services.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessEventBufferTest {
+
+    @Test
+    void fullRingRefusesClaimsUntilDrained() {
+        AccessEventBuffer buffer = new AccessEventBuffer(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.publish(buffer.claim());
+        }
+
+        assertThat(buffer.claim()).isEqualTo(-1);
+        assertThat(buffer.drain(event -> { })).isEqualTo(4);
+        assertThat(buffer.claim()).isEqualTo(4);
+    }
+
+    @Test
+    void drainStopsAtTheFirstUnpublishedEvent() {
+        AccessEventBuffer buffer = new AccessEventBuffer(8);
+        long first = buffer.claim();
+        long second = buffer.claim();
+        buffer.event(second).mode = "second";
+        buffer.publish(second);
+
+        assertThat(buffer.drain(event -> { })).isZero();
+
+        buffer.event(first).mode = "first";
+        buffer.publish(first);
+        List<String> modes = new ArrayList<>();
+        assertThat(buffer.drain(event -> modes.add(event.mode))).isEqualTo(2);
+        assertThat(modes).containsExactly("first", "second");
+        assertThat(buffer.pending()).isZero();
+    }
+
+    @Test
+    void drainedEventsAreCleared() {
+        AccessEventBuffer buffer = new AccessEventBuffer(2);
+        long sequence = buffer.claim();
+        AccessEventBuffer.Event event = buffer.event(sequence);
+        event.apiKey = "key-a";
+        event.error = new IllegalStateException("boom");
+        buffer.publish(sequence);
+
+        buffer.drain(drained -> { });
+
+        assertThat(event.apiKey).isNull();
+        assertThat(event.error).isNull();
+    }
+
+    @Test
+    void concurrentProducersDeliverEveryEventOnceAndInOrder() throws Exception {
+        int producers = 4;
+        int eventsPerProducer = 50_000;
+        AccessEventBuffer buffer = new AccessEventBuffer(64);
+        int[] nextExpected = new int[producers];
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    long sequence;
+                    while ((sequence = buffer.claim()) < 0) {
+                        // The ring is full; let the drainer run even on a single core
+                        Thread.yield();
+                    }
+                    AccessEventBuffer.Event event = buffer.event(sequence);
+                    event.promptChars = producer;
+                    event.responseChars = i;
+                    buffer.publish(sequence);
+                }
+                done.countDown();
+            });
+        }
+        long drained = 0;
+        long total = (long) producers * eventsPerProducer;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (drained < total && System.nanoTime() < deadline) {
+            int batch = buffer.drain(event -> {
+                if (event.responseChars != nextExpected[event.promptChars]++) {
+                    outOfOrder.set(true);
+                }
+            });
+            if (batch == 0) {
+                Thread.yield();
+            }
+            drained += batch;
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(drained).isEqualTo(total);
+        assertThat(outOfOrder).isFalse();
+        assertThat(nextExpected).containsOnly(eventsPerProducer);
+    }
+}
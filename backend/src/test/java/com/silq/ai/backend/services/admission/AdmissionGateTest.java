@@ -0,0 +1,234 @@
+package com.silq.ai.backend.services.admission;
+
+import com.silq.ai.backend.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionGateTest {
+
+    private static final RuntimeException SATURATED = new RuntimeException("concurrency limit reached");
+
+    @Test
+    void requestsBeyondTheLimitWaitForAReleasedPermit() {
+        AdmissionGate gate = gate(2, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit first = gate.admit("key-a", Priority.INTERACTIVE, 1).join();
+        gate.admit("key-b", Priority.INTERACTIVE, 1).join();
+
+        CompletableFuture<AdmissionGate.Permit> third = gate.admit("key-c", Priority.INTERACTIVE, 1);
+        assertThat(third).isNotDone();
+        assertThat(gate.queued(Priority.INTERACTIVE)).isEqualTo(1);
+
+        first.release();
+        first.release();
+
+        assertThat(third).isCompleted();
+        assertThat(gate.inService()).isEqualTo(2);
+        assertThat(gate.queued(Priority.INTERACTIVE)).isZero();
+    }
+
+    @Test
+    void higherPriorityIsAdmittedFirst() {
+        AdmissionGate gate = gate(1, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit held = gate.admit("key-a", Priority.INTERACTIVE, 1).join();
+        List<Priority> admitted = new ArrayList<>();
+        for (Priority priority : List.of(Priority.BACKGROUND, Priority.BATCH, Priority.INTERACTIVE)) {
+            gate.admit("key-" + priority, priority, 1).thenAccept(permit -> {
+                admitted.add(priority);
+                permit.release();
+            });
+        }
+
+        held.release();
+
+        assertThat(admitted).containsExactly(Priority.INTERACTIVE, Priority.BATCH, Priority.BACKGROUND);
+        assertThat(gate.inService()).isZero();
+    }
+
+    @Test
+    void keysShareCapacityByWeight() {
+        AdmissionGate gate = gate(1, 16, Duration.ofSeconds(10), Map.of("heavy", 2));
+        AdmissionGate.Permit held = gate.admit("other", Priority.BATCH, 1).join();
+        List<String> admitted = new ArrayList<>();
+        List<AdmissionGate.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            for (String key : List.of("heavy", "light")) {
+                gate.admit(key, Priority.BATCH, 1).thenAccept(permit -> {
+                    admitted.add(key);
+                    permits.add(permit);
+                });
+            }
+        }
+
+        held.release();
+        while (admitted.size() < 12) {
+            permits.get(permits.size() - 1).release();
+        }
+
+        // Two requests of the weight-2 key for every one of the other, ties by arrival
+        assertThat(admitted.subList(0, 9))
+                .containsExactly("heavy", "light", "heavy", "light", "heavy", "heavy", "light", "heavy", "heavy");
+    }
+
+    @Test
+    void longerPromptsUseUpMoreOfTheirKeysShare() {
+        AdmissionGate gate = gate(1, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit held = gate.admit("other", Priority.BATCH, 1).join();
+        List<String> admitted = new ArrayList<>();
+        List<AdmissionGate.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (String key : List.of("long", "short")) {
+                gate.admit(key, Priority.BATCH, key.equals("long") ? 2 : 1).thenAccept(permit -> {
+                    admitted.add(key);
+                    permits.add(permit);
+                });
+            }
+        }
+
+        held.release();
+        while (admitted.size() < 6) {
+            permits.get(permits.size() - 1).release();
+        }
+
+        assertThat(admitted).containsExactly("long", "short", "short", "long", "short", "long");
+    }
+
+    @Test
+    void keyWithTooManyRequestsWaitingIsRejectedWith429() {
+        AdmissionGate gate = gate(1, 2, Duration.ofSeconds(10), Map.of());
+        gate.admit("other", Priority.INTERACTIVE, 1).join();
+        gate.admit("key-a", Priority.INTERACTIVE, 1);
+        gate.admit("key-a", Priority.INTERACTIVE, 1);
+
+        CompletableFuture<AdmissionGate.Permit> rejected = gate.admit("key-a", Priority.INTERACTIVE, 1);
+
+        assertThat(rejected).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.isKeyOverloaded()).isTrue();
+                    assertThat(e.getRetryAfter()).isPositive();
+                });
+        // Other keys, and the same key at another priority, still queue
+        assertThat(gate.admit("key-b", Priority.INTERACTIVE, 1)).isNotDone();
+        assertThat(gate.admit("key-a", Priority.BATCH, 1)).isNotDone();
+    }
+
+    @Test
+    void waiterIsRejectedOnceItsQueueTimeoutRunsOut() {
+        AdmissionGate gate = gate(1, 16, Duration.ofMillis(50), Map.of());
+        AdmissionGate.Permit held = gate.admit("other", Priority.INTERACTIVE, 1).join();
+
+        CompletableFuture<AdmissionGate.Permit> waiting = gate.admit("key-a", Priority.INTERACTIVE, 1);
+
+        assertThat(waiting).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.isKeyOverloaded()).isFalse());
+        assertThat(gate.queued(Priority.INTERACTIVE)).isZero();
+        held.release();
+        assertThat(gate.inService()).isZero();
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueue() {
+        AdmissionGate gate = gate(1, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit held = gate.admit("other", Priority.INTERACTIVE, 1).join();
+        CompletableFuture<AdmissionGate.Permit> waiting = gate.admit("key-a", Priority.INTERACTIVE, 1);
+
+        waiting.cancel(false);
+        held.release();
+
+        assertThat(gate.queued(Priority.INTERACTIVE)).isZero();
+        assertThat(gate.inService()).isZero();
+    }
+
+    @Test
+    void submittedTaskHoldsItsPermitUntilItsWorkCompletes() {
+        AdmissionGate gate = gate(1, 16, Duration.ofSeconds(10), Map.of());
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> result = gate.submit("key-a", Priority.INTERACTIVE, 1, permit -> work);
+        assertThat(gate.inService()).isEqualTo(1);
+
+        work.complete("done");
+
+        assertThat(result).isCompletedWithValue("done");
+        assertThat(gate.inService()).isZero();
+    }
+
+    @Test
+    void saturatedCallWaitsAheadOfNewRequestsAndIsRetried() {
+        AdmissionGate gate = gate(2, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit other = gate.admit("other", Priority.INTERACTIVE, 1).join();
+        AdmissionGate.Permit permit = gate.admit("key-a", Priority.INTERACTIVE, 1).join();
+        List<String> admitted = new ArrayList<>();
+        gate.admit("key-b", Priority.INTERACTIVE, 1).thenAccept(next -> admitted.add("new request"));
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = permit.call(() -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(SATURATED)
+                : CompletableFuture.completedFuture("answer"), error -> error == SATURATED);
+        result.thenAccept(answer -> admitted.add("retried call"));
+
+        assertThat(result).isNotDone();
+        assertThat(gate.inService()).isEqualTo(1);
+        assertThat(gate.limit()).isEqualTo(1);
+
+        other.release();
+
+        assertThat(result).isCompletedWithValue("answer");
+        assertThat(attempts).hasValue(2);
+        assertThat(admitted).containsExactly("retried call", "new request");
+        assertThat(gate.limit()).isEqualTo(2);
+        permit.release();
+        assertThat(gate.inService()).isEqualTo(1);
+    }
+
+    @Test
+    void saturatedCallFailsWhenNothingElseIsInService() {
+        AdmissionGate gate = gate(4, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit permit = gate.admit("key-a", Priority.INTERACTIVE, 1).join();
+
+        CompletableFuture<String> result = permit.call(() -> CompletableFuture.failedFuture(SATURATED),
+                error -> error == SATURATED);
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(result.handle((answer, error) -> error).join()).isSameAs(SATURATED);
+        assertThat(gate.inService()).isEqualTo(1);
+        assertThat(gate.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void releasingARequeuedPermitLeavesTheQueue() {
+        AdmissionGate gate = gate(2, 16, Duration.ofSeconds(10), Map.of());
+        AdmissionGate.Permit other = gate.admit("other", Priority.INTERACTIVE, 1).join();
+        AdmissionGate.Permit permit = gate.admit("key-a", Priority.INTERACTIVE, 1).join();
+        CompletableFuture<AdmissionGate.Permit> readmitted = permit.requeue();
+        assertThat(gate.queued(Priority.INTERACTIVE)).isEqualTo(1);
+
+        permit.release();
+
+        assertThat(readmitted).isCancelled();
+        assertThat(gate.queued(Priority.INTERACTIVE)).isZero();
+        other.release();
+        assertThat(gate.inService()).isZero();
+    }
+
+    private static AdmissionGate gate(int maxConcurrent, int maxQueuedPerKey, Duration timeout,
+                                      Map<String, Integer> weights) {
+        AdmissionProperties properties = new AdmissionProperties(true, maxConcurrent, 64, maxQueuedPerKey,
+                timeout, timeout, timeout, weights);
+        return new AdmissionGate(properties, new SimpleMeterRegistry(), Runnable::run);
+    }
+}
@@ -0,0 +1,105 @@
+package com.silq.ai.backend.services.batch;
+
+import com.silq.ai.backend.config.BatchProperties;
+import com.silq.ai.backend.dto.BatchChatRequest;
+import com.silq.ai.backend.dto.ChatRequest;
+import com.silq.ai.backend.services.ChatService;
+import com.silq.ai.backend.services.admission.Priority;
+import com.silq.ai.backend.services.llm.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchChatServiceTest {
+
+    private final ManualChatService chatService = new ManualChatService();
+    private final BatchChatService batchService = new BatchChatService(chatService, new BatchProperties(3, 2),
+            new SimpleMeterRegistry());
+
+    @Test
+    void resultsKeepTheRequestOrderWhateverOrderItemsFinishIn() {
+        List<CompletableFuture<String>> results = batchService.submit(batch("key-a", "one", "two", "three"),
+                Priority.BATCH, Deadline.none());
+        assertThat(chatService.calls).containsOnlyKeys("one", "two");
+
+        chatService.calls.get("two").complete("TWO");
+        chatService.calls.get("three").complete("THREE");
+        chatService.calls.get("one").complete("ONE");
+
+        assertThat(results).map(CompletableFuture::join).containsExactly("ONE", "TWO", "THREE");
+        assertThat(chatService.priorities).containsOnly(Priority.BATCH);
+    }
+
+    @Test
+    void failedItemDoesNotAffectTheOthers() {
+        IllegalStateException error = new IllegalStateException("upstream failed");
+        List<CompletableFuture<String>> results = batchService.submit(batch("key-a", "one", "two", "three"),
+                Priority.BATCH, Deadline.none());
+
+        chatService.calls.get("one").completeExceptionally(error);
+        chatService.calls.get("two").complete("TWO");
+        chatService.calls.get("three").complete("THREE");
+
+        assertThat(results.get(0)).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(error);
+        assertThat(results.get(1)).isCompletedWithValue("TWO");
+        assertThat(results.get(2)).isCompletedWithValue("THREE");
+    }
+
+    @Test
+    void batchesOfOneKeyShareItsConcurrencyCap() {
+        batchService.submit(batch("key-a", "a1", "a2"), Priority.BATCH, Deadline.none());
+        batchService.submit(batch("key-a", "a3"), Priority.BATCH, Deadline.none());
+        batchService.submit(batch("key-b", "b1"), Priority.BATCH, Deadline.none());
+
+        assertThat(chatService.calls).containsOnlyKeys("a1", "a2", "b1");
+
+        chatService.calls.get("a1").complete("A1");
+
+        assertThat(chatService.calls).containsKey("a3");
+    }
+
+    @Test
+    void oversizedOrIncompleteBatchIsRejected() {
+        assertThatThrownBy(() -> batchService.submit(batch("key-a", "1", "2", "3", "4"), Priority.BATCH,
+                Deadline.none()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most 3");
+        assertThatThrownBy(() -> batchService.submit(batch(null, "one"), Priority.BATCH, Deadline.none()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(chatService.calls).isEmpty();
+    }
+
+    private static BatchChatRequest batch(String apiKey, String... prompts) {
+        return new BatchChatRequest(List.of(prompts), "openai", apiKey, null, null);
+    }
+
+    /**
+     * Hands each item's future to the test, keyed by its prompt.
+     */
+    private static final class ManualChatService extends ChatService {
+
+        final Map<String, CompletableFuture<String>> calls = new LinkedHashMap<>();
+        final List<Priority> priorities = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<String> handleChatRequestAsync(ChatRequest request, Deadline deadline,
+                                                                Priority priority) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.put(request.prompt(), call);
+            priorities.add(priority);
+            return call;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.silq.ai.backend.services.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyedFanOutLimiterTest {
+
+    private final KeyedFanOutLimiter limiter = new KeyedFanOutLimiter(2);
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> work = new ArrayList<>();
+
+    @Test
+    void keyRunsAtMostItsLimitAndStartsTheRestInOrder() {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(limiter.submit("key-a", task("item " + i)));
+        }
+        assertThat(started).containsExactly("item 0", "item 1");
+        assertThat(limiter.queued()).isEqualTo(3);
+
+        work.get(1).complete("answer 1");
+        assertThat(started).containsExactly("item 0", "item 1", "item 2");
+
+        work.get(0).complete("answer 0");
+        work.get(2).complete("answer 2");
+
+        assertThat(started).containsExactly("item 0", "item 1", "item 2", "item 3", "item 4");
+        assertThat(limiter.queued()).isZero();
+        assertThat(results.get(1)).isCompletedWithValue("answer 1");
+        assertThat(results.get(4)).isNotDone();
+    }
+
+    @Test
+    void eachKeyHasItsOwnSlots() {
+        limiter.submit("key-a", task("a0"));
+        limiter.submit("key-a", task("a1"));
+        limiter.submit("key-a", task("a2"));
+        limiter.submit("key-b", task("b0"));
+
+        assertThat(started).containsExactly("a0", "a1", "b0");
+    }
+
+    @Test
+    void failedTaskFailsItsResultAndFreesItsSlot() {
+        IllegalStateException error = new IllegalStateException("upstream failed");
+        CompletableFuture<String> failed = limiter.submit("key-a", task("item 0"));
+        limiter.submit("key-a", () -> {
+            throw error;
+        });
+        CompletableFuture<String> next = limiter.submit("key-a", task("item 2"));
+
+        work.get(0).completeExceptionally(error);
+
+        assertThat(failed).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(error);
+        assertThat(started).containsExactly("item 0", "item 2");
+        assertThat(next).isNotDone();
+    }
+
+    @Test
+    void cancelledWaitingTaskIsNeverStarted() {
+        limiter.submit("key-a", task("item 0"));
+        limiter.submit("key-a", task("item 1"));
+        CompletableFuture<String> cancelled = limiter.submit("key-a", task("item 2"));
+        limiter.submit("key-a", task("item 3"));
+
+        cancelled.cancel(true);
+        work.get(0).complete("answer 0");
+
+        assertThat(started).containsExactly("item 0", "item 1", "item 3");
+    }
+
+    @Test
+    void cancellingAStartedResultCancelsItsWork() {
+        CompletableFuture<String> result = limiter.submit("key-a", task("item 0"));
+
+        result.cancel(true);
+
+        assertThat(work.get(0)).isCancelled();
+        limiter.submit("key-a", task("item 1"));
+        limiter.submit("key-a", task("item 2"));
+        assertThat(started).containsExactly("item 0", "item 1", "item 2");
+    }
+
+    private Supplier<CompletableFuture<String>> task(String name) {
+        return () -> {
+            started.add(name);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            work.add(future);
+            return future;
+        };
+    }
+}
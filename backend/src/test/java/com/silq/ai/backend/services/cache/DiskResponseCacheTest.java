@@ -0,0 +1,269 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.config.DiskCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DiskResponseCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private DiskResponseCache diskCache;
+
+    @AfterEach
+    void tearDown() {
+        if (diskCache != null) {
+            diskCache.close();
+        }
+    }
+
+    @Test
+    void randomResponsesAcrossSegmentsAreReadBackAfterARestart() throws Exception {
+        SplittableRandom random = new SplittableRandom(1);
+        diskCache = open();
+        PromptKey[] keys = new PromptKey[400];
+        Map<PromptKey, String> expected = new HashMap<>();
+        // About 4 MB of responses, so the 1 MB segments roll over several times
+        for (int i = 0; i < 2000; i++) {
+            PromptKey key = i < keys.length ? keys[i] = key(random) : keys[random.nextInt(keys.length)];
+            String content = content(random, random.nextInt(1, 4000));
+            put(key, content);
+            expected.put(key, content);
+        }
+        expected.forEach((key, content) -> assertThat(diskCache.get(key).map(DiskResponseCache.Stored::content))
+                .contains(content));
+
+        diskCache.close();
+        diskCache = open();
+
+        for (Map.Entry<PromptKey, String> entry : expected.entrySet()) {
+            assertThat(await(entry.getKey()).map(DiskResponseCache.Stored::content)).contains(entry.getValue());
+        }
+        assertThat(diskCache.get(key(random))).isEmpty();
+    }
+
+    @Test
+    void tornRecordEndsItsSegment() throws Exception {
+        SplittableRandom random = new SplittableRandom(2);
+        diskCache = open();
+        PromptKey first = key(random);
+        PromptKey second = key(random);
+        put(first, "first response");
+        put(second, "second response");
+        diskCache.close();
+
+        flipFirstByteOf("second response");
+        diskCache = open();
+
+        assertThat(await(first).map(DiskResponseCache.Stored::content)).contains("first response");
+        assertThat(diskCache.get(second)).isEmpty();
+    }
+
+    @Test
+    void responseIsOnlyServedToTheApiKeyItWasAnsweredFor() throws Exception {
+        diskCache = open();
+        PromptKey owner = key(new SplittableRandom(4));
+        PromptKey other = new PromptKey(owner.provider(), owner.model(), PromptKey.fingerprint("another key"),
+                owner.promptHashHigh(), owner.promptHashLow());
+        put(owner, "private response");
+
+        assertThat(diskCache.get(other)).isEmpty();
+
+        diskCache.close();
+        diskCache = open();
+
+        assertThat(await(owner).map(DiskResponseCache.Stored::content)).contains("private response");
+        assertThat(diskCache.get(other)).isEmpty();
+    }
+
+    @Test
+    void expiredResponseIsNotServed() throws Exception {
+        diskCache = open();
+        PromptKey key = key(new SplittableRandom(3));
+        while (!diskCache.put(key, "stale", Duration.ofMillis(-1))) {
+            Thread.sleep(10);
+        }
+
+        assertThat(diskCache.get(key)).isEmpty();
+    }
+
+    @Test
+    void droppedSegmentsAreUnmappedSoTheirSpaceComesBack() throws Exception {
+        Path maps = Path.of("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps), "needs /proc/self/maps");
+        SplittableRandom random = new SplittableRandom(5);
+        diskCache = open(DataSize.ofMegabytes(3));
+        // About 9 MB of responses, so the oldest 1 MB segments are dropped to stay within 3 MB
+        for (int i = 0; i < 4000; i++) {
+            put(key(random), content(random, 2000));
+        }
+
+        assertThat(mappedSegments(maps)).isNotEmpty().noneMatch(line -> line.endsWith("(deleted)"));
+        assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(4);
+
+        diskCache.close();
+        diskCache = null;
+
+        assertThat(mappedSegments(maps)).isEmpty();
+    }
+
+    @Test
+    void lookupsRacingSegmentDropsReadWholeResponsesOrMiss() throws Exception {
+        SplittableRandom random = new SplittableRandom(6);
+        PromptKey[] keys = new PromptKey[4000];
+        String[] contents = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(random);
+            contents[i] = content(random, 2000);
+        }
+        diskCache = open(DataSize.ofMegabytes(3));
+        AtomicInteger written = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger wrong = new AtomicInteger();
+        Thread reader = Thread.ofPlatform().start(() -> {
+            SplittableRandom picks = new SplittableRandom(7);
+            while (!done.get()) {
+                int count = written.get();
+                if (count == 0) {
+                    continue;
+                }
+                int i = picks.nextInt(count);
+                Optional<DiskResponseCache.Stored> stored = diskCache.get(keys[i]);
+                if (stored.isPresent()) {
+                    hits.incrementAndGet();
+                    if (!stored.get().content().equals(contents[i])) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                put(keys[i], contents[i]);
+                written.set(i + 1);
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+
+        assertThat(hits).hasPositiveValue();
+        assertThat(wrong).hasValue(0);
+        assertThat(diskCache.get(keys[0])).isEmpty();
+        assertThat(diskCache.get(keys[keys.length - 1]).map(DiskResponseCache.Stored::content))
+                .contains(contents[keys.length - 1]);
+    }
+
+    private DiskResponseCache open() {
+        return open(DataSize.ofMegabytes(64));
+    }
+
+    private DiskResponseCache open(DataSize maxSize) {
+        return new DiskResponseCache(new DiskCacheProperties(true, directory.toString(), DataSize.ofMegabytes(1),
+                maxSize, 10_000, 0.5, Duration.ofMinutes(1)), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Gets the lines of the process's memory map that map a segment file of the cache directory.
+     */
+    private List<String> mappedSegments(Path maps) throws IOException {
+        String segmentPrefix = directory.toRealPath().resolve("segment-").toString();
+        return Files.readAllLines(maps).stream().filter(line -> line.contains(segmentPrefix)).toList();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).toList();
+        }
+    }
+
+    /**
+     * Writes a response, waiting while the next segment is still being prepared.
+     */
+    private void put(PromptKey key, String content) throws InterruptedException {
+        while (!diskCache.put(key, content, Duration.ofHours(1))) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Looks up a response, waiting while existing segments are still being scanned.
+     */
+    private Optional<DiskResponseCache.Stored> await(PromptKey key) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            Optional<DiskResponseCache.Stored> stored = diskCache.get(key);
+            if (stored.isPresent()) {
+                return stored;
+            }
+            Thread.sleep(10);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Corrupts a stored response in place, as a crash in the middle of a write would.
+     */
+    private void flipFirstByteOf(String content) throws IOException {
+        byte[] part = content.getBytes(StandardCharsets.UTF_8);
+        for (Path segment : segmentFiles()) {
+            byte[] bytes = Files.readAllBytes(segment);
+            int at = indexOf(bytes, part);
+            if (at >= 0) {
+                bytes[at] ^= 1;
+                Files.write(segment, bytes);
+                return;
+            }
+        }
+        throw new AssertionError("No segment holds " + content);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        outer:
+        for (int i = 0; i <= bytes.length - part.length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (bytes[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static PromptKey key(SplittableRandom random) {
+        return new PromptKey("openai", "gpt-4o-mini", PromptKey.fingerprint("test key"), random.nextLong(),
+                random.nextLong());
+    }
+
+    private static String content(SplittableRandom random, int chars) {
+        StringBuilder content = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++) {
+            // Mostly ASCII, with some multi-byte characters
+            content.append(random.nextInt(20) == 0 ? 'é' : (char) random.nextInt('a', 'z' + 1));
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.silq.ai.backend.services.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationIndexTest {
+
+    @Test
+    void randomOperationsMatchAHashMap() {
+        SplittableRandom random = new SplittableRandom(1);
+        LocationIndex index = new LocationIndex(48);
+        Map<Long, Long> expected = new HashMap<>();
+        // Few distinct hashes in a 64-slot table, so probe runs form, wrap around and are shifted back
+        long[] hashes = new long[96];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+        }
+        for (int step = 0; step < 20_000; step++) {
+            long hash = hashes[random.nextInt(hashes.length)];
+            long location = random.nextLong(1, Long.MAX_VALUE);
+            if (random.nextInt(3) == 0) {
+                Long current = expected.get(hash);
+                long removing = current != null && random.nextBoolean() ? current : location;
+                boolean removed = current != null && current == removing;
+                assertThat(index.remove(hash, removing)).as("step %d", step).isEqualTo(removed);
+                if (removed) {
+                    expected.remove(hash);
+                }
+            } else if (expected.containsKey(hash) || expected.size() < 48) {
+                Long previous = expected.put(hash, location);
+                assertThat(index.put(hash, location)).as("step %d", step).isEqualTo(previous == null ? 0 : previous);
+            }
+            assertThat(index.size()).isEqualTo(expected.size());
+            for (long probe : hashes) {
+                assertThat(index.get(probe)).as("step %d", step).isEqualTo(expected.getOrDefault(probe, 0L));
+            }
+        }
+    }
+
+    @Test
+    void fullIndexRefusesNewHashesButReplacesKnownOnes() {
+        LocationIndex index = new LocationIndex(12);
+        for (long hash = 1; hash <= 12; hash++) {
+            index.put(hash, hash * 10);
+        }
+
+        assertThat(index.isFull()).isTrue();
+        assertThat(index.put(13, 130)).isZero();
+        assertThat(index.get(13)).isZero();
+        assertThat(index.put(5, 55)).isEqualTo(50);
+        assertThat(index.get(5)).isEqualTo(55);
+    }
+
+    @Test
+    void removeKeepsANewerLocation() {
+        LocationIndex index = new LocationIndex(16);
+        index.put(7, 100);
+        index.put(7, 200);
+
+        assertThat(index.remove(7, 100)).isFalse();
+        assertThat(index.get(7)).isEqualTo(200);
+        assertThat(index.remove(7, 200)).isTrue();
+        assertThat(index.get(7)).isZero();
+    }
+}
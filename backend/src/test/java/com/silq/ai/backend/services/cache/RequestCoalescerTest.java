@@ -0,0 +1,105 @@
+package com.silq.ai.backend.services.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTest {
+
+    private static final PromptKey KEY = new PromptKey("openai", "gpt-4o-mini", 1, 2, 3);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(true, meterRegistry);
+    private final List<CompletableFuture<String>> upstreamCalls = new ArrayList<>();
+
+    @Test
+    void identicalCallsInFlightShareOneUpstreamCall() {
+        CompletableFuture<String> first = coalescer.execute(KEY, this::upstream);
+        CompletableFuture<String> second = coalescer.execute(KEY, this::upstream);
+
+        upstreamCalls.get(0).complete("answer");
+
+        assertThat(upstreamCalls).hasSize(1);
+        assertThat(first).isCompletedWithValue("answer");
+        assertThat(second).isCompletedWithValue("answer");
+        assertThat(meterRegistry.get("silq.chat.coalescing").tag("role", "follower").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void callsAreOnlySharedUnderTheSameKey() {
+        coalescer.execute(KEY, this::upstream);
+        coalescer.execute(new PromptKey("openai", "gpt-4o-mini", 99, 2, 3), this::upstream);
+        coalescer.execute(new PromptKey("openai", "gpt-4o", 1, 2, 3), this::upstream);
+        coalescer.execute(new PromptKey("openai", "gpt-4o-mini", 1, 2, 4), this::upstream);
+
+        assertThat(upstreamCalls).hasSize(4);
+    }
+
+    @Test
+    void finishedCallIsNotSharedWithLaterCallers() {
+        coalescer.execute(KEY, this::upstream);
+        upstreamCalls.get(0).completeExceptionally(new IllegalStateException("upstream failed"));
+
+        CompletableFuture<String> later = coalescer.execute(KEY, this::upstream);
+        upstreamCalls.get(1).complete("answer");
+
+        assertThat(later).isCompletedWithValue("answer");
+    }
+
+    @Test
+    void cancellingOneWaiterLeavesTheCallToTheOthers() {
+        CompletableFuture<String> first = coalescer.execute(KEY, this::upstream);
+        CompletableFuture<String> second = coalescer.execute(KEY, this::upstream);
+
+        first.cancel(true);
+
+        assertThat(upstreamCalls.get(0)).isNotDone();
+        upstreamCalls.get(0).complete("answer");
+        assertThat(second).isCompletedWithValue("answer");
+    }
+
+    @Test
+    void callIsCancelledOnceEveryWaiterHasGivenUp() {
+        CompletableFuture<String> first = coalescer.execute(KEY, this::upstream);
+        CompletableFuture<String> second = coalescer.execute(KEY, this::upstream);
+
+        first.cancel(true);
+        second.completeExceptionally(new IllegalStateException("deadline passed"));
+
+        assertThat(upstreamCalls.get(0)).isCancelled();
+        // The abandoned call is not joined; the next caller starts its own
+        coalescer.execute(KEY, this::upstream);
+        assertThat(upstreamCalls).hasSize(2);
+    }
+
+    @Test
+    void failureToStartTheCallReachesEveryWaiter() {
+        IllegalStateException throttled = new IllegalStateException("throttled");
+        Supplier<CompletableFuture<String>> failing = () -> {
+            throw throttled;
+        };
+
+        CompletableFuture<String> result = coalescer.execute(KEY, failing);
+
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(throttled);
+        coalescer.execute(KEY, this::upstream);
+        assertThat(upstreamCalls).hasSize(1);
+    }
+
+    private CompletableFuture<String> upstream() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        upstreamCalls.add(call);
+        return call;
+    }
+}
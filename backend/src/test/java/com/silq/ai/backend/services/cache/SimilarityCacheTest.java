@@ -0,0 +1,173 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.config.DiskCacheProperties;
+import com.silq.ai.backend.config.ResponseCacheProperties;
+import com.silq.ai.backend.config.SimilarityCacheProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.Deadline;
+import com.silq.ai.backend.services.llm.LLMService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimilarityCacheTest {
+
+    private static final String CLARITY = "Improve the clarity of this paragraph:\n\n";
+    private static final String SUMMARIZE = "Summarize this paragraph:\n\n";
+    private static final String API_KEY = "key-a";
+
+    private final LLMService service = new StubService("openai", "gpt-4o-mini");
+    private ResponseCache responseCache;
+    private SimilarityCache similarityCache;
+
+    @BeforeEach
+    void setUp() {
+        similarityCache = similarityCache(new SimilarityCacheProperties(true, 1000, 3, 1.0,
+                Map.of("improve the clarity", 0.8)));
+    }
+
+    @Test
+    void thresholdOneMatchesPromptThatOnlyDiffersInSpacing() {
+        String text = text(new SplittableRandom(1), 200);
+        index(SUMMARIZE + text, "summary");
+
+        assertThat(find(SUMMARIZE + text.replace(" ", "  ") + "\n")).contains("summary");
+    }
+
+    @Test
+    void thresholdOneRejectsOneWordChangeEvenWhenEstimateIsOne() {
+        SplittableRandom random = new SplittableRandom(2);
+        String original = text(random, 1000);
+        String changed = null;
+        // A changed word only touches three shingles, so most slots keep their minimum
+        for (int attempt = 0; attempt < 50 && changed == null; attempt++) {
+            String candidate = replaceWord(original, random.nextInt(1000), "zebra");
+            if (MinHash.similarity(MinHash.signature(original, 3), MinHash.signature(candidate, 3)) == 1.0) {
+                changed = candidate;
+            }
+        }
+        assertThat(changed).as("a one-word change estimated at 1.0").isNotNull();
+        index(SUMMARIZE + original, "summary");
+
+        assertThat(find(SUMMARIZE + changed)).isEmpty();
+    }
+
+    @Test
+    void configuredThresholdMatchesNearDuplicate() {
+        String text = text(new SplittableRandom(3), 80);
+        index(CLARITY + text, "clearer");
+
+        assertThat(find(CLARITY + replaceWord(text, 40, "zebra"))).contains("clearer");
+    }
+
+    @Test
+    void configuredThresholdRejectsDissimilarPrompt() {
+        SplittableRandom random = new SplittableRandom(4);
+        index(CLARITY + text(random, 80), "clearer");
+
+        assertThat(find(CLARITY + text(random, 80))).isEmpty();
+    }
+
+    @Test
+    void otherApiKeyNeverMatches() {
+        String prompt = CLARITY + text(new SplittableRandom(5), 80);
+        index(prompt, "clearer");
+
+        List<ChatMessage> messages = List.of(ChatMessage.user(prompt));
+        assertThat(similarityCache.find(similarityCache.probe(service, "key-b", prompt, messages))).isEmpty();
+        assertThat(similarityCache.find(similarityCache.probe(service, API_KEY, prompt, messages))).contains("clearer");
+    }
+
+    @Test
+    void otherActionNeverMatches() {
+        String text = text(new SplittableRandom(6), 80);
+        index(CLARITY + text, "clearer");
+
+        assertThat(find(SUMMARIZE + text)).isEmpty();
+    }
+
+    @Test
+    void thresholdAboveOneTurnsLookupsOff() {
+        similarityCache = similarityCache(new SimilarityCacheProperties(true, 1000, 3, 1.5, Map.of()));
+        String prompt = SUMMARIZE + text(new SplittableRandom(7), 80);
+
+        assertThat(similarityCache.probe(service, API_KEY, prompt, List.of(ChatMessage.user(prompt)))).isNull();
+    }
+
+    private SimilarityCache similarityCache(SimilarityCacheProperties properties) {
+        DiskResponseCache diskCache = new DiskResponseCache(new DiskCacheProperties(false, "unused",
+                DataSize.ofMegabytes(1), DataSize.ofMegabytes(1), 1000, 0.5, Duration.ofMinutes(1)),
+                new SimpleMeterRegistry());
+        responseCache = new ResponseCache(new ResponseCacheProperties(true, 1_000_000, Duration.ofMinutes(10),
+                Map.of(), Set.of()), diskCache, new SimpleMeterRegistry());
+        return new SimilarityCache(properties, responseCache, new SimpleMeterRegistry());
+    }
+
+    private void index(String prompt, String response) {
+        List<ChatMessage> messages = List.of(ChatMessage.user(prompt));
+        PromptKey key = PromptKey.of(service, API_KEY, messages);
+        responseCache.put(key, response);
+        similarityCache.add(similarityCache.probe(service, API_KEY, prompt, messages), key);
+    }
+
+    private Optional<String> find(String prompt) {
+        return similarityCache.find(similarityCache.probe(service, API_KEY, prompt, List.of(ChatMessage.user(prompt))));
+    }
+
+    private static String text(SplittableRandom random, int words) {
+        List<String> text = new ArrayList<>(words);
+        for (int i = 0; i < words; i++) {
+            text.add("w" + random.nextInt(100_000));
+        }
+        return String.join(" ", text);
+    }
+
+    private static String replaceWord(String text, int index, String word) {
+        String[] words = text.split(" ");
+        words[index] = word;
+        return String.join(" ", words);
+    }
+
+    private record StubService(String providerName, String modelName) implements LLMService {
+
+        @Override
+        public String getProviderName() {
+            return providerName;
+        }
+
+        @Override
+        public String getModelName() {
+            return modelName;
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                               Deadline deadline) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.silq.ai.backend.services.context;
+
+import com.silq.ai.backend.config.ContextProperties;
+import com.silq.ai.backend.dto.ContextPart;
+import com.silq.ai.backend.services.cache.PromptKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContextStoreTest {
+
+    private static final String API_KEY = "key-a";
+    private static final String PROMPT = "Summarize the document.";
+
+    private final ContextStore store = new ContextStore(
+            new ContextProperties(true, Duration.ofHours(1), 10_000_000, 100_000, 64), new SimpleMeterRegistry());
+
+    @Test
+    void randomEditsInAnyOrderMatchApplyingThemInOrder() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int round = 0; round < 500; round++) {
+            String base = text(random, random.nextInt(0, 2000));
+            String hash = store.upload(API_KEY, List.of(base)).get(0);
+            List<ContextPart.Edit> edits = edits(random, base);
+            String expected = applyInOrder(base, edits);
+            Collections.shuffle(edits, new Random(random.nextLong()));
+
+            String assembled = store.assemble(API_KEY, List.of(new ContextPart(null, null, hash, edits)), PROMPT);
+
+            assertThat(assembled).as("round %d", round).isEqualTo(expected + "\n\n" + PROMPT);
+            // The edited chunk is kept under its own hash
+            assertThat(store.assemble(API_KEY, List.of(ContextPart.reference(sha256(expected))), PROMPT))
+                    .isEqualTo(assembled);
+        }
+    }
+
+    @Test
+    void overlappingEditsAreRejected() {
+        String hash = store.upload(API_KEY, List.of("The team shipped the new flow.")).get(0);
+        List<ContextPart.Edit> edits = List.of(new ContextPart.Edit(4, 10, "crew"), new ContextPart.Edit(8, 2, ""));
+
+        assertThatThrownBy(() -> store.assemble(API_KEY, List.of(new ContextPart(null, null, hash, edits)), PROMPT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void editPastTheEndIsRejected() {
+        String hash = store.upload(API_KEY, List.of("short")).get(0);
+        List<ContextPart.Edit> edits = List.of(new ContextPart.Edit(3, 3, "x"));
+
+        assertThatThrownBy(() -> store.assemble(API_KEY, List.of(new ContextPart(null, null, hash, edits)), PROMPT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void otherKeysChunksAreMissing() {
+        String hash = store.upload(API_KEY, List.of("private text")).get(0);
+
+        assertThatThrownBy(() -> store.assemble("key-b", List.of(ContextPart.reference(hash)), PROMPT))
+                .isInstanceOf(MissingContextException.class);
+        assertThat(store.assemble(API_KEY, List.of(ContextPart.reference(hash)), PROMPT))
+                .isEqualTo("private text\n\n" + PROMPT);
+    }
+
+    /**
+     * Non-overlapping edits of {@code base} in ascending order: insertions,
+     * deletions and replacements, some of them next to each other.
+     */
+    private static List<ContextPart.Edit> edits(SplittableRandom random, String base) {
+        List<ContextPart.Edit> edits = new ArrayList<>();
+        int offset = 0;
+        while (edits.size() < 20) {
+            offset += random.nextInt(0, 200);
+            if (offset > base.length()) {
+                break;
+            }
+            int delete = random.nextInt(0, Math.min(20, base.length() - offset) + 1);
+            String insert = random.nextInt(3) == 0 ? null : text(random, random.nextInt(0, 5));
+            edits.add(new ContextPart.Edit(offset, delete, insert));
+            offset += delete;
+        }
+        return edits;
+    }
+
+    private static String applyInOrder(String base, List<ContextPart.Edit> edits) {
+        StringBuilder edited = new StringBuilder();
+        int copied = 0;
+        for (ContextPart.Edit edit : edits) {
+            edited.append(base, copied, edit.offset()).append(edit.insert() != null ? edit.insert() : "");
+            copied = edit.offset() + edit.delete();
+        }
+        return edited.append(base, copied, base.length()).toString();
+    }
+
+    private static String text(SplittableRandom random, int chars) {
+        StringBuilder text = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++) {
+            text.append(random.nextInt(6) == 0 ? ' ' : (char) random.nextInt('a', 'z' + 1));
+        }
+        return text.toString();
+    }
+
+    private static String sha256(String text) {
+        return HexFormat.of().formatHex(PromptKey.sha256(text));
+    }
+}
@@ -0,0 +1,140 @@
+package com.silq.ai.backend.services.conversation;
+
+import com.silq.ai.backend.config.ConversationProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.LLMService;
+import com.silq.ai.backend.services.llm.TokenEstimates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversationStoreTest {
+
+    private static final ChatMessage REQUEST = ChatMessage.user("And what comes next?");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void appendedTurnsComeBackAheadOfTheNewRequest() {
+        ConversationStore store = store(true, 1_000_000);
+
+        store.append("key-a", "chat-1", question(1), answer(1));
+        store.append("key-a", "chat-1", question(2), answer(2));
+
+        assertThat(store.context("key-a", "chat-1", REQUEST)).containsExactly(
+                ChatMessage.user(question(1)), ChatMessage.assistant(answer(1)),
+                ChatMessage.user(question(2)), ChatMessage.assistant(answer(2)),
+                REQUEST);
+    }
+
+    @Test
+    void conversationIsPrivateToItsKeyAndId() {
+        ConversationStore store = store(true, 1_000_000);
+        store.append("key-a", "chat-1", question(1), answer(1));
+
+        assertThat(store.context("key-b", "chat-1", REQUEST)).containsExactly(REQUEST);
+        assertThat(store.context("key-a", "chat-2", REQUEST)).containsExactly(REQUEST);
+        assertThat(store.context("key-a", null, REQUEST)).containsExactly(REQUEST);
+        assertThatThrownBy(() -> store.context("key-a", "x".repeat(129), REQUEST))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void placeholderResponsesAndDisabledStoresRecordNothing() {
+        ConversationStore store = store(true, 1_000_000);
+        store.append("key-a", "chat-1", question(1), LLMService.NO_CONTENT_RESPONSE);
+        store.append("key-a", "chat-1", question(2), LLMService.PARSE_ERROR_RESPONSE);
+        store.append("key-a", "chat-1", question(3), "");
+        ConversationStore disabled = store(false, 1_000_000);
+        disabled.append("key-a", "chat-1", question(1), answer(1));
+
+        assertThat(store.context("key-a", "chat-1", REQUEST)).containsExactly(REQUEST);
+        assertThat(disabled.context("key-a", "chat-1", REQUEST)).containsExactly(REQUEST);
+    }
+
+    @Test
+    void olderTurnsAreCompactedIntoASummary() {
+        ConversationStore store = store(true, 1_000_000);
+        for (int i = 1; i <= 4; i++) {
+            store.append("key-a", "chat-1", question(i), answer(i));
+        }
+
+        List<ChatMessage> context = store.context("key-a", "chat-1", REQUEST);
+
+        assertThat(context).hasSize(6);
+        assertThat(context.get(0).role()).isEqualTo(ChatMessage.SYSTEM);
+        assertThat(context.get(0).content()).isEqualTo("""
+                Summary of the earlier conversation:
+                - User: What about item 1? / Assistant: Item 1 is on track.
+                - User: What about item 2? / Assistant: Item 2 is on track.""");
+        assertThat(context.subList(1, 6)).containsExactly(
+                ChatMessage.user(question(3)), ChatMessage.assistant(answer(3)),
+                ChatMessage.user(question(4)), ChatMessage.assistant(answer(4)),
+                REQUEST);
+        assertThat(meterRegistry.get("silq.conversation.compacted.turns").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void summaryKeepsTheNewestDigestLinesWithinItsBudget() {
+        ConversationStore store = store(true, 1_000_000);
+        for (int i = 1; i <= 20; i++) {
+            store.append("key-a", "chat-1", question(i), answer(i));
+        }
+
+        ChatMessage summary = store.context("key-a", "chat-1", REQUEST).get(0);
+
+        assertThat(TokenEstimates.of(summary)).isLessThanOrEqualTo(100);
+        assertThat(summary.content())
+                .contains("Item 18 is on track.")
+                .doesNotContain("Item 1 is on track.")
+                .doesNotContain("Item 19 is on track.");
+    }
+
+    @Test
+    void storeIsBoundedByTheCharactersItHolds() throws InterruptedException {
+        int turnChars = question(1).length() + answer(1).length();
+        ConversationStore store = store(true, 4L * turnChars + turnChars / 2);
+        for (int i = 0; i < 10; i++) {
+            store.append("key-a", "chat-" + i, question(1), answer(1));
+        }
+
+        // Caffeine evicts on a background thread shortly after the writes
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (stored(store) > 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(stored(store)).isBetween(1, 4);
+    }
+
+    private static int stored(ConversationStore store) {
+        int stored = 0;
+        for (int i = 0; i < 10; i++) {
+            if (store.context("key-a", "chat-" + i, REQUEST).size() > 1) {
+                stored++;
+            }
+        }
+        return stored;
+    }
+
+    private static String question(int item) {
+        return "What about item " + item + "?";
+    }
+
+    /**
+     * About 55 tokens, so a budget of 150 history tokens keeps two turns.
+     */
+    private static String answer(int item) {
+        return "Item " + item + " is on track. " + "The details follow in the weekly notes. ".repeat(5);
+    }
+
+    private ConversationStore store(boolean enabled, long maxChars) {
+        return new ConversationStore(new ConversationProperties(enabled, Duration.ofMinutes(30), maxChars, 250, 100),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,72 @@
+package com.silq.ai.backend.services.diff;
+
+import com.silq.ai.backend.dto.TextEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingWordDiffTest {
+
+    @Test
+    void randomRewritesInRandomDeltasApplyBackToTheRevisedText() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int round = 0; round < 300; round++) {
+            String original = WordDiffTest.text(random, random.nextInt(0, 600));
+            String revised = WordDiffTest.rewrite(random, original, random.nextInt(0, 20));
+
+            List<TextEdit> edits = stream(original, revised, random, new ArrayList<>());
+
+            assertThat(WordDiffTest.apply(original, edits)).as("round %d", round).isEqualTo(revised);
+        }
+    }
+
+    @Test
+    void sparseEditsAreEmittedBeforeTheStreamFinishes() {
+        SplittableRandom random = new SplittableRandom(2);
+        String original = WordDiffTest.text(random, 2000);
+        String revised = WordDiffTest.rewrite(random, original, 5);
+        List<Integer> batchSizes = new ArrayList<>();
+
+        List<TextEdit> edits = stream(original, revised, random, batchSizes);
+
+        assertThat(batchSizes).hasSizeGreaterThan(1);
+        assertThat(WordDiffTest.apply(original, edits)).isEqualTo(revised);
+    }
+
+    @Test
+    void unrelatedRewriteIsLeftToTheEnd() {
+        SplittableRandom random = new SplittableRandom(3);
+        String original = WordDiffTest.text(random, 3000);
+        String revised = WordDiffTest.text(random, 3000);
+
+        List<TextEdit> edits = stream(original, revised, random, new ArrayList<>());
+
+        assertThat(WordDiffTest.apply(original, edits)).isEqualTo(revised);
+    }
+
+    /**
+     * Streams {@code revised} in deltas of 1 to 40 characters, as providers send them.
+     *
+     * @param batchSizes Receives the number of edits in each emitted batch
+     * @return All emitted edits, in order
+     */
+    private static List<TextEdit> stream(String original, String revised, SplittableRandom random,
+                                         List<Integer> batchSizes) {
+        List<TextEdit> edits = new ArrayList<>();
+        StreamingWordDiff diff = new StreamingWordDiff(original, batch -> {
+            batchSizes.add(batch.size());
+            edits.addAll(batch);
+        });
+        for (int i = 0; i < revised.length(); ) {
+            int end = Math.min(revised.length(), i + random.nextInt(1, 41));
+            diff.append(revised.substring(i, end));
+            i = end;
+        }
+        diff.finish();
+        return edits;
+    }
+}
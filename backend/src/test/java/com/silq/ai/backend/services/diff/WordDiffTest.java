@@ -0,0 +1,105 @@
+package com.silq.ai.backend.services.diff;
+
+import com.silq.ai.backend.dto.TextEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WordDiffTest {
+
+    private static final String[] WORDS = {"the", "team", "shipped", "a", "new", "flow", "and", "sign-ups",
+            "went", "up", "by", "14%", "café", "naïve", "so", "basically"};
+    private static final String[] SEPARATORS = {" ", " ", " ", ", ", ". ", "\n\n", "  "};
+
+    @Test
+    void equalTextsHaveNoEdits() {
+        String text = text(new SplittableRandom(1), 200);
+
+        assertThat(WordDiff.diff(text, text)).isEmpty();
+    }
+
+    @Test
+    void replacedWordIsOneEditOfThatWord() {
+        List<TextEdit> edits = WordDiff.diff("We shipped the new flow today.", "We shipped the clearer flow today.");
+
+        assertThat(edits).containsExactly(new TextEdit(15, 18, "clearer"));
+    }
+
+    @Test
+    void punctuationChangeDoesNotTouchTheWords() {
+        List<TextEdit> edits = WordDiff.diff("So basically it works", "So, basically, it works");
+
+        assertThat(edits).containsExactly(new TextEdit(2, 2, ","), new TextEdit(12, 12, ","));
+    }
+
+    @Test
+    void randomRewritesApplyBackToTheRevisedText() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int round = 0; round < 500; round++) {
+            String original = text(random, random.nextInt(0, 300));
+            String revised = rewrite(random, original, random.nextInt(0, 12));
+
+            List<TextEdit> edits = WordDiff.diff(original, revised);
+
+            assertThat(apply(original, edits)).as("round %d", round).isEqualTo(revised);
+        }
+    }
+
+    @Test
+    void unrelatedTextsBeyondTheEditLimitStillApply() {
+        SplittableRandom random = new SplittableRandom(3);
+        String original = text(random, 3000);
+        String revised = text(random, 3000);
+
+        List<TextEdit> edits = WordDiff.diff(original, revised);
+
+        assertThat(apply(original, edits)).isEqualTo(revised);
+    }
+
+    /**
+     * Applies edits whose offsets refer to the original, checking that they are
+     * in ascending order and do not overlap.
+     */
+    static String apply(String original, List<TextEdit> edits) {
+        StringBuilder result = new StringBuilder();
+        int copied = 0;
+        for (TextEdit edit : edits) {
+            assertThat(edit.start()).as("edit start").isGreaterThanOrEqualTo(copied);
+            assertThat(edit.end()).as("edit end").isBetween(edit.start(), original.length());
+            result.append(original, copied, edit.start()).append(edit.text());
+            copied = edit.end();
+        }
+        return result.append(original, copied, original.length()).toString();
+    }
+
+    static String text(SplittableRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Replaces, deletes and inserts words of {@code text} at random, keeping its separators.
+     */
+    static String rewrite(SplittableRandom random, String text, int changes) {
+        List<String> tokens = new ArrayList<>(List.of(text.split("(?<= )|(?= )")));
+        for (int i = 0; i < changes && !tokens.isEmpty(); i++) {
+            int at = random.nextInt(tokens.size());
+            switch (random.nextInt(3)) {
+                case 0 -> tokens.set(at, WORDS[random.nextInt(WORDS.length)]);
+                case 1 -> tokens.remove(at);
+                default -> tokens.add(at, WORDS[random.nextInt(WORDS.length)] + " ");
+            }
+        }
+        return String.join("", tokens);
+    }
+}
@@ -0,0 +1,145 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final List<String> transitions = new ArrayList<>();
+
+    @Test
+    void opensOnlyOnceMinimumCallsAreRecorded() {
+        CircuitBreaker breaker = breaker(10, 10, Duration.ofMinutes(1), 3);
+        for (int i = 0; i < 9; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onResult(true, FAST);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onResult(true, FAST);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.remainingOpenTime()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        assertThat(transitions).containsExactly("CLOSED->OPEN");
+    }
+
+    @Test
+    void slowCallsOpenTheBreakerLikeFailures() {
+        CircuitBreaker breaker = breaker(10, 10, Duration.ofMinutes(1), 3);
+        for (int i = 0; i < 7; i++) {
+            breaker.onResult(false, SLOW);
+        }
+        for (int i = 0; i < 2; i++) {
+            breaker.onResult(false, FAST);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onResult(false, SLOW);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenAdmitsOnlyItsProbesAndClosesWhenAllSucceed() {
+        CircuitBreaker breaker = breaker(4, 4, Duration.ZERO, 3);
+        trip(breaker);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.tryAcquire()).as("probe %d", i).isTrue();
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        // A probe that says nothing about the provider is handed back
+        breaker.onIgnored();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onResult(false, FAST);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(transitions).containsExactly("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+        // Calls from before the breaker opened are forgotten
+        for (int i = 0; i < 3; i++) {
+            breaker.onResult(true, FAST);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedOrSlowProbeOpensTheBreakerAgain() {
+        CircuitBreaker breaker = breaker(4, 4, Duration.ZERO, 3);
+        trip(breaker);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onResult(false, FAST);
+        breaker.onResult(false, SLOW);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onResult(true, FAST);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void randomOutcomesOpenExactlyWhenTheWindowCrossesAThreshold() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int run = 0; run < 200; run++) {
+            int window = random.nextInt(1, 30);
+            int minimumCalls = random.nextInt(1, 40);
+            CircuitBreaker breaker = breaker(window, minimumCalls, Duration.ofMinutes(1), 3);
+            double failureOdds = random.nextDouble(0.05, 0.5);
+            double slowOdds = random.nextDouble(0.05, 0.6);
+            List<boolean[]> calls = new ArrayList<>();
+            for (int call = 0; call < 200 && breaker.state() == CircuitBreaker.State.CLOSED; call++) {
+                boolean failed = random.nextDouble() < failureOdds;
+                boolean slow = random.nextDouble() < slowOdds;
+                calls.add(new boolean[] {failed, slow});
+                breaker.onResult(failed, slow ? SLOW : FAST);
+
+                assertThat(breaker.state() == CircuitBreaker.State.OPEN)
+                        .as("run %d, call %d", run, call)
+                        .isEqualTo(crossesThreshold(calls, window, minimumCalls));
+            }
+        }
+    }
+
+    /**
+     * Reference: whether the last {@code window} calls cross a threshold of {@link #breaker}.
+     */
+    private static boolean crossesThreshold(List<boolean[]> calls, int window, int minimumCalls) {
+        List<boolean[]> recent = calls.subList(Math.max(0, calls.size() - window), calls.size());
+        if (recent.size() < minimumCalls) {
+            return false;
+        }
+        long failures = recent.stream().filter(call -> call[0]).count();
+        long slowCalls = recent.stream().filter(call -> call[1]).count();
+        return failures >= 0.5 * recent.size() || slowCalls >= 0.8 * recent.size();
+    }
+
+    private static void trip(CircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(true, FAST);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private CircuitBreaker breaker(int window, int minimumCalls, Duration openDuration, int halfOpenCalls) {
+        ResilienceProperties properties = new ResilienceProperties(true, window, minimumCalls, 0.5, 0.8,
+                Duration.ofSeconds(1), openDuration, halfOpenCalls, 20, 2, 200, 0.9, 2.0, 3,
+                Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(1));
+        return new CircuitBreaker(properties, (from, to) -> transitions.add(from + "->" + to));
+    }
+}
@@ -0,0 +1,103 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void callsBeyondTheLimitAreRejectedUntilASlotIsFreed() {
+        ConcurrencyLimiter limiter = limiter(4, 2, 200);
+        for (int i = 1; i <= 4; i++) {
+            assertThat(limiter.tryAcquire()).isEqualTo(i);
+        }
+        assertThat(limiter.tryAcquire()).isZero();
+
+        limiter.onIgnored();
+
+        assertThat(limiter.inFlight()).isEqualTo(3);
+        assertThat(limiter.tryAcquire()).isEqualTo(4);
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void overloadMultipliesTheLimitDownToItsMinimum() {
+        ConcurrencyLimiter limiter = limiter(20, 17, 200);
+        int inFlight = limiter.tryAcquire();
+        limiter.onComplete(inFlight, "model", ConcurrencyLimiter.Signal.PER_TOKEN, 0, true);
+        assertThat(limiter.limit()).isEqualTo(18);
+
+        inFlight = limiter.tryAcquire();
+        limiter.onComplete(inFlight, "model", ConcurrencyLimiter.Signal.PER_TOKEN, 0, true);
+
+        assertThat(limiter.limit()).isEqualTo(17);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void successGrowsTheLimitOnlyWhileHalfOfItIsInUse() {
+        ConcurrencyLimiter limiter = limiter(10, 2, 11);
+        complete(limiter, 4, "model", ConcurrencyLimiter.Signal.PER_TOKEN, MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(10);
+
+        complete(limiter, 5, "model", ConcurrencyLimiter.Signal.PER_TOKEN, MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(11);
+
+        complete(limiter, 11, "model", ConcurrencyLimiter.Signal.PER_TOKEN, MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(11);
+    }
+
+    @Test
+    void slowSampleIsOnlyComparedWithItsOwnModelAndSignal() {
+        ConcurrencyLimiter limiter = limiter(20, 2, 200);
+        for (int i = 0; i < 50; i++) {
+            complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.FIRST_DELTA, 100 * MILLISECOND);
+            complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.PER_TOKEN, 10 * MILLISECOND);
+        }
+
+        // A slower model, and a stream's first delta next to a call's time per token, are not overload
+        complete(limiter, 1, "slow", ConcurrencyLimiter.Signal.FIRST_DELTA, 2000 * MILLISECOND);
+        complete(limiter, 1, "slow", ConcurrencyLimiter.Signal.FIRST_DELTA, 2500 * MILLISECOND);
+        complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.PER_TOKEN, 15 * MILLISECOND);
+        complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.FIRST_DELTA, 150 * MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(20);
+
+        complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.FIRST_DELTA, 300 * MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(18);
+
+        complete(limiter, 1, "fast", ConcurrencyLimiter.Signal.PER_TOKEN, 30 * MILLISECOND);
+        assertThat(limiter.limit()).isEqualTo(16);
+    }
+
+    @Test
+    void overloadedCallDoesNotMoveTheAverage() {
+        ConcurrencyLimiter limiter = limiter(20, 2, 200);
+        complete(limiter, 1, "model", ConcurrencyLimiter.Signal.FIRST_DELTA, 100 * MILLISECOND);
+        int inFlight = limiter.tryAcquire();
+        limiter.onComplete(inFlight, "model", ConcurrencyLimiter.Signal.FIRST_DELTA, 60_000 * MILLISECOND, true);
+        assertThat(limiter.limit()).isEqualTo(18);
+
+        complete(limiter, 1, "model", ConcurrencyLimiter.Signal.FIRST_DELTA, 250 * MILLISECOND);
+
+        assertThat(limiter.limit()).isEqualTo(16);
+    }
+
+    private static void complete(ConcurrencyLimiter limiter, int inFlightAtStart, String model,
+                                 ConcurrencyLimiter.Signal signal, long sampleNanos) {
+        assertThat(limiter.tryAcquire()).isPositive();
+        limiter.onComplete(inFlightAtStart, model, signal, sampleNanos, false);
+    }
+
+    private static ConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new ConcurrencyLimiter(new ResilienceProperties(true, 100, 20, 0.5, 0.8, Duration.ofSeconds(30),
+                Duration.ofSeconds(30), 3, initialLimit, minLimit, maxLimit, 0.9, 2.0, 3, Duration.ofMillis(200),
+                Duration.ofSeconds(2), Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.silq.ai.backend.services.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineTest {
+
+    @Test
+    void expiryRunsTheActionsOnceOnAVirtualThread() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+        CompletableFuture<Boolean> ranOnVirtualThread = new CompletableFuture<>();
+        AtomicInteger runs = new AtomicInteger();
+        deadline.onAbort(() -> {
+            runs.incrementAndGet();
+            ranOnVirtualThread.complete(Thread.currentThread().isVirtual());
+        });
+
+        assertThat(ranOnVirtualThread).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(true);
+        assertThat(deadline.isExpired()).isTrue();
+        assertThat(deadline.isCancelled()).isFalse();
+        assertThat(deadline.remaining()).isZero();
+        assertThat(deadline.abortCause()).isInstanceOf(DeadlineExceededException.class);
+
+        deadline.cancel();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void cancelRunsTheActionsInOrderOnTheCancellingThread() {
+        Deadline deadline = Deadline.none();
+        Thread caller = Thread.currentThread();
+        List<String> ran = new ArrayList<>();
+        deadline.onAbort(() -> ran.add("first on " + (Thread.currentThread() == caller ? "caller" : "other")));
+        deadline.onAbort(() -> ran.add("second"));
+
+        deadline.cancel();
+        deadline.cancel();
+
+        assertThat(ran).containsExactly("first on caller", "second");
+        assertThat(deadline.isAborted()).isTrue();
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(deadline.abortCause()).isExactlyInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    void actionRegisteredAfterTheAbortRunsAtOnce() {
+        Deadline cancelled = Deadline.none();
+        cancelled.cancel();
+        Deadline expired = Deadline.after(Duration.ZERO);
+        AtomicInteger runs = new AtomicInteger();
+
+        cancelled.onAbort(runs::incrementAndGet);
+        expired.onAbort(runs::incrementAndGet);
+
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void closedRegistrationNeverRuns() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+        AtomicBoolean closedRan = new AtomicBoolean();
+        CompletableFuture<Void> openRan = new CompletableFuture<>();
+        Deadline.Registration registration = deadline.onAbort(() -> closedRan.set(true));
+        deadline.onAbort(() -> openRan.complete(null));
+
+        registration.close();
+
+        assertThat(openRan).succeedsWithin(Duration.ofSeconds(5));
+        assertThat(closedRan).isFalse();
+    }
+
+    @Test
+    void closeWaitsForARunningActionToFinish() throws InterruptedException {
+        Deadline deadline = Deadline.none();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean();
+        Deadline.Registration registration = deadline.onAbort(() -> {
+            running.set(true);
+            started.countDown();
+            awaitQuietly(release);
+            running.set(false);
+        });
+        CompletableFuture.runAsync(deadline::cancel);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Boolean> runningAfterClose = CompletableFuture.supplyAsync(() -> {
+            registration.close();
+            return running.get();
+        });
+        Thread.sleep(50);
+        assertThat(runningAfterClose).isNotDone();
+        release.countDown();
+
+        assertThat(runningAfterClose).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(false);
+    }
+
+    @Test
+    void failingActionDoesNotKeepTheOthersFromRunning() {
+        Deadline deadline = Deadline.none();
+        AtomicBoolean secondRan = new AtomicBoolean();
+        deadline.onAbort(() -> {
+            throw new IllegalStateException("abort failed");
+        });
+        deadline.onAbort(() -> secondRan.set(true));
+
+        deadline.cancel();
+
+        assertThat(secondRan).isTrue();
+    }
+
+    @Test
+    void remainingShrinksWithTimeAndNeverGoesNegative() throws InterruptedException {
+        Deadline deadline = Deadline.after(Duration.ofMillis(30));
+        assertThat(deadline.remaining()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(30));
+
+        Thread.sleep(60);
+
+        assertThat(deadline.remaining()).isZero();
+        assertThat(Deadline.none().remaining()).isGreaterThan(Duration.ofDays(365));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
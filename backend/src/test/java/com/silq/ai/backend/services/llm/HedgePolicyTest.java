@@ -0,0 +1,73 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.HedgingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgePolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void initialDelayHoldsUntilTheFirstRefresh() {
+        HedgePolicy policy = policy(0.5, Duration.ofMillis(1), Duration.ofSeconds(10), Duration.ofSeconds(3));
+        record(policy, "gpt-4o-mini", 15, 100);
+
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofSeconds(3));
+
+        record(policy, "gpt-4o-mini", 1, 100);
+
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofMillis(100));
+    }
+
+    @Test
+    void delayIsThePercentileOfTheRecentLatencies() {
+        HedgePolicy policy = policy(0.75, Duration.ofMillis(1), Duration.ofSeconds(10), Duration.ofSeconds(3));
+        for (int i = 1; i <= 16; i++) {
+            policy.recordLatency("openai", "gpt-4o-mini", TimeUnit.MILLISECONDS.toNanos(i * 10L));
+        }
+
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofMillis(120));
+        assertThat(meterRegistry.get("silq.hedge.delay").tag("model", "gpt-4o-mini").gauge().value())
+                .isEqualTo(120.0);
+    }
+
+    @Test
+    void delayIsClampedToItsBounds() {
+        HedgePolicy policy = policy(0.5, Duration.ofMillis(250), Duration.ofSeconds(1), Duration.ofSeconds(3));
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofSeconds(1));
+
+        record(policy, "gpt-4o-mini", 16, 10);
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofMillis(250));
+
+        record(policy, "gpt-4o-mini", 32, 60_000);
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void eachModelOfAProviderHasItsOwnDelay() {
+        HedgePolicy policy = policy(0.5, Duration.ofMillis(1), Duration.ofSeconds(10), Duration.ofSeconds(3));
+        record(policy, "gpt-4o-mini", 16, 200);
+        record(policy, "gpt-4o", 16, 4000);
+
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofMillis(200));
+        assertThat(policy.hedgeDelay("openai", "gpt-4o")).isEqualTo(Duration.ofSeconds(4));
+        assertThat(policy.hedgeDelay("gemini", "gpt-4o")).isEqualTo(Duration.ofSeconds(3));
+    }
+
+    private static void record(HedgePolicy policy, String model, int samples, long millis) {
+        for (int i = 0; i < samples; i++) {
+            policy.recordLatency("openai", model, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    private HedgePolicy policy(double percentile, Duration minDelay, Duration maxDelay, Duration initialDelay) {
+        return new HedgePolicy(new HedgingProperties(true, percentile, minDelay, maxDelay, initialDelay, 256),
+                meterRegistry);
+    }
+}
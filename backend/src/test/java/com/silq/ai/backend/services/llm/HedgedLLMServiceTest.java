@@ -0,0 +1,203 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.HedgingProperties;
+import com.silq.ai.backend.services.ratelimit.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgedLLMServiceTest {
+
+    private static final List<ChatMessage> MESSAGES = List.of(ChatMessage.user("Shorten this paragraph"));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ManualService primary = new ManualService("openai", "gpt-4o-mini");
+    private final ManualService secondary = new ManualService("gemini", "gemini-1.5-flash");
+    private final AtomicInteger charges = new AtomicInteger();
+
+    @Test
+    void primaryAnsweringWithinTheDelayIsNotHedged() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofSeconds(10)), messages -> charges.incrementAndGet());
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        primary.nextCall().complete("from openai");
+
+        assertThat(result).isCompletedWithValue("from openai");
+        assertThat(service.getProviderName()).isEqualTo("openai");
+        assertThat(secondary.calls).isEmpty();
+        assertThat(charges).hasValue(0);
+        assertThat(count("silq.hedge.wins")).isEqualTo(1);
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheFirstAnswerWins() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofMillis(1)), messages -> charges.incrementAndGet());
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        CompletableFuture<String> primaryCall = primary.nextCall();
+        secondary.nextCall().complete("from gemini");
+
+        // The hedge was sent from the delay's thread, which may still be finishing the race
+        assertThat(result).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("from gemini");
+        assertThat(service.getProviderName()).isEqualTo("gemini");
+        assertThat(service.getModelName()).isEqualTo("gemini-1.5-flash");
+        assertCancelled(primaryCall);
+        assertThat(charges).hasValue(1);
+        assertThat(count("silq.hedge.fired")).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledLoserIsNotALatencySample() throws InterruptedException {
+        HedgePolicy policy = new HedgePolicy(new HedgingProperties(true, 0.5, Duration.ofMillis(1),
+                Duration.ofMinutes(1), Duration.ofMillis(1), 256), meterRegistry);
+        // One more sample would refresh the primary model's delay to this
+        for (int i = 0; i < 15; i++) {
+            policy.recordLatency("openai", "gpt-4o-mini", TimeUnit.SECONDS.toNanos(30));
+        }
+        HedgedLLMService service = service(policy, messages -> charges.incrementAndGet());
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        CompletableFuture<String> primaryCall = primary.nextCall();
+        secondary.nextCall().complete("from gemini");
+
+        assertThat(result).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("from gemini");
+        assertCancelled(primaryCall);
+        assertThat(policy.hedgeDelay("openai", "gpt-4o-mini")).isEqualTo(Duration.ofMillis(1));
+    }
+
+    @Test
+    void failedPrimaryIsHedgedWithoutWaitingForTheDelay() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofSeconds(10)), messages -> charges.incrementAndGet());
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        primary.nextCall().completeExceptionally(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        assertThat(result).isNotDone();
+        secondary.nextCall().complete("from gemini");
+
+        assertThat(result).isCompletedWithValue("from gemini");
+    }
+
+    @Test
+    void requestFailsWithTheFirstErrorOnceBothLegsHaveFailed() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofSeconds(10)), messages -> charges.incrementAndGet());
+        RuntimeException primaryError = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        primary.nextCall().completeExceptionally(primaryError);
+        secondary.nextCall().completeExceptionally(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(primaryError);
+    }
+
+    @Test
+    void throttledSecondaryLeavesTheRequestWithThePrimary() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofSeconds(10)), messages -> {
+            throw new RateLimitExceededException("gemini", "requests", Duration.ofSeconds(1));
+        });
+        RuntimeException primaryError = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        primary.nextCall().completeExceptionally(primaryError);
+
+        assertThat(result).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(primaryError);
+        assertThat(secondary.calls).isEmpty();
+        assertThat(count("silq.hedge.throttled")).isEqualTo(1);
+    }
+
+    @Test
+    void cancellingTheRequestCancelsBothLegs() throws InterruptedException {
+        HedgedLLMService service = service(policy(Duration.ofMillis(1)), messages -> charges.incrementAndGet());
+
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", Deadline.none());
+        CompletableFuture<String> primaryCall = primary.nextCall();
+        CompletableFuture<String> secondaryCall = secondary.nextCall();
+        result.cancel(true);
+
+        assertCancelled(primaryCall);
+        assertCancelled(secondaryCall);
+    }
+
+    private static void assertCancelled(CompletableFuture<String> call) {
+        assertThat(call).failsWithin(Duration.ofSeconds(5)).withThrowableOfType(CancellationException.class);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private HedgePolicy policy(Duration delay) {
+        return new HedgePolicy(new HedgingProperties(true, 0.5, delay, delay, delay, 256), meterRegistry);
+    }
+
+    private HedgedLLMService service(HedgePolicy policy, Consumer<List<ChatMessage>> chargeSecondary) {
+        return new HedgedLLMService(primary, secondary, "secondary-key", policy, chargeSecondary);
+    }
+
+    /**
+     * Hands each call's future to the test, which completes it.
+     */
+    private static final class ManualService implements LLMService {
+
+        final BlockingQueue<CompletableFuture<String>> calls = new LinkedBlockingQueue<>();
+        private final String provider;
+        private final String model;
+
+        ManualService(String provider, String model) {
+            this.provider = provider;
+            this.model = model;
+        }
+
+        CompletableFuture<String> nextCall() throws InterruptedException {
+            CompletableFuture<String> call = calls.poll(5, TimeUnit.SECONDS);
+            assertThat(call).as("call to %s", provider).isNotNull();
+            return call;
+        }
+
+        @Override
+        public String getProviderName() {
+            return provider;
+        }
+
+        @Override
+        public String getModelName() {
+            return model;
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                               Deadline deadline) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.RoutingProperties;
+import com.silq.ai.backend.config.TokenizerProperties;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelRouterTest {
+
+    private static final String FAST = "gpt-4o-mini";
+    private static final String LARGE = "gpt-4o";
+    private static final List<ChatMessage> SHORT = List.of(ChatMessage.user("Fix the typo in this sentence"));
+    private static final Duration SLO = Duration.ofMillis(500);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelRouter router = router();
+
+    @Test
+    void promptSizePicksTheFirstRouteThatCoversIt() {
+        List<ChatMessage> document = List.of(ChatMessage.user("lorem ipsum ".repeat(2000)));
+
+        assertThat(router.choose(service(FAST), SHORT, null)).isEqualTo(FAST);
+        assertThat(router.choose(service(FAST), document, null)).isEqualTo(LARGE);
+        assertThat(decisions(LARGE, "size")).isEqualTo(1);
+    }
+
+    @Test
+    void slowModelGivesWayToAFasterOneForAnSlo() {
+        router.record(service(FAST), millis(2000), null);
+        router.record(service(LARGE), millis(300), null);
+
+        assertThat(router.choose(service(FAST), SHORT, SLO)).isEqualTo(LARGE);
+        assertThat(router.choose(service(FAST), SHORT, null)).isEqualTo(FAST);
+        assertThat(decisions(LARGE, "slo")).isEqualTo(1);
+    }
+
+    @Test
+    void modelWithoutSamplesIsNeverPickedAsTheFasterOne() {
+        router.record(service(FAST), millis(2000), null);
+
+        assertThat(router.choose(service(FAST), SHORT, SLO)).isEqualTo(FAST);
+        assertThat(meterRegistry.get("silq.routing.latency").tag("model", LARGE).gauge().value()).isNaN();
+    }
+
+    @Test
+    void modelWithoutSamplesKeepsTheRequestsRoutedToItBySize() {
+        router.record(service(LARGE), millis(100), null);
+
+        assertThat(router.choose(service(FAST), SHORT, SLO)).isEqualTo(FAST);
+    }
+
+    @Test
+    void failingModelIsAvoidedForTheNearestHealthyOne() {
+        for (int i = 0; i < 4; i++) {
+            router.record(service(FAST), millis(50), new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        }
+
+        assertThat(router.choose(service(FAST), SHORT, null)).isEqualTo(LARGE);
+        assertThat(decisions(LARGE, "errors")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedAndCancelledCallsSayNothingAboutTheModel() {
+        for (int i = 0; i < 4; i++) {
+            router.record(service(FAST), millis(1),
+                    new ProviderUnavailableException("openai", "circuit open", Duration.ofSeconds(1)));
+            router.record(service(FAST), millis(1), new CancellationException("client disconnected"));
+        }
+
+        assertThat(router.choose(service(FAST), SHORT, null)).isEqualTo(FAST);
+        assertThat(meterRegistry.get("silq.routing.latency").tag("model", FAST).gauge().value()).isNaN();
+        assertThat(meterRegistry.get("silq.routing.error.rate").tag("model", FAST).gauge().value()).isZero();
+    }
+
+    private double decisions(String model, String reason) {
+        return meterRegistry.get("silq.routing.decisions").tag("model", model).tag("reason", reason)
+                .counter().count();
+    }
+
+    private ModelRouter router() {
+        RoutingProperties routing = new RoutingProperties(true, 0.2, 0.1, Duration.ofMinutes(1), 0.3,
+                Map.of("openai", List.of(new RoutingProperties.Route(FAST, 1500),
+                        new RoutingProperties.Route(LARGE, Integer.MAX_VALUE))));
+        TokenizerProperties.Model window = new TokenizerProperties.Model(128000, 16384, 0, 0);
+        TokenizerProperties tokenizer = new TokenizerProperties(true, 400,
+                new TokenizerProperties.Model(8192, 1024, 0, 0), Map.of(FAST, window, LARGE, window));
+        return new ModelRouter(routing, tokenizer, new PromptTokenizer(tokenizer, meterRegistry), meterRegistry);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static LLMService service(String model) {
+        return new FakeService(model);
+    }
+
+    /**
+     * Names a provider and model for routing; never called.
+     */
+    private record FakeService(String model) implements LLMService {
+
+        @Override
+        public String getProviderName() {
+            return "openai";
+        }
+
+        @Override
+        public String getModelName() {
+            return model;
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                               Deadline deadline) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.config.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientLLMServiceTest {
+
+    private static final List<ChatMessage> MESSAGES = List.of(ChatMessage.user("Summarize this"));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void transientFailureIsRetriedUntilACallSucceeds() {
+        FakeService delegate = new FakeService(badGateway(), badGateway(), null);
+        ResilientLLMService service = service(delegate, 3, Duration.ofMillis(1));
+
+        String response = service.generateResponseAsync(MESSAGES, "key", Deadline.after(Duration.ofMinutes(1)))
+                .join();
+
+        assertThat(response).isEqualTo("answer 3");
+        assertThat(delegate.calls).hasValue(3);
+        assertThat(retries("retried")).isEqualTo(2);
+        assertThat(service.health().inFlight()).isZero();
+    }
+
+    @Test
+    void retriesStopAfterTheLastAttempt() {
+        FakeService delegate = new FakeService(badGateway(), badGateway(), badGateway(), null);
+        ResilientLLMService service = service(delegate, 3, Duration.ofMillis(1));
+
+        assertThatThrownBy(() -> service.generateResponseAsync(MESSAGES, "key", Deadline.none()).join())
+                .hasCauseInstanceOf(HttpServerErrorException.class);
+        assertThat(delegate.calls).hasValue(3);
+        assertThat(retries("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    void callerErrorIsNotRetried() {
+        FakeService delegate = new FakeService(new HttpClientErrorException(HttpStatus.BAD_REQUEST), null);
+        ResilientLLMService service = service(delegate, 3, Duration.ofMillis(1));
+
+        assertThatThrownBy(() -> service.generateResponseAsync(MESSAGES, "key", Deadline.none()).join())
+                .hasCauseInstanceOf(HttpClientErrorException.class);
+        assertThat(delegate.calls).hasValue(1);
+        assertThat(meterRegistry.find("silq.llm.retries").counters()).isEmpty();
+    }
+
+    @Test
+    void retryIsSkippedWhenTheDeadlineCannotCoverTheBackoff() {
+        FakeService delegate = new FakeService(badGateway(), null);
+        ResilientLLMService service = service(delegate, 3, Duration.ofMillis(1));
+
+        // Less than the one-second minimum budget is left after any backoff
+        assertThatThrownBy(() -> service.streamResponse(MESSAGES, "key", Deadline.after(Duration.ofMillis(500)),
+                delta -> { }))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(delegate.calls).hasValue(1);
+        assertThat(retries("no_budget")).isEqualTo(1);
+    }
+
+    @Test
+    void streamIsRetriedBeforeItsFirstDeltaButNotAfter() {
+        FakeService delegate = new FakeService(badGateway(), null);
+        ResilientLLMService service = service(delegate, 3, Duration.ofMillis(1));
+        StringBuilder received = new StringBuilder();
+
+        assertThat(service.streamResponse(MESSAGES, "key", Deadline.none(), received::append)).isEqualTo("answer 2");
+        assertThat(received).hasToString("answer 2");
+
+        delegate.failAfterDelta = true;
+        delegate.outcomes.add(badGateway());
+        delegate.outcomes.add(null);
+        assertThatThrownBy(() -> service.streamResponse(MESSAGES, "key", Deadline.none(), delta -> { }))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(delegate.calls).hasValue(3);
+    }
+
+    @Test
+    void cancellingTheDeadlineEndsAStreamBackoffAtOnce() {
+        FakeService delegate = new FakeService();
+        ResilientLLMService service = service(delegate, 1000, Duration.ofSeconds(10));
+        Deadline deadline = Deadline.none();
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(deadline::cancel);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> service.streamResponse(MESSAGES, "key", deadline, delta -> { }))
+                .isInstanceOf(CancellationException.class);
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void cancellingTheDeadlineFailsAnAsyncCallDuringItsBackoff() {
+        FakeService delegate = new FakeService();
+        ResilientLLMService service = service(delegate, 1000, Duration.ofSeconds(10));
+        Deadline deadline = Deadline.none();
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(deadline::cancel);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> result = service.generateResponseAsync(MESSAGES, "key", deadline);
+
+        assertThatThrownBy(result::join).isInstanceOf(CancellationException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    private ResilientLLMService service(FakeService delegate, int maxAttempts, Duration baseDelay) {
+        ResilienceProperties properties = new ResilienceProperties(true, 100, 20, 0.5, 0.8, Duration.ofSeconds(30),
+                Duration.ofSeconds(30), 3, 20, 2, 200, 0.9, 2.0, maxAttempts, baseDelay, baseDelay,
+                Duration.ofSeconds(1));
+        return new ResilientLLMService(delegate, properties, meterRegistry);
+    }
+
+    private double retries(String decision) {
+        return meterRegistry.get("silq.llm.retries").tag("decision", decision).counter().count();
+    }
+
+    private static RuntimeException badGateway() {
+        return new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+    }
+
+    /**
+     * Ends each call with the next of {@code outcomes}: the exception is thrown,
+     * or null answers. Once they run out, every call fails with a 502. An aborted
+     * deadline fails the call, as with the real providers.
+     */
+    private static final class FakeService implements LLMService {
+
+        final List<RuntimeException> outcomes;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile boolean failAfterDelta;
+
+        FakeService(RuntimeException... outcomes) {
+            this.outcomes = new ArrayList<>(Arrays.asList(outcomes));
+        }
+
+        @Override
+        public String getProviderName() {
+            return "openai";
+        }
+
+        @Override
+        public String getModelName() {
+            return "gpt-4o-mini";
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            return next();
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                               Deadline deadline) {
+            if (deadline.isAborted()) {
+                return CompletableFuture.failedFuture(deadline.abortCause());
+            }
+            try {
+                return CompletableFuture.completedFuture(next());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            if (deadline.isAborted()) {
+                throw deadline.abortCause();
+            }
+            if (failAfterDelta) {
+                onDelta.accept("partial ");
+            }
+            String response = next();
+            onDelta.accept(response);
+            return response;
+        }
+
+        private String next() {
+            int call = calls.incrementAndGet();
+            if (call > outcomes.size()) {
+                throw badGateway();
+            }
+            RuntimeException outcome = outcomes.get(call - 1);
+            if (outcome != null) {
+                throw outcome;
+            }
+            return "answer " + call;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.silq.ai.backend.services.ratelimit;
+
+import com.silq.ai.backend.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class ApiKeyRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long KEY = ApiKeyRateLimiter.hashKey("key-a");
+
+    /** Later than any table's origin, so arrival times stay positive. */
+    private final long start = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void fullBurstIsAdmittedAndTheNextWaitsOneInterval() {
+        ApiKeyRateLimiter.ProviderBuckets buckets = buckets(60, 1_000_000);
+        for (int i = 0; i < 60; i++) {
+            assertThat(buckets.tryAcquire(KEY, 10, start)).as("request %d", i).isZero();
+        }
+
+        assertThat(buckets.tryAcquire(KEY, 10, start)).isEqualTo(SECOND);
+        assertThat(buckets.tryAcquire(KEY, 10, start + SECOND)).isZero();
+        assertThat(buckets.tryAcquire(KEY, 10, start + SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void tokenThrottledRequestIsNotCharged() {
+        ApiKeyRateLimiter.ProviderBuckets buckets = buckets(2, 600);
+        assertThat(buckets.tryAcquire(KEY, 600, start)).isZero();
+
+        assertThat(buckets.tryAcquire(KEY, 1, start)).isEqualTo(-TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(buckets.tryAcquire(KEY, 0, start)).isZero();
+        assertThat(buckets.tryAcquire(KEY, 0, start)).isPositive();
+    }
+
+    @Test
+    void keysHaveTheirOwnBudgets() {
+        ApiKeyRateLimiter.ProviderBuckets buckets = buckets(1, 1_000_000);
+        assertThat(buckets.tryAcquire(KEY, 1, start)).isZero();
+        assertThat(buckets.tryAcquire(KEY, 1, start)).isPositive();
+
+        assertThat(buckets.tryAcquire(ApiKeyRateLimiter.hashKey("key-b"), 1, start)).isZero();
+    }
+
+    @Test
+    void randomArrivalsNeverExceedBurstPlusRateAndRetryAfterIsExact() {
+        SplittableRandom random = new SplittableRandom(1);
+        ApiKeyRateLimiter.ProviderBuckets buckets = buckets(30, 1_000_000);
+        long interval = TimeUnit.MINUTES.toNanos(1) / 30;
+        List<Long> admitted = new ArrayList<>();
+        long now = start;
+        for (int i = 0; i < 5000; i++) {
+            now += random.nextLong(0, 2 * interval);
+            long wait = buckets.tryAcquire(KEY, 1, now);
+            if (wait > 0) {
+                // Retrying exactly when told to is admitted, and not a nanosecond earlier
+                assertThat(buckets.tryAcquire(KEY, 1, now + wait - 1)).isPositive();
+                now += wait;
+                wait = buckets.tryAcquire(KEY, 1, now);
+            }
+            assertThat(wait).as("arrival %d", i).isZero();
+            admitted.add(now);
+        }
+        for (int from = 0; from < admitted.size(); from += 97) {
+            for (int to = from; to < admitted.size(); to++) {
+                long elapsed = admitted.get(to) - admitted.get(from);
+                assertThat(to - from + 1L).isLessThanOrEqualTo(30 + elapsed / interval);
+            }
+        }
+    }
+
+    @Test
+    void throttledAcquireReportsWhenToRetry() {
+        ApiKeyRateLimiter limiter = new ApiKeyRateLimiter(new RateLimitProperties(true, 64,
+                new RateLimitProperties.Limits(1, 1000), Map.of()), new SimpleMeterRegistry());
+        limiter.acquire("openai", "key-a", 10);
+
+        RateLimitExceededException exception = catchThrowableOfType(
+                () -> limiter.acquire("openai", "key-a", 10), RateLimitExceededException.class);
+
+        assertThat(exception.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        assertThatNoException().isThrownBy(() -> limiter.acquire("gemini", "key-a", 10));
+    }
+
+    @Test
+    void disabledLimiterAdmitsEverything() {
+        ApiKeyRateLimiter limiter = new ApiKeyRateLimiter(new RateLimitProperties(false, 64,
+                new RateLimitProperties.Limits(1, 1), Map.of()), new SimpleMeterRegistry());
+
+        assertThatNoException().isThrownBy(() -> {
+            for (int i = 0; i < 100; i++) {
+                limiter.acquire("openai", "key-a", 1000);
+            }
+        });
+    }
+
+    private static ApiKeyRateLimiter.ProviderBuckets buckets(int requestsPerMinute, int tokensPerMinute) {
+        return new ApiKeyRateLimiter.ProviderBuckets(new RateLimitProperties.Limits(requestsPerMinute, tokensPerMinute),
+                64, "openai", new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,70 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.silq.ai.backend.services.llm.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeminiTokenEstimatorTest {
+
+    private static final List<String> FRAGMENTS = List.of("the ", "internationalization ", "2024", "!!", "\n\n",
+            "你好", "naïve ", "  ", "code();", "don't ", "\t", "?");
+
+    private final GeminiTokenEstimator estimator = new GeminiTokenEstimator();
+
+    @Test
+    void shortWordsWithTheirSpaceAreOneTokenEach() {
+        assertThat(estimator.count("The cat sat on the mat")).isEqualTo(6);
+        assertThat(estimator.count("don't")).isEqualTo(1);
+    }
+
+    @Test
+    void longWordsAreSplitIntoPieces() {
+        assertThat(estimator.count("internationalization")).isEqualTo(3);
+        assertThat(estimator.count("naïveté")).isEqualTo(1);
+    }
+
+    @Test
+    void digitsSymbolsAndLineBreaksHaveTheirOwnRates() {
+        assertThat(estimator.count("2024")).isEqualTo(4);
+        assertThat(estimator.count("!!!!")).isEqualTo(2);
+        assertThat(estimator.count("Hello, world!")).isEqualTo(4);
+        assertThat(estimator.count("\n\n\n")).isEqualTo(1);
+        assertThat(estimator.count("你好世界")).isEqualTo(4);
+        assertThat(estimator.count("")).isZero();
+    }
+
+    @Test
+    void messagesAddTheirOverhead() {
+        List<ChatMessage> messages = List.of(ChatMessage.user("The cat sat"), ChatMessage.user("on the mat"));
+
+        assertThat(estimator.count(messages)).isEqualTo(2 * estimator.tokensPerMessage() + 6);
+    }
+
+    @Test
+    void fittingPrefixIsTheLongestPrefixWithinTheBudget() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int run = 0; run < 500; run++) {
+            StringBuilder text = new StringBuilder();
+            int fragments = random.nextInt(1, 40);
+            for (int i = 0; i < fragments; i++) {
+                text.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+            }
+            int total = estimator.count(text.toString());
+            int previous = 0;
+            for (int budget = 0; budget <= total + 1; budget++) {
+                int prefix = estimator.fittingPrefix(text.toString(), budget);
+
+                assertThat(estimator.count(text.substring(0, prefix))).as("run %d, budget %d", run, budget)
+                        .isLessThanOrEqualTo(budget);
+                assertThat(prefix == text.length()).as("run %d, budget %d", run, budget)
+                        .isEqualTo(total <= budget);
+                assertThat(prefix).isGreaterThanOrEqualTo(previous);
+                previous = prefix;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.silq.ai.backend.config.TokenizerProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.Deadline;
+import com.silq.ai.backend.services.llm.LLMService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PromptTokenizerTest {
+
+    private static final String MARKER = PromptTokenizer.TRUNCATION_MARKER;
+    private static final String PARAGRAPH = "The quarterly report covers revenue, churn and the hiring plan. "
+            + "Each section ends with the numbers the board asked for last time.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GeminiTokenEstimator estimator = new GeminiTokenEstimator();
+
+    @Test
+    void countersAreKeptPerProviderAndModel() {
+        PromptTokenizer tokenizer = tokenizer(true);
+
+        TokenCounter gemini = tokenizer.counterFor(new FakeService("gemini", "gpt-4o"));
+        TokenCounter openAI = tokenizer.counterFor(new FakeService("openai", "gpt-4o"));
+
+        assertThat(gemini).isInstanceOf(GeminiTokenEstimator.class);
+        assertThat(openAI).isInstanceOf(BpeTokenCounter.class);
+        assertThat(tokenizer.counterFor(new FakeService("openai", "gpt-4o"))).isSameAs(openAI);
+    }
+
+    @Test
+    void promptWithinTheBudgetIsSentAsIs() {
+        List<ChatMessage> messages = List.of(ChatMessage.user(PARAGRAPH));
+
+        SizedPrompt prompt = tokenizer(true).fit(new FakeService("gemini", "small"), messages);
+
+        assertThat(prompt.messages()).isEqualTo(messages);
+        assertThat(prompt.truncated()).isFalse();
+        assertThat(prompt.promptTokens()).isEqualTo(estimator.count(messages));
+        // 1 USD per million prompt tokens, plus 100 expected completion tokens at 2 USD per million
+        assertThat(prompt.estimatedCostUsd()).isCloseTo((prompt.promptTokens() + 200) / 1e6, within(1e-12));
+    }
+
+    @Test
+    void longPromptIsCutAtAParagraphBreakToFitTheBudget() {
+        String document = String.join("\n\n", List.of(PARAGRAPH, PARAGRAPH, PARAGRAPH, PARAGRAPH, PARAGRAPH));
+        ChatMessage system = ChatMessage.system("Answer in one sentence.");
+
+        SizedPrompt prompt = tokenizer(true).fit(new FakeService("gemini", "small"),
+                List.of(system, ChatMessage.user(document)));
+
+        assertThat(prompt.truncated()).isTrue();
+        assertThat(prompt.promptTokens()).isLessThanOrEqualTo(100).isEqualTo(estimator.count(prompt.messages()));
+        assertThat(prompt.messages().get(0)).isEqualTo(system);
+        String kept = prompt.messages().get(1).content();
+        assertThat(kept).endsWith(MARKER);
+        String text = kept.substring(0, kept.length() - MARKER.length());
+        assertThat(document).startsWith(text + "\n\n");
+        assertThat(meterRegistry.get("silq.chat.prompt.truncated").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void longPromptIsSentWholeWhenTruncationIsOff() {
+        String document = PARAGRAPH.repeat(10);
+
+        SizedPrompt prompt = tokenizer(false).fit(new FakeService("gemini", "small"),
+                List.of(ChatMessage.user(document)));
+
+        assertThat(prompt.truncated()).isFalse();
+        assertThat(prompt.messages().get(0).content()).isEqualTo(document);
+        assertThat(prompt.promptTokens()).isGreaterThan(100);
+    }
+
+    @Test
+    void truncateKeepsTextThatFits() {
+        String text = "One two three four.";
+
+        assertThat(PromptTokenizer.truncate(estimator, text, estimator.count(text) + estimator.count(MARKER)))
+                .isEqualTo(text);
+    }
+
+    @Test
+    void truncateFallsBackToASentenceEndThenToTheExactLimit() {
+        String sentences = "First sentence here. Second sentence goes on and on";
+        int budget = estimator.count("First sentence here. Second sentence") + estimator.count(MARKER);
+        assertThat(PromptTokenizer.truncate(estimator, sentences, budget)).isEqualTo("First sentence here." + MARKER);
+
+        String noBreaks = "Hi abcdefg-abcdefg-abcdefg-abcdefg-abcdefg-abcdefg";
+        budget = estimator.count("Hi abcdefg-abcdefg-abcdefg-abcdefg") + estimator.count(MARKER);
+        assertThat(PromptTokenizer.truncate(estimator, noBreaks, budget))
+                .isEqualTo("Hi abcdefg-abcdefg-abcdefg-abcdefg" + MARKER);
+    }
+
+    private PromptTokenizer tokenizer(boolean truncate) {
+        TokenizerProperties properties = new TokenizerProperties(truncate, 100,
+                new TokenizerProperties.Model(8192, 1024, 0, 0),
+                Map.of("small", new TokenizerProperties.Model(150, 50, 1.0, 2.0)));
+        return new PromptTokenizer(properties, meterRegistry);
+    }
+
+    /**
+     * Names a provider and model for the tokenizer; never called.
+     */
+    private record FakeService(String provider, String model) implements LLMService {
+
+        @Override
+        public String getProviderName() {
+            return provider;
+        }
+
+        @Override
+        public String getModelName() {
+            return model;
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                               Deadline deadline) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+#!/usr/bin/env bash
+# Runs the end-to-end load test fully offline: starts the backend with the mock
+# provider, drives /api/chat through it with ChatLoadTest and stops the backend.
+#
+#   mvn -B package -DskipTests                # from the repository root, once
+#   benchmarks/load-test.sh --concurrency=64 --duration=60s
+#   benchmarks/load-test.sh --stream=true --rate=50 --report=stream.json
+#
+# Arguments are passed to ChatLoadTest (see --help). The backend is tuned through
+# environment variables:
+#   PORT          port of the backend under test (default 18080)
+#   BACKEND_ARGS  extra Spring arguments, e.g. "--silq.mock.latency-median=200ms"
+#   JAVA_OPTS     JVM options for the backend, e.g. "-Xmx512m"
+#   ADMISSION     "true" to keep admission control on (default false)
+#   THREADS       "virtual" or "platform" request threads (default: the backend's
+#                 spring.threads.virtual.enabled, which is platform)
+#
+# To compare thread models, run the same load once per THREADS value. Unless
+# ADMISSION=true, setting THREADS also lifts the providers' adaptive concurrency
+# limit (silq.resilience.*-limit), so neither the gate's permits nor the limit
+# cap the concurrency that the thread model is supposed to bound:
+#   THREADS=platform benchmarks/load-test.sh --stream=true --concurrency=400
+#   THREADS=virtual  benchmarks/load-test.sh --stream=true --concurrency=400
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+BACKEND_JAR="$ROOT/backend/target/silq-ai-backend-1.0.0-exec.jar"
+BENCHMARKS_JAR="$ROOT/benchmarks/target/benchmarks.jar"
+PORT="${PORT:-18080}"
+LOG="${TMPDIR:-/tmp}/silq-load-test-backend.log"
+
+case "${THREADS:-}" in
+    "") THREAD_ARGS="" ;;
+    virtual) THREAD_ARGS="--spring.threads.virtual.enabled=true" ;;
+    platform) THREAD_ARGS="--spring.threads.virtual.enabled=false" ;;
+    *)
+        echo "THREADS must be 'virtual' or 'platform', not '$THREADS'" >&2
+        exit 1
+        ;;
+esac
+if [[ -n "$THREAD_ARGS" && "${ADMISSION:-false}" != "true" ]]; then
+    THREAD_ARGS="$THREAD_ARGS --silq.resilience.initial-limit=100000 --silq.resilience.max-limit=100000"
+fi
+
+for jar in "$BACKEND_JAR" "$BENCHMARKS_JAR"; do
+    if [[ ! -f "$jar" ]]; then
+        echo "Missing $jar; run 'mvn -B package -DskipTests' in $ROOT first" >&2
+        exit 1
+    fi
+done
+
+# Rate limiting and admission control are off so the load measures the backend,
+# not the per-key budgets or the gate's 503s
+# shellcheck disable=SC2086
+java ${JAVA_OPTS:-} -jar "$BACKEND_JAR" \
+    --spring.profiles.active=mock \
+    --server.port="$PORT" \
+    --silq.ratelimit.enabled=false \
+    --silq.admission.enabled="${ADMISSION:-false}" \
+    $THREAD_ARGS ${BACKEND_ARGS:-} > "$LOG" 2>&1 &
+BACKEND_PID=$!
+DRIVER_PID=""
+cleanup() {
+    if [[ -n "$DRIVER_PID" ]]; then
+        kill "$DRIVER_PID" 2>/dev/null || true
+    fi
+    kill "$BACKEND_PID" 2>/dev/null || true
+    wait 2>/dev/null || true
+}
+trap cleanup EXIT
+trap 'exit 130' INT TERM
+
+for _ in $(seq 120); do
+    if curl -sf "http://localhost:$PORT/api/health" > /dev/null; then
+        break
+    fi
+    if ! kill -0 "$BACKEND_PID" 2>/dev/null; then
+        echo "Backend exited during startup, see $LOG" >&2
+        exit 1
+    fi
+    sleep 0.5
+done
+
+echo "Backend: threads=${THREADS:-default}, admission=${ADMISSION:-false}, args=${BACKEND_ARGS:-none}"
+
+# Run the driver in the background so a signal reaches the trap without waiting for it
+java -cp "$BENCHMARKS_JAR" com.silq.ai.backend.loadtest.ChatLoadTest --url="http://localhost:$PORT" "$@" &
+DRIVER_PID=$!
+wait "$DRIVER_PID"
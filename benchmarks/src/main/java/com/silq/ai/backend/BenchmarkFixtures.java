@@ -0,0 +1,223 @@
+package com.silq.ai.backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.silq.ai.backend.config.AccessLogProperties;
+import com.silq.ai.backend.config.AdmissionProperties;
+import com.silq.ai.backend.config.ContextProperties;
+import com.silq.ai.backend.config.ConversationProperties;
+import com.silq.ai.backend.config.DiskCacheProperties;
+import com.silq.ai.backend.config.HedgingProperties;
+import com.silq.ai.backend.config.OutboundHttpMetrics;
+import com.silq.ai.backend.config.OutboundHttpProperties;
+import com.silq.ai.backend.config.RateLimitProperties;
+import com.silq.ai.backend.config.ResilienceProperties;
+import com.silq.ai.backend.config.ResponseCacheProperties;
+import com.silq.ai.backend.config.RoutingProperties;
+import com.silq.ai.backend.config.SimilarityCacheProperties;
+import com.silq.ai.backend.config.TokenizerProperties;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.GeminiService;
+import com.silq.ai.backend.services.llm.OpenAIService;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared inputs for the benchmarks: realistic prompts and provider payloads,
+ * each component's settings as the application binds them, and the provider
+ * services as the application configures them. Settings come from the
+ * backend's application.properties, so the benchmarks follow its defaults
+ * rather than a copy of them.
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * A typical quick-action prompt: a paragraph of user text plus an instruction.
+     */
+    public static final String PROMPT = "Improve the clarity and tone of the following paragraph:\n\n"
+            + "So basically our team has been working on the new onboarding flow for a while now and we "
+            + "finally shipped it, which is kind of a big deal because it was two weeks before the deadline. "
+            + "We are seeing pretty good results so far, sign-ups that get completed went up by something like "
+            + "14% and we think the main reason is the account form being shorter and also the password hints "
+            + "that show up inline now, plus people are complaining less about the verification emails.";
+
+    /**
+     * {@link #PROMPT} as a single-turn conversation.
+     */
+    public static final List<ChatMessage> MESSAGES = List.of(ChatMessage.user(PROMPT));
+
+    private static final MutablePropertySources APPLICATION_PROPERTIES = applicationProperties();
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * A document of about {@code words} words in paragraphs of roughly eighty,
+     * as pasted into an "apply to the whole document" action.
+     */
+    public static String document(int words) {
+        String paragraph = PROMPT.substring(PROMPT.indexOf("\n\n") + 2);
+        int wordsPerParagraph = paragraph.split("\\s+").length;
+        StringBuilder document = new StringBuilder();
+        for (int written = 0; written < words; written += wordsPerParagraph) {
+            if (!document.isEmpty()) {
+                document.append("\n\n");
+            }
+            document.append(paragraph);
+        }
+        return document.toString();
+    }
+
+    /**
+     * Reads a provider response captured under {@code src/main/resources/payloads}.
+     *
+     * @param name File name, e.g. "openai-chat-completion.json"
+     * @return The raw body bytes
+     */
+    public static byte[] payload(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/payloads/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown payload: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * An OpenAI service configured as the application's, with its own HTTP
+     * clients and metrics registry.
+     */
+    public static OpenAIService openAI() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new OpenAIService(new RestTemplate(), objectMapper(), HttpClient.newHttpClient(),
+                new OutboundHttpMetrics(meterRegistry), properties(OutboundHttpProperties.class, Map.of()),
+                new ChatMetrics(meterRegistry), property("silq.llm.openai.base-url"),
+                property("silq.llm.openai.model"));
+    }
+
+    /**
+     * A Gemini service configured as the application's, with its own HTTP
+     * clients and metrics registry.
+     */
+    public static GeminiService gemini() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new GeminiService(new RestTemplate(), objectMapper(), HttpClient.newHttpClient(),
+                new OutboundHttpMetrics(meterRegistry), properties(OutboundHttpProperties.class, Map.of()),
+                new ChatMetrics(meterRegistry), property("silq.llm.gemini.base-url"),
+                property("silq.llm.gemini.model"));
+    }
+
+    /**
+     * Gets a value from the backend's application.properties, with
+     * placeholders resolved.
+     */
+    public static String property(String name) {
+        return new Binder(ConfigurationPropertySources.from(APPLICATION_PROPERTIES),
+                new PropertySourcesPlaceholdersResolver(APPLICATION_PROPERTIES))
+                .bind(name, String.class)
+                .orElseThrow(() -> new IllegalArgumentException("No property '" + name + "'"));
+    }
+
+    public static ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+
+    public static HedgingProperties hedging(boolean enabled) {
+        return properties(HedgingProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static ResilienceProperties resilience() {
+        return properties(ResilienceProperties.class, Map.of());
+    }
+
+    public static ResponseCacheProperties responseCache(boolean enabled) {
+        return properties(ResponseCacheProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static DiskCacheProperties diskCache(boolean enabled, String directory) {
+        return properties(DiskCacheProperties.class, Map.of("enabled", enabled, "directory", directory));
+    }
+
+    public static AccessLogProperties accessLog(boolean enabled) {
+        return properties(AccessLogProperties.class, Map.of("enabled", enabled));
+    }
+
+    /**
+     * Similarity settings with a threshold for the clarity action of {@link #PROMPT},
+     * so that near duplicates are looked up; application.properties sets none.
+     */
+    public static SimilarityCacheProperties similarity(boolean enabled) {
+        return properties(SimilarityCacheProperties.class,
+                Map.of("enabled", enabled, "thresholds.[improve the clarity]", 0.8));
+    }
+
+    public static RateLimitProperties rateLimit(boolean enabled) {
+        return properties(RateLimitProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static AdmissionProperties admission(boolean enabled) {
+        return properties(AdmissionProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static ConversationProperties conversation(boolean enabled) {
+        return properties(ConversationProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static ContextProperties context(boolean enabled) {
+        return properties(ContextProperties.class, Map.of("enabled", enabled));
+    }
+
+    public static TokenizerProperties tokenizer() {
+        return properties(TokenizerProperties.class, Map.of());
+    }
+
+    public static RoutingProperties routing(boolean enabled) {
+        return properties(RoutingProperties.class, Map.of("enabled", enabled));
+    }
+
+    /**
+     * Binds a {@code @ConfigurationProperties} record the way the application
+     * does: from the backend's application.properties, with system properties
+     * and environment variables taking precedence, and then the given overrides.
+     *
+     * @param overrides Values keyed by property name relative to the record's prefix
+     */
+    public static <T> T properties(Class<T> type, Map<String, ?> overrides) {
+        String prefix = type.getAnnotation(ConfigurationProperties.class).prefix();
+        Map<String, Object> prefixed = new HashMap<>();
+        overrides.forEach((name, value) -> prefixed.put(prefix + "." + name, String.valueOf(value)));
+        MutablePropertySources sources = new MutablePropertySources(APPLICATION_PROPERTIES);
+        sources.addFirst(new MapPropertySource("benchmarkOverrides", prefixed));
+        Binder binder = new Binder(ConfigurationPropertySources.from(sources),
+                new PropertySourcesPlaceholdersResolver(sources));
+        return binder.bindOrCreate(prefix, type);
+    }
+
+    private static MutablePropertySources applicationProperties() {
+        StandardEnvironment environment = new StandardEnvironment();
+        try {
+            environment.getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return environment.getPropertySources();
+    }
+}
@@ -0,0 +1,304 @@
+package com.silq.ai.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.silq.ai.backend.BenchmarkFixtures;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of {@code /api/chat} (or {@code /api/chat/stream}).
+ *
+ * Meant to run against a backend started with the {@code mock} profile, so the
+ * whole path (controller, chat service, provider client, HTTP and parsing) is
+ * exercised without network access or quota; {@code load-test.sh} next to the
+ * benchmarks module does exactly that. Two load shapes are supported:
+ * <ul>
+ *   <li>closed loop ({@code --concurrency}): a fixed number of clients, each
+ *       sending its next request when the last one finished;</li>
+ *   <li>open loop ({@code --rate}): requests start on a fixed schedule whether
+ *       or not earlier ones finished, and latency is measured from the
+ *       scheduled start, so a stalled backend shows up in the percentiles
+ *       instead of silently lowering the offered load.</li>
+ * </ul>
+ * Reports throughput, latency percentiles (and time to first delta when
+ * streaming), outcomes by status, and the backend's CPU, heap, threads and GC
+ * pauses over the measured period. Prompts and keys follow a fixed sequence,
+ * so runs with the same options offer the same load.
+ */
+public final class ChatLoadTest {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI chatUri;
+    private final String prompt;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ChatLoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.chatUri = URI.create(options.url() + (options.stream() ? "/api/chat/stream" : "/api/chat"));
+        this.prompt = BenchmarkFixtures.document(options.promptWords());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        new ChatLoadTest(options).run();
+        // Abandoned requests may still hold threads; they must not keep the JVM alive
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        checkReachable();
+        System.out.println("Load test: " + options.describe());
+
+        runPhase(options.warmup());
+
+        Phase measured;
+        ResourceSampler sampler = new ResourceSampler(client, options.url(), Duration.ofSeconds(1));
+        sampler.start();
+        try {
+            measured = runPhase(options.duration());
+        } finally {
+            sampler.close();
+        }
+
+        Map<String, Object> report = report(measured, sampler.summary());
+        print(report);
+        if (options.report() != null) {
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.report()), report);
+            System.out.println("Report written to " + options.report());
+        }
+    }
+
+    private void checkReachable() {
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create(options.url() + "/api/health")).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 500) {
+                System.err.println("Backend at " + options.url() + " is not healthy: " + response.statusCode());
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException("Backend at " + options.url() + " is not reachable: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the configured load for {@code length}, then waits up to the request
+     * timeout for the requests started in that time. Requests still running after
+     * that are counted as unfinished and abandoned, so an overloaded backend ends
+     * the run instead of stalling it.
+     */
+    private Phase runPhase(Duration length) throws InterruptedException {
+        Phase phase = new Phase();
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        if (options.rate() > 0) {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+            for (long intended = start; intended < end; intended += intervalNanos) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long scheduled = intended;
+                phase.started.increment();
+                executor.execute(() -> send(phase, scheduled));
+            }
+        } else {
+            for (int i = 0; i < options.concurrency(); i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        phase.started.increment();
+                        send(phase, System.nanoTime());
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        long drain = Math.max(0, end - System.nanoTime()) + options.requestTimeout().toNanos();
+        if (!executor.awaitTermination(drain, TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+        }
+        phase.elapsedNanos = System.nanoTime() - start;
+        phase.unfinished = phase.started.sum() - phase.finished.sum();
+        return phase;
+    }
+
+    /**
+     * Sends one request and records its outcome, measuring from {@code startNanos}.
+     */
+    private void send(Phase phase, long startNanos) {
+        long n = sequence.incrementAndGet();
+        String outcome;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(chatUri)
+                    .timeout(options.requestTimeout())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody(n)))
+                    .build();
+            if (options.stream()) {
+                outcome = sendStreaming(phase, request, startNanos);
+            } else {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                outcome = response.statusCode() == 200 ? "ok" : String.valueOf(response.statusCode());
+            }
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        if ("ok".equals(outcome)) {
+            phase.latency.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+        }
+        phase.outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        phase.finished.increment();
+    }
+
+    private String sendStreaming(Phase phase, HttpRequest request, long startNanos)
+            throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() != 200) {
+                return String.valueOf(response.statusCode());
+            }
+            boolean first = true;
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (first && line.equals("event:delta")) {
+                    first = false;
+                    phase.firstDelta.recordValue(Math.min(
+                            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), MAX_LATENCY_MICROS));
+                } else if (line.equals("event:error")) {
+                    return "stream_error";
+                }
+            }
+            return "ok";
+        }
+    }
+
+    private byte[] requestBody(long n) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("prompt", options.uniquePrompts() ? prompt + " (request " + n + ")" : prompt);
+        body.put("provider", options.provider());
+        body.put("apiKey", "load-test-key-" + (n % options.apiKeys()));
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Object> report(Phase phase, Map<String, Object> resources) {
+        Histogram latency = phase.latency.getIntervalHistogram();
+        Map<String, Long> outcomes = new TreeMap<>();
+        phase.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+        if (phase.unfinished > 0) {
+            outcomes.put("unfinished", phase.unfinished);
+        }
+        long total = outcomes.values().stream().mapToLong(Long::longValue).sum();
+        double seconds = phase.elapsedNanos / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("load", options.describe());
+        report.put("requests", total);
+        report.put("outcomes", outcomes);
+        report.put("throughputPerSecond", round(total / seconds));
+        report.put("successPerSecond", round(outcomes.getOrDefault("ok", 0L) / seconds));
+        report.put("latencyMs", percentiles(latency));
+        if (options.stream()) {
+            report.put("firstDeltaMs", percentiles(phase.firstDelta.getIntervalHistogram()));
+        }
+        report.put("backend", resources);
+        return report;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        if (histogram.getTotalCount() == 0) {
+            return percentiles;
+        }
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(histogram.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        percentiles.put("mean", round(histogram.getMean() / 1000));
+        return percentiles;
+    }
+
+    private static void print(Map<String, Object> report) {
+        System.out.printf("%-14s %s%n", "Requests", report.get("requests") + " " + report.get("outcomes"));
+        System.out.printf("%-14s %s req/s (%s ok/s)%n", "Throughput",
+                report.get("throughputPerSecond"), report.get("successPerSecond"));
+        System.out.printf("%-14s %s%n", "Latency ms", report.get("latencyMs"));
+        if (report.containsKey("firstDeltaMs")) {
+            System.out.printf("%-14s %s%n", "First delta ms", report.get("firstDeltaMs"));
+        }
+        System.out.printf("%-14s %s%n", "Backend", report.get("backend"));
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * What one phase of the run recorded.
+     */
+    private static final class Phase {
+
+        final Recorder latency = new Recorder(MAX_LATENCY_MICROS, 3);
+        final Recorder firstDelta = new Recorder(MAX_LATENCY_MICROS, 3);
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        final LongAdder started = new LongAdder();
+        final LongAdder finished = new LongAdder();
+        long elapsedNanos;
+        long unfinished;
+    }
+}
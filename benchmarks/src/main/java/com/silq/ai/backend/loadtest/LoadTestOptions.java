@@ -0,0 +1,132 @@
+package com.silq.ai.backend.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of one load-test run, parsed from {@code --name=value} arguments.
+ *
+ * @param url Base URL of the backend under test
+ * @param provider Provider every request asks for
+ * @param stream Whether requests go to {@code /api/chat/stream} instead of {@code /api/chat}
+ * @param concurrency Closed loop: number of clients that each send their next request as soon as the last one finished
+ * @param rate Open loop: requests started per second regardless of how many are still running; 0 for closed loop
+ * @param warmup Time spent loading the backend before anything is measured
+ * @param duration Time measured after the warmup
+ * @param promptWords Length of each prompt
+ * @param uniquePrompts Whether every prompt is made unique, so the response cache and single-flight cannot answer it
+ * @param apiKeys Number of distinct API keys the requests are spread over
+ * @param requestTimeout Time after which a request counts as timed out
+ * @param report File the results are also written to as JSON, or null
+ */
+record LoadTestOptions(
+    URI url,
+    String provider,
+    boolean stream,
+    int concurrency,
+    double rate,
+    Duration warmup,
+    Duration duration,
+    int promptWords,
+    boolean uniquePrompts,
+    int apiKeys,
+    Duration requestTimeout,
+    String report
+) {
+
+    static final String USAGE = """
+            Usage: ChatLoadTest [--name=value ...]
+              --url=http://localhost:8080   backend under test
+              --provider=openai             provider requested
+              --stream=false                use /api/chat/stream
+              --concurrency=32              closed-loop clients
+              --rate=0                      open-loop requests per second (0 = closed loop)
+              --warmup=10s                  unmeasured warmup
+              --duration=30s                measured time
+              --prompt-words=60             prompt length
+              --unique-prompts=true         defeat the response cache
+              --api-keys=16                 distinct API keys
+              --request-timeout=60s         per-request timeout
+              --report=<file>               also write the results as JSON
+            """;
+
+    /**
+     * Parses command-line arguments; anything not given keeps its default.
+     *
+     * @throws IllegalArgumentException for unknown names or malformed values
+     */
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                URI.create(stripTrailingSlash(values.getOrDefault("url", "http://localhost:8080"))),
+                values.getOrDefault("provider", "openai"),
+                Boolean.parseBoolean(values.getOrDefault("stream", "false")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Double.parseDouble(values.getOrDefault("rate", "0")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("duration", "30s")),
+                Integer.parseInt(values.getOrDefault("prompt-words", "60")),
+                Boolean.parseBoolean(values.getOrDefault("unique-prompts", "true")),
+                Integer.parseInt(values.getOrDefault("api-keys", "16")),
+                duration(values.getOrDefault("request-timeout", "60s")),
+                values.get("report"));
+
+        values.keySet().removeAll(List.of("url", "provider", "stream", "concurrency", "rate", "warmup",
+                "duration", "prompt-words", "unique-prompts", "api-keys", "request-timeout", "report"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        if (options.concurrency < 1 || options.apiKeys < 1 || options.promptWords < 1 || options.rate < 0) {
+            throw new IllegalArgumentException("concurrency, api-keys and prompt-words must be positive, rate not negative");
+        }
+        return options;
+    }
+
+    /**
+     * Describes the load shape for the report header.
+     */
+    String describe() {
+        String shape = rate > 0
+                ? String.format("open loop at %.1f req/s", rate)
+                : "closed loop with " + concurrency + " clients";
+        return String.format("%s %s, %s, %d-word prompts, %s measured after %s warmup",
+                provider, stream ? "stream" : "unary", shape, promptWords,
+                format(duration), format(warmup));
+    }
+
+    /**
+     * Parses durations such as {@code 500ms}, {@code 30s} or {@code 2m}.
+     */
+    private static Duration duration(String value) {
+        String text = value.trim().toLowerCase();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(text));
+    }
+
+    private static String format(Duration duration) {
+        return duration.toMillis() % 1000 == 0 ? duration.toSeconds() + "s" : duration.toMillis() + "ms";
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,145 @@
+package com.silq.ai.backend.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Polls the backend's {@code /actuator/prometheus} endpoint during a run and
+ * keeps what the report needs: CPU, heap, threads and GC pauses of the process
+ * under test. Sampling is one small request per interval, so it does not
+ * disturb the load noticeably.
+ */
+final class ResourceSampler implements AutoCloseable {
+
+    private final HttpClient client;
+    private final URI endpoint;
+    private final Duration interval;
+    private final Thread thread;
+
+    private Map<String, Double> first;
+    private Map<String, Double> last;
+    private int samples;
+    private double cpuSum;
+    private double cpuMax;
+    private double heapMax;
+    private double threadsMax;
+
+    ResourceSampler(HttpClient client, URI baseUrl, Duration interval) {
+        this.client = client;
+        this.endpoint = URI.create(baseUrl + "/actuator/prometheus");
+        this.interval = interval;
+        this.thread = Thread.ofPlatform().name("resource-sampler").daemon().unstarted(this::run);
+    }
+
+    void start() {
+        sample();
+        thread.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        thread.interrupt();
+        thread.join();
+        sample();
+    }
+
+    /**
+     * Gets the resource figures for the sampled period.
+     */
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (first == null || last == null) {
+            return summary;
+        }
+        summary.put("samples", samples);
+        summary.put("cpuAvgPercent", round(100 * cpuSum / samples));
+        summary.put("cpuMaxPercent", round(100 * cpuMax));
+        summary.put("heapMaxMb", round(heapMax / (1024 * 1024)));
+        summary.put("threadsMax", (long) threadsMax);
+        summary.put("gcPauses", (long) (last.getOrDefault("gcCount", 0.0) - first.getOrDefault("gcCount", 0.0)));
+        summary.put("gcPauseMs", round(1000 * (last.getOrDefault("gcSeconds", 0.0) - first.getOrDefault("gcSeconds", 0.0))));
+        return summary;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sample();
+        }
+    }
+
+    private void sample() {
+        Map<String, Double> values;
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(endpoint).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return;
+            }
+            values = parse(response.body());
+        } catch (InterruptedException e) {
+            // close() interrupted a request; keep the flag so run() stops
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            // A missed sample only makes the figures coarser
+            return;
+        }
+        synchronized (this) {
+            if (first == null) {
+                first = values;
+            }
+            last = values;
+            samples++;
+            double cpu = values.getOrDefault("cpu", 0.0);
+            cpuSum += cpu;
+            cpuMax = Math.max(cpuMax, cpu);
+            heapMax = Math.max(heapMax, values.getOrDefault("heap", 0.0));
+            threadsMax = Math.max(threadsMax, values.getOrDefault("threads", 0.0));
+        }
+    }
+
+    /**
+     * Picks the few series the report uses out of the Prometheus text format.
+     */
+    private static Map<String, Double> parse(String body) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(space + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (line.startsWith("process_cpu_usage")) {
+                values.put("cpu", value);
+            } else if (line.startsWith("jvm_memory_used_bytes") && line.contains("area=\"heap\"")) {
+                values.merge("heap", value, Double::sum);
+            } else if (line.startsWith("jvm_threads_live_threads")) {
+                values.put("threads", value);
+            } else if (line.startsWith("jvm_gc_pause_seconds_count")) {
+                values.merge("gcCount", value, Double::sum);
+            } else if (line.startsWith("jvm_gc_pause_seconds_sum")) {
+                values.merge("gcSeconds", value, Double::sum);
+            }
+        }
+        return values;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,169 @@
+package com.silq.ai.backend.services;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.dto.ChatRequest;
+import com.silq.ai.backend.services.accesslog.AccessLog;
+import com.silq.ai.backend.services.admission.AdmissionGate;
+import com.silq.ai.backend.services.cache.DiskResponseCache;
+import com.silq.ai.backend.services.cache.RequestCoalescer;
+import com.silq.ai.backend.services.cache.ResponseCache;
+import com.silq.ai.backend.services.cache.SimilarityCache;
+import com.silq.ai.backend.services.context.ContextStore;
+import com.silq.ai.backend.services.conversation.ConversationStore;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.Deadline;
+import com.silq.ai.backend.services.llm.GeminiService;
+import com.silq.ai.backend.services.llm.HedgePolicy;
+import com.silq.ai.backend.services.llm.LLMProxyFactory;
+import com.silq.ai.backend.services.llm.ModelRouter;
+import com.silq.ai.backend.services.llm.OpenAIService;
+import com.silq.ai.backend.services.metrics.ChatMetrics;
+import com.silq.ai.backend.services.ratelimit.ApiKeyRateLimiter;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Full {@link ChatService#handleChatRequest} path (validation, prompt
+ * engineering, provider lookup, prompt sizing, cache, rate limiter,
+ * single-flight, resilience wrapper and metrics) against in-process providers that answer immediately.
+ * The result is the backend's own overhead per request, without the network.
+ *
+ * With {@code cacheEnabled=true} every iteration after the first is a cache hit;
+ * with {@code false} every iteration reaches the stub provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatServiceBenchmark {
+
+    private static final String RESPONSE = "Our team shipped the new onboarding flow two weeks ahead of schedule.";
+
+    @Param({"false", "true"})
+    public boolean cacheEnabled;
+
+    private final ChatRequest request = new ChatRequest(BenchmarkFixtures.PROMPT, "openai", "benchmark-key", null, null, null, null, null);
+    private AnnotationConfigApplicationContext context;
+    private ChatService chatService;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(MeterRegistry.class, () -> meterRegistry);
+        context.registerBean(ModelRouter.class, () -> new ModelRouter(BenchmarkFixtures.routing(false),
+                BenchmarkFixtures.tokenizer(), context.getBean(PromptTokenizer.class), meterRegistry));
+        context.registerBean(LLMProxyFactory.class, () -> new LLMProxyFactory(
+                new StubOpenAIService(), new StubGeminiService(),
+                new HedgePolicy(BenchmarkFixtures.hedging(false), meterRegistry),
+                context.getBean(ModelRouter.class), context.getBean(ApiKeyRateLimiter.class),
+                context.getBean(PromptTokenizer.class), BenchmarkFixtures.resilience(), meterRegistry));
+        context.registerBean(DiskResponseCache.class,
+                () -> new DiskResponseCache(BenchmarkFixtures.diskCache(false, "unused"), meterRegistry));
+        context.registerBean(ResponseCache.class, () -> new ResponseCache(BenchmarkFixtures.responseCache(cacheEnabled),
+                context.getBean(DiskResponseCache.class), meterRegistry));
+        context.registerBean(SimilarityCache.class, () -> new SimilarityCache(BenchmarkFixtures.similarity(false),
+                context.getBean(ResponseCache.class), meterRegistry));
+        context.registerBean(RequestCoalescer.class, () -> new RequestCoalescer(true, meterRegistry));
+        context.registerBean(ApiKeyRateLimiter.class,
+                () -> new ApiKeyRateLimiter(BenchmarkFixtures.rateLimit(false), meterRegistry));
+        context.registerBean(ConversationStore.class,
+                () -> new ConversationStore(BenchmarkFixtures.conversation(true), meterRegistry));
+        context.registerBean(ContextStore.class,
+                () -> new ContextStore(BenchmarkFixtures.context(true), meterRegistry));
+        context.registerBean(PromptTokenizer.class,
+                () -> new PromptTokenizer(BenchmarkFixtures.tokenizer(), meterRegistry));
+        context.registerBean(ChatMetrics.class, () -> new ChatMetrics(meterRegistry));
+        context.registerBean(AccessLog.class, () -> new AccessLog(BenchmarkFixtures.accessLog(true), meterRegistry));
+        context.registerBean(AdmissionGate.class,
+                () -> new AdmissionGate(BenchmarkFixtures.admission(true), meterRegistry, Runnable::run));
+        context.registerBean(ChatService.class);
+        context.refresh();
+
+        chatService = context.getBean(ChatService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String handleChatRequest() {
+        return chatService.handleChatRequest(request);
+    }
+
+    @Benchmark
+    public String handleChatRequestAsync() {
+        return chatService.handleChatRequestAsync(request).join();
+    }
+
+    /**
+     * OpenAI stand-in that answers every call with a completed future.
+     */
+    static class StubOpenAIService extends OpenAIService {
+
+        StubOpenAIService() {
+            super(null, null, null, null, null, null, BenchmarkFixtures.property("silq.llm.openai.base-url"),
+                    BenchmarkFixtures.property("silq.llm.openai.model"));
+        }
+
+        @Override
+        public String generateResponse(List<ChatMessage> messages, String userApiKey) {
+            return RESPONSE;
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                        Deadline deadline) {
+            return CompletableFuture.completedFuture(RESPONSE);
+        }
+
+        @Override
+        public String streamResponse(List<ChatMessage> messages, String userApiKey, Deadline deadline,
+                                     Consumer<String> onDelta) {
+            onDelta.accept(RESPONSE);
+            return RESPONSE;
+        }
+    }
+
+    /**
+     * Gemini stand-in; only registered so the factory can be built.
+     */
+    static class StubGeminiService extends GeminiService {
+
+        StubGeminiService() {
+            super(null, null, null, null, null, null, BenchmarkFixtures.property("silq.llm.gemini.base-url"),
+                    BenchmarkFixtures.property("silq.llm.gemini.model"));
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(List<ChatMessage> messages, String userApiKey,
+                                                        Deadline deadline) {
+            return CompletableFuture.completedFuture(RESPONSE);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.silq.ai.backend.services.accesslog;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.silq.ai.backend.BenchmarkFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost per chat request: the six synchronous INFO lines the chat path
+ * used to write, against recording one access event. Both go to a
+ * console-style appender that discards its output, so the formatting and the
+ * appender's lock are measured but not the terminal.
+ *
+ * Every operation also burns a fixed amount of CPU in place of the rest of the
+ * request, so that the access log's writer thread keeps up as it would in
+ * production; the logging cost is the difference to {@link #baseline()}. With
+ * fewer cores than benchmark threads the writer's own work is included in it.
+ * Events the writer did not keep up with are dropped and reported at teardown.
+ * Run with {@code -t 4} to see the synchronous lines contend on the appender.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessLogBenchmark {
+
+    private static final String KEY = "sk-benchmark-0123456789abcdef";
+
+    /** Stand-in for the rest of a request, about 10 µs. */
+    private static final long REQUEST_WORK = 4096;
+
+    private final Logger controllerLog = LoggerFactory.getLogger("com.silq.ai.backend.controllers.ChatController");
+    private final Logger serviceLog = LoggerFactory.getLogger("com.silq.ai.backend.services.ChatService");
+    private final Logger providerLog = LoggerFactory.getLogger("com.silq.ai.backend.services.llm.OpenAIService");
+    private final String provider = "openai";
+    private SimpleMeterRegistry meterRegistry;
+    private AccessLog accessLog;
+
+    @Setup
+    public void setUp() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p %pid --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        for (String name : new String[] {"com.silq.ai.backend", AccessLog.LOGGER_NAME}) {
+            ch.qos.logback.classic.Logger logger = loggerContext.getLogger(name);
+            logger.setLevel(Level.INFO);
+            logger.setAdditive(false);
+            logger.addAppender(appender);
+        }
+
+        meterRegistry = new SimpleMeterRegistry();
+        accessLog = new AccessLog(BenchmarkFixtures.accessLog(true), meterRegistry);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLog.close();
+        System.out.printf("%nAccess events written: %.0f, dropped: %.0f%n",
+                meterRegistry.counter("silq.access-log.events", "result", "written").count(),
+                meterRegistry.counter("silq.access-log.events", "result", "dropped").count());
+    }
+
+    /**
+     * The request without any logging.
+     */
+    @Benchmark
+    public void baseline() {
+        Blackhole.consumeCPU(REQUEST_WORK);
+    }
+
+    /**
+     * The INFO lines of one successful unary request before the access log.
+     */
+    @Benchmark
+    public void synchronousInfoLines() {
+        Blackhole.consumeCPU(REQUEST_WORK);
+        controllerLog.info("Received chat request for provider: {}", provider);
+        serviceLog.info("Processing async chat request for provider: {}", provider);
+        providerLog.info("Sending async request to OpenAI API");
+        providerLog.info("Received successful async response from OpenAI API");
+        serviceLog.info("Successfully generated async response for provider: {}", provider);
+        controllerLog.info("Successfully processed chat request for provider: {}", provider);
+    }
+
+    /**
+     * The access event of the same request.
+     */
+    @Benchmark
+    public void accessEvent() {
+        Blackhole.consumeCPU(REQUEST_WORK);
+        accessLog.record(KEY, provider, "gpt-3.5-turbo", "unary", "success", 812_406_000L, 0,
+                612, 540, null);
+    }
+}
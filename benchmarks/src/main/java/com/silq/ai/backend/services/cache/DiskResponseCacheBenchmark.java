@@ -0,0 +1,87 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of a lookup in the persistent cache tier, as paid after every in-memory
+ * miss: a hit on a 1000-character response among {@value #ENTRIES} stored ones,
+ * and a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskResponseCacheBenchmark {
+
+    private static final int ENTRIES = 100_000;
+
+    private Path directory;
+    private DiskResponseCache diskCache;
+    private PromptKey[] keys;
+    private PromptKey absent;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("silq-disk-cache");
+        diskCache = new DiskResponseCache(BenchmarkFixtures.diskCache(true, directory.toString()),
+                new SimpleMeterRegistry());
+        String content = BenchmarkFixtures.PROMPT.repeat(1000 / BenchmarkFixtures.PROMPT.length() + 1).substring(0, 1000);
+        SplittableRandom random = new SplittableRandom(42);
+        long apiKey = PromptKey.fingerprint("benchmark-key");
+        keys = new PromptKey[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            keys[i] = new PromptKey("openai", "gpt-3.5-turbo", apiKey, random.nextLong(), random.nextLong());
+            // Segments are prepared in the background; wait for one when none is ready
+            while (!diskCache.put(keys[i], content, Duration.ofHours(1))) {
+                Thread.sleep(10);
+            }
+        }
+        absent = new PromptKey("openai", "gpt-3.5-turbo", apiKey, random.nextLong(), random.nextLong());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        diskCache.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<DiskResponseCache.Stored> hit() {
+        next = (next + 1) % ENTRIES;
+        return diskCache.get(keys[next]);
+    }
+
+    @Benchmark
+    public Optional<DiskResponseCache.Stored> miss() {
+        return diskCache.get(absent);
+    }
+}
@@ -0,0 +1,101 @@
+package com.silq.ai.backend.services.cache;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.OpenAIService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the near-duplicate lookup done after every exact cache miss: the
+ * MinHash signature of the prompt, and the LSH lookup against a full index of
+ * {@code silq.cache.similarity.max-entries} prompts of the same action, for a
+ * prompt that differs from an indexed one by a word and for an unrelated one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarityCacheBenchmark {
+
+    private static final String INSTRUCTION = "Improve the clarity and tone of the following paragraph:\n\n";
+    private static final int INDEXED = 10_000;
+    private static final String API_KEY = "benchmark-key";
+
+    @Param({"80", "500"})
+    public int words;
+
+    private final OpenAIService openAI = BenchmarkFixtures.openAI();
+    private SimilarityCache similarityCache;
+    private List<ChatMessage> nearDuplicate;
+    private List<ChatMessage> unrelated;
+
+    @Setup
+    public void setUp() {
+        DiskResponseCache diskCache = new DiskResponseCache(BenchmarkFixtures.diskCache(false, "unused"),
+                new SimpleMeterRegistry());
+        ResponseCache responseCache = new ResponseCache(BenchmarkFixtures.responseCache(true), diskCache,
+                new SimpleMeterRegistry());
+        similarityCache = new SimilarityCache(BenchmarkFixtures.similarity(true), responseCache, new SimpleMeterRegistry());
+        SplittableRandom random = new SplittableRandom(42);
+        String first = null;
+        for (int i = 0; i < INDEXED; i++) {
+            String prompt = INSTRUCTION + paragraph(random);
+            List<ChatMessage> messages = List.of(ChatMessage.user(prompt));
+            PromptKey key = PromptKey.of(openAI, API_KEY, messages);
+            responseCache.put(key, "Improved paragraph " + i);
+            similarityCache.add(similarityCache.probe(openAI, API_KEY, prompt, messages), key);
+            first = first != null ? first : prompt;
+        }
+        // One word changed, as after a small edit
+        int space = first.indexOf(' ', first.length() / 2);
+        nearDuplicate = List.of(ChatMessage.user(first.substring(0, space) + " indeed" + first.substring(space)));
+        unrelated = List.of(ChatMessage.user(INSTRUCTION + paragraph(random)));
+    }
+
+    @Benchmark
+    public int[] signature() {
+        return MinHash.signature(nearDuplicate.get(0).content(), 3);
+    }
+
+    @Benchmark
+    public Optional<String> lookupNearDuplicate() {
+        String prompt = nearDuplicate.get(0).content();
+        return similarityCache.find(similarityCache.probe(openAI, API_KEY, prompt, nearDuplicate));
+    }
+
+    @Benchmark
+    public Optional<String> lookupUnrelated() {
+        String prompt = unrelated.get(0).content();
+        return similarityCache.find(similarityCache.probe(openAI, API_KEY, prompt, unrelated));
+    }
+
+    private String paragraph(SplittableRandom random) {
+        String[] vocabulary = BenchmarkFixtures.PROMPT.split("\\s+");
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                paragraph.append(' ');
+            }
+            paragraph.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return paragraph.toString();
+    }
+}
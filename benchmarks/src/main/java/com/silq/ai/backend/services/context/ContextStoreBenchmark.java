@@ -0,0 +1,75 @@
+package com.silq.ai.backend.services.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.dto.ChatRequest;
+import com.silq.ai.backend.dto.ContextPart;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting a request's document context into the prompt: parsing a
+ * request that inlines the document, against parsing one that references
+ * stored chunks and reassembling the prompt from the context store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextStoreBenchmark {
+
+    private static final String API_KEY = "benchmark-key";
+    private static final String PROMPT = "Make the second paragraph more concise.";
+
+    @Param({"500", "3000"})
+    public int words;
+
+    private final ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+    private ContextStore contextStore;
+    private byte[] inlineRequest;
+    private byte[] referencedRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        contextStore = new ContextStore(BenchmarkFixtures.context(true), new SimpleMeterRegistry());
+        List<String> paragraphs = List.of(BenchmarkFixtures.document(words).split("\n\n"));
+        List<ContextPart> references = new ArrayList<>();
+        for (String hash : contextStore.upload(API_KEY, paragraphs)) {
+            references.add(ContextPart.reference(hash));
+        }
+        String document = String.join("\n\n", paragraphs);
+        inlineRequest = objectMapper.writeValueAsBytes(Map.of(
+                "provider", "openai", "apiKey", API_KEY, "prompt", document + "\n\n" + PROMPT));
+        referencedRequest = objectMapper.writeValueAsBytes(Map.of(
+                "provider", "openai", "apiKey", API_KEY, "prompt", PROMPT, "context", references));
+    }
+
+    @Benchmark
+    public String parseInline() throws IOException {
+        return objectMapper.readValue(inlineRequest, ChatRequest.class).getEffectivePrompt();
+    }
+
+    @Benchmark
+    public String parseReferencedAndAssemble() throws IOException {
+        ChatRequest request = objectMapper.readValue(referencedRequest, ChatRequest.class);
+        return contextStore.assemble(request.apiKey(), request.context(), request.getEffectivePrompt());
+    }
+}
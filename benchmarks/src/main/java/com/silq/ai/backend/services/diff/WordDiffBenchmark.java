@@ -0,0 +1,80 @@
+package com.silq.ai.backend.services.diff;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.dto.TextEdit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word-level edits for a rewrite of a whole document that changes a handful
+ * of words: once for the finished response, and incrementally as it streams
+ * in 16-character deltas. The document's paragraphs are shuffled so that it
+ * does not repeat itself the way pasted boilerplate would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordDiffBenchmark {
+
+    private static final int DELTA_CHARS = 16;
+
+    @Param({"500", "3000"})
+    public int words;
+
+    private String original;
+    private String revised;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> tokens = new ArrayList<>(List.of(BenchmarkFixtures.document(words).split(" ")));
+        for (int i = tokens.size() - 1; i > 0; i--) {
+            tokens.set(i, tokens.set(random.nextInt(i + 1), tokens.get(i)));
+        }
+        original = String.join(" ", tokens);
+        // Five edits spread over the document: replacements, a deletion and an insertion
+        for (int edit = 0; edit < 5; edit++) {
+            int at = (edit * 2 + 1) * tokens.size() / 10;
+            switch (edit % 3) {
+                case 0 -> tokens.set(at, "clearer");
+                case 1 -> tokens.remove(at);
+                default -> tokens.add(at, "notably");
+            }
+        }
+        revised = String.join(" ", tokens);
+        System.out.printf("%n%d chars, edits: %d, encoded edits: %d chars%n", revised.length(),
+                WordDiff.diff(original, revised).size(), WordDiff.encodedSize(WordDiff.diff(original, revised)));
+    }
+
+    @Benchmark
+    public List<TextEdit> diff() {
+        return WordDiff.diff(original, revised);
+    }
+
+    @Benchmark
+    public void streamingDiff(Blackhole blackhole) {
+        StreamingWordDiff diff = new StreamingWordDiff(original, blackhole::consume);
+        for (int i = 0; i < revised.length(); i += DELTA_CHARS) {
+            diff.append(revised.substring(i, Math.min(revised.length(), i + DELTA_CHARS)));
+        }
+        diff.finish();
+    }
+}
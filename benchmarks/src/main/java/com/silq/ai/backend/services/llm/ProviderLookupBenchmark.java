@@ -0,0 +1,86 @@
+package com.silq.ai.backend.services.llm;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.services.ratelimit.ApiKeyRateLimiter;
+import com.silq.ai.backend.services.tokenizer.PromptTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving a provider name to its service in {@link LLMProxyFactory},
+ * for a canonical name, an alias that needs normalizing, and a request that
+ * carries a second key and therefore gets a hedged service.
+ *
+ * The {@code routed*} benchmarks add model routing: counting the prompt's
+ * tokens and choosing among the provider's models, with and without a
+ * latency SLO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderLookupBenchmark {
+
+    private final Map<String, String> providerKeys = Map.of("gemini", "benchmark-gemini-key");
+    private final List<ChatMessage> longMessages = List.of(ChatMessage.user(BenchmarkFixtures.document(3000)));
+    private final Duration latencySlo = Duration.ofMillis(800);
+    private LLMProxyFactory factory;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PromptTokenizer promptTokenizer = new PromptTokenizer(BenchmarkFixtures.tokenizer(), meterRegistry);
+        ModelRouter modelRouter = new ModelRouter(BenchmarkFixtures.routing(true), BenchmarkFixtures.tokenizer(),
+                promptTokenizer, meterRegistry);
+        factory = new LLMProxyFactory(BenchmarkFixtures.openAI(), BenchmarkFixtures.gemini(),
+                new HedgePolicy(BenchmarkFixtures.hedging(true), meterRegistry), modelRouter,
+                new ApiKeyRateLimiter(BenchmarkFixtures.rateLimit(false), meterRegistry), promptTokenizer,
+                BenchmarkFixtures.resilience(), meterRegistry);
+    }
+
+    @Benchmark
+    public LLMService canonicalName() {
+        return factory.getService("openai");
+    }
+
+    @Benchmark
+    public LLMService aliasNeedingNormalization() {
+        return factory.getService(" Google ");
+    }
+
+    @Benchmark
+    public LLMService hedgedWithSecondKey() {
+        return factory.getService("openai", providerKeys);
+    }
+
+    @Benchmark
+    public LLMService routedShortPrompt() {
+        return factory.getService("openai", null, BenchmarkFixtures.MESSAGES, null);
+    }
+
+    @Benchmark
+    public LLMService routedShortPromptWithSlo() {
+        return factory.getService("openai", null, BenchmarkFixtures.MESSAGES, latencySlo);
+    }
+
+    @Benchmark
+    public LLMService routedLongPrompt() {
+        return factory.getService("openai", null, longMessages, null);
+    }
+}
@@ -0,0 +1,75 @@
+package com.silq.ai.backend.services.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.silq.ai.backend.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building each provider's request payload and serializing it to JSON,
+ * i.e. everything the backend does per call before the bytes hit the socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    private final ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+    private OpenAIService openAI;
+    private GeminiService gemini;
+    private Map<String, Object> openAIBody;
+    private Map<String, Object> geminiBody;
+
+    @Setup
+    public void setUp() {
+        openAI = BenchmarkFixtures.openAI();
+        gemini = BenchmarkFixtures.gemini();
+        openAIBody = openAI.buildRequestBody(BenchmarkFixtures.MESSAGES, false);
+        geminiBody = gemini.buildRequestBody(BenchmarkFixtures.MESSAGES);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildOpenAI() {
+        return openAI.buildRequestBody(BenchmarkFixtures.MESSAGES, false);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildGemini() {
+        return gemini.buildRequestBody(BenchmarkFixtures.MESSAGES);
+    }
+
+    @Benchmark
+    public byte[] serializeOpenAI() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(openAIBody);
+    }
+
+    @Benchmark
+    public byte[] serializeGemini() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(geminiBody);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeOpenAI() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(openAI.buildRequestBody(BenchmarkFixtures.MESSAGES, false));
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeGemini() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(gemini.buildRequestBody(BenchmarkFixtures.MESSAGES));
+    }
+}
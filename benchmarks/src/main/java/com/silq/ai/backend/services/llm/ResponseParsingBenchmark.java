@@ -0,0 +1,78 @@
+package com.silq.ai.backend.services.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.silq.ai.backend.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code extractContentFromResponse} on complete, realistically sized
+ * provider responses (about 2 KB of assistant text plus usage and safety metadata).
+ *
+ * The {@code *MapTree} benchmarks keep the previous decoding for comparison:
+ * bind the whole body to {@code Map.class}, then walk it with casts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    private final ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+    private OpenAIService openAI;
+    private GeminiService gemini;
+    private byte[] openAIResponse;
+    private byte[] geminiResponse;
+
+    @Setup
+    public void setUp() {
+        openAI = BenchmarkFixtures.openAI();
+        gemini = BenchmarkFixtures.gemini();
+        openAIResponse = BenchmarkFixtures.payload("openai-chat-completion.json");
+        geminiResponse = BenchmarkFixtures.payload("gemini-generate-content.json");
+    }
+
+    @Benchmark
+    public String parseOpenAI() {
+        return openAI.extractContentFromResponse(openAIResponse);
+    }
+
+    @Benchmark
+    public String parseGemini() {
+        return gemini.extractContentFromResponse(geminiResponse);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String parseOpenAIMapTree() throws IOException {
+        Map<String, Object> body = objectMapper.readValue(openAIResponse, Map.class);
+        List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
+        Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
+        return (String) message.get("content");
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String parseGeminiMapTree() throws IOException {
+        Map<String, Object> body = objectMapper.readValue(geminiResponse, Map.class);
+        List<Map<String, Object>> candidates = (List<Map<String, Object>>) body.get("candidates");
+        Map<String, Object> content = (Map<String, Object>) candidates.get(0).get("content");
+        List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
+        return (String) parts.get(0).get("text");
+    }
+}
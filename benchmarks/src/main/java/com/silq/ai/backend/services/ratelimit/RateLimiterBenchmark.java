@@ -0,0 +1,109 @@
+package com.silq.ai.backend.services.ratelimit;
+
+import com.silq.ai.backend.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission decisions from four threads at once against one provider's bucket
+ * table, for different ways the callers' keys fall into it:
+ *
+ * <ul>
+ *   <li>{@code hot}: every thread charges the same key, so all CASes hit one slot</li>
+ *   <li>{@code adjacent}: one key per thread in neighbouring slots; a slot is three
+ *       longs, so the threads share cache lines without sharing a key</li>
+ *   <li>{@code spread}: one key per thread, with the slots a few cache lines apart</li>
+ *   <li>{@code many}: each thread cycles through its own 1024 keys</li>
+ * </ul>
+ *
+ * The cost of false sharing is the gap between {@code adjacent} and
+ * {@code spread}; it only shows with at least four cores. The limits are high
+ * enough that no call is throttled during a run, so every call ends in a CAS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    private static final int SLOTS = 16384;
+    private static final int MANY_KEYS = 1024;
+
+    /** Slots between two keys in the spread layout, 64 longs or eight cache lines. */
+    private static final int SPREAD_SLOTS = 64 / 3 + 1;
+
+    @Param({"hot", "adjacent", "spread", "many"})
+    public String keys;
+
+    ApiKeyRateLimiter.ProviderBuckets buckets;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties.Limits limits = new RateLimitProperties.Limits(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        buckets = new ApiKeyRateLimiter.ProviderBuckets(limits, SLOTS, "openai", new SimpleMeterRegistry());
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private long[] hashes;
+        private int next;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark, ThreadParams thread) {
+            int index = thread.getThreadIndex();
+            hashes = switch (benchmark.keys) {
+                case "hot" -> new long[] {ApiKeyRateLimiter.hashKey("sk-benchmark-hot")};
+                case "adjacent" -> new long[] {keyInSlot(index)};
+                case "spread" -> new long[] {keyInSlot(index * SPREAD_SLOTS)};
+                case "many" -> {
+                    long[] many = new long[MANY_KEYS];
+                    for (int i = 0; i < many.length; i++) {
+                        many[i] = ApiKeyRateLimiter.hashKey("sk-benchmark-" + index + "-" + i);
+                    }
+                    yield many;
+                }
+                default -> throw new IllegalArgumentException(benchmark.keys);
+            };
+        }
+
+        long nextHash() {
+            long hash = hashes[next];
+            next = next + 1 == hashes.length ? 0 : next + 1;
+            return hash;
+        }
+
+        /** Finds a key whose home is the given slot, the slot it takes in an empty table. */
+        private static long keyInSlot(int slot) {
+            for (int i = 0; ; i++) {
+                long hash = ApiKeyRateLimiter.hashKey("sk-benchmark-" + i);
+                if (((int) hash & (SLOTS - 1)) == slot) {
+                    return hash;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire(Caller caller) {
+        return buckets.tryAcquire(caller.nextHash(), 1, System.nanoTime());
+    }
+}
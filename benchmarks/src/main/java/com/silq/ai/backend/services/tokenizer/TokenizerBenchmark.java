@@ -0,0 +1,80 @@
+package com.silq.ai.backend.services.tokenizer;
+
+import com.silq.ai.backend.BenchmarkFixtures;
+import com.silq.ai.backend.services.llm.ChatMessage;
+import com.silq.ai.backend.services.llm.GeminiService;
+import com.silq.ai.backend.services.llm.OpenAIService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sizing a prompt on the request path: exact BPE counting for OpenAI,
+ * the Gemini estimate, the full {@link PromptTokenizer#fit} step, and cutting
+ * a document down to half its tokens at a paragraph boundary.
+ *
+ * The budget for every one of these is well under a millisecond at a few
+ * thousand words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    @Param({"500", "3000"})
+    public int words;
+
+    private final OpenAIService openAI = BenchmarkFixtures.openAI();
+    private final GeminiService gemini = BenchmarkFixtures.gemini();
+    private PromptTokenizer tokenizer;
+    private TokenCounter openAICounter;
+    private TokenCounter geminiCounter;
+    private String document;
+    private List<ChatMessage> messages;
+    private int halfOfDocument;
+
+    @Setup
+    public void setUp() {
+        tokenizer = new PromptTokenizer(BenchmarkFixtures.tokenizer(), new SimpleMeterRegistry());
+        openAICounter = tokenizer.counterFor(openAI);
+        geminiCounter = tokenizer.counterFor(gemini);
+        document = BenchmarkFixtures.document(words);
+        messages = List.of(ChatMessage.user(document));
+        halfOfDocument = openAICounter.count(document) / 2;
+    }
+
+    @Benchmark
+    public int countOpenAI() {
+        return openAICounter.count(document);
+    }
+
+    @Benchmark
+    public int countGemini() {
+        return geminiCounter.count(document);
+    }
+
+    @Benchmark
+    public SizedPrompt fitOpenAI() {
+        return tokenizer.fit(openAI, messages);
+    }
+
+    @Benchmark
+    public String truncateOpenAI() {
+        return PromptTokenizer.truncate(openAICounter, document, halfOfDocument);
+    }
+}
@@ -0,0 +1,132 @@
+#!/usr/bin/env bash
+# Measures cold-start time and first-request latency of the backend per startup
+# variant, offline: the providers are served by a separate mock instance.
+#
+#   (cd backend && mvn -B -Pfast-startup package -DskipTests)   # once
+#   benchmarks/startup-test.sh                 # all variants, 3 runs each
+#   benchmarks/startup-test.sh 5 default fast-startup
+#
+# Arguments: runs per variant (default 3), then the variants to run (default all):
+#   default       executable jar as built without the profile
+#   lazy          executable jar, fast-startup Spring profile (lazy beans off the chat path)
+#   aot           plain jar with Spring AOT initialization
+#   aot-cds       plain jar, AOT, AppCDS archive from the training run
+#   fast-startup  plain jar, AOT, AppCDS archive and the fast-startup Spring profile
+#
+# Per run it reports the time from launch until /api/health answers, Spring's own
+# "Started ... in" figure, the latency of the first chat request and the resident
+# set size after it; then the median of each per variant. Environment:
+#   PORT, MOCK_PORT  ports of the backend under test and the mock (default 18081, 18090)
+#   JAVA_OPTS        JVM options added to every variant, e.g. "-Xmx512m"
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+TARGET="$ROOT/backend/target"
+EXEC_JAR="$TARGET/silq-ai-backend-1.0.0-exec.jar"
+PLAIN_JAR="$TARGET/silq-ai-backend-1.0.0.jar"
+ARCHIVE="$TARGET/silq-ai-backend-1.0.0.jsa"
+PORT="${PORT:-18081}"
+MOCK_PORT="${MOCK_PORT:-18090}"
+LOG="${TMPDIR:-/tmp}/silq-startup-test-backend.log"
+MOCK_LOG="${TMPDIR:-/tmp}/silq-startup-test-mock.log"
+
+RUNS="${1:-3}"
+shift || true
+VARIANTS=("$@")
+if [[ ${#VARIANTS[@]} -eq 0 ]]; then
+    VARIANTS=(default lazy aot aot-cds fast-startup)
+fi
+
+for file in "$EXEC_JAR" "$PLAIN_JAR" "$ARCHIVE" "$TARGET/lib"; do
+    if [[ ! -e "$file" ]]; then
+        echo "Missing $file; run 'mvn -B -Pfast-startup package -DskipTests' in $ROOT/backend first" >&2
+        exit 1
+    fi
+done
+
+command_for() {
+    case "$1" in
+        default)      echo "-jar $EXEC_JAR" ;;
+        lazy)         echo "-jar $EXEC_JAR --spring.profiles.active=fast-startup" ;;
+        aot)          echo "-Dspring.aot.enabled=true -jar $PLAIN_JAR" ;;
+        aot-cds)      echo "-XX:SharedArchiveFile=$ARCHIVE -Dspring.aot.enabled=true -jar $PLAIN_JAR" ;;
+        fast-startup) echo "-XX:SharedArchiveFile=$ARCHIVE -Dspring.aot.enabled=true -jar $PLAIN_JAR --spring.profiles.active=fast-startup" ;;
+        *)            echo "Unknown variant $1" >&2; exit 1 ;;
+    esac
+}
+
+millis() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+wait_for_health() {
+    local port=$1 pid=$2
+    until curl -sf "http://localhost:$port/api/health" > /dev/null; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            return 1
+        fi
+        sleep 0.02
+    done
+}
+
+BACKEND_PID=""
+MOCK_PID=""
+cleanup() {
+    for pid in "$BACKEND_PID" "$MOCK_PID"; do
+        if [[ -n "$pid" ]]; then
+            kill "$pid" 2>/dev/null || true
+        fi
+    done
+    wait 2>/dev/null || true
+}
+trap cleanup EXIT
+trap 'exit 130' INT TERM
+
+# The mock runs for the whole test, idle while a backend starts
+java -jar "$EXEC_JAR" --spring.profiles.active=mock --server.port="$MOCK_PORT" \
+    --silq.ratelimit.enabled=false --silq.mock.latency-median=50ms --silq.mock.latency-p99=100ms > "$MOCK_LOG" 2>&1 &
+MOCK_PID=$!
+if ! wait_for_health "$MOCK_PORT" "$MOCK_PID"; then
+    echo "Mock exited during startup, see $MOCK_LOG" >&2
+    exit 1
+fi
+
+REQUEST='{"provider":"openai","prompt":"Fix grammar: the results is good","apiKey":"startup-test"}'
+RESULTS=""
+printf '%-14s %4s %12s %12s %16s %8s\n' variant run health_ms started_ms first_chat_ms rss_mb
+for variant in "${VARIANTS[@]}"; do
+    read -r -a command <<< "$(command_for "$variant")"
+    for run in $(seq "$RUNS"); do
+        started=$(millis)
+        # shellcheck disable=SC2086
+        java ${JAVA_OPTS:-} "${command[@]}" --server.port="$PORT" \
+            --silq.llm.openai.base-url="http://localhost:$MOCK_PORT/mock/openai" \
+            --silq.llm.gemini.base-url="http://localhost:$MOCK_PORT/mock/gemini" > "$LOG" 2>&1 &
+        BACKEND_PID=$!
+        if ! wait_for_health "$PORT" "$BACKEND_PID"; then
+            echo "Backend ($variant) exited during startup, see $LOG" >&2
+            exit 1
+        fi
+        health=$(( $(millis) - started ))
+        first_chat=$(curl -s -o /dev/null -w '%{time_total}' -H 'Content-Type: application/json' \
+            -d "$REQUEST" "http://localhost:$PORT/api/chat" | awk '{ printf "%d", $1 * 1000 }')
+        spring=$(grep -o 'Started .* in [0-9.]* seconds' "$LOG" | awk '{ printf "%d", $(NF-1) * 1000 }')
+        rss=$(awk '/VmRSS/ { printf "%d", $2 / 1024 }' "/proc/$BACKEND_PID/status" 2>/dev/null || echo 0)
+        kill "$BACKEND_PID"
+        wait "$BACKEND_PID" 2>/dev/null || true
+        BACKEND_PID=""
+        printf '%-14s %4d %12d %12d %16d %8d\n' "$variant" "$run" "$health" "$spring" "$first_chat" "$rss"
+        RESULTS+="$variant $health $spring $first_chat $rss"$'\n'
+    done
+done
+
+echo
+echo "Medians:"
+printf '%-14s %12s %12s %16s %8s\n' variant health_ms started_ms first_chat_ms rss_mb
+for variant in "${VARIANTS[@]}"; do
+    median() {
+        awk -v v="$variant" -v c="$1" '$1 == v { print $c }' <<< "$RESULTS" | sort -n \
+            | awk '{ a[NR] = $1 } END { print (NR % 2 ? a[(NR + 1) / 2] : int((a[NR / 2] + a[NR / 2 + 1]) / 2)) }'
+    }
+    printf '%-14s %12d %12d %16d %8d\n' "$variant" "$(median 2)" "$(median 3)" "$(median 4)" "$(median 5)"
+done